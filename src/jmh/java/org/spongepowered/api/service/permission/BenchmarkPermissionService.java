@@ -0,0 +1,244 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.permission;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.spongepowered.api.service.permission.context.Context;
+import org.spongepowered.api.service.permission.context.ContextCalculator;
+import org.spongepowered.api.util.Tristate;
+import org.spongepowered.api.util.command.CommandSource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A minimal in-memory permission service used as the fixture for the
+ * permission benchmarks. Subjects resolve permissions the way a typical
+ * provider would: transient data, then persistent data, then parents
+ * depth-first, then the service defaults.
+ */
+public class BenchmarkPermissionService implements PermissionService {
+    private final MemorySubjectData defaultData = new MemorySubjectData(this);
+    private final ConcurrentMap<String, SubjectCollection> collections = Maps.newConcurrentMap();
+
+    public BenchmarkPermissionService() {
+        this.collections.put(SUBJECTS_USER, new Collection(SUBJECTS_USER));
+        this.collections.put(SUBJECTS_GROUP, new Collection(SUBJECTS_GROUP));
+    }
+
+    @Override
+    public SubjectCollection getUserSubjects() {
+        return this.collections.get(SUBJECTS_USER);
+    }
+
+    @Override
+    public SubjectCollection getGroupSubjects() {
+        return this.collections.get(SUBJECTS_GROUP);
+    }
+
+    @Override
+    public MemorySubjectData getDefaultData() {
+        return this.defaultData;
+    }
+
+    @Override
+    public Optional<SubjectCollection> getSubjects(String identifier) {
+        return Optional.fromNullable(this.collections.get(identifier));
+    }
+
+    @Override
+    public Map<String, SubjectCollection> getKnownSubjects() {
+        return ImmutableMap.copyOf(this.collections);
+    }
+
+    @Override
+    public void registerContextCalculator(ContextCalculator calculator) {
+    }
+
+    private class Collection implements SubjectCollection {
+        private final String identifier;
+        private final ConcurrentMap<String, Subject> subjects = Maps.newConcurrentMap();
+
+        private Collection(String identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return this.identifier;
+        }
+
+        @Override
+        public Subject get(String identifier) {
+            identifier = identifier.toLowerCase();
+            Subject ret = this.subjects.get(identifier);
+            if (ret == null) {
+                Subject newSubject = new MemorySubject(identifier, this);
+                ret = this.subjects.putIfAbsent(identifier, newSubject);
+                if (ret == null) {
+                    ret = newSubject;
+                }
+            }
+            return ret;
+        }
+
+        @Override
+        public boolean hasRegistered(String identifier) {
+            return this.subjects.containsKey(identifier.toLowerCase());
+        }
+
+        @Override
+        public Iterable<Subject> getAllSubjects() {
+            return Collections.unmodifiableCollection(this.subjects.values());
+        }
+
+        @Override
+        public Map<Subject, Boolean> getAllWithPermission(String permission) {
+            return getAllWithPermission(SubjectData.GLOBAL_CONTEXT, permission);
+        }
+
+        @Override
+        public Map<Subject, Boolean> getAllWithPermission(Set<Context> contexts, String permission) {
+            ImmutableMap.Builder<Subject, Boolean> ret = ImmutableMap.builder();
+            for (Subject subject : this.subjects.values()) {
+                Tristate value = subject.getPermissionValue(contexts, permission);
+                if (value != Tristate.UNDEFINED) {
+                    ret.put(subject, value.asBoolean());
+                }
+            }
+            return ret.build();
+        }
+    }
+
+    private class MemorySubject implements Subject {
+        private final String identifier;
+        private final SubjectCollection collection;
+        private final MemorySubjectData data = new MemorySubjectData(BenchmarkPermissionService.this);
+        private final MemorySubjectData transientData = new MemorySubjectData(BenchmarkPermissionService.this);
+
+        private MemorySubject(String identifier, SubjectCollection collection) {
+            this.identifier = identifier;
+            this.collection = collection;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return this.identifier;
+        }
+
+        @Override
+        public Optional<CommandSource> getCommandSource() {
+            return Optional.absent();
+        }
+
+        @Override
+        public SubjectCollection getContainingCollection() {
+            return this.collection;
+        }
+
+        @Override
+        public MemorySubjectData getData() {
+            return this.data;
+        }
+
+        @Override
+        public MemorySubjectData getTransientData() {
+            return this.transientData;
+        }
+
+        @Override
+        public boolean hasPermission(Set<Context> contexts, String permission) {
+            return getPermissionValue(contexts, permission) == Tristate.TRUE;
+        }
+
+        @Override
+        public boolean hasPermission(String permission) {
+            return hasPermission(getActiveContexts(), permission);
+        }
+
+        @Override
+        public Tristate getPermissionValue(Set<Context> contexts, String permission) {
+            Tristate ret = getLocalPermissionValue(contexts, permission);
+            if (ret == Tristate.UNDEFINED) {
+                ret = BenchmarkPermissionService.this.defaultData.getNodeTree(contexts).get(permission);
+            }
+            return ret;
+        }
+
+        private Tristate getLocalPermissionValue(Set<Context> contexts, String permission) {
+            Tristate ret = this.transientData.getNodeTree(contexts).get(permission);
+            if (ret != Tristate.UNDEFINED) {
+                return ret;
+            }
+            ret = this.data.getNodeTree(contexts).get(permission);
+            if (ret != Tristate.UNDEFINED) {
+                return ret;
+            }
+            for (Subject parent : this.data.getParents(contexts)) {
+                ret = ((MemorySubject) parent).getLocalPermissionValue(contexts, permission);
+                if (ret != Tristate.UNDEFINED) {
+                    return ret;
+                }
+            }
+            return Tristate.UNDEFINED;
+        }
+
+        @Override
+        public boolean isChildOf(Subject parent) {
+            return isChildOf(getActiveContexts(), parent);
+        }
+
+        @Override
+        public boolean isChildOf(Set<Context> contexts, Subject parent) {
+            for (Subject subject : this.data.getParents(contexts)) {
+                if (subject.equals(parent) || subject.isChildOf(contexts, parent)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public List<Subject> getParents() {
+            return getParents(getActiveContexts());
+        }
+
+        @Override
+        public List<Subject> getParents(Set<Context> contexts) {
+            return this.data.getParents(contexts);
+        }
+
+        @Override
+        public Set<Context> getActiveContexts() {
+            return ImmutableSet.of();
+        }
+    }
+}
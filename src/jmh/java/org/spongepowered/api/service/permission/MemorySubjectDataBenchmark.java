@@ -0,0 +1,101 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.permission;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongepowered.api.util.Tristate;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MemorySubjectData#setPermission} with 16 threads writing
+ * to the same subject data, which exercises the compare-and-swap retry loop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class MemorySubjectDataBenchmark {
+    private static final int PERMISSION_COUNT = 1024;
+
+    @Param({"0", "10000"})
+    public int existingNodes;
+
+    private MemorySubjectData data;
+    private String[] permissions;
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private int index;
+        private boolean value;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.index = new Random().nextInt(PERMISSION_COUNT);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Random random = new Random(42);
+        this.data = new MemorySubjectData(new BenchmarkPermissionService());
+        for (int i = 0; i < this.existingNodes; i++) {
+            this.data.setPermission(SubjectData.GLOBAL_CONTEXT, NodeTreeBenchmark.randomPermission(random, 4), Tristate.TRUE);
+        }
+        this.permissions = new String[PERMISSION_COUNT];
+        for (int i = 0; i < PERMISSION_COUNT; i++) {
+            this.permissions[i] = "contended." + NodeTreeBenchmark.randomPermission(random, 3);
+        }
+    }
+
+    @Benchmark
+    public boolean setPermission(Writer writer) {
+        writer.index = (writer.index + 1) & (PERMISSION_COUNT - 1);
+        writer.value = !writer.value;
+        return this.data.setPermission(SubjectData.GLOBAL_CONTEXT, this.permissions[writer.index], Tristate.fromBoolean(writer.value));
+    }
+
+    @Benchmark
+    public Tristate getWhileWriting(Writer writer) {
+        writer.index = (writer.index + 1) & (PERMISSION_COUNT - 1);
+        return this.data.getNodeTree(SubjectData.GLOBAL_CONTEXT).get(this.permissions[writer.index]);
+    }
+}
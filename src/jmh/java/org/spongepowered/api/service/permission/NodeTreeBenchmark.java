@@ -0,0 +1,139 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.permission;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongepowered.api.util.Tristate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookups against a {@link NodeTree} of varying depth, where a
+ * configurable fraction of the granted nodes uses a wildcard segment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeTreeBenchmark {
+    static final int QUERY_COUNT = 1024;
+
+    @Param({"2", "4", "8"})
+    public int depth;
+
+    @Param({"0.0", "0.25", "0.75"})
+    public double wildcardDensity;
+
+    @Param({"10000"})
+    public int size;
+
+    private NodeTree tree;
+    private String[] queries;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        Map<String, Boolean> values = new HashMap<String, Boolean>();
+        this.queries = new String[QUERY_COUNT];
+        for (int i = 0; i < this.size; i++) {
+            String permission = randomPermission(random, this.depth);
+            boolean wildcard = random.nextDouble() < this.wildcardDensity;
+            String granted = wildcard ? wildcardGrant(permission) : permission;
+            values.put(granted, random.nextBoolean());
+            if (i < QUERY_COUNT) {
+                this.queries[i] = permission;
+            }
+        }
+        for (int i = this.size; i < QUERY_COUNT; i++) {
+            this.queries[i] = this.queries[i % this.size];
+        }
+        this.tree = NodeTree.of(values);
+    }
+
+    @Benchmark
+    public Tristate get() {
+        this.index = (this.index + 1) & (QUERY_COUNT - 1);
+        return this.tree.get(this.queries[this.index]);
+    }
+
+    @Benchmark
+    public Tristate getMissing() {
+        return this.tree.get("unknown.permission.node");
+    }
+
+    /**
+     * Generate a dotted permission of the given depth. Segments are drawn
+     * from a small alphabet per level so that generated permissions share
+     * prefixes the way real plugin permissions do.
+     *
+     * @param random The random source
+     * @param depth The number of segments
+     * @return The generated permission
+     */
+    static String randomPermission(Random random, int depth) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            if (i > 0) {
+                builder.append('.');
+            }
+            builder.append("seg").append(i).append('x').append(random.nextInt(i == 0 ? 16 : 64));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get a node that grants the given permission through a wildcard, being
+     * the permission with its middle segment replaced by {@code *}.
+     *
+     * @param permission The permission to grant
+     * @return The granting node
+     */
+    static String wildcardGrant(String permission) {
+        String[] parts = permission.split("\\.");
+        parts[parts.length / 2] = NodeTree.WILDCARD;
+        StringBuilder builder = new StringBuilder(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            builder.append('.').append(parts[i]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.permission;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongepowered.api.util.Tristate;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures full {@link Subject} permission checks for a server's worth of
+ * users, each inheriting from a chain of groups of configurable length.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubjectBenchmark {
+
+    @Param({"0", "1", "4", "16"})
+    public int parentChainLength;
+
+    @Param({"300"})
+    public int users;
+
+    @Param({"100"})
+    public int permissionsPerSubject;
+
+    private Subject[] subjects;
+    private String inheritedPermission;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        PermissionService service = new BenchmarkPermissionService();
+        this.inheritedPermission = "inherited.top.level";
+
+        // group0 inherits from group1, and so on; the permission is only granted at the end of the chain
+        Subject parent = null;
+        for (int i = this.parentChainLength - 1; i >= 0; i--) {
+            Subject group = service.getGroupSubjects().get("group" + i);
+            fill(group, random);
+            if (parent == null) {
+                group.getData().setPermission(SubjectData.GLOBAL_CONTEXT, this.inheritedPermission, Tristate.TRUE);
+            } else {
+                group.getData().addParent(SubjectData.GLOBAL_CONTEXT, parent);
+            }
+            parent = group;
+        }
+
+        this.subjects = new Subject[this.users];
+        for (int i = 0; i < this.users; i++) {
+            Subject user = service.getUserSubjects().get("user" + i);
+            fill(user, random);
+            if (parent == null) {
+                user.getData().setPermission(SubjectData.GLOBAL_CONTEXT, this.inheritedPermission, Tristate.TRUE);
+            } else {
+                user.getData().addParent(SubjectData.GLOBAL_CONTEXT, parent);
+            }
+            this.subjects[i] = user;
+        }
+    }
+
+    private void fill(Subject subject, Random random) {
+        for (int i = 0; i < this.permissionsPerSubject; i++) {
+            subject.getData().setPermission(SubjectData.GLOBAL_CONTEXT, NodeTreeBenchmark.randomPermission(random, 4),
+                    Tristate.fromBoolean(random.nextBoolean()));
+        }
+    }
+
+    private Subject nextSubject() {
+        this.index = (this.index + 1) % this.subjects.length;
+        return this.subjects[this.index];
+    }
+
+    @Benchmark
+    public boolean hasInheritedPermission() {
+        return nextSubject().hasPermission(SubjectData.GLOBAL_CONTEXT, this.inheritedPermission);
+    }
+
+    @Benchmark
+    public boolean hasUndefinedPermission() {
+        return nextSubject().hasPermission(SubjectData.GLOBAL_CONTEXT, "not.granted.anywhere");
+    }
+}
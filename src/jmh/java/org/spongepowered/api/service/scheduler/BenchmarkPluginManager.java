@@ -0,0 +1,116 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.plugin.PluginManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fixed {@link PluginManager} whose plugins are their own instances.
+ */
+final class BenchmarkPluginManager implements PluginManager {
+
+    private final List<PluginContainer> plugins;
+    private final Map<String, PluginContainer> byId;
+
+    BenchmarkPluginManager(int count) {
+        ImmutableList.Builder<PluginContainer> plugins = ImmutableList.builder();
+        ImmutableMap.Builder<String, PluginContainer> byId = ImmutableMap.builder();
+        for (int i = 0; i < count; i++) {
+            Plugin plugin = new Plugin("plugin" + i);
+            plugins.add(plugin);
+            byId.put(plugin.getId(), plugin);
+        }
+        this.plugins = plugins.build();
+        this.byId = byId.build();
+    }
+
+    PluginContainer get(int index) {
+        return this.plugins.get(index);
+    }
+
+    @Override
+    public Optional<PluginContainer> fromInstance(Object instance) {
+        return instance instanceof Plugin ? Optional.of((PluginContainer) instance) : Optional.<PluginContainer>absent();
+    }
+
+    @Override
+    public Optional<PluginContainer> getPlugin(String id) {
+        return Optional.fromNullable(this.byId.get(id));
+    }
+
+    @Override
+    public Logger getLogger(PluginContainer plugin) {
+        return LoggerFactory.getLogger(plugin.getId());
+    }
+
+    @Override
+    public Collection<PluginContainer> getPlugins() {
+        return this.plugins;
+    }
+
+    @Override
+    public boolean isLoaded(String id) {
+        return this.byId.containsKey(id);
+    }
+
+    private static final class Plugin implements PluginContainer {
+
+        private final String id;
+
+        Plugin(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return this.id;
+        }
+
+        @Override
+        public String getName() {
+            return this.id;
+        }
+
+        @Override
+        public String getVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public Object getInstance() {
+            return this;
+        }
+    }
+}
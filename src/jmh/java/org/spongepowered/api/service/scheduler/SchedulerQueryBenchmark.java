@@ -0,0 +1,97 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import com.google.common.base.Optional;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link SchedulerQuery} lookups used by monitoring commands
+ * with many scheduled tasks spread over 100 plugins.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulerQueryBenchmark {
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Param({"50000"})
+    public int tasks;
+
+    private BenchmarkPluginManager pluginManager;
+    private SimpleSynchronousScheduler scheduler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.pluginManager = new BenchmarkPluginManager(100);
+        this.scheduler = new SimpleSynchronousScheduler(this.pluginManager);
+        for (int i = 0; i < this.tasks; i++) {
+            this.scheduler.runTaskAfter(this.pluginManager.get(i % 100), NOOP, Integer.MAX_VALUE);
+        }
+    }
+
+    @Benchmark
+    public Collection<Task> byOwner() {
+        return this.scheduler.getScheduledTasks(this.pluginManager.get(42));
+    }
+
+    @Benchmark
+    public Optional<UUID> byName() {
+        return this.scheduler.getUuidOfTaskByName("plugin42-S4243");
+    }
+
+    @Benchmark
+    public Collection<Task> byPrefixPattern() {
+        return this.scheduler.getTasksByName("plugin42-S.*");
+    }
+
+    @Benchmark
+    public Collection<Task> byPattern() {
+        return this.scheduler.getTasksByName(".*-S1234\\d");
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per tick cost of {@link SimpleSynchronousScheduler} with many
+ * waiting repeating tasks, the cost of scheduling and cancelling a task, and
+ * the cost of submitting 1000 runnables one by one or as a batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SynchronousSchedulerBenchmark {
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Param({"0", "10000", "100000"})
+    public int tasks;
+
+    private BenchmarkPluginManager pluginManager;
+    private SimpleSynchronousScheduler scheduler;
+    private List<Runnable> fanOut;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.pluginManager = new BenchmarkPluginManager(10);
+        this.scheduler = new SimpleSynchronousScheduler(this.pluginManager);
+        for (int i = 0; i < this.tasks; i++) {
+            this.scheduler.runRepeatingTaskAfter(this.pluginManager.get(i % 10), NOOP, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+        this.fanOut = Collections.nCopies(1000, NOOP);
+    }
+
+    @Benchmark
+    public void tick() {
+        this.scheduler.tick();
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return this.scheduler.runTaskAfter(this.pluginManager.get(0), NOOP, 1200).get().cancel();
+    }
+
+    @Benchmark
+    public void submitEach() {
+        for (Runnable runnable : this.fanOut) {
+            this.scheduler.runTask(this.pluginManager.get(0), runnable);
+        }
+        this.scheduler.tick();
+    }
+
+    @Benchmark
+    public void submitBatch() {
+        this.scheduler.runTasks(this.pluginManager.get(0), this.fanOut);
+        this.scheduler.tick();
+    }
+}
@@ -24,8 +24,10 @@
  */
 package org.spongepowered.api.net;
 
+import org.spongepowered.api.service.persistence.DataSerializable;
 import org.spongepowered.api.service.persistence.data.DataView;
 
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.UUID;
 
@@ -472,11 +474,94 @@ public interface ChannelBuf {
      */
     double getDouble(int index);
 
+    /**
+     * Sets the specified int as a variable length integer at the current
+     * writerIndex and increases the writerIndex by its encoded length, 1
+     * to 5 bytes in this buffer.
+     *
+     * <p>Seven bits are written per byte, least significant first, with the
+     * highest bit set on all bytes but the last. Negative values always
+     * take 5 bytes, {@link #writeSignedVarInt(int)} encodes small negative
+     * values in fewer bytes.</p>
+     *
+     * @param data The int data
+     * @return This stream for chaining
+     */
+    ChannelBuf writeVarInt(int data);
+
+    /**
+     * Gets a variable length integer at the current readerIndex and
+     * increases the readerIndex by its encoded length in this buffer.
+     *
+     * @return The int
+     * @throws IndexOutOfBoundsException If the integer is longer than 5
+     *     bytes or not readable
+     */
+    int readVarInt();
+
+    /**
+     * Sets the specified int as a zigzag encoded variable length integer at
+     * the current writerIndex, so that values close to zero take few bytes
+     * regardless of their sign.
+     *
+     * @param data The int data
+     * @return This stream for chaining
+     */
+    ChannelBuf writeSignedVarInt(int data);
+
+    /**
+     * Gets a zigzag encoded variable length integer at the current
+     * readerIndex.
+     *
+     * @return The int
+     */
+    int readSignedVarInt();
+
+    /**
+     * Sets the specified long as a variable length integer at the current
+     * writerIndex and increases the writerIndex by its encoded length, 1
+     * to 10 bytes in this buffer.
+     *
+     * @param data The long data
+     * @return This stream for chaining
+     */
+    ChannelBuf writeVarLong(long data);
+
+    /**
+     * Gets a variable length long at the current readerIndex and increases
+     * the readerIndex by its encoded length in this buffer.
+     *
+     * @return The long
+     * @throws IndexOutOfBoundsException If the long is longer than 10 bytes
+     *     or not readable
+     */
+    long readVarLong();
+
+    /**
+     * Sets the specified long as a zigzag encoded variable length integer
+     * at the current writerIndex.
+     *
+     * @param data The long data
+     * @return This stream for chaining
+     */
+    ChannelBuf writeSignedVarLong(long data);
+
+    /**
+     * Gets a zigzag encoded variable length long at the current
+     * readerIndex.
+     *
+     * @return The long
+     */
+    long readSignedVarLong();
+
     /**
      * Sets the specified string at the current writerIndex and increases
-     * the writerIndex by the length of the string.
+     * the writerIndex by its encoded length in this buffer.
      *
-     * @param data The boolean data
+     * <p>The string is written as the length of its UTF-8 encoding in bytes
+     * as a {@link #writeVarInt(int) varint}, followed by the encoding.</p>
+     *
+     * @param data The string data
      * @return This stream for chaining
      */
     ChannelBuf writeString(String data);
@@ -487,19 +572,34 @@ public interface ChannelBuf {
      * of this buffer.
      *
      * @param index The index
-     * @param data The boolean data
+     * @param data The string data
      * @return This stream for chaining
      */
     ChannelBuf setString(int index, String data);
 
     /**
      * Gets a string at the current readerIndex and increases the
-     * readerIndex by 1 in this buffer.
+     * readerIndex by its encoded length in this buffer.
      *
      * @return The string
+     * @throws IndexOutOfBoundsException If the encoded length exceeds the
+     *     readable bytes
      */
     String readString();
 
+    /**
+     * Gets a string at the current readerIndex and increases the
+     * readerIndex by its encoded length in this buffer, rejecting strings
+     * whose UTF-8 encoding is longer than the given limit before anything
+     * is allocated.
+     *
+     * @param maxLength The maximum length of the UTF-8 encoding in bytes
+     * @return The string
+     * @throws IndexOutOfBoundsException If the encoded length exceeds the
+     *     limit or the readable bytes
+     */
+    String readString(int maxLength);
+
     /**
      * Gets a string at the specified absolute index in this buffer.
      *
@@ -508,6 +608,86 @@ public interface ChannelBuf {
      */
     String getString(int index);
 
+    /**
+     * Sets the specified bytes prefixed with their length as a
+     * {@link #writeVarInt(int) varint} at the current writerIndex.
+     *
+     * @param data The bytes
+     * @return This stream for chaining
+     */
+    ChannelBuf writeByteArray(byte[] data);
+
+    /**
+     * Gets length prefixed bytes at the current readerIndex.
+     *
+     * @return The bytes
+     * @throws IndexOutOfBoundsException If the length exceeds the readable
+     *     bytes
+     */
+    byte[] readByteArray();
+
+    /**
+     * Gets length prefixed bytes at the current readerIndex, rejecting
+     * arrays longer than the given limit before anything is allocated.
+     *
+     * @param maxLength The maximum number of bytes
+     * @return The bytes
+     * @throws IndexOutOfBoundsException If the length exceeds the limit or
+     *     the readable bytes
+     */
+    byte[] readByteArray(int maxLength);
+
+    /**
+     * Sets the specified bytes at the current writerIndex and increases
+     * the writerIndex by their number, without a length prefix.
+     *
+     * @param data The bytes
+     * @return This stream for chaining
+     */
+    ChannelBuf writeBytes(byte[] data);
+
+    /**
+     * Sets a region of the specified bytes at the current writerIndex and
+     * increases the writerIndex by its length, without a length prefix.
+     *
+     * @param data The bytes
+     * @param offset The start of the region
+     * @param length The length of the region
+     * @return This stream for chaining
+     */
+    ChannelBuf writeBytes(byte[] data, int offset, int length);
+
+    /**
+     * Sets the remaining bytes of the specified buffer at the current
+     * writerIndex and increases the writerIndex by their number. The
+     * position of the given buffer is moved to its limit.
+     *
+     * @param data The buffer
+     * @return This stream for chaining
+     */
+    ChannelBuf writeBytes(ByteBuffer data);
+
+    /**
+     * Fills the specified array with bytes at the current readerIndex and
+     * increases the readerIndex by its length.
+     *
+     * @param data The array to fill
+     * @return This stream for chaining
+     * @throws IndexOutOfBoundsException If fewer bytes are readable
+     */
+    ChannelBuf readBytes(byte[] data);
+
+    /**
+     * Fills the remaining space of the specified buffer with bytes at the
+     * current readerIndex and increases the readerIndex by their number.
+     * The position of the given buffer is moved to its limit.
+     *
+     * @param data The buffer to fill
+     * @return This stream for chaining
+     * @throws IndexOutOfBoundsException If fewer bytes are readable
+     */
+    ChannelBuf readBytes(ByteBuffer data);
+
     /**
      * Sets the specified {@link UUID} at the current writerIndex and
      * increases the writerIndex by 16 in this buffer.
@@ -546,11 +726,19 @@ public interface ChannelBuf {
 
     /**
      * Sets the specified {@link DataView} at the current writerIndex and
-     * increases the writerIndex according to the lenght of the data view
-     * in this buffer.
+     * increases the writerIndex by its encoded length in this buffer.
      *
-     * @param data The boolean data
+     * <p>The view is encoded in a single pass straight into this buffer: the
+     * length of the encoded body as an int, then each entry as a tag byte,
+     * its key as a {@link #writeString(String) string} and its value,
+     * followed by a zero byte. Ints and longs are written as
+     * {@link #writeSignedVarInt(int) signed varints}. Nested views, maps and
+     * {@link DataSerializable}s are encoded as views.</p>
+     *
+     * @param data The data view
      * @return This stream for chaining
+     * @throws IllegalArgumentException If a value of the view can not be
+     *     encoded
      */
     ChannelBuf writeDataView(DataView data);
 
@@ -560,14 +748,18 @@ public interface ChannelBuf {
      * of this buffer.
      *
      * @param index The index
-     * @param data The boolean data
+     * @param data The data view
      * @return This stream for chaining
      */
     ChannelBuf setDataView(int index, DataView data);
 
     /**
      * Gets a {@link DataView} at the current readerIndex and increases the
-     * readerIndex according to the length of the data view in this buffer.
+     * readerIndex by its encoded length in this buffer.
+     *
+     * <p>Only the entries of the outer view are decoded. Nested views are
+     * skipped over using their length and decoded once they are first
+     * accessed, until then they share the content of this buffer.</p>
      *
      * @return The data view
      */
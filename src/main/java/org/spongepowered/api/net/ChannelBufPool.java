@@ -0,0 +1,236 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Objects;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct {@link ByteBuffer}s backing {@link PooledChannelBuf}s.
+ *
+ * <p>Memory is handed out in power of two size classes from
+ * {@value #MIN_CAPACITY} bytes up to the maximum pooled capacity. Released
+ * memory is kept in a bounded free list per size class. Larger requests are
+ * allocated without pooling. Pooled memory is not cleared when it is
+ * reused.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public final class ChannelBufPool {
+
+    /**
+     * The smallest capacity handed out, in bytes.
+     */
+    public static final int MIN_CAPACITY = 256;
+
+    /**
+     * The default largest capacity that is pooled, in bytes.
+     */
+    public static final int DEFAULT_MAX_POOLED_CAPACITY = 64 * 1024;
+
+    /**
+     * The default number of free buffers kept per size class.
+     */
+    public static final int DEFAULT_MAX_FREE = 64;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_CAPACITY);
+
+    private final int maxPooledCapacity;
+    private final int maxFree;
+    private final FreeList[] free;
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    /**
+     * Creates a pool with the default limits.
+     */
+    public ChannelBufPool() {
+        this(DEFAULT_MAX_POOLED_CAPACITY, DEFAULT_MAX_FREE);
+    }
+
+    /**
+     * Creates a pool.
+     *
+     * @param maxPooledCapacity The largest capacity that is pooled, rounded
+     *     up to a power of two
+     * @param maxFree The number of free buffers kept per size class
+     */
+    public ChannelBufPool(int maxPooledCapacity, int maxFree) {
+        checkArgument(maxPooledCapacity >= MIN_CAPACITY, "maxPooledCapacity must be at least %s", MIN_CAPACITY);
+        checkArgument(maxPooledCapacity <= 1 << 30, "maxPooledCapacity is too large");
+        checkArgument(maxFree >= 0, "maxFree must not be negative");
+        this.maxPooledCapacity = roundUp(maxPooledCapacity);
+        this.maxFree = maxFree;
+        int classes = sizeClass(this.maxPooledCapacity) + 1;
+        this.free = new FreeList[classes];
+        for (int i = 0; i < classes; i++) {
+            this.free[i] = new FreeList();
+        }
+    }
+
+    /**
+     * Allocates an empty buffer of at least {@link #MIN_CAPACITY} bytes,
+     * which grows as it is written to.
+     *
+     * @return The buffer
+     */
+    public PooledChannelBuf allocate() {
+        return allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Allocates an empty buffer of at least the given capacity, which grows
+     * as it is written to.
+     *
+     * @param initialCapacity The initial capacity in bytes
+     * @return The buffer
+     */
+    public PooledChannelBuf allocate(int initialCapacity) {
+        checkArgument(initialCapacity >= 0, "initialCapacity must not be negative");
+        return new PooledChannelBuf(this, acquire(initialCapacity));
+    }
+
+    /**
+     * Allocates a buffer holding a copy of the given bytes.
+     *
+     * @param bytes The bytes
+     * @return The buffer, readable from index 0 to the length of the bytes
+     */
+    public PooledChannelBuf copyOf(byte[] bytes) {
+        PooledChannelBuf buf = allocate(bytes.length);
+        buf.writeBytes(bytes);
+        return buf;
+    }
+
+    /**
+     * Gets the number of direct buffers allocated by this pool.
+     *
+     * @return The number of allocations
+     */
+    public long getAllocated() {
+        return this.allocated.get();
+    }
+
+    /**
+     * Gets the number of times a free buffer was handed out again instead
+     * of allocating a new one.
+     *
+     * @return The number of reuses
+     */
+    public long getReused() {
+        return this.reused.get();
+    }
+
+    Chunk acquire(int capacity) {
+        if (capacity > this.maxPooledCapacity) {
+            this.allocated.incrementAndGet();
+            return new Chunk(this, ByteBuffer.allocateDirect(capacity), -1);
+        }
+        int sizeClass = sizeClass(roundUp(Math.max(capacity, MIN_CAPACITY)));
+        FreeList free = this.free[sizeClass];
+        Chunk chunk = free.chunks.poll();
+        if (chunk != null) {
+            free.count.decrementAndGet();
+            this.reused.incrementAndGet();
+            chunk.refs.set(1);
+            return chunk;
+        }
+        this.allocated.incrementAndGet();
+        return new Chunk(this, ByteBuffer.allocateDirect(MIN_CAPACITY << sizeClass), sizeClass);
+    }
+
+    void recycle(Chunk chunk) {
+        if (chunk.sizeClass < 0) {
+            return;
+        }
+        FreeList free = this.free[chunk.sizeClass];
+        if (free.count.incrementAndGet() > this.maxFree) {
+            free.count.decrementAndGet();
+            return;
+        }
+        free.chunks.offer(chunk);
+    }
+
+    private static int roundUp(int capacity) {
+        return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    private static int sizeClass(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - MIN_SHIFT;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("maxPooledCapacity", this.maxPooledCapacity)
+                .add("maxFree", this.maxFree)
+                .add("allocated", this.allocated.get())
+                .add("reused", this.reused.get())
+                .toString();
+    }
+
+    private static final class FreeList {
+
+        final Queue<Chunk> chunks = new ConcurrentLinkedQueue<Chunk>();
+        final AtomicInteger count = new AtomicInteger();
+
+    }
+
+    /**
+     * A region of direct memory with a count of the buffers referring to it.
+     */
+    static final class Chunk {
+
+        final ChannelBufPool pool;
+        final ByteBuffer buffer;
+        final int sizeClass;
+        final AtomicInteger refs = new AtomicInteger(1);
+
+        Chunk(ChannelBufPool pool, ByteBuffer buffer, int sizeClass) {
+            this.pool = pool;
+            this.buffer = buffer;
+            this.sizeClass = sizeClass;
+        }
+
+        void retain() {
+            this.refs.incrementAndGet();
+        }
+
+        void release() {
+            if (this.refs.decrementAndGet() == 0) {
+                this.pool.recycle(this);
+            }
+        }
+
+    }
+
+}
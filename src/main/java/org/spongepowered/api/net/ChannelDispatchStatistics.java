@@ -0,0 +1,154 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import com.google.common.base.Objects;
+
+/**
+ * A snapshot of the payloads a {@link ChannelDispatcher} received on a
+ * channel.
+ */
+public final class ChannelDispatchStatistics {
+
+    private final String channel;
+    private final ChannelThreading threading;
+    private final long received;
+    private final long handled;
+    private final long failed;
+    private final long overflowed;
+    private final long rateLimited;
+    private final int pending;
+
+    ChannelDispatchStatistics(String channel, ChannelThreading threading, long received, long handled, long failed, long overflowed,
+            long rateLimited, int pending) {
+        this.channel = channel;
+        this.threading = threading;
+        this.received = received;
+        this.handled = handled;
+        this.failed = failed;
+        this.overflowed = overflowed;
+        this.rateLimited = rateLimited;
+        this.pending = pending;
+    }
+
+    /**
+     * Gets the channel.
+     *
+     * @return The channel
+     */
+    public String getChannel() {
+        return this.channel;
+    }
+
+    /**
+     * Gets the thread the listener of the channel is called on.
+     *
+     * @return The threading
+     */
+    public ChannelThreading getThreading() {
+        return this.threading;
+    }
+
+    /**
+     * Gets the number of payloads received, including dropped ones.
+     *
+     * @return The number of received payloads
+     */
+    public long getReceived() {
+        return this.received;
+    }
+
+    /**
+     * Gets the number of payloads passed to the listener, including the
+     * ones it failed to handle.
+     *
+     * @return The number of handled payloads
+     */
+    public long getHandled() {
+        return this.handled;
+    }
+
+    /**
+     * Gets the number of payloads the listener threw an exception for.
+     *
+     * @return The number of failed payloads
+     */
+    public long getFailed() {
+        return this.failed;
+    }
+
+    /**
+     * Gets the number of payloads dropped because the queue of the channel
+     * was full.
+     *
+     * @return The number of overflowed payloads
+     */
+    public long getOverflowed() {
+        return this.overflowed;
+    }
+
+    /**
+     * Gets the number of payloads dropped because their client exceeded the
+     * rate limit of the channel.
+     *
+     * @return The number of rate limited payloads
+     */
+    public long getRateLimited() {
+        return this.rateLimited;
+    }
+
+    /**
+     * Gets the total number of dropped payloads.
+     *
+     * @return The number of dropped payloads
+     */
+    public long getDropped() {
+        return this.overflowed + this.rateLimited;
+    }
+
+    /**
+     * Gets the number of payloads waiting to be handled.
+     *
+     * @return The number of pending payloads
+     */
+    public int getPending() {
+        return this.pending;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("channel", this.channel)
+                .add("threading", this.threading)
+                .add("received", this.received)
+                .add("handled", this.handled)
+                .add("failed", this.failed)
+                .add("overflowed", this.overflowed)
+                .add("rateLimited", this.rateLimited)
+                .add("pending", this.pending)
+                .toString();
+    }
+
+}
@@ -0,0 +1,443 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.api.service.scheduler.SynchronousScheduler;
+import org.spongepowered.api.service.scheduler.Task;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes received custom payloads to the {@link ChannelListener} of their
+ * channel on the thread it was registered for, backing
+ * {@link ChannelRegistrar#registerChannel(Object, ChannelListener, String, ChannelThreading)}.
+ *
+ * <p>The network layer calls {@link #dispatch} for every payload. Payloads
+ * for {@link ChannelThreading#NETWORK} listeners are handled right away,
+ * others are put in the queue of their channel: {@link ChannelThreading#MAIN}
+ * queues are drained by {@link #tick()}, usually once per tick when
+ * {@link #start started}, and {@link ChannelThreading#ASYNC} queues by a
+ * single task at a time on the asynchronous executor.</p>
+ *
+ * <p>Each channel limits the number of queued payloads and, for each
+ * client, the number of payloads per second. A payload exceeding either
+ * limit is dropped and counted in the {@link #getStatistics() statistics}
+ * of its channel.</p>
+ *
+ * <p>The traffic of all channels is recorded in the {@link #getMetrics()
+ * metrics} of the dispatcher.</p>
+ *
+ * <p>A dispatcher takes over the reference of the caller to a dispatched
+ * {@link PooledChannelBuf} and releases it once handled or dropped.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public class ChannelDispatcher {
+
+    /**
+     * The default maximum number of payloads waiting to be handled on a
+     * channel.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final Logger log = LoggerFactory.getLogger(ChannelDispatcher.class);
+    private final Executor asyncExecutor;
+    private final ChannelMetrics metrics;
+    private final Ticker ticker;
+    private final ConcurrentMap<String, Channel> channels = Maps.newConcurrentMap();
+
+    /**
+     * Creates a new dispatcher.
+     *
+     * @param asyncExecutor The executor to handle payloads of
+     *     {@link ChannelThreading#ASYNC} channels on
+     */
+    public ChannelDispatcher(Executor asyncExecutor) {
+        this(asyncExecutor, new ChannelMetrics());
+    }
+
+    /**
+     * Creates a new dispatcher recording into the given metrics.
+     *
+     * @param asyncExecutor The executor to handle payloads of
+     *     {@link ChannelThreading#ASYNC} channels on
+     * @param metrics The metrics to record the traffic in
+     */
+    public ChannelDispatcher(Executor asyncExecutor, ChannelMetrics metrics) {
+        this(asyncExecutor, metrics, Ticker.systemTicker());
+    }
+
+    ChannelDispatcher(Executor asyncExecutor, ChannelMetrics metrics, Ticker ticker) {
+        this.asyncExecutor = checkNotNull(asyncExecutor, "asyncExecutor");
+        this.metrics = checkNotNull(metrics, "metrics");
+        this.ticker = checkNotNull(ticker, "ticker");
+    }
+
+    /**
+     * Gets the metrics the traffic of the channels is recorded in.
+     *
+     * @return The metrics
+     */
+    public ChannelMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Registers the listener of a channel, with the
+     * {@link #DEFAULT_QUEUE_CAPACITY default queue capacity} and no rate
+     * limit.
+     *
+     * @param plugin The plugin registering the channel
+     * @param listener The listener of the channel
+     * @param channel The channel to register
+     * @param threading The thread to call the listener on
+     * @throws ChannelRegistrationException If the channel is already registered
+     */
+    public void register(Object plugin, ChannelListener listener, String channel, ChannelThreading threading)
+            throws ChannelRegistrationException {
+        Channel registration = new Channel(checkNotNull(plugin, "plugin"), checkNotNull(listener, "listener"),
+                checkNotNull(channel, "channel"), checkNotNull(threading, "threading"));
+        if (this.channels.putIfAbsent(channel, registration) != null) {
+            throw new ChannelRegistrationException("The channel " + channel + " is already registered");
+        }
+        this.metrics.register(channel, plugin);
+    }
+
+    /**
+     * Sets the limits of a registered channel.
+     *
+     * <p>Lowering the queue capacity does not drop payloads already queued.
+     * The rate limit allows each client a burst of up to one second worth
+     * of payloads.</p>
+     *
+     * @param channel The channel
+     * @param queueCapacity The maximum number of payloads waiting to be
+     *     handled, not used by {@link ChannelThreading#NETWORK}
+     * @param payloadsPerSecond The maximum number of payloads handled per
+     *     second for each client, or 0 for no limit
+     * @throws IllegalArgumentException If the channel is not registered
+     */
+    public void setLimits(String channel, int queueCapacity, int payloadsPerSecond) {
+        checkArgument(queueCapacity > 0, "queueCapacity must be positive");
+        checkArgument(payloadsPerSecond >= 0, "payloadsPerSecond must not be negative");
+        Channel registration = this.channels.get(channel);
+        checkArgument(registration != null, "The channel %s is not registered", channel);
+        registration.queueCapacity = queueCapacity;
+        registration.payloadsPerSecond = payloadsPerSecond;
+    }
+
+    /**
+     * Dispatches a payload received from a client.
+     *
+     * @param client The client sending the payload
+     * @param channel The channel the payload was sent on
+     * @param data The payload
+     * @return Whether the payload was handled or queued, false if it was
+     *     dropped or its channel is not registered
+     */
+    public boolean dispatch(PlayerConnection client, String channel, ChannelBuf data) {
+        checkNotNull(client, "client");
+        checkNotNull(channel, "channel");
+        checkNotNull(data, "data");
+        Channel registration = this.channels.get(channel);
+        this.metrics.recordInbound(channel, data.available());
+        if (registration == null) {
+            this.metrics.recordRejected(channel);
+            release(data);
+            return false;
+        }
+        registration.received.incrementAndGet();
+        if (registration.payloadsPerSecond > 0 && !registration.bucket(client).tryAcquire(this.ticker.read(), registration.payloadsPerSecond)) {
+            registration.rateLimited.incrementAndGet();
+            this.metrics.recordRejected(channel);
+            release(data);
+            return false;
+        }
+        if (registration.threading == ChannelThreading.NETWORK) {
+            registration.handle(new Payload(client, data));
+            return true;
+        }
+        if (registration.pending.incrementAndGet() > registration.queueCapacity) {
+            registration.pending.decrementAndGet();
+            registration.overflowed.incrementAndGet();
+            this.metrics.recordRejected(channel);
+            release(data);
+            return false;
+        }
+        registration.queue.add(new Payload(client, data));
+        return registration.threading != ChannelThreading.ASYNC || registration.schedule();
+    }
+
+    /**
+     * Handles the payloads queued for {@link ChannelThreading#MAIN}
+     * listeners. Payloads queued while this runs are left for the next
+     * call.
+     */
+    public void tick() {
+        for (Channel registration : this.channels.values()) {
+            if (registration.threading == ChannelThreading.MAIN) {
+                registration.drain(registration.pending.get());
+            }
+        }
+    }
+
+    /**
+     * Starts handling the payloads queued for {@link ChannelThreading#MAIN}
+     * listeners once per tick.
+     *
+     * @param scheduler The scheduler to handle payloads on
+     * @param plugin The plugin owning the task
+     * @return The task, if it was scheduled
+     */
+    public Optional<Task> start(SynchronousScheduler scheduler, Object plugin) {
+        return scheduler.runRepeatingTask(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                tick();
+            }
+
+        }, 1);
+    }
+
+    /**
+     * Forgets the rate limits of a client that disconnected. Payloads of
+     * the client already queued are still handled.
+     *
+     * @param client The client
+     */
+    public void remove(PlayerConnection client) {
+        for (Channel registration : this.channels.values()) {
+            registration.buckets.remove(client);
+        }
+    }
+
+    /**
+     * Gets the registered channels.
+     *
+     * @return The registered channels
+     */
+    public List<String> getRegisteredChannels() {
+        return ImmutableList.copyOf(this.channels.keySet());
+    }
+
+    /**
+     * Gets the statistics of all registered channels.
+     *
+     * @return The statistics by channel
+     */
+    public Map<String, ChannelDispatchStatistics> getStatistics() {
+        ImmutableMap.Builder<String, ChannelDispatchStatistics> statistics = ImmutableMap.builder();
+        for (Channel registration : this.channels.values()) {
+            statistics.put(registration.name, registration.getStatistics());
+        }
+        return statistics.build();
+    }
+
+    /**
+     * Gets the statistics of a channel.
+     *
+     * @param channel The channel
+     * @return The statistics, if the channel is registered
+     */
+    public Optional<ChannelDispatchStatistics> getStatistics(String channel) {
+        Channel registration = this.channels.get(channel);
+        return registration == null ? Optional.<ChannelDispatchStatistics>absent() : Optional.of(registration.getStatistics());
+    }
+
+    private static void release(ChannelBuf data) {
+        if (data instanceof PooledChannelBuf) {
+            ((PooledChannelBuf) data).release();
+        }
+    }
+
+    private static final class Payload {
+
+        final PlayerConnection client;
+        final ChannelBuf data;
+
+        Payload(PlayerConnection client, ChannelBuf data) {
+            this.client = client;
+            this.data = data;
+        }
+
+    }
+
+    /**
+     * A token bucket limiting the payloads of a client on a channel.
+     */
+    private static final class Bucket {
+
+        private double tokens = -1;
+        private long refilled;
+
+        synchronized boolean tryAcquire(long now, int payloadsPerSecond) {
+            if (this.tokens < 0) {
+                this.tokens = payloadsPerSecond;
+            } else if (now > this.refilled) {
+                double refill = (now - this.refilled) * (double) payloadsPerSecond / TimeUnit.SECONDS.toNanos(1);
+                this.tokens = Math.min(payloadsPerSecond, this.tokens + refill);
+            }
+            this.refilled = now;
+            if (this.tokens < 1) {
+                return false;
+            }
+            this.tokens--;
+            return true;
+        }
+
+    }
+
+    private final class Channel implements Runnable {
+
+        final Object plugin;
+        final ChannelListener listener;
+        final String name;
+        final ChannelThreading threading;
+        final Queue<Payload> queue = new ConcurrentLinkedQueue<Payload>();
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final ConcurrentMap<PlayerConnection, Bucket> buckets = Maps.newConcurrentMap();
+        final AtomicLong received = new AtomicLong();
+        final AtomicLong handled = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong overflowed = new AtomicLong();
+        final AtomicLong rateLimited = new AtomicLong();
+        volatile int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        volatile int payloadsPerSecond;
+
+        Channel(Object plugin, ChannelListener listener, String name, ChannelThreading threading) {
+            this.plugin = plugin;
+            this.listener = listener;
+            this.name = name;
+            this.threading = threading;
+        }
+
+        Bucket bucket(PlayerConnection client) {
+            Bucket bucket = this.buckets.get(client);
+            if (bucket == null) {
+                bucket = new Bucket();
+                Bucket existing = this.buckets.putIfAbsent(client, bucket);
+                if (existing != null) {
+                    bucket = existing;
+                }
+            }
+            return bucket;
+        }
+
+        /**
+         * Schedules draining the queue unless it is scheduled already. If
+         * the executor rejects it, the queued payloads are dropped.
+         *
+         * @return Whether scheduling succeeded
+         */
+        boolean schedule() {
+            while (this.scheduled.compareAndSet(false, true)) {
+                try {
+                    ChannelDispatcher.this.asyncExecutor.execute(this);
+                    return true;
+                } catch (RejectedExecutionException e) {
+                    log.error("Failed to schedule the payloads of the channel " + this.name + " of " + this.plugin, e);
+                    dropQueued();
+                    this.scheduled.set(false);
+                    if (this.queue.isEmpty()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void dropQueued() {
+            Payload payload;
+            while ((payload = this.queue.poll()) != null) {
+                this.pending.decrementAndGet();
+                this.overflowed.incrementAndGet();
+                ChannelDispatcher.this.metrics.recordRejected(this.name);
+                release(payload.data);
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                drain(Integer.MAX_VALUE);
+                this.scheduled.set(false);
+            } while (!this.queue.isEmpty() && this.scheduled.compareAndSet(false, true));
+        }
+
+        void drain(int max) {
+            for (int i = 0; i < max; i++) {
+                Payload payload = this.queue.poll();
+                if (payload == null) {
+                    return;
+                }
+                this.pending.decrementAndGet();
+                handle(payload);
+            }
+        }
+
+        void handle(Payload payload) {
+            this.handled.incrementAndGet();
+            long start = ChannelDispatcher.this.ticker.read();
+            try {
+                this.listener.handlePayload(payload.client, this.name, payload.data);
+            } catch (RuntimeException e) {
+                this.failed.incrementAndGet();
+                log.error("The listener of the channel " + this.name + " of " + this.plugin + " failed to handle a payload", e);
+            } finally {
+                ChannelDispatcher.this.metrics.recordHandled(this.name, ChannelDispatcher.this.ticker.read() - start);
+                release(payload.data);
+            }
+        }
+
+        ChannelDispatchStatistics getStatistics() {
+            return new ChannelDispatchStatistics(this.name, this.threading, this.received.get(), this.handled.get(), this.failed.get(),
+                    this.overflowed.get(), this.rateLimited.get(), this.pending.get());
+        }
+
+    }
+
+}
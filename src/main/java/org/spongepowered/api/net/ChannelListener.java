@@ -38,6 +38,11 @@ public interface ChannelListener {
      * a copy of the original data received by the server to better
      * handle concurrency across listeners.</p>
      *
+     * <p>This is called on the thread the listener was registered for, see
+     * {@link ChannelThreading}. A {@link PooledChannelBuf} is released once
+     * this method returns, so a listener keeping it has to
+     * {@link PooledChannelBuf#retain() retain} it.</p>
+     *
      * @param client The client sending the data
      * @param channel The channel being used
      * @param data The actual raw data
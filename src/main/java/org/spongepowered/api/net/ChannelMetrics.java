@@ -0,0 +1,311 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.spongepowered.api.service.scheduler.SynchronousScheduler;
+import org.spongepowered.api.service.scheduler.Task;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+/**
+ * Counts the custom payload traffic of each channel and plugin.
+ *
+ * <p>Counting is cheap enough to do for every payload: the counters are
+ * striped so that network threads recording at the same time do not
+ * contend. {@link ChannelDispatcher} records received payloads, and the
+ * implementation of
+ * {@link PlayerConnection#sendCustomPayload(Object, String, ChannelBuf)}
+ * records sent ones through {@link #recordOutbound}.</p>
+ *
+ * <p>The traffic of a channel is attributed to the plugin that
+ * {@link #register registered} it, or else to the first plugin sending on
+ * it. Payloads received on a channel that is neither registered nor sent on
+ * are counted {@link #getUnregisteredStatistics() together}, so clients
+ * cannot make the metrics track arbitrary channels.</p>
+ *
+ * <p>Rates are computed between the last two {@link #sample() samples},
+ * usually taken once a second when {@link #start started}.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public class ChannelMetrics {
+
+    private static final int INBOUND_MESSAGES = 0;
+    private static final int INBOUND_BYTES = 1;
+    private static final int OUTBOUND_MESSAGES = 2;
+    private static final int OUTBOUND_BYTES = 3;
+    private static final int HANDLED = 4;
+    private static final int HANDLER_NANOS = 5;
+    private static final int REJECTED = 6;
+    private static final int FIELDS = 7;
+
+    private final Ticker ticker;
+    private final ConcurrentMap<String, Traffic> channels = Maps.newConcurrentMap();
+    private final Traffic unregistered = new Traffic(null);
+    private long sampledAt = Long.MIN_VALUE;
+
+    /**
+     * Creates a new set of metrics.
+     */
+    public ChannelMetrics() {
+        this(Ticker.systemTicker());
+    }
+
+    ChannelMetrics(Ticker ticker) {
+        this.ticker = checkNotNull(ticker, "ticker");
+    }
+
+    /**
+     * Starts tracking a channel registered by a plugin.
+     *
+     * @param channel The channel
+     * @param plugin The plugin that registered the channel
+     */
+    public void register(String channel, Object plugin) {
+        traffic(checkNotNull(channel, "channel")).owner.set(checkNotNull(plugin, "plugin"));
+    }
+
+    /**
+     * Records a payload received from a client.
+     *
+     * @param channel The channel the payload was received on
+     * @param bytes The size of the payload
+     */
+    public void recordInbound(String channel, int bytes) {
+        StripedCounters counters = trafficOrUnregistered(channel).counters;
+        counters.add(INBOUND_MESSAGES, 1);
+        counters.add(INBOUND_BYTES, bytes);
+    }
+
+    /**
+     * Records a payload sent to a client.
+     *
+     * @param plugin The plugin sending the payload
+     * @param channel The channel the payload was sent on
+     * @param bytes The size of the payload
+     */
+    public void recordOutbound(Object plugin, String channel, int bytes) {
+        Traffic traffic = traffic(checkNotNull(channel, "channel"));
+        traffic.owner.compareAndSet(null, checkNotNull(plugin, "plugin"));
+        traffic.counters.add(OUTBOUND_MESSAGES, 1);
+        traffic.counters.add(OUTBOUND_BYTES, bytes);
+    }
+
+    /**
+     * Records that a listener handled a received payload.
+     *
+     * @param channel The channel the payload was received on
+     * @param nanos The time the listener took, in nanoseconds
+     */
+    public void recordHandled(String channel, long nanos) {
+        StripedCounters counters = trafficOrUnregistered(channel).counters;
+        counters.add(HANDLED, 1);
+        counters.add(HANDLER_NANOS, nanos);
+    }
+
+    /**
+     * Records that a received payload was dropped instead of handled.
+     *
+     * @param channel The channel the payload was received on
+     */
+    public void recordRejected(String channel) {
+        trafficOrUnregistered(channel).counters.add(REJECTED, 1);
+    }
+
+    /**
+     * Samples the byte counts of all channels, updating their rates to the
+     * average since the previous sample.
+     */
+    public synchronized void sample() {
+        long now = this.ticker.read();
+        double seconds = this.sampledAt == Long.MIN_VALUE ? 0 : Math.max(0, now - this.sampledAt) / (double) TimeUnit.SECONDS.toNanos(1);
+        this.sampledAt = now;
+        for (Traffic traffic : this.channels.values()) {
+            traffic.sample(seconds);
+        }
+        this.unregistered.sample(seconds);
+    }
+
+    /**
+     * Starts sampling once a second, every 20 ticks.
+     *
+     * @param scheduler The scheduler to sample on
+     * @param plugin The plugin owning the task
+     * @return The task, if it was scheduled
+     */
+    public Optional<Task> start(SynchronousScheduler scheduler, Object plugin) {
+        return scheduler.runRepeatingTask(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                sample();
+            }
+
+        }, 20);
+    }
+
+    /**
+     * Gets the traffic of all tracked channels.
+     *
+     * @return The statistics by channel
+     */
+    public Map<String, TrafficStatistics> getChannelStatistics() {
+        ImmutableMap.Builder<String, TrafficStatistics> statistics = ImmutableMap.builder();
+        for (Map.Entry<String, Traffic> entry : this.channels.entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().getStatistics());
+        }
+        return statistics.build();
+    }
+
+    /**
+     * Gets the traffic of a channel.
+     *
+     * @param channel The channel
+     * @return The statistics, if the channel is tracked
+     */
+    public Optional<TrafficStatistics> getChannelStatistics(String channel) {
+        Traffic traffic = this.channels.get(channel);
+        return traffic == null ? Optional.<TrafficStatistics>absent() : Optional.of(traffic.getStatistics());
+    }
+
+    /**
+     * Gets the traffic of all plugins, summed over the channels attributed
+     * to them.
+     *
+     * @return The statistics by plugin
+     */
+    public Map<Object, TrafficStatistics> getPluginStatistics() {
+        Map<Object, TrafficStatistics> statistics = Maps.newHashMap();
+        for (Traffic traffic : this.channels.values()) {
+            Object owner = traffic.owner.get();
+            if (owner != null) {
+                TrafficStatistics existing = statistics.get(owner);
+                TrafficStatistics channel = traffic.getStatistics();
+                statistics.put(owner, existing == null ? channel : existing.add(channel));
+            }
+        }
+        return ImmutableMap.copyOf(statistics);
+    }
+
+    /**
+     * Gets the payloads received on channels that are not tracked.
+     *
+     * @return The statistics of untracked channels
+     */
+    public TrafficStatistics getUnregisteredStatistics() {
+        return this.unregistered.getStatistics();
+    }
+
+    /**
+     * Gets the channels with the most {@link TrafficStatistics#getBytesPerSecond()
+     * bytes per second}, highest first.
+     *
+     * @param limit The maximum number of channels
+     * @return The statistics of the top channels, in order
+     */
+    public Map<String, TrafficStatistics> getTopChannels(int limit) {
+        checkArgument(limit >= 0, "limit must not be negative");
+        List<Map.Entry<String, TrafficStatistics>> entries = Lists.newArrayList(getChannelStatistics().entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, TrafficStatistics>>() {
+
+            @Override
+            public int compare(Map.Entry<String, TrafficStatistics> o1, Map.Entry<String, TrafficStatistics> o2) {
+                int result = Double.compare(o2.getValue().getBytesPerSecond(), o1.getValue().getBytesPerSecond());
+                return result != 0 ? result : o1.getKey().compareTo(o2.getKey());
+            }
+
+        });
+        ImmutableMap.Builder<String, TrafficStatistics> top = ImmutableMap.builder();
+        for (Map.Entry<String, TrafficStatistics> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            top.put(entry);
+        }
+        return top.build();
+    }
+
+    private Traffic traffic(String channel) {
+        Traffic traffic = this.channels.get(channel);
+        if (traffic == null) {
+            traffic = new Traffic(null);
+            Traffic existing = this.channels.putIfAbsent(channel, traffic);
+            if (existing != null) {
+                traffic = existing;
+            }
+        }
+        return traffic;
+    }
+
+    private Traffic trafficOrUnregistered(String channel) {
+        Traffic traffic = this.channels.get(channel);
+        return traffic == null ? this.unregistered : traffic;
+    }
+
+    private static final class Traffic {
+
+        final StripedCounters counters = new StripedCounters(FIELDS);
+        final AtomicReference<Object> owner;
+        // Guarded by the metrics
+        private long sampledInbound;
+        private long sampledOutbound;
+        private volatile double inboundRate;
+        private volatile double outboundRate;
+
+        Traffic(@Nullable Object owner) {
+            this.owner = new AtomicReference<Object>(owner);
+        }
+
+        void sample(double seconds) {
+            long inbound = this.counters.get(INBOUND_BYTES);
+            long outbound = this.counters.get(OUTBOUND_BYTES);
+            this.inboundRate = seconds == 0 ? 0 : (inbound - this.sampledInbound) / seconds;
+            this.outboundRate = seconds == 0 ? 0 : (outbound - this.sampledOutbound) / seconds;
+            this.sampledInbound = inbound;
+            this.sampledOutbound = outbound;
+        }
+
+        TrafficStatistics getStatistics() {
+            return new TrafficStatistics(this.counters.get(INBOUND_MESSAGES), this.counters.get(INBOUND_BYTES),
+                    this.counters.get(OUTBOUND_MESSAGES), this.counters.get(OUTBOUND_BYTES), this.counters.get(HANDLED),
+                    this.counters.get(HANDLER_NANOS), this.counters.get(REJECTED), this.inboundRate, this.outboundRate);
+        }
+
+    }
+
+}
@@ -24,6 +24,11 @@
  */
 package org.spongepowered.api.net;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import org.spongepowered.api.entity.player.Player;
+import org.spongepowered.api.world.World;
+
 import java.util.List;
 
 /**
@@ -33,7 +38,8 @@ import java.util.List;
 public interface ChannelRegistrar {
 
     /**
-     * Registers the given channel to the plugin.
+     * Registers the given channel to the plugin. The listener is called on
+     * the {@link ChannelThreading#MAIN main thread}.
      *
      * @param plugin The plugin registering the channel
      * @param listener The listener that will listen for
@@ -42,6 +48,52 @@ public interface ChannelRegistrar {
      */
     void registerChannel(Object plugin, ChannelListener listener, String channel) throws ChannelRegistrationException;
 
+    /**
+     * Registers the given channel to the plugin, calling the listener on the
+     * given thread.
+     *
+     * <p>Payloads waiting to be handled are queued per channel. Payloads
+     * received while the queue of their channel is full, or sent by a client
+     * exceeding the rate limit of the channel, are dropped and counted.
+     * {@link ChannelDispatcher} implements this.</p>
+     *
+     * @param plugin The plugin registering the channel
+     * @param listener The listener that will listen for
+     * @param channel The channel to register
+     * @param threading The thread to call the listener on
+     * @throws ChannelRegistrationException If the channel is already registered
+     */
+    void registerChannel(Object plugin, ChannelListener listener, String channel, ChannelThreading threading)
+            throws ChannelRegistrationException;
+
+    /**
+     * Sets the limits of a registered channel.
+     *
+     * @param channel The channel
+     * @param queueCapacity The maximum number of payloads waiting to be
+     *     handled, not used by {@link ChannelThreading#NETWORK}
+     * @param payloadsPerSecond The maximum number of payloads handled per
+     *     second for each client, or 0 for no limit
+     * @see ChannelDispatcher#setLimits(String, int, int)
+     */
+    void setChannelLimits(String channel, int queueCapacity, int payloadsPerSecond);
+
+    /**
+     * Gets how many payloads were handled and dropped on a channel.
+     *
+     * @param channel The channel
+     * @return The statistics, if the channel is registered
+     */
+    Optional<ChannelDispatchStatistics> getChannelStatistics(String channel);
+
+    /**
+     * Gets the metrics counting the inbound and outbound traffic, handler
+     * time and rejections of each channel and plugin.
+     *
+     * @return The channel metrics
+     */
+    ChannelMetrics getChannelMetrics();
+
     /**
      * Gets the list of registered channels.
      *
@@ -53,4 +105,44 @@ public interface ChannelRegistrar {
      */
     List<String> getRegisteredChannels();
 
+    /**
+     * Sends a custom payload to all online players, encoding it once.
+     *
+     * <p>The readable bytes of the payload are shared by all recipients
+     * without copying, each connection retaining them until written. The
+     * indexes of the payload are left untouched and the caller keeps its
+     * reference to it. {@link PayloadBroadcaster} implements this.</p>
+     *
+     * @param plugin The instance of the plugin
+     * @param channel The channel to send to
+     * @param data The data
+     * @return The number of players the payload was sent to
+     */
+    int broadcastCustomPayload(Object plugin, String channel, ChannelBuf data);
+
+    /**
+     * Sends a custom payload to all players in a world, encoding it once.
+     *
+     * @param plugin The instance of the plugin
+     * @param channel The channel to send to
+     * @param data The data
+     * @param world The world whose players to send to
+     * @return The number of players the payload was sent to
+     * @see #broadcastCustomPayload(Object, String, ChannelBuf)
+     */
+    int broadcastCustomPayload(Object plugin, String channel, ChannelBuf data, World world);
+
+    /**
+     * Sends a custom payload to all online players matching a filter,
+     * encoding it once.
+     *
+     * @param plugin The instance of the plugin
+     * @param channel The channel to send to
+     * @param data The data
+     * @param filter The filter the players have to match
+     * @return The number of players the payload was sent to
+     * @see #broadcastCustomPayload(Object, String, ChannelBuf)
+     */
+    int broadcastCustomPayload(Object plugin, String channel, ChannelBuf data, Predicate<? super Player> filter);
+
 }
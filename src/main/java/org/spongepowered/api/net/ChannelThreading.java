@@ -0,0 +1,54 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+/**
+ * The thread a {@link ChannelListener} is called on.
+ *
+ * @see ChannelRegistrar#registerChannel(Object, ChannelListener, String, ChannelThreading)
+ */
+public enum ChannelThreading {
+
+    /**
+     * Payloads are queued and handled on the main thread, once per tick.
+     * The listener may use the rest of the API freely.
+     */
+    MAIN,
+
+    /**
+     * Payloads are handled right away on the network thread that received
+     * them. The listener must be thread-safe and must not block, as it
+     * holds up all other traffic of the connection.
+     */
+    NETWORK,
+
+    /**
+     * Payloads are queued and handled on an asynchronous thread pool, one at
+     * a time and in the order they were received. The listener must be
+     * thread-safe.
+     */
+    ASYNC
+
+}
@@ -0,0 +1,521 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Booleans;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Chars;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Floats;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.Shorts;
+import org.spongepowered.api.service.persistence.DataSerializable;
+import org.spongepowered.api.service.persistence.data.DataQuery;
+import org.spongepowered.api.service.persistence.data.DataView;
+import org.spongepowered.api.service.persistence.data.MemoryDataContainer;
+import org.spongepowered.api.service.persistence.data.MemoryDataView;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Encodes {@link DataView}s into {@link ChannelBuf}s, see
+ * {@link ChannelBuf#writeDataView(DataView)}.
+ *
+ * <p>A view is written as the length of its body as an int, followed by the
+ * body: a sequence of entries, each a tag byte, the key as a string and the
+ * value, terminated by {@link #END}. The length is patched in once the body
+ * is written, so views are encoded straight into the buffer in a single
+ * pass. Integers and longs are zigzag varints, lists of a single primitive
+ * wrapper type are primitive arrays, other lists a count followed by tagged
+ * values. Maps and {@link DataSerializable}s are written as views.</p>
+ *
+ * <p>Decoding reads the entries of the outer view. Nested views are skipped
+ * using their length and only decoded once accessed, from a slice of the
+ * buffer held until then. Views and lists may be nested at most
+ * {@link #MAX_DEPTH} levels deep.</p>
+ */
+final class DataViewCodec {
+
+    static final byte END = 0;
+    static final byte BYTE = 1;
+    static final byte SHORT = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte FLOAT = 5;
+    static final byte DOUBLE = 6;
+    static final byte BOOLEAN = 7;
+    static final byte CHAR = 8;
+    static final byte STRING = 9;
+    static final byte VIEW = 10;
+    static final byte LIST = 11;
+    static final byte NULL = 12;
+    static final byte BYTE_ARRAY = 13;
+    static final byte SHORT_ARRAY = 14;
+    static final byte INT_ARRAY = 15;
+    static final byte LONG_ARRAY = 16;
+    static final byte FLOAT_ARRAY = 17;
+    static final byte DOUBLE_ARRAY = 18;
+    static final byte CHAR_ARRAY = 19;
+    static final byte BOOLEAN_ARRAY = 20;
+
+    /**
+     * The maximum depth of nested views and lists that is decoded.
+     */
+    static final int MAX_DEPTH = 64;
+
+    private DataViewCodec() {
+    }
+
+    /**
+     * Writes a view at the writerIndex of a buffer.
+     *
+     * @param buf The buffer
+     * @param view The view
+     * @throws IllegalArgumentException If a value can not be encoded
+     */
+    static void write(ChannelBuf buf, DataView view) {
+        int start = beginView(buf);
+        for (Map.Entry<DataQuery, Object> entry : view.getValues(false).entrySet()) {
+            writeEntry(buf, entry.getKey().asString('.'), entry.getValue());
+        }
+        endView(buf, start);
+    }
+
+    /**
+     * Reads a view at the readerIndex of a buffer. Nested views are decoded
+     * once they are accessed.
+     *
+     * @param buf The buffer
+     * @return The view
+     * @throws IndexOutOfBoundsException If the data is truncated
+     * @throws IllegalArgumentException If the data is malformed
+     */
+    static MemoryDataContainer read(ChannelBuf buf) {
+        ChannelBuf body = readBody(buf);
+        MemoryDataContainer container = new MemoryDataContainer();
+        try {
+            readEntries(body, container, 0);
+        } finally {
+            release(body);
+        }
+        return container;
+    }
+
+    private static int beginView(ChannelBuf buf) {
+        int start = buf.writerIndex();
+        buf.writeInteger(0);
+        return start;
+    }
+
+    private static void endView(ChannelBuf buf, int start) {
+        buf.writeByte(END);
+        buf.setInteger(start, buf.writerIndex() - start - 4);
+    }
+
+    private static ChannelBuf readBody(ChannelBuf buf) {
+        int length = buf.readInteger();
+        if (length < 1 || length > buf.available()) {
+            buf.setReadIndex(buf.readerIndex() - 4);
+            throw new IndexOutOfBoundsException("View length " + length + " exceeds " + buf.available());
+        }
+        ChannelBuf body = buf.slice(buf.readerIndex(), length);
+        buf.setReadIndex(buf.readerIndex() + length);
+        return body;
+    }
+
+    private static void release(ChannelBuf buf) {
+        if (buf instanceof PooledChannelBuf) {
+            ((PooledChannelBuf) buf).release();
+        }
+    }
+
+    private static void writeEntry(ChannelBuf buf, String key, Object value) {
+        byte tag = tag(value);
+        buf.writeByte(tag);
+        buf.writeString(key);
+        writePayload(buf, tag, value);
+    }
+
+    private static void writeValue(ChannelBuf buf, @Nullable Object value) {
+        if (value == null) {
+            buf.writeByte(NULL);
+            return;
+        }
+        byte tag = tag(value);
+        buf.writeByte(tag);
+        writePayload(buf, tag, value);
+    }
+
+    private static byte tag(Object value) {
+        if (value instanceof Integer) {
+            return INT;
+        } else if (value instanceof String) {
+            return STRING;
+        } else if (value instanceof Long) {
+            return LONG;
+        } else if (value instanceof Double) {
+            return DOUBLE;
+        } else if (value instanceof Boolean) {
+            return BOOLEAN;
+        } else if (value instanceof DataView || value instanceof Map || value instanceof DataSerializable) {
+            return VIEW;
+        } else if (value instanceof List) {
+            return listTag((List<?>) value);
+        } else if (value instanceof Byte) {
+            return BYTE;
+        } else if (value instanceof Short) {
+            return SHORT;
+        } else if (value instanceof Float) {
+            return FLOAT;
+        } else if (value instanceof Character) {
+            return CHAR;
+        } else if (value instanceof byte[]) {
+            return BYTE_ARRAY;
+        } else if (value instanceof short[]) {
+            return SHORT_ARRAY;
+        } else if (value instanceof int[]) {
+            return INT_ARRAY;
+        } else if (value instanceof long[]) {
+            return LONG_ARRAY;
+        } else if (value instanceof float[]) {
+            return FLOAT_ARRAY;
+        } else if (value instanceof double[]) {
+            return DOUBLE_ARRAY;
+        } else if (value instanceof char[]) {
+            return CHAR_ARRAY;
+        } else if (value instanceof boolean[]) {
+            return BOOLEAN_ARRAY;
+        }
+        throw new IllegalArgumentException("Can not encode " + value.getClass().getName());
+    }
+
+    private static byte listTag(List<?> list) {
+        if (list.isEmpty() || list.get(0) == null) {
+            return LIST;
+        }
+        Class<?> type = list.get(0).getClass();
+        for (Object element : list) {
+            if (element == null || element.getClass() != type) {
+                return LIST;
+            }
+        }
+        if (type == Integer.class) {
+            return INT_ARRAY;
+        } else if (type == Byte.class) {
+            return BYTE_ARRAY;
+        } else if (type == Long.class) {
+            return LONG_ARRAY;
+        } else if (type == Double.class) {
+            return DOUBLE_ARRAY;
+        } else if (type == Short.class) {
+            return SHORT_ARRAY;
+        } else if (type == Float.class) {
+            return FLOAT_ARRAY;
+        } else if (type == Character.class) {
+            return CHAR_ARRAY;
+        } else if (type == Boolean.class) {
+            return BOOLEAN_ARRAY;
+        }
+        return LIST;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writePayload(ChannelBuf buf, byte tag, Object value) {
+        switch (tag) {
+            case INT:
+                buf.writeSignedVarInt((Integer) value);
+                break;
+            case STRING:
+                buf.writeString((String) value);
+                break;
+            case LONG:
+                buf.writeSignedVarLong((Long) value);
+                break;
+            case DOUBLE:
+                buf.writeDouble((Double) value);
+                break;
+            case BOOLEAN:
+                buf.writeBoolean((Boolean) value);
+                break;
+            case BYTE:
+                buf.writeByte((Byte) value);
+                break;
+            case SHORT:
+                buf.writeSignedVarInt((Short) value);
+                break;
+            case FLOAT:
+                buf.writeFloat((Float) value);
+                break;
+            case CHAR:
+                buf.writeVarInt((Character) value);
+                break;
+            case VIEW:
+                if (value instanceof Map) {
+                    int start = beginView(buf);
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                        writeEntry(buf, entry.getKey().toString(), entry.getValue());
+                    }
+                    endView(buf, start);
+                } else {
+                    write(buf, value instanceof DataView ? (DataView) value : ((DataSerializable) value).toContainer());
+                }
+                break;
+            case LIST:
+                List<?> list = (List<?>) value;
+                buf.writeVarInt(list.size());
+                for (Object element : list) {
+                    writeValue(buf, element);
+                }
+                break;
+            case BYTE_ARRAY:
+                buf.writeByteArray(value instanceof byte[] ? (byte[]) value : Bytes.toArray((List<Byte>) value));
+                break;
+            case SHORT_ARRAY:
+                short[] shorts = value instanceof short[] ? (short[]) value : Shorts.toArray((List<Short>) value);
+                buf.writeVarInt(shorts.length);
+                for (short s : shorts) {
+                    buf.writeSignedVarInt(s);
+                }
+                break;
+            case INT_ARRAY:
+                int[] ints = value instanceof int[] ? (int[]) value : Ints.toArray((List<Integer>) value);
+                buf.writeVarInt(ints.length);
+                for (int i : ints) {
+                    buf.writeSignedVarInt(i);
+                }
+                break;
+            case LONG_ARRAY:
+                long[] longs = value instanceof long[] ? (long[]) value : Longs.toArray((List<Long>) value);
+                buf.writeVarInt(longs.length);
+                for (long l : longs) {
+                    buf.writeSignedVarLong(l);
+                }
+                break;
+            case FLOAT_ARRAY:
+                float[] floats = value instanceof float[] ? (float[]) value : Floats.toArray((List<Float>) value);
+                buf.writeVarInt(floats.length);
+                for (float f : floats) {
+                    buf.writeFloat(f);
+                }
+                break;
+            case DOUBLE_ARRAY:
+                double[] doubles = value instanceof double[] ? (double[]) value : Doubles.toArray((List<Double>) value);
+                buf.writeVarInt(doubles.length);
+                for (double d : doubles) {
+                    buf.writeDouble(d);
+                }
+                break;
+            case CHAR_ARRAY:
+                char[] chars = value instanceof char[] ? (char[]) value : Chars.toArray((List<Character>) value);
+                buf.writeVarInt(chars.length);
+                for (char c : chars) {
+                    buf.writeVarInt(c);
+                }
+                break;
+            case BOOLEAN_ARRAY:
+                boolean[] booleans = value instanceof boolean[] ? (boolean[]) value : Booleans.toArray((List<Boolean>) value);
+                buf.writeVarInt(booleans.length);
+                for (boolean b : booleans) {
+                    buf.writeBoolean(b);
+                }
+                break;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private static int nested(int depth) {
+        if (depth >= MAX_DEPTH) {
+            throw new IllegalArgumentException("Nesting exceeds the maximum depth of " + MAX_DEPTH);
+        }
+        return depth + 1;
+    }
+
+    private static void readEntries(ChannelBuf buf, MemoryDataView view, int depth) {
+        byte tag;
+        while ((tag = buf.readByte()) != END) {
+            DataQuery key = DataQuery.of(buf.readString());
+            switch (tag) {
+                case INT:
+                    view.setInt(key, buf.readSignedVarInt());
+                    break;
+                case LONG:
+                    view.setLong(key, buf.readSignedVarLong());
+                    break;
+                case DOUBLE:
+                    view.setDouble(key, buf.readDouble());
+                    break;
+                case BOOLEAN:
+                    view.setBoolean(key, buf.readBoolean());
+                    break;
+                case VIEW:
+                    view.createLazyView(key, new Loader(nested(depth), readBody(buf)));
+                    break;
+                default:
+                    view.set(key, readPayload(buf, tag, depth));
+            }
+        }
+    }
+
+    private static Map<String, Object> readMap(ChannelBuf buf, int depth) {
+        ChannelBuf body = readBody(buf);
+        try {
+            Map<String, Object> map = Maps.newLinkedHashMap();
+            byte tag;
+            while ((tag = body.readByte()) != END) {
+                String key = body.readString();
+                map.put(key, readPayload(body, tag, depth));
+            }
+            return map;
+        } finally {
+            release(body);
+        }
+    }
+
+    @Nullable
+    private static Object readValue(ChannelBuf buf, int depth) {
+        byte tag = buf.readByte();
+        return tag == NULL ? null : readPayload(buf, tag, depth);
+    }
+
+    private static int readLength(ChannelBuf buf, int elementSize) {
+        int length = buf.readVarInt();
+        if (length < 0 || length > buf.available() / elementSize) {
+            throw new IndexOutOfBoundsException("Length " + length + " exceeds the readable bytes");
+        }
+        return length;
+    }
+
+    private static Object readPayload(ChannelBuf buf, byte tag, int depth) {
+        switch (tag) {
+            case INT:
+                return buf.readSignedVarInt();
+            case STRING:
+                return buf.readString();
+            case LONG:
+                return buf.readSignedVarLong();
+            case DOUBLE:
+                return buf.readDouble();
+            case BOOLEAN:
+                return buf.readBoolean();
+            case BYTE:
+                return buf.readByte();
+            case SHORT:
+                return (short) buf.readSignedVarInt();
+            case FLOAT:
+                return buf.readFloat();
+            case CHAR:
+                return (char) buf.readVarInt();
+            case VIEW:
+                return readMap(buf, nested(depth));
+            case LIST:
+                final int elementDepth = nested(depth);
+                int size = readLength(buf, 1);
+                List<Object> list = Lists.newArrayListWithCapacity(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(buf, elementDepth));
+                }
+                return list;
+            case BYTE_ARRAY:
+                return buf.readByteArray();
+            case SHORT_ARRAY:
+                short[] shorts = new short[readLength(buf, 1)];
+                for (int i = 0; i < shorts.length; i++) {
+                    shorts[i] = (short) buf.readSignedVarInt();
+                }
+                return shorts;
+            case INT_ARRAY:
+                int[] ints = new int[readLength(buf, 1)];
+                for (int i = 0; i < ints.length; i++) {
+                    ints[i] = buf.readSignedVarInt();
+                }
+                return ints;
+            case LONG_ARRAY:
+                long[] longs = new long[readLength(buf, 1)];
+                for (int i = 0; i < longs.length; i++) {
+                    longs[i] = buf.readSignedVarLong();
+                }
+                return longs;
+            case FLOAT_ARRAY:
+                float[] floats = new float[readLength(buf, 4)];
+                for (int i = 0; i < floats.length; i++) {
+                    floats[i] = buf.readFloat();
+                }
+                return floats;
+            case DOUBLE_ARRAY:
+                double[] doubles = new double[readLength(buf, 8)];
+                for (int i = 0; i < doubles.length; i++) {
+                    doubles[i] = buf.readDouble();
+                }
+                return doubles;
+            case CHAR_ARRAY:
+                char[] chars = new char[readLength(buf, 1)];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = (char) buf.readVarInt();
+                }
+                return chars;
+            case BOOLEAN_ARRAY:
+                boolean[] booleans = new boolean[readLength(buf, 1)];
+                for (int i = 0; i < booleans.length; i++) {
+                    booleans[i] = buf.readBoolean();
+                }
+                return booleans;
+            default:
+                throw new IllegalArgumentException("Unknown tag " + tag);
+        }
+    }
+
+    /**
+     * Decodes a nested view from its slice of the buffer once it is first
+     * accessed.
+     */
+    private static final class Loader implements MemoryDataView.Loader {
+
+        private final int depth;
+        private final ChannelBuf body;
+
+        Loader(int depth, ChannelBuf body) {
+            this.depth = depth;
+            this.body = body;
+        }
+
+        @Override
+        public void load(MemoryDataView view) {
+            try {
+                readEntries(this.body, view, this.depth);
+            } finally {
+                release(this.body);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import com.google.common.base.Objects;
+
+/**
+ * A snapshot of how much a {@link PayloadBatcher} saved on a channel.
+ */
+public final class PayloadBatchStatistics {
+
+    private final String channel;
+    private final long queuedPayloads;
+    private final long queuedBytes;
+    private final long sentPackets;
+    private final long sentBytes;
+    private final long coalesced;
+
+    PayloadBatchStatistics(String channel, long queuedPayloads, long queuedBytes, long sentPackets, long sentBytes, long coalesced) {
+        this.channel = channel;
+        this.queuedPayloads = queuedPayloads;
+        this.queuedBytes = queuedBytes;
+        this.sentPackets = sentPackets;
+        this.sentBytes = sentBytes;
+        this.coalesced = coalesced;
+    }
+
+    /**
+     * Gets the channel.
+     *
+     * @return The channel
+     */
+    public String getChannel() {
+        return this.channel;
+    }
+
+    /**
+     * Gets the number of payloads queued, each of which would have been a
+     * packet of its own without batching.
+     *
+     * @return The number of queued payloads
+     */
+    public long getQueuedPayloads() {
+        return this.queuedPayloads;
+    }
+
+    /**
+     * Gets the number of payload bytes queued.
+     *
+     * @return The number of queued bytes
+     */
+    public long getQueuedBytes() {
+        return this.queuedBytes;
+    }
+
+    /**
+     * Gets the number of packets sent.
+     *
+     * @return The number of sent packets
+     */
+    public long getSentPackets() {
+        return this.sentPackets;
+    }
+
+    /**
+     * Gets the number of payload bytes sent, including the framing of
+     * bundled channels.
+     *
+     * @return The number of sent bytes
+     */
+    public long getSentBytes() {
+        return this.sentBytes;
+    }
+
+    /**
+     * Gets the number of queued payloads replaced by a later payload with
+     * the same key before they were sent.
+     *
+     * @return The number of coalesced payloads
+     */
+    public long getCoalesced() {
+        return this.coalesced;
+    }
+
+    /**
+     * Gets the number of packets saved by batching, the queued payloads
+     * that were not sent as a packet of their own.
+     *
+     * @return The number of saved packets
+     */
+    public long getSavedPackets() {
+        return this.queuedPayloads - this.sentPackets;
+    }
+
+    /**
+     * Gets the number of payload bytes saved by batching. This may be
+     * negative for a bundled channel that coalesced nothing, as its framing
+     * takes a few bytes.
+     *
+     * @return The number of saved bytes
+     */
+    public long getSavedBytes() {
+        return this.queuedBytes - this.sentBytes;
+    }
+
+    PayloadBatchStatistics add(PayloadBatchStatistics other) {
+        return new PayloadBatchStatistics(this.channel, this.queuedPayloads + other.queuedPayloads, this.queuedBytes + other.queuedBytes,
+                this.sentPackets + other.sentPackets, this.sentBytes + other.sentBytes, this.coalesced + other.coalesced);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("channel", this.channel)
+                .add("queuedPayloads", this.queuedPayloads)
+                .add("queuedBytes", this.queuedBytes)
+                .add("sentPackets", this.sentPackets)
+                .add("sentBytes", this.sentBytes)
+                .add("coalesced", this.coalesced)
+                .toString();
+    }
+
+}
@@ -0,0 +1,392 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the custom payloads sent to a {@link PlayerConnection} and sends
+ * them at once when {@link #flush() flushed}, usually once per tick through
+ * {@link PayloadBatchers}.
+ *
+ * <p>Payloads queued with a key replace a payload with the same channel and
+ * key that was not sent yet, so only the latest value of a frequently
+ * updated field is sent. The replacement takes the place of the payload it
+ * replaces in the send order.</p>
+ *
+ * <p>The payloads of a channel marked as {@link #setBundled(String, boolean)
+ * bundled} are sent as a single packet per flush, each payload prefixed
+ * with its length as a varint. The receiving side of such a channel has to
+ * split them up, for instance through {@link #readBundle(ChannelBuf)}.</p>
+ *
+ * <p>A batcher takes over the reference of the caller to a queued
+ * {@link PooledChannelBuf} and releases it once sent, replaced or
+ * rejected. The readable bytes of a queued buffer must not be modified.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public class PayloadBatcher {
+
+    private final PlayerConnection connection;
+    private final ChannelBufPool pool;
+    private final Map<Object, Payload> pending = Maps.newLinkedHashMap();
+    private final Set<String> bundled = Sets.newHashSet();
+    private final Map<String, Counters> counters = Maps.newHashMap();
+    private boolean discarded;
+
+    /**
+     * Creates a batcher for the given connection.
+     *
+     * @param connection The connection to send to
+     * @param pool The pool to allocate bundles from
+     */
+    public PayloadBatcher(PlayerConnection connection, ChannelBufPool pool) {
+        this.connection = checkNotNull(connection, "connection");
+        this.pool = checkNotNull(pool, "pool");
+    }
+
+    /**
+     * Gets the connection of this batcher.
+     *
+     * @return The connection
+     */
+    public PlayerConnection getConnection() {
+        return this.connection;
+    }
+
+    /**
+     * Sets whether the payloads of a channel are bundled into a single
+     * packet per flush.
+     *
+     * @param channel The channel
+     * @param bundled Whether to bundle its payloads
+     */
+    public synchronized void setBundled(String channel, boolean bundled) {
+        checkNotNull(channel, "channel");
+        if (bundled) {
+            this.bundled.add(channel);
+        } else {
+            this.bundled.remove(channel);
+        }
+    }
+
+    /**
+     * Queues a payload to be sent on the next flush.
+     *
+     * @param plugin The instance of the plugin
+     * @param channel The channel to send to
+     * @param data The data
+     * @return Whether the payload was queued, false if this batcher was
+     *     discarded
+     */
+    public boolean send(Object plugin, String channel, ChannelBuf data) {
+        return queue(new Object(), new Payload(plugin, channel, data));
+    }
+
+    /**
+     * Queues a payload to be sent on the next flush, replacing a payload
+     * with the same channel and key that was not sent yet.
+     *
+     * @param plugin The instance of the plugin
+     * @param channel The channel to send to
+     * @param key The key of the payload within the channel
+     * @param data The data
+     * @return Whether the payload was queued, false if this batcher was
+     *     discarded
+     */
+    public boolean send(Object plugin, String channel, String key, ChannelBuf data) {
+        checkNotNull(key, "key");
+        return queue(Maps.immutableEntry(channel, key), new Payload(plugin, channel, data));
+    }
+
+    private boolean queue(Object key, Payload payload) {
+        Payload released;
+        synchronized (this) {
+            if (this.discarded) {
+                released = payload;
+            } else {
+                Counters counters = counters(payload.channel);
+                counters.queuedPayloads++;
+                counters.queuedBytes += payload.data.available();
+                released = this.pending.put(key, payload);
+                if (released != null) {
+                    counters.coalesced++;
+                }
+            }
+        }
+        if (released != null) {
+            release(released.data);
+        }
+        return released != payload;
+    }
+
+    /**
+     * Gets the number of payloads waiting for the next flush.
+     *
+     * @return The number of pending payloads
+     */
+    public synchronized int getPending() {
+        return this.pending.size();
+    }
+
+    /**
+     * Sends all pending payloads. If sending fails, the bundles after the
+     * failed one are dropped and the first failure is rethrown once all
+     * payloads are released.
+     */
+    public void flush() {
+        List<Payload> payloads;
+        Set<String> bundled;
+        synchronized (this) {
+            if (this.pending.isEmpty()) {
+                return;
+            }
+            payloads = ImmutableList.copyOf(this.pending.values());
+            this.pending.clear();
+            bundled = this.bundled.isEmpty() ? Sets.<String>newHashSet() : Sets.newHashSet(this.bundled);
+        }
+
+        List<Payload> single = Lists.newArrayList();
+        Map<String, List<Payload>> bundles = Maps.newLinkedHashMap();
+        for (Payload payload : payloads) {
+            if (bundled.contains(payload.channel)) {
+                List<Payload> bundle = bundles.get(payload.channel);
+                if (bundle == null) {
+                    bundle = Lists.newArrayList();
+                    bundles.put(payload.channel, bundle);
+                }
+                bundle.add(payload);
+            } else {
+                single.add(payload);
+            }
+        }
+        RuntimeException failure = null;
+        try {
+            sendEach(single);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        boolean bundleFailed = false;
+        for (Map.Entry<String, List<Payload>> entry : bundles.entrySet()) {
+            if (bundleFailed) {
+                for (Payload unsent : entry.getValue()) {
+                    release(unsent.data);
+                }
+                continue;
+            }
+            try {
+                sendBundle(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                bundleFailed = true;
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void sendEach(List<Payload> payloads) {
+        for (int i = 0; i < payloads.size(); i++) {
+            Payload payload = payloads.get(i);
+            int bytes = payload.data.available();
+            try {
+                this.connection.sendCustomPayload(payload.plugin, payload.channel, payload.data);
+            } catch (RuntimeException e) {
+                for (Payload unsent : payloads.subList(i + 1, payloads.size())) {
+                    release(unsent.data);
+                }
+                throw e;
+            } finally {
+                release(payload.data);
+            }
+            sent(payload.channel, bytes);
+        }
+    }
+
+    private void sendBundle(String channel, List<Payload> payloads) {
+        PooledChannelBuf bundle = null;
+        try {
+            int size = 0;
+            for (Payload payload : payloads) {
+                size += 5 + payload.data.available();
+            }
+            bundle = this.pool.allocate(size);
+            for (Payload payload : payloads) {
+                bundle.writeVarInt(payload.data.available());
+                if (payload.data instanceof PooledChannelBuf) {
+                    bundle.writeBytes(((PooledChannelBuf) payload.data).nioBuffer());
+                } else {
+                    byte[] bytes = new byte[payload.data.available()];
+                    payload.data.slice().readBytes(bytes);
+                    bundle.writeBytes(bytes);
+                }
+            }
+            this.connection.sendCustomPayload(payloads.get(0).plugin, channel, bundle);
+            sent(channel, bundle.available());
+        } finally {
+            for (Payload payload : payloads) {
+                release(payload.data);
+            }
+            if (bundle != null) {
+                bundle.release();
+            }
+        }
+    }
+
+    /**
+     * Drops all pending payloads and rejects those sent later, for instance
+     * once the connection is closed.
+     */
+    public void discard() {
+        List<Payload> payloads;
+        synchronized (this) {
+            this.discarded = true;
+            payloads = ImmutableList.copyOf(this.pending.values());
+            this.pending.clear();
+        }
+        for (Payload payload : payloads) {
+            release(payload.data);
+        }
+    }
+
+    /**
+     * Gets how much batching saved on each channel so far.
+     *
+     * @return The statistics by channel
+     */
+    public synchronized Map<String, PayloadBatchStatistics> getStatistics() {
+        ImmutableMap.Builder<String, PayloadBatchStatistics> statistics = ImmutableMap.builder();
+        for (Map.Entry<String, Counters> entry : this.counters.entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+        }
+        return statistics.build();
+    }
+
+    /**
+     * Gets how much batching saved on a channel so far.
+     *
+     * @param channel The channel
+     * @return The statistics of the channel, if anything was queued on it
+     */
+    public synchronized Optional<PayloadBatchStatistics> getStatistics(String channel) {
+        Counters counters = this.counters.get(channel);
+        return counters == null ? Optional.<PayloadBatchStatistics>absent() : Optional.of(counters.snapshot(channel));
+    }
+
+    /**
+     * Splits the payload of a bundled channel into the payloads it bundles.
+     * The returned buffers are slices sharing the content of the given
+     * buffer, which is read to its end.
+     *
+     * @param data The payload of a bundled channel
+     * @return The bundled payloads
+     * @throws IndexOutOfBoundsException If the bundle is truncated
+     */
+    public static List<ChannelBuf> readBundle(ChannelBuf data) {
+        ImmutableList.Builder<ChannelBuf> payloads = ImmutableList.builder();
+        while (data.available() > 0) {
+            int length = data.readVarInt();
+            if (length < 0 || length > data.available()) {
+                throw new IndexOutOfBoundsException("Payload length " + length + " exceeds " + data.available());
+            }
+            payloads.add(data.slice(data.readerIndex(), length));
+            data.setReadIndex(data.readerIndex() + length);
+        }
+        return payloads.build();
+    }
+
+    private synchronized void sent(String channel, int bytes) {
+        Counters counters = counters(channel);
+        counters.sentPackets++;
+        counters.sentBytes += bytes;
+    }
+
+    private Counters counters(String channel) {
+        Counters counters = this.counters.get(channel);
+        if (counters == null) {
+            counters = new Counters();
+            this.counters.put(channel, counters);
+        }
+        return counters;
+    }
+
+    private static void release(ChannelBuf data) {
+        if (data instanceof PooledChannelBuf) {
+            ((PooledChannelBuf) data).release();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("connection", this.connection)
+                .add("pending", getPending())
+                .toString();
+    }
+
+    private static final class Payload {
+
+        final Object plugin;
+        final String channel;
+        final ChannelBuf data;
+
+        Payload(Object plugin, String channel, ChannelBuf data) {
+            this.plugin = checkNotNull(plugin, "plugin");
+            this.channel = checkNotNull(channel, "channel");
+            this.data = checkNotNull(data, "data");
+        }
+
+    }
+
+    private static final class Counters {
+
+        long queuedPayloads;
+        long queuedBytes;
+        long sentPackets;
+        long sentBytes;
+        long coalesced;
+
+        PayloadBatchStatistics snapshot(String channel) {
+            return new PayloadBatchStatistics(channel, this.queuedPayloads, this.queuedBytes, this.sentPackets, this.sentBytes, this.coalesced);
+        }
+
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.api.service.scheduler.SynchronousScheduler;
+import org.spongepowered.api.service.scheduler.Task;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Keeps a {@link PayloadBatcher} per {@link PlayerConnection} and flushes
+ * all of them together, once per tick when {@link #start started}.
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public class PayloadBatchers {
+
+    private static final Logger log = LoggerFactory.getLogger(PayloadBatchers.class);
+
+    private final ChannelBufPool pool;
+    private final ConcurrentMap<PlayerConnection, PayloadBatcher> batchers = Maps.newConcurrentMap();
+    private final Set<String> bundled = new CopyOnWriteArraySet<String>();
+    private final Map<String, PayloadBatchStatistics> retired = Maps.newHashMap();
+
+    /**
+     * Creates a new set of batchers.
+     *
+     * @param pool The pool to allocate bundles from
+     */
+    public PayloadBatchers(ChannelBufPool pool) {
+        this.pool = checkNotNull(pool, "pool");
+    }
+
+    /**
+     * Gets the batcher of a connection, creating it if needed.
+     *
+     * @param connection The connection
+     * @return The batcher
+     */
+    public PayloadBatcher get(PlayerConnection connection) {
+        PayloadBatcher batcher = this.batchers.get(checkNotNull(connection, "connection"));
+        if (batcher == null) {
+            batcher = new PayloadBatcher(connection, this.pool);
+            for (String channel : this.bundled) {
+                batcher.setBundled(channel, true);
+            }
+            PayloadBatcher existing = this.batchers.putIfAbsent(connection, batcher);
+            if (existing != null) {
+                batcher = existing;
+            }
+        }
+        return batcher;
+    }
+
+    /**
+     * Removes the batcher of a connection, dropping its pending payloads.
+     * Payloads sent to the removed batcher afterwards are rejected, see
+     * {@link PayloadBatcher#discard()}. Its statistics are kept in
+     * {@link #getStatistics()}.
+     *
+     * @param connection The connection
+     */
+    public void remove(PlayerConnection connection) {
+        PayloadBatcher batcher = this.batchers.remove(connection);
+        if (batcher != null) {
+            batcher.discard();
+            synchronized (this.retired) {
+                merge(this.retired, batcher.getStatistics());
+            }
+        }
+    }
+
+    /**
+     * Sets whether the payloads of a channel are bundled into a single
+     * packet per flush, for all current and future batchers.
+     *
+     * @param channel The channel
+     * @param bundled Whether to bundle its payloads
+     * @see PayloadBatcher#setBundled(String, boolean)
+     */
+    public void setBundled(String channel, boolean bundled) {
+        if (bundled) {
+            this.bundled.add(channel);
+        } else {
+            this.bundled.remove(channel);
+        }
+        for (PayloadBatcher batcher : this.batchers.values()) {
+            batcher.setBundled(channel, bundled);
+        }
+    }
+
+    /**
+     * Flushes all batchers. A batcher failing to flush is logged and does
+     * not keep the others from flushing.
+     */
+    public void flush() {
+        for (PayloadBatcher batcher : this.batchers.values()) {
+            try {
+                batcher.flush();
+            } catch (RuntimeException e) {
+                log.error("Failed to flush the payloads to " + batcher.getConnection(), e);
+            }
+        }
+    }
+
+    /**
+     * Starts flushing all batchers once per tick.
+     *
+     * @param scheduler The scheduler to flush on
+     * @param plugin The plugin owning the flush task
+     * @return The flush task, if it was scheduled
+     */
+    public Optional<Task> start(SynchronousScheduler scheduler, Object plugin) {
+        return scheduler.runRepeatingTask(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                flush();
+            }
+
+        }, 1);
+    }
+
+    /**
+     * Gets how much batching saved on each channel so far, over all
+     * connections including removed ones.
+     *
+     * @return The statistics by channel
+     */
+    public Map<String, PayloadBatchStatistics> getStatistics() {
+        Map<String, PayloadBatchStatistics> statistics;
+        synchronized (this.retired) {
+            statistics = Maps.newHashMap(this.retired);
+        }
+        for (PayloadBatcher batcher : this.batchers.values()) {
+            merge(statistics, batcher.getStatistics());
+        }
+        return ImmutableMap.copyOf(statistics);
+    }
+
+    private static void merge(Map<String, PayloadBatchStatistics> into, Map<String, PayloadBatchStatistics> statistics) {
+        for (PayloadBatchStatistics channel : statistics.values()) {
+            PayloadBatchStatistics existing = into.get(channel.getChannel());
+            into.put(channel.getChannel(), existing == null ? channel : existing.add(channel));
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import org.spongepowered.api.entity.player.Player;
+import org.spongepowered.api.world.World;
+
+/**
+ * Sends a custom payload to many players from a single encoding, backing
+ * the broadcast methods of {@link ChannelRegistrar}.
+ *
+ * <p>The readable bytes of the payload are shared by all recipients as a
+ * {@link PooledChannelBuf#readOnlySlice() read-only slice}. Each connection
+ * retains the memory for as long as it needs it, see
+ * {@link PlayerConnection#sendCustomPayload(Object, String, ChannelBuf)},
+ * so nothing is copied per recipient. A payload that is not a
+ * {@link PooledChannelBuf} is copied once into pooled memory.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public class PayloadBroadcaster {
+
+    private final ChannelBufPool pool;
+
+    /**
+     * Creates a new broadcaster.
+     *
+     * @param pool The pool to copy payloads into that are not pooled
+     */
+    public PayloadBroadcaster(ChannelBufPool pool) {
+        this.pool = checkNotNull(pool, "pool");
+    }
+
+    /**
+     * Sends a custom payload to all given players.
+     *
+     * <p>The indexes of the payload are left untouched and the caller keeps
+     * its reference to it.</p>
+     *
+     * @param plugin The instance of the plugin
+     * @param channel The channel to send to
+     * @param data The data
+     * @param players The players to send to
+     * @return The number of players the payload was sent to
+     */
+    public int broadcast(Object plugin, String channel, ChannelBuf data, Iterable<? extends Player> players) {
+        return broadcast(plugin, channel, data, players, Predicates.alwaysTrue());
+    }
+
+    /**
+     * Sends a custom payload to all given players matching a filter.
+     *
+     * <p>The indexes of the payload are left untouched and the caller keeps
+     * its reference to it. If sending to a player fails, the payload is
+     * still sent to the remaining players before the first failure is
+     * rethrown.</p>
+     *
+     * @param plugin The instance of the plugin
+     * @param channel The channel to send to
+     * @param data The data
+     * @param players The players to send to
+     * @param filter The filter the players have to match
+     * @return The number of players the payload was sent to
+     */
+    public int broadcast(Object plugin, String channel, ChannelBuf data, Iterable<? extends Player> players,
+            Predicate<? super Player> filter) {
+        checkNotNull(plugin, "plugin");
+        checkNotNull(channel, "channel");
+        checkNotNull(players, "players");
+        checkNotNull(filter, "filter");
+        PooledChannelBuf shared = share(checkNotNull(data, "data"));
+        RuntimeException failure = null;
+        int count = 0;
+        try {
+            for (Player player : players) {
+                if (!filter.apply(player)) {
+                    continue;
+                }
+                try {
+                    player.getConnection().sendCustomPayload(plugin, channel, shared);
+                    count++;
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        } finally {
+            shared.release();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the readable bytes of a payload as a read-only pooled buffer.
+     */
+    private PooledChannelBuf share(ChannelBuf data) {
+        if (data instanceof PooledChannelBuf) {
+            return ((PooledChannelBuf) data).readOnlySlice();
+        }
+        PooledChannelBuf copy = this.pool.allocate(data.available());
+        try {
+            byte[] bytes = new byte[data.available()];
+            data.slice().readBytes(bytes);
+            copy.writeBytes(bytes);
+            return copy.readOnlySlice();
+        } finally {
+            copy.release();
+        }
+    }
+
+    /**
+     * Gets a filter matching the players in a world.
+     *
+     * @param world The world
+     * @return The filter
+     */
+    public static Predicate<Player> inWorld(final World world) {
+        checkNotNull(world, "world");
+        return new Predicate<Player>() {
+
+            @Override
+            public boolean apply(Player input) {
+                return world.equals(input.getWorld());
+            }
+
+        };
+    }
+
+}
@@ -69,6 +69,14 @@ public interface PlayerConnection {
      * Sends a custom payload over the player connection backed by a
      * {@link ChannelBuf}.
      *
+     * <p>The readable bytes of the buffer are sent and its indexes are left
+     * untouched. A {@link PooledChannelBuf} is handed to the network layer
+     * without copying: the implementation takes a
+     * {@link PooledChannelBuf#slice() slice} of it, which keeps the memory
+     * alive, writes the {@link PooledChannelBuf#nioBuffer()} of the slice
+     * and releases the slice once written. The caller may release the buffer
+     * as soon as this method returns, but must not write to it again.</p>
+     *
      * @param plugin The instance of the plugin
      * @param channel The channel to send to
      * @param dataStream The data
@@ -0,0 +1,972 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Objects;
+import org.spongepowered.api.service.persistence.data.DataView;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link ChannelBuf} backed by direct memory of a {@link ChannelBufPool}.
+ *
+ * <p>A buffer is reference counted. It starts with a count of one,
+ * {@link #retain()} and {@link #release()} increment and decrement it, and
+ * the memory goes back to the pool once the count of the buffer and of all
+ * slices sharing its memory reaches zero. Any access to a released buffer
+ * fails with an {@link IllegalStateException}.</p>
+ *
+ * <p>{@link #slice(int, int)} shares the memory of this buffer without
+ * copying and has its own indexes and reference count; the memory stays
+ * valid for the slice even once this buffer is released. A slice has a
+ * fixed capacity, {@link #readOnlySlice()} creates one that can not be
+ * written to. This buffer grows as it is written to, which moves it to new
+ * memory that is no longer shared with slices taken before.</p>
+ *
+ * <p>{@link #nioBuffer()} exposes the readable bytes to the network layer
+ * without copying, see
+ * {@link PlayerConnection#sendCustomPayload(Object, String, ChannelBuf)}.</p>
+ *
+ * <p>Views read through {@link #readDataView()} hold a slice of this buffer
+ * for each nested view until it is first accessed, which keeps the memory
+ * from going back to the pool until then.</p>
+ *
+ * <p>Varints and strings are encoded straight into the memory of the
+ * buffer. ASCII strings are also decoded without an intermediate byte
+ * array.</p>
+ *
+ * <p>This class is not thread-safe, apart from its reference count.</p>
+ */
+public final class PooledChannelBuf implements ChannelBuf {
+
+    private final State state;
+    private final ByteOrder order;
+    @Nullable private ChannelBufPool.Chunk viewChunk;
+    @Nullable private ByteBuffer view;
+
+    PooledChannelBuf(ChannelBufPool pool, ChannelBufPool.Chunk chunk) {
+        this(new State(pool, chunk, 0, chunk.buffer.capacity(), false, false), ByteOrder.BIG_ENDIAN);
+    }
+
+    private PooledChannelBuf(State state, ByteOrder order) {
+        this.state = state;
+        this.order = order;
+    }
+
+    /**
+     * Gets the reference count of this buffer.
+     *
+     * @return The reference count, zero once released
+     */
+    public int refCnt() {
+        return this.state.refCnt.get();
+    }
+
+    /**
+     * Increments the reference count of this buffer.
+     *
+     * @return This buffer for chaining
+     * @throws IllegalStateException If this buffer was released
+     */
+    public PooledChannelBuf retain() {
+        int count;
+        do {
+            count = this.state.refCnt.get();
+            if (count == 0) {
+                throw new IllegalStateException("Buffer was released");
+            }
+        } while (!this.state.refCnt.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    /**
+     * Decrements the reference count of this buffer, releasing its memory
+     * once it reaches zero.
+     *
+     * @return Whether the count reached zero
+     * @throws IllegalStateException If this buffer was already released
+     */
+    public boolean release() {
+        int count;
+        do {
+            count = this.state.refCnt.get();
+            if (count == 0) {
+                throw new IllegalStateException("Buffer was already released");
+            }
+        } while (!this.state.refCnt.compareAndSet(count, count - 1));
+        if (count == 1) {
+            ChannelBufPool.Chunk chunk = this.state.chunk;
+            this.state.chunk = null;
+            chunk.release();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the readable bytes of this buffer as a {@link ByteBuffer} sharing
+     * its memory. The returned buffer is only valid while this buffer is not
+     * released and does not grow. This does not modify the indexes of this
+     * buffer.
+     *
+     * @return The readable bytes, in the byte order of this buffer
+     */
+    public ByteBuffer nioBuffer() {
+        return nioBuffer(this.state.readerIndex, available());
+    }
+
+    /**
+     * Gets a region of this buffer as a {@link ByteBuffer} sharing its
+     * memory. The returned buffer is only valid while this buffer is not
+     * released and does not grow. This does not modify the indexes of this
+     * buffer.
+     *
+     * @param index The start of the region
+     * @param length The length of the region
+     * @return The region, in the byte order of this buffer
+     */
+    public ByteBuffer nioBuffer(int index, int length) {
+        checkIndex(index, length);
+        ByteBuffer buffer = memory().duplicate();
+        int start = this.state.offset + index;
+        buffer.limit(start + length).position(start);
+        return buffer.slice().order(this.order);
+    }
+
+    @Override
+    public int getCapacity() {
+        return this.state.capacity;
+    }
+
+    @Override
+    public int available() {
+        return this.state.writerIndex - this.state.readerIndex;
+    }
+
+    @Override
+    public PooledChannelBuf order(ByteOrder order) {
+        checkNotNull(order, "order");
+        return order == this.order ? this : new PooledChannelBuf(this.state, order);
+    }
+
+    @Override
+    public ByteOrder getByteOrder() {
+        return this.order;
+    }
+
+    @Override
+    public int readerIndex() {
+        return this.state.readerIndex;
+    }
+
+    @Override
+    public PooledChannelBuf setReadIndex(int index) {
+        if (index < 0 || index > this.state.writerIndex) {
+            throw new IndexOutOfBoundsException("readerIndex " + index + " out of 0.." + this.state.writerIndex);
+        }
+        this.state.readerIndex = index;
+        return this;
+    }
+
+    @Override
+    public int writerIndex() {
+        return this.state.writerIndex;
+    }
+
+    @Override
+    public PooledChannelBuf setWriteIndex(int index) {
+        if (index < this.state.readerIndex || index > this.state.capacity) {
+            throw new IndexOutOfBoundsException("writerIndex " + index + " out of " + this.state.readerIndex + ".." + this.state.capacity);
+        }
+        this.state.writerIndex = index;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf setIndex(int readIndex, int writeIndex) {
+        if (readIndex < 0 || readIndex > writeIndex || writeIndex > this.state.capacity) {
+            throw new IndexOutOfBoundsException("readerIndex " + readIndex + ", writerIndex " + writeIndex + ", capacity " + this.state.capacity);
+        }
+        this.state.readerIndex = readIndex;
+        this.state.writerIndex = writeIndex;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf clear() {
+        this.state.readerIndex = 0;
+        this.state.writerIndex = 0;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf markRead() {
+        this.state.markedReaderIndex = this.state.readerIndex;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf markWrite() {
+        this.state.markedWriterIndex = this.state.writerIndex;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf resetRead() {
+        return setReadIndex(this.state.markedReaderIndex);
+    }
+
+    @Override
+    public PooledChannelBuf resetWrite() {
+        return setWriteIndex(this.state.markedWriterIndex);
+    }
+
+    @Override
+    public PooledChannelBuf slice() {
+        return slice(this.state.readerIndex, available());
+    }
+
+    @Override
+    public PooledChannelBuf slice(int index, int length) {
+        return newSlice(index, length, this.state.readOnly);
+    }
+
+    /**
+     * Returns a read-only slice of this buffer's readable bytes, sharing the
+     * memory of this buffer like {@link #slice()}. Writing to the slice
+     * fails with a {@link ReadOnlyBufferException}.
+     *
+     * @return The read-only slice
+     */
+    public PooledChannelBuf readOnlySlice() {
+        return newSlice(this.state.readerIndex, available(), true);
+    }
+
+    private PooledChannelBuf newSlice(int index, int length, boolean readOnly) {
+        checkIndex(index, length);
+        ChannelBufPool.Chunk chunk = chunk();
+        chunk.retain();
+        State slice = new State(this.state.pool, chunk, this.state.offset + index, length, true, readOnly);
+        slice.writerIndex = length;
+        return new PooledChannelBuf(slice, this.order);
+    }
+
+    /**
+     * Checks whether this buffer is read-only.
+     *
+     * @return Whether this buffer is read-only
+     * @see #readOnlySlice()
+     */
+    public boolean isReadOnly() {
+        return this.state.readOnly;
+    }
+
+    /**
+     * Gets a copy of the bytes written to this buffer, from index 0 up to
+     * the writer index.
+     *
+     * @return A copy of the written bytes
+     */
+    @Override
+    public byte[] array() {
+        byte[] bytes = new byte[this.state.writerIndex];
+        ByteBuffer buffer = memory().duplicate();
+        buffer.position(this.state.offset);
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public PooledChannelBuf writeBoolean(boolean data) {
+        return writeByte(data ? (byte) 1 : 0);
+    }
+
+    @Override
+    public PooledChannelBuf setBoolean(int index, boolean data) {
+        return setByte(index, data ? (byte) 1 : 0);
+    }
+
+    @Override
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+        return getByte(index) != 0;
+    }
+
+    @Override
+    public PooledChannelBuf writeByte(byte data) {
+        ensureWritable(1);
+        memory().put(this.state.offset + this.state.writerIndex, data);
+        this.state.writerIndex++;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf setByte(int index, byte data) {
+        checkIndex(index, 1);
+        memory().put(this.state.offset + index, data);
+        return this;
+    }
+
+    @Override
+    public byte readByte() {
+        checkReadable(1);
+        return memory().get(this.state.offset + this.state.readerIndex++);
+    }
+
+    @Override
+    public byte getByte(int index) {
+        checkIndex(index, 1);
+        return memory().get(this.state.offset + index);
+    }
+
+    @Override
+    public PooledChannelBuf writeShort(short data) {
+        ensureWritable(2);
+        memory().putShort(this.state.offset + this.state.writerIndex, data);
+        this.state.writerIndex += 2;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf setShort(int index, short data) {
+        checkIndex(index, 2);
+        memory().putShort(this.state.offset + index, data);
+        return this;
+    }
+
+    @Override
+    public short readShort() {
+        checkReadable(2);
+        short value = memory().getShort(this.state.offset + this.state.readerIndex);
+        this.state.readerIndex += 2;
+        return value;
+    }
+
+    @Override
+    public short getShort(int index) {
+        checkIndex(index, 2);
+        return memory().getShort(this.state.offset + index);
+    }
+
+    @Override
+    public PooledChannelBuf writeChar(char data) {
+        ensureWritable(2);
+        memory().putChar(this.state.offset + this.state.writerIndex, data);
+        this.state.writerIndex += 2;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf setChar(int index, char data) {
+        checkIndex(index, 2);
+        memory().putChar(this.state.offset + index, data);
+        return this;
+    }
+
+    @Override
+    public char readChar() {
+        checkReadable(2);
+        char value = memory().getChar(this.state.offset + this.state.readerIndex);
+        this.state.readerIndex += 2;
+        return value;
+    }
+
+    @Override
+    public char getChar(int index) {
+        checkIndex(index, 2);
+        return memory().getChar(this.state.offset + index);
+    }
+
+    @Override
+    public PooledChannelBuf writeInteger(int data) {
+        ensureWritable(4);
+        memory().putInt(this.state.offset + this.state.writerIndex, data);
+        this.state.writerIndex += 4;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf setInteger(int index, int data) {
+        checkIndex(index, 4);
+        memory().putInt(this.state.offset + index, data);
+        return this;
+    }
+
+    @Override
+    public int readInteger() {
+        checkReadable(4);
+        int value = memory().getInt(this.state.offset + this.state.readerIndex);
+        this.state.readerIndex += 4;
+        return value;
+    }
+
+    @Override
+    public int getInteger(int index) {
+        checkIndex(index, 4);
+        return memory().getInt(this.state.offset + index);
+    }
+
+    @Override
+    public PooledChannelBuf writeLong(long data) {
+        ensureWritable(8);
+        memory().putLong(this.state.offset + this.state.writerIndex, data);
+        this.state.writerIndex += 8;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf setLong(int index, long data) {
+        checkIndex(index, 8);
+        memory().putLong(this.state.offset + index, data);
+        return this;
+    }
+
+    @Override
+    public long readLong() {
+        checkReadable(8);
+        long value = memory().getLong(this.state.offset + this.state.readerIndex);
+        this.state.readerIndex += 8;
+        return value;
+    }
+
+    @Override
+    public long getLong(int index) {
+        checkIndex(index, 8);
+        return memory().getLong(this.state.offset + index);
+    }
+
+    @Override
+    public PooledChannelBuf writeFloat(float data) {
+        return writeInteger(Float.floatToRawIntBits(data));
+    }
+
+    @Override
+    public PooledChannelBuf setFloat(int index, float data) {
+        return setInteger(index, Float.floatToRawIntBits(data));
+    }
+
+    @Override
+    public float readFloat() {
+        return Float.intBitsToFloat(readInteger());
+    }
+
+    @Override
+    public float getFloat(int index) {
+        return Float.intBitsToFloat(getInteger(index));
+    }
+
+    @Override
+    public PooledChannelBuf writeDouble(double data) {
+        return writeLong(Double.doubleToRawLongBits(data));
+    }
+
+    @Override
+    public PooledChannelBuf setDouble(int index, double data) {
+        return setLong(index, Double.doubleToRawLongBits(data));
+    }
+
+    @Override
+    public double readDouble() {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return Double.longBitsToDouble(getLong(index));
+    }
+
+    @Override
+    public PooledChannelBuf writeVarInt(int data) {
+        int size = varIntSize(data);
+        ensureWritable(size);
+        putVarInt(memory(), this.state.offset + this.state.writerIndex, data);
+        this.state.writerIndex += size;
+        return this;
+    }
+
+    @Override
+    public int readVarInt() {
+        ByteBuffer memory = memory();
+        int start = this.state.offset + this.state.readerIndex;
+        int end = start + Math.min(available(), 5);
+        int value = 0;
+        int shift = 0;
+        for (int i = start; i < end; i++) {
+            byte b = memory.get(i);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                this.state.readerIndex += i + 1 - start;
+                return value;
+            }
+            shift += 7;
+        }
+        throw new IndexOutOfBoundsException(end - start < 5 ? "Truncated varint" : "Varint longer than 5 bytes");
+    }
+
+    @Override
+    public PooledChannelBuf writeSignedVarInt(int data) {
+        return writeVarInt(data << 1 ^ data >> 31);
+    }
+
+    @Override
+    public int readSignedVarInt() {
+        int value = readVarInt();
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    @Override
+    public PooledChannelBuf writeVarLong(long data) {
+        int size = 1;
+        for (long rest = data >>> 7; rest != 0; rest >>>= 7) {
+            size++;
+        }
+        ensureWritable(size);
+        ByteBuffer memory = memory();
+        int index = this.state.offset + this.state.writerIndex;
+        while ((data & ~0x7FL) != 0) {
+            memory.put(index++, (byte) (data & 0x7F | 0x80));
+            data >>>= 7;
+        }
+        memory.put(index, (byte) data);
+        this.state.writerIndex += size;
+        return this;
+    }
+
+    @Override
+    public long readVarLong() {
+        ByteBuffer memory = memory();
+        int start = this.state.offset + this.state.readerIndex;
+        int end = start + Math.min(available(), 10);
+        long value = 0;
+        int shift = 0;
+        for (int i = start; i < end; i++) {
+            byte b = memory.get(i);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                this.state.readerIndex += i + 1 - start;
+                return value;
+            }
+            shift += 7;
+        }
+        throw new IndexOutOfBoundsException(end - start < 10 ? "Truncated varlong" : "Varlong longer than 10 bytes");
+    }
+
+    @Override
+    public PooledChannelBuf writeSignedVarLong(long data) {
+        return writeVarLong(data << 1 ^ data >> 63);
+    }
+
+    @Override
+    public long readSignedVarLong() {
+        long value = readVarLong();
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    @Override
+    public PooledChannelBuf writeString(String data) {
+        int length = utf8Length(data);
+        int size = varIntSize(length) + length;
+        ensureWritable(size);
+        putUtf8(memory(), putVarInt(memory(), this.state.offset + this.state.writerIndex, length), data);
+        this.state.writerIndex += size;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf setString(int index, String data) {
+        int length = utf8Length(data);
+        checkIndex(index, varIntSize(length) + length);
+        putUtf8(memory(), putVarInt(memory(), this.state.offset + index, length), data);
+        return this;
+    }
+
+    @Override
+    public String readString() {
+        return readString(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public String readString(int maxLength) {
+        int start = this.state.readerIndex;
+        int length = readLength(maxLength);
+        ByteBuffer memory = memory();
+        int index = this.state.offset + this.state.readerIndex;
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            byte b = memory.get(index + i);
+            if (b < 0) {
+                // Not ASCII, leave it to the decoder
+                this.state.readerIndex = start;
+                return new String(readByteArray(maxLength), Charsets.UTF_8);
+            }
+            chars[i] = (char) b;
+        }
+        this.state.readerIndex += length;
+        return new String(chars);
+    }
+
+    @Override
+    public String getString(int index) {
+        int readerIndex = this.state.readerIndex;
+        try {
+            checkIndex(index, 0);
+            this.state.readerIndex = index;
+            return readString();
+        } finally {
+            this.state.readerIndex = readerIndex;
+        }
+    }
+
+    @Override
+    public PooledChannelBuf writeByteArray(byte[] data) {
+        ensureWritable(varIntSize(data.length) + data.length);
+        writeVarInt(data.length);
+        return writeBytes(data, 0, data.length);
+    }
+
+    @Override
+    public byte[] readByteArray() {
+        return readByteArray(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public byte[] readByteArray(int maxLength) {
+        byte[] bytes = new byte[readLength(maxLength)];
+        readBytes(bytes);
+        return bytes;
+    }
+
+    @Override
+    public PooledChannelBuf writeBytes(byte[] data) {
+        return writeBytes(data, 0, data.length);
+    }
+
+    @Override
+    public PooledChannelBuf writeBytes(byte[] data, int offset, int length) {
+        checkPositionIndexes(offset, offset + length, data.length);
+        ensureWritable(length);
+        ByteBuffer buffer = memory().duplicate();
+        buffer.position(this.state.offset + this.state.writerIndex);
+        buffer.put(data, offset, length);
+        this.state.writerIndex += length;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf writeBytes(ByteBuffer data) {
+        int length = data.remaining();
+        ensureWritable(length);
+        ByteBuffer buffer = memory().duplicate();
+        buffer.position(this.state.offset + this.state.writerIndex);
+        buffer.put(data);
+        this.state.writerIndex += length;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf readBytes(byte[] data) {
+        checkReadable(data.length);
+        ByteBuffer buffer = memory().duplicate();
+        buffer.position(this.state.offset + this.state.readerIndex);
+        buffer.get(data);
+        this.state.readerIndex += data.length;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf readBytes(ByteBuffer data) {
+        int length = data.remaining();
+        checkReadable(length);
+        ByteBuffer buffer = memory().duplicate();
+        int start = this.state.offset + this.state.readerIndex;
+        buffer.limit(start + length).position(start);
+        data.put(buffer);
+        this.state.readerIndex += length;
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf writeUuid(UUID data) {
+        ensureWritable(16);
+        writeLong(data.getMostSignificantBits());
+        return writeLong(data.getLeastSignificantBits());
+    }
+
+    @Override
+    public PooledChannelBuf setUuid(int index, UUID data) {
+        checkIndex(index, 16);
+        setLong(index, data.getMostSignificantBits());
+        return setLong(index + 8, data.getLeastSignificantBits());
+    }
+
+    @Override
+    public UUID readUuid() {
+        checkReadable(16);
+        return new UUID(readLong(), readLong());
+    }
+
+    @Override
+    public UUID getUuid(int index) {
+        checkIndex(index, 16);
+        return new UUID(getLong(index), getLong(index + 8));
+    }
+
+    @Override
+    public PooledChannelBuf writeDataView(DataView data) {
+        checkNotNull(data, "data");
+        DataViewCodec.write(this, data);
+        return this;
+    }
+
+    @Override
+    public PooledChannelBuf setDataView(int index, DataView data) {
+        checkNotNull(data, "data");
+        checkIndex(index, 0);
+        PooledChannelBuf encoded = this.state.pool.allocate();
+        try {
+            DataViewCodec.write(encoded, data);
+            checkIndex(index, encoded.available());
+            ByteBuffer buffer = memory().duplicate();
+            buffer.position(this.state.offset + index);
+            buffer.put(encoded.nioBuffer());
+        } finally {
+            encoded.release();
+        }
+        return this;
+    }
+
+    @Override
+    public DataView readDataView() {
+        return DataViewCodec.read(this);
+    }
+
+    @Override
+    public DataView getDataView(int index) {
+        int readerIndex = this.state.readerIndex;
+        try {
+            checkIndex(index, 0);
+            this.state.readerIndex = index;
+            return readDataView();
+        } finally {
+            this.state.readerIndex = readerIndex;
+        }
+    }
+
+    /**
+     * Reads a length prefix, leaving the readerIndex untouched if it is
+     * out of bounds.
+     */
+    private int readLength(int maxLength) {
+        int start = this.state.readerIndex;
+        int length = readVarInt();
+        if (length < 0 || length > maxLength || length > available()) {
+            this.state.readerIndex = start;
+            throw new IndexOutOfBoundsException("Length " + length + " exceeds " + Math.min(maxLength, available()));
+        }
+        return length;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int putVarInt(ByteBuffer memory, int index, int value) {
+        while ((value & ~0x7F) != 0) {
+            memory.put(index++, (byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        memory.put(index++, (byte) value);
+        return index;
+    }
+
+    /**
+     * Gets the length of the UTF-8 encoding of a string, where unpaired
+     * surrogates are replaced by '?' like {@link String#getBytes}.
+     */
+    private static int utf8Length(String data) {
+        int length = data.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(i);
+            if (c < 0x80) {
+                continue;
+            } else if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(data.charAt(i + 1))) {
+                bytes += 2;
+                i++;
+            } else if (!Character.isHighSurrogate(c) && !Character.isLowSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+
+    private static void putUtf8(ByteBuffer memory, int index, String data) {
+        int length = data.length();
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(i);
+            if (c < 0x80) {
+                memory.put(index++, (byte) c);
+            } else if (c < 0x800) {
+                memory.put(index++, (byte) (0xC0 | c >> 6));
+                memory.put(index++, (byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(data.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, data.charAt(++i));
+                memory.put(index++, (byte) (0xF0 | codePoint >> 18));
+                memory.put(index++, (byte) (0x80 | codePoint >> 12 & 0x3F));
+                memory.put(index++, (byte) (0x80 | codePoint >> 6 & 0x3F));
+                memory.put(index++, (byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                memory.put(index++, (byte) '?');
+            } else {
+                memory.put(index++, (byte) (0xE0 | c >> 12));
+                memory.put(index++, (byte) (0x80 | c >> 6 & 0x3F));
+                memory.put(index++, (byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private ChannelBufPool.Chunk chunk() {
+        ChannelBufPool.Chunk chunk = this.state.chunk;
+        if (chunk == null) {
+            throw new IllegalStateException("Buffer was released");
+        }
+        return chunk;
+    }
+
+    /**
+     * Gets the memory of this buffer in its byte order. Indexes into it are
+     * offset by {@link State#offset}.
+     */
+    private ByteBuffer memory() {
+        ChannelBufPool.Chunk chunk = chunk();
+        if (chunk != this.viewChunk) {
+            this.view = (this.state.readOnly ? chunk.buffer.asReadOnlyBuffer() : chunk.buffer.duplicate()).order(this.order);
+            this.viewChunk = chunk;
+        }
+        return this.view;
+    }
+
+    private void checkIndex(int index, int length) {
+        if (index < 0 || length < 0 || index > this.state.capacity - length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length + ", capacity " + this.state.capacity);
+        }
+    }
+
+    private void checkReadable(int length) {
+        if (this.state.readerIndex > this.state.writerIndex - length) {
+            throw new IndexOutOfBoundsException("readerIndex " + this.state.readerIndex + ", length " + length
+                    + ", writerIndex " + this.state.writerIndex);
+        }
+    }
+
+    private void ensureWritable(int length) {
+        State state = this.state;
+        if (state.readOnly) {
+            throw new ReadOnlyBufferException();
+        }
+        if (state.writerIndex <= state.capacity - length) {
+            return;
+        }
+        ChannelBufPool.Chunk old = chunk();
+        if (state.fixed || state.writerIndex > Integer.MAX_VALUE - length) {
+            throw new IndexOutOfBoundsException("writerIndex " + state.writerIndex + ", length " + length + ", capacity " + state.capacity);
+        }
+        int required = state.writerIndex + length;
+        int capacity = state.capacity;
+        while (capacity < required) {
+            capacity = capacity > Integer.MAX_VALUE / 2 ? required : capacity << 1;
+        }
+        ChannelBufPool.Chunk chunk = state.pool.acquire(capacity);
+        ByteBuffer from = old.buffer.duplicate();
+        from.limit(state.writerIndex).position(0);
+        ByteBuffer to = chunk.buffer.duplicate();
+        to.clear();
+        to.put(from);
+        state.chunk = chunk;
+        state.capacity = chunk.buffer.capacity();
+        old.release();
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("readerIndex", this.state.readerIndex)
+                .add("writerIndex", this.state.writerIndex)
+                .add("capacity", this.state.capacity)
+                .add("refCnt", this.state.refCnt.get())
+                .toString();
+    }
+
+    /**
+     * The memory, indexes and reference count shared by a buffer and the
+     * views of it in other byte orders.
+     */
+    private static final class State {
+
+        final ChannelBufPool pool;
+        final int offset;
+        final boolean fixed;
+        final boolean readOnly;
+        final AtomicInteger refCnt = new AtomicInteger(1);
+        @Nullable ChannelBufPool.Chunk chunk;
+        int capacity;
+        int readerIndex;
+        int writerIndex;
+        int markedReaderIndex;
+        int markedWriterIndex;
+
+        State(ChannelBufPool pool, ChannelBufPool.Chunk chunk, int offset, int capacity, boolean fixed, boolean readOnly) {
+            this.pool = pool;
+            this.chunk = chunk;
+            this.offset = offset;
+            this.capacity = capacity;
+            this.fixed = fixed;
+            this.readOnly = readOnly;
+        }
+
+    }
+
+}
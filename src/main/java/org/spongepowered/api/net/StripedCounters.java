@@ -0,0 +1,99 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A set of counters that many threads can add to without contending on the
+ * same cache line.
+ *
+ * <p>Each counter is split in stripes, picked by the adding thread, and the
+ * stripes of different threads lie at least 128 bytes apart. Reading a
+ * counter sums its stripes, so a read concurrent with adds may miss some
+ * of them but never sees a partial add.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+final class StripedCounters {
+
+    /**
+     * The number of longs between the first counters of two stripes.
+     */
+    private static final int STRIDE = 16;
+
+    private static final int MAX_STRIPES = 64;
+
+    private final int fields;
+    private final int mask;
+    private final AtomicLongArray cells;
+
+    /**
+     * Creates a new set of counters, all starting at 0.
+     *
+     * @param fields The number of counters
+     */
+    StripedCounters(int fields) {
+        checkArgument(fields > 0 && fields <= STRIDE, "fields must be between 1 and %s", STRIDE);
+        int stripes = Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+        this.fields = fields;
+        this.mask = stripes - 1;
+        this.cells = new AtomicLongArray(stripes * STRIDE);
+    }
+
+    /**
+     * Adds to a counter.
+     *
+     * @param field The counter
+     * @param delta The value to add
+     */
+    void add(int field, long delta) {
+        this.cells.getAndAdd(stripe() * STRIDE + field, delta);
+    }
+
+    /**
+     * Gets the value of a counter.
+     *
+     * @param field The counter
+     * @return The sum of all adds to the counter
+     */
+    long get(int field) {
+        checkArgument(field >= 0 && field < this.fields, "field");
+        long sum = 0;
+        for (int i = field; i < this.cells.length(); i += STRIDE) {
+            sum += this.cells.get(i);
+        }
+        return sum;
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & this.mask;
+    }
+
+}
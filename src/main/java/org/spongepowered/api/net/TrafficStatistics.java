@@ -0,0 +1,189 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import com.google.common.base.Objects;
+
+/**
+ * A snapshot of the custom payload traffic of a channel or a plugin,
+ * recorded by {@link ChannelMetrics}.
+ */
+public final class TrafficStatistics {
+
+    private final long inboundMessages;
+    private final long inboundBytes;
+    private final long outboundMessages;
+    private final long outboundBytes;
+    private final long handled;
+    private final long handlerNanos;
+    private final long rejected;
+    private final double inboundBytesPerSecond;
+    private final double outboundBytesPerSecond;
+
+    TrafficStatistics(long inboundMessages, long inboundBytes, long outboundMessages, long outboundBytes, long handled, long handlerNanos,
+            long rejected, double inboundBytesPerSecond, double outboundBytesPerSecond) {
+        this.inboundMessages = inboundMessages;
+        this.inboundBytes = inboundBytes;
+        this.outboundMessages = outboundMessages;
+        this.outboundBytes = outboundBytes;
+        this.handled = handled;
+        this.handlerNanos = handlerNanos;
+        this.rejected = rejected;
+        this.inboundBytesPerSecond = inboundBytesPerSecond;
+        this.outboundBytesPerSecond = outboundBytesPerSecond;
+    }
+
+    /**
+     * Gets the number of payloads received from clients, including
+     * rejected ones.
+     *
+     * @return The number of inbound messages
+     */
+    public long getInboundMessages() {
+        return this.inboundMessages;
+    }
+
+    /**
+     * Gets the number of payload bytes received from clients.
+     *
+     * @return The number of inbound bytes
+     */
+    public long getInboundBytes() {
+        return this.inboundBytes;
+    }
+
+    /**
+     * Gets the number of payloads sent to clients.
+     *
+     * @return The number of outbound messages
+     */
+    public long getOutboundMessages() {
+        return this.outboundMessages;
+    }
+
+    /**
+     * Gets the number of payload bytes sent to clients.
+     *
+     * @return The number of outbound bytes
+     */
+    public long getOutboundBytes() {
+        return this.outboundBytes;
+    }
+
+    /**
+     * Gets the number of received payloads passed to a listener.
+     *
+     * @return The number of handled messages
+     */
+    public long getHandled() {
+        return this.handled;
+    }
+
+    /**
+     * Gets the total time listeners took to handle payloads.
+     *
+     * @return The handler time in nanoseconds
+     */
+    public long getHandlerNanos() {
+        return this.handlerNanos;
+    }
+
+    /**
+     * Gets the average time a listener took to handle a payload.
+     *
+     * @return The average handler time in nanoseconds, or 0 if no payload
+     *     was handled
+     */
+    public long getAverageHandlerNanos() {
+        return this.handled == 0 ? 0 : this.handlerNanos / this.handled;
+    }
+
+    /**
+     * Gets the number of received payloads that were dropped instead of
+     * handled, because their channel is not registered or they exceeded its
+     * limits.
+     *
+     * @return The number of rejected messages
+     */
+    public long getRejected() {
+        return this.rejected;
+    }
+
+    /**
+     * Gets the rate at which payload bytes were received between the last
+     * two samples.
+     *
+     * @return The inbound bytes per second
+     * @see ChannelMetrics#sample()
+     */
+    public double getInboundBytesPerSecond() {
+        return this.inboundBytesPerSecond;
+    }
+
+    /**
+     * Gets the rate at which payload bytes were sent between the last two
+     * samples.
+     *
+     * @return The outbound bytes per second
+     * @see ChannelMetrics#sample()
+     */
+    public double getOutboundBytesPerSecond() {
+        return this.outboundBytesPerSecond;
+    }
+
+    /**
+     * Gets the rate at which payload bytes were received and sent between
+     * the last two samples.
+     *
+     * @return The bytes per second
+     * @see ChannelMetrics#sample()
+     */
+    public double getBytesPerSecond() {
+        return this.inboundBytesPerSecond + this.outboundBytesPerSecond;
+    }
+
+    TrafficStatistics add(TrafficStatistics other) {
+        return new TrafficStatistics(this.inboundMessages + other.inboundMessages, this.inboundBytes + other.inboundBytes,
+                this.outboundMessages + other.outboundMessages, this.outboundBytes + other.outboundBytes, this.handled + other.handled,
+                this.handlerNanos + other.handlerNanos, this.rejected + other.rejected,
+                this.inboundBytesPerSecond + other.inboundBytesPerSecond, this.outboundBytesPerSecond + other.outboundBytesPerSecond);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("inboundMessages", this.inboundMessages)
+                .add("inboundBytes", this.inboundBytes)
+                .add("outboundMessages", this.outboundMessages)
+                .add("outboundBytes", this.outboundBytes)
+                .add("handled", this.handled)
+                .add("handlerNanos", this.handlerNanos)
+                .add("rejected", this.rejected)
+                .add("inboundBytesPerSecond", this.inboundBytesPerSecond)
+                .add("outboundBytesPerSecond", this.outboundBytesPerSecond)
+                .toString();
+    }
+
+}
@@ -26,8 +26,8 @@
 package org.spongepowered.api.service;
 
 /**
- * Thrown if a provider already has been registered for a given service and
- * it cannot be replaced.
+ * Thrown if a provider already has been registered for a given service at
+ * the same priority.
  */
 public class ProviderExistsException extends Exception {
 
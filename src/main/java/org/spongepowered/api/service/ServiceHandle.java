@@ -0,0 +1,96 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service;
+
+import com.google.common.base.Optional;
+
+import javax.annotation.Nullable;
+
+/**
+ * A live handle to the provider of a service.
+ *
+ * <p>A handle is obtained once from {@link ServiceManager#getHandle(Class)}
+ * and always reflects the provider that is currently registered, including
+ * after the provider has been replaced. Reading the provider through a
+ * handle does not perform any lookup or allocation, which makes handles
+ * suitable for use in frequently called code.</p>
+ *
+ * @param <T> The type of service
+ */
+public interface ServiceHandle<T> {
+
+    /**
+     * Get the service this handle refers to.
+     *
+     * @return The service
+     */
+    Class<T> getService();
+
+    /**
+     * Get whether a provider is currently registered for the service.
+     *
+     * @return Whether a provider is present
+     */
+    boolean isPresent();
+
+    /**
+     * Get the current provider, or null if no provider is registered.
+     *
+     * @return The current provider, or null
+     */
+    @Nullable
+    T get();
+
+    /**
+     * Get the current provider.
+     *
+     * <p>The returned optional is shared for as long as the provider is
+     * registered, so repeated calls do not allocate.</p>
+     *
+     * @return The current provider, if present
+     */
+    Optional<T> ref();
+
+    /**
+     * Get the current provider, raising an unchecked exception if no provider
+     * is registered.
+     *
+     * @return The current provider
+     * @throws ProvisioningException Thrown if no provider is registered
+     */
+    T getUnchecked() throws ProvisioningException;
+
+    /**
+     * Acquire a lease on the current provider.
+     *
+     * <p>Calls made through a lease are tracked, so that a provider that is
+     * swapped out is only retired after those calls have finished.</p>
+     *
+     * @return A lease on the current provider
+     * @throws ProvisioningException Thrown if no provider is registered
+     */
+    ServiceLease<T> acquire() throws ProvisioningException;
+
+}
@@ -0,0 +1,56 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service;
+
+/**
+ * A provider acquired from a {@link ServiceHandle} for the duration of a
+ * call.
+ *
+ * <p>While a lease is held, the provider it was acquired on is considered
+ * in use. When a provider is removed or replaced, new calls go to the next
+ * provider immediately, and the removed provider is only considered retired
+ * once all of its leases have been released. See
+ * {@link ServiceManager#whenRetired(Class, Object)}.</p>
+ *
+ * <p>Each lease must be released exactly once, usually in a
+ * {@code finally} block.</p>
+ *
+ * @param <T> The type of service
+ */
+public interface ServiceLease<T> {
+
+    /**
+     * Get the provider this lease was acquired on.
+     *
+     * @return The provider
+     */
+    T get();
+
+    /**
+     * Release this lease.
+     */
+    void release();
+
+}
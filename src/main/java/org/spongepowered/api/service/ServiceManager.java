@@ -26,6 +26,7 @@
 package org.spongepowered.api.service;
 
 import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * A manager of services and their providers.
@@ -35,18 +36,23 @@ import com.google.common.base.Optional;
  * with the service(s) that the provider implements.</p>
  *
  * <p>Providers are registered at runtime using
- * {@link #setProvider(Object, Class, Object)}. Only one provider
- * can be registered for each service, but a provider can be marked as
- * replaceable if it can be replaced with a new provider.</p>
+ * {@link #setProvider(Object, Class, Object)}. Several providers may be
+ * registered for a service at different {@link ServicePriority priorities};
+ * the one with the highest priority is used, and the others act as
+ * fallbacks. Providers can be swapped at runtime with
+ * {@link #replaceProvider(Object, Class, Object)} or
+ * {@link #removeProvider(Class, Object)}, and calls made through a
+ * {@link ServiceLease} are drained before the old provider is retired.</p>
  */
 public interface ServiceManager {
 
     /**
-     * Register a provider with the service manager.
+     * Register a provider with the service manager at
+     * {@link ServicePriority#NORMAL} priority.
      *
-     * <p>If a provider already exists for the given service, it will be
-     * replaced if was flagged as replaceable. Otherwise, a
-     * {@link ProviderExistsException} will be thrown. Plugins should provide
+     * <p>If a provider already exists for the given service at the same
+     * priority, a {@link ProviderExistsException} will be thrown. Plugins
+     * should provide
      * options to not install their providers if the plugin is not dedicated
      * to a single function (such as purely authorization).</p>
      *
@@ -58,11 +64,77 @@ public interface ServiceManager {
      * @param provider The implementation
      * @param <T> The type of service
      * @throws ProviderExistsException Thrown if a provider already exists
-     *                                 and cannot be replaced
+     *                                 at the same priority
      * @throws IllegalArgumentException Thrown if {@code plugin} is not a plugin instance
      */
     <T> void setProvider(Object plugin, Class<T> service, T provider) throws ProviderExistsException;
 
+    /**
+     * Register a provider with the service manager at the given priority.
+     *
+     * <p>If the new provider has a higher priority than the current provider,
+     * it atomically becomes the current provider, and the previous provider
+     * remains registered as a fallback.</p>
+     *
+     * @param plugin The instance of a plugin
+     * @param service The service
+     * @param provider The implementation
+     * @param priority The priority to register the provider at
+     * @param <T> The type of service
+     * @throws ProviderExistsException Thrown if a provider already exists
+     *                                 at the same priority
+     * @throws IllegalArgumentException Thrown if {@code plugin} is not a plugin instance
+     */
+    <T> void setProvider(Object plugin, Class<T> service, T provider, ServicePriority priority) throws ProviderExistsException;
+
+    /**
+     * Register a provider with the service manager, replacing the current
+     * provider of the given service at its priority.
+     *
+     * <p>Existing {@link ServiceHandle}s for the service remain valid and
+     * reflect the new provider as soon as this method returns. The replaced
+     * provider is retired once all leases on it are released.</p>
+     *
+     * @param plugin The instance of a plugin
+     * @param service The service
+     * @param provider The implementation
+     * @param <T> The type of service
+     * @return The provider that was replaced, if any
+     * @throws IllegalArgumentException Thrown if {@code plugin} is not a plugin instance
+     */
+    <T> Optional<T> replaceProvider(Object plugin, Class<T> service, T provider);
+
+    /**
+     * Unregister a provider of a service.
+     *
+     * <p>If the provider was the current provider, the next provider in the
+     * chain, if any, atomically becomes the current provider. The removed
+     * provider is retired once all leases on it are released.</p>
+     *
+     * @param service The service
+     * @param provider The implementation to remove
+     * @param <T> The type of service
+     * @return Whether the provider was registered
+     */
+    <T> boolean removeProvider(Class<T> service, T provider);
+
+    /**
+     * Return a future that completes once the given provider has been
+     * removed or replaced and every {@link ServiceLease} acquired on it has
+     * been released.
+     *
+     * <p>A plugin moving a service to a new backend can use this to close the
+     * old backend without interrupting calls that are still running. If the
+     * provider is not registered for the service, the returned future is
+     * already complete.</p>
+     *
+     * @param service The service
+     * @param provider The implementation
+     * @param <T> The type of service
+     * @return A future completing with the retired provider
+     */
+    <T> ListenableFuture<T> whenRetired(Class<T> service, T provider);
+
     /**
      * Return a provider for the given service, if one is available.
      *
@@ -100,4 +172,17 @@ public interface ServiceManager {
      */
     <T> T provideUnchecked(Class<T> service) throws ProvisioningException;
 
+    /**
+     * Return a handle to the provider of the given service.
+     *
+     * <p>The handle may be kept and reused. It reflects whichever provider is
+     * registered at the time it is read, whether or not a provider was
+     * registered when the handle was obtained.</p>
+     *
+     * @param service The service
+     * @param <T> The type of service
+     * @return A handle to the current provider
+     */
+    <T> ServiceHandle<T> getHandle(Class<T> service);
+
 }
@@ -0,0 +1,64 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service;
+
+/**
+ * Priority that a provider may be registered at.
+ *
+ * <p>Providers of a service form a chain ordered by priority. The provider
+ * with the highest priority is the current provider, and the next provider
+ * in the chain takes over if it is removed.</p>
+ */
+public enum ServicePriority {
+
+    /**
+     * The lowest priority, for fallback providers that should only be used
+     * when nothing else is available.
+     */
+    LOWEST,
+
+    /**
+     * A lower priority than usual.
+     */
+    LOW,
+
+    /**
+     * The default priority, used by
+     * {@link ServiceManager#setProvider(Object, Class, Object)}.
+     */
+    NORMAL,
+
+    /**
+     * A higher priority than usual.
+     */
+    HIGH,
+
+    /**
+     * The highest priority, for providers that should take precedence over
+     * everything else.
+     */
+    HIGHEST
+
+}
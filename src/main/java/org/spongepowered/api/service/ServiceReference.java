@@ -26,6 +26,11 @@ package org.spongepowered.api.service;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A reference to a service that may or may not be currently registered, but will be updated if a registration does happen.
@@ -46,6 +51,30 @@ public interface ServiceReference<T> {
      */
     public T await() throws InterruptedException;
 
+    /**
+     * Block until the service is available or the given timeout elapses.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit The unit of the timeout
+     * @return The service if available
+     * @throws InterruptedException if waiting is interrupted
+     * @throws TimeoutException if the service is not registered within the timeout
+     */
+    public T await(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException;
+
+    /**
+     * Get a future that completes with the service once it is registered.
+     *
+     * <p>Waiting on several services, for example with
+     * {@link com.google.common.util.concurrent.Futures#allAsList(Iterable)},
+     * does not require a thread per service. The returned future is never
+     * completed exceptionally, and cancelling it has no effect on the
+     * registration of the service.
+     *
+     * @return A future for the service
+     */
+    public ListenableFuture<T> getFuture();
+
     /**
      * Queue a command to be executed after a service is registered.
      * If the service is already registered, this function will be run immediately from the current thread.
@@ -56,4 +85,29 @@ public interface ServiceReference<T> {
      * @param run The function to execute
      */
     public void executeWhenPresent(Predicate<T> run);
+
+    /**
+     * Queue a command to be executed on the given executor after a service is registered.
+     * If the service is already registered, this function is submitted to the executor immediately.
+     *
+     * <p>The return value of the function is ignored.
+     *
+     * @param run The function to execute
+     * @param executor The executor to run the function on
+     */
+    public void executeWhenPresent(Predicate<T> run, Executor executor);
+
+    /**
+     * Queue a command to be executed on the given executor every time a
+     * provider becomes the current provider of the service, including the
+     * first registration and any later swap.
+     *
+     * <p>With an asynchronous executor, commands may observe swaps in a
+     * different order than they happened; {@link #ref()} always reflects the
+     * current provider. The return value of the function is ignored.
+     *
+     * @param run The function to execute
+     * @param executor The executor to run the function on
+     */
+    public void executeOnChange(Predicate<T> run, Executor executor);
 }
@@ -26,26 +26,37 @@
 package org.spongepowered.api.service;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.api.plugin.PluginManager;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 public class SimpleServiceManager implements ServiceManager {
 
-    private final ConcurrentMap<Class<?>, Provider> providers =
+    private final ConcurrentMap<Class<?>, SimpleServiceHandle<?>> handles =
             new MapMaker().concurrencyLevel(3).makeMap();
     private final ConcurrentMap<Class<?>, SimpleServiceReference<?>> potentials =
             new MapMaker().concurrencyLevel(3).weakKeys().makeMap();
@@ -65,40 +76,100 @@ public class SimpleServiceManager implements ServiceManager {
 
     @Override
     public <T> void setProvider(Object plugin, Class<T> service, T provider) throws ProviderExistsException {
+        setProvider(plugin, service, provider, ServicePriority.NORMAL);
+    }
+
+    @Override
+    public <T> void setProvider(Object plugin, Class<T> service, T provider, ServicePriority priority) throws ProviderExistsException {
         checkNotNull(plugin, "plugin");
         checkNotNull(service, "service");
         checkNotNull(provider, "provider");
+        checkNotNull(priority, "priority");
+
+        PluginContainer container = getContainer(plugin);
+
+        SimpleServiceHandle<T> handle = handle(service);
+        if (!handle.add(new Provider<T>(container, provider, priority))) {
+            throw new ProviderExistsException("Provider for service " + service.getCanonicalName()
+                    + " has already been registered at priority " + priority + "!");
+        }
+        changed(handle);
+    }
+
+    @Override
+    public <T> Optional<T> replaceProvider(Object plugin, Class<T> service, T provider) {
+        checkNotNull(plugin, "plugin");
+        checkNotNull(service, "service");
+        checkNotNull(provider, "provider");
+
+        PluginContainer container = getContainer(plugin);
+
+        SimpleServiceHandle<T> handle = handle(service);
+        Optional<T> previous = handle.replace(container, provider);
+        changed(handle);
+        return previous;
+    }
+
+    @Override
+    public <T> boolean removeProvider(Class<T> service, T provider) {
+        checkNotNull(service, "service");
+        checkNotNull(provider, "provider");
 
+        @SuppressWarnings("unchecked")
+        @Nullable SimpleServiceHandle<T> handle = (SimpleServiceHandle<T>) handles.get(service);
+        if (handle == null || !handle.remove(provider)) {
+            return false;
+        }
+        changed(handle);
+        return true;
+    }
+
+    @Override
+    public <T> ListenableFuture<T> whenRetired(Class<T> service, T provider) {
+        checkNotNull(service, "service");
+        checkNotNull(provider, "provider");
+
+        @SuppressWarnings("unchecked")
+        @Nullable SimpleServiceHandle<T> handle = (SimpleServiceHandle<T>) handles.get(service);
+        return handle != null ? handle.whenRetired(provider) : Futures.immediateFuture(provider);
+    }
+
+    private PluginContainer getContainer(Object plugin) {
         Optional<PluginContainer> containerOptional = pluginManager.fromInstance(plugin);
         if (!containerOptional.isPresent()) {
             throw new IllegalArgumentException(
                     "The provided plugin object does not have an associated plugin container "
                             + "(in other words, is 'plugin' actually your plugin object?)");
         }
+        return containerOptional.get();
+    }
 
-        PluginContainer container = containerOptional.get();
-
-        Provider existing = providers.putIfAbsent(service, new Provider(container, provider));
-        if (existing != null) {
-            throw new ProviderExistsException("Provider for service " + service.getCanonicalName() +  " has already been registered!");
-        }
-        @SuppressWarnings("unchecked")
-        SimpleServiceReference<T> ref = (SimpleServiceReference)potentials.remove(service);
-        if (ref != null) {
-            ref.registered(provider);
+    private <T> void changed(SimpleServiceHandle<T> handle) {
+        Optional<T> current = handle.ref();
+        if (current.isPresent()) {
+            @SuppressWarnings("unchecked")
+            SimpleServiceReference<T> ref = (SimpleServiceReference) potentials.remove(handle.getService());
+            if (ref != null) {
+                ref.registered(current.get());
+            }
         }
+        handle.fireChanged();
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T> ServiceReference<T> potentiallyProvide(Class<T> service) {
-        SimpleServiceReference<T> ref = new SimpleServiceReference<T>(provide(service));
+        checkNotNull(service, "service");
+        SimpleServiceReference<T> ref = new SimpleServiceReference<T>(handle(service));
         @SuppressWarnings("rawtypes")
         SimpleServiceReference newRef = potentials.putIfAbsent(service, ref);
         if (newRef != null) {
             ref = newRef;
         }
-        if (ref.ref().isPresent()) {
+        Optional<T> current = ref.ref();
+        if (current.isPresent()) {
+            // A provider may have been registered after this reference was created
+            ref.registered(current.get());
             potentials.remove(service, ref);
         }
         return ref;
@@ -108,85 +179,326 @@ public class SimpleServiceManager implements ServiceManager {
     @Override
     public <T> Optional<T> provide(Class<T> service) {
         checkNotNull(service, "service");
-        @Nullable Provider provider = providers.get(service);
-        return provider != null ? (Optional<T>) Optional.of(provider.provider) : Optional.<T>absent();
+        @Nullable SimpleServiceHandle<?> handle = handles.get(service);
+        return handle != null ? (Optional<T>) handle.ref() : Optional.<T>absent();
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T> T provideUnchecked(Class<T> service) throws ProvisioningException {
         checkNotNull(service, "service");
-        @Nullable Provider provider = providers.get(service);
-        if (provider != null) {
-            return (T) provider.provider;
+        @Nullable SimpleServiceHandle<?> handle = handles.get(service);
+        if (handle != null && handle.isPresent()) {
+            return (T) handle.get();
         } else {
             throw new ProvisioningException("No provider is registered for the service '" + service.getName() + "'", service);
         }
     }
 
-    private static class Provider {
-        @SuppressWarnings("unused") private final PluginContainer container;
-        private final Object provider;
+    @Override
+    public <T> ServiceHandle<T> getHandle(Class<T> service) {
+        checkNotNull(service, "service");
+        return handle(service);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> SimpleServiceHandle<T> handle(Class<T> service) {
+        SimpleServiceHandle<?> handle = handles.get(service);
+        if (handle == null) {
+            SimpleServiceHandle<T> newHandle = new SimpleServiceHandle<T>(service);
+            handle = handles.putIfAbsent(service, newHandle);
+            if (handle == null) {
+                handle = newHandle;
+            }
+        }
+        return (SimpleServiceHandle<T>) handle;
+    }
 
-        private Provider(PluginContainer container, Object provider) {
+    /**
+     * A registration of a provider in the chain of a service. Registrations
+     * double as leases, counting the calls in flight on their provider.
+     */
+    private static class Provider<T> implements ServiceLease<T> {
+        @SuppressWarnings("unused") @Nullable private final PluginContainer container;
+        private final Optional<T> provider;
+        private final ServicePriority priority;
+        private final AtomicInteger leases = new AtomicInteger();
+        private final SettableFuture<T> retired = SettableFuture.create();
+        private volatile boolean removed;
+
+        private Provider(@Nullable PluginContainer container, Optional<T> provider, ServicePriority priority) {
             this.container = container;
             this.provider = provider;
+            this.priority = priority;
+        }
+
+        private Provider(PluginContainer container, T provider, ServicePriority priority) {
+            this(container, Optional.of(provider), priority);
+        }
+
+        @Override
+        public T get() {
+            return provider.get();
+        }
+
+        boolean tryAcquire() {
+            leases.incrementAndGet();
+            if (removed) {
+                release();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void release() {
+            int remaining = leases.decrementAndGet();
+            checkState(remaining >= 0, "Lease released more often than it was acquired");
+            if (remaining == 0 && removed) {
+                retired.set(provider.get());
+            }
+        }
+
+        void retire() {
+            removed = true;
+            if (leases.get() == 0) {
+                retired.set(provider.get());
+            }
         }
     }
 
-    private static class SimpleServiceReference<T> implements ServiceReference<T> {
-        private volatile Optional<T> service;
-        private final List<Predicate<T>> actionsOnPresent = new CopyOnWriteArrayList<Predicate<T>>();
-        private final Lock waitLock = new ReentrantLock();
-        private final Condition waitCondition = waitLock.newCondition();
+    private static class ChangeListener<T> {
+        private final Predicate<T> run;
+        private final Executor executor;
+
+        private ChangeListener(Predicate<T> run, Executor executor) {
+            this.run = run;
+            this.executor = executor;
+        }
+
+        void fire(final T provider) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ChangeListener.this.run.apply(provider);
+                }
+            });
+        }
+    }
 
-        public SimpleServiceReference(Optional<T> service) {
+    /**
+     * A handle holding the chain of providers of a service. The chain is
+     * modified under the handle's lock, and its head is published through a
+     * single volatile field, so reads never block.
+     */
+    private static class SimpleServiceHandle<T> implements ServiceHandle<T> {
+        private final Class<T> service;
+        private final List<Provider<T>> chain = new ArrayList<Provider<T>>();
+        private final List<Provider<T>> retiring = new ArrayList<Provider<T>>();
+        private final List<ChangeListener<T>> listeners = new CopyOnWriteArrayList<ChangeListener<T>>();
+        private final Provider<T> absent = new Provider<T>(null, Optional.<T>absent(), ServicePriority.NORMAL);
+        private final AtomicReference<Provider<T>> notified = new AtomicReference<Provider<T>>(absent);
+        private volatile Provider<T> provider = absent;
+
+        public SimpleServiceHandle(Class<T> service) {
             this.service = service;
         }
 
         @Override
-        public Optional<T> ref() {
+        public Class<T> getService() {
             return service;
         }
 
         @Override
-        public T await() throws InterruptedException {
+        public boolean isPresent() {
+            return provider.provider.isPresent();
+        }
+
+        @Nullable
+        @Override
+        public T get() {
+            return provider.provider.orNull();
+        }
+
+        @Override
+        public Optional<T> ref() {
+            return provider.provider;
+        }
+
+        @Override
+        public T getUnchecked() throws ProvisioningException {
+            Optional<T> provider = this.provider.provider;
+            if (!provider.isPresent()) {
+                throw new ProvisioningException("No provider is registered for the service '" + service.getName() + "'", service);
+            }
+            return provider.get();
+        }
+
+        @Override
+        public ServiceLease<T> acquire() throws ProvisioningException {
             while (true) {
-                waitLock.lock();
-                try {
-                    Optional<T> service = this.service;
-                    if (service.isPresent()) {
-                        return service.get();
+                Provider<T> provider = this.provider;
+                if (!provider.provider.isPresent()) {
+                    throw new ProvisioningException("No provider is registered for the service '" + service.getName() + "'", service);
+                }
+                // Fails only if the provider was removed after being read, in which case the head has already moved on
+                if (provider.tryAcquire()) {
+                    return provider;
+                }
+            }
+        }
+
+        synchronized boolean add(Provider<T> provider) {
+            int index = 0;
+            for (; index < chain.size(); index++) {
+                ServicePriority priority = chain.get(index).priority;
+                if (priority == provider.priority) {
+                    return false;
+                } else if (priority.compareTo(provider.priority) < 0) {
+                    break;
+                }
+            }
+            chain.add(index, provider);
+            if (index == 0) {
+                this.provider = provider;
+            }
+            return true;
+        }
+
+        synchronized Optional<T> replace(PluginContainer container, T instance) {
+            if (chain.isEmpty()) {
+                add(new Provider<T>(container, instance, ServicePriority.NORMAL));
+                return Optional.absent();
+            }
+            Provider<T> previous = chain.get(0);
+            Provider<T> replacement = new Provider<T>(container, instance, previous.priority);
+            chain.set(0, replacement);
+            this.provider = replacement;
+            retire(previous);
+            return previous.provider;
+        }
+
+        synchronized boolean remove(T instance) {
+            for (int i = 0; i < chain.size(); i++) {
+                if (chain.get(i).provider.get() == instance) {
+                    Provider<T> removed = chain.remove(i);
+                    if (i == 0) {
+                        this.provider = chain.isEmpty() ? absent : chain.get(0);
                     }
-                    waitCondition.await();
-                } finally {
-                    waitLock.unlock();
+                    retire(removed);
+                    return true;
                 }
             }
+            return false;
         }
 
-        @Override
-        public void executeWhenPresent(Predicate<T> run) {
-            if (!service.isPresent()) {
-                actionsOnPresent.add(run);
-            } else {
-                run.apply(service.get());
+        private void retire(final Provider<T> provider) {
+            retiring.add(provider);
+            provider.retired.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (SimpleServiceHandle.this) {
+                        retiring.remove(provider);
+                    }
+                }
+            }, MoreExecutors.sameThreadExecutor());
+            provider.retire();
+        }
+
+        synchronized ListenableFuture<T> whenRetired(T instance) {
+            for (Provider<T> provider : Iterables.concat(chain, retiring)) {
+                if (provider.provider.get() == instance) {
+                    return Futures.nonCancellationPropagating(provider.retired);
+                }
             }
+            return Futures.immediateFuture(instance);
         }
 
-        public void registered(T service) {
-            this.service = Optional.of(service);
-            this.waitLock.lock();
+        void addListener(Predicate<T> run, Executor executor) {
+            listeners.add(new ChangeListener<T>(run, executor));
+        }
+
+        void fireChanged() {
+            while (true) {
+                Provider<T> current = this.provider;
+                Provider<T> last = notified.get();
+                if (current == last) {
+                    return;
+                }
+                if (notified.compareAndSet(last, current)) {
+                    if (current.provider.isPresent()) {
+                        for (ChangeListener<T> listener : listeners) {
+                            listener.fire(current.provider.get());
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class SimpleServiceReference<T> implements ServiceReference<T> {
+        private final SimpleServiceHandle<T> handle;
+        private final SettableFuture<T> future = SettableFuture.create();
+
+        public SimpleServiceReference(SimpleServiceHandle<T> handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Optional<T> ref() {
+            return handle.ref();
+        }
+
+        @Override
+        public T await() throws InterruptedException {
             try {
-                this.waitCondition.signalAll();
-            } finally {
-                this.waitLock.unlock();
+                return future.get();
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
             }
-            for (Predicate<T> func : actionsOnPresent) {
-                func.apply(service);
+        }
+
+        @Override
+        public T await(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            try {
+                return future.get(timeout, unit);
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
             }
-            actionsOnPresent.clear();
+        }
+
+        @Override
+        public ListenableFuture<T> getFuture() {
+            return Futures.nonCancellationPropagating(future);
+        }
+
+        @Override
+        public void executeWhenPresent(Predicate<T> run) {
+            executeWhenPresent(run, MoreExecutors.sameThreadExecutor());
+        }
+
+        @Override
+        public void executeWhenPresent(final Predicate<T> run, Executor executor) {
+            checkNotNull(run, "run");
+            checkNotNull(executor, "executor");
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    run.apply(Futures.getUnchecked(future));
+                }
+            }, executor);
+        }
 
+        @Override
+        public void executeOnChange(Predicate<T> run, Executor executor) {
+            checkNotNull(run, "run");
+            checkNotNull(executor, "executor");
+            handle.addListener(run, executor);
+        }
+
+        public void registered(T service) {
+            future.set(service);
         }
     }
 
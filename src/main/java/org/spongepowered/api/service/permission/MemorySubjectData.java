@@ -77,6 +77,18 @@ public class MemorySubjectData implements SubjectData {
         return perms == null ? Collections.<String, Boolean>emptyMap() : perms.asMap();
     }
 
+    /**
+     * Get the calculated node tree representation of the permissions for this subject data instance.
+     * If no data is present for the given context, returns an empty node tree.
+     *
+     * @param contexts The contexts to get a node tree for
+     * @return The node tree
+     */
+    public NodeTree getNodeTree(Set<Context> contexts) {
+        NodeTree perms = permissions.get(contexts);
+        return perms == null ? NodeTree.of(Collections.<String, Boolean>emptyMap()) : perms;
+    }
+
     @Override
     public boolean setPermission(Set<Context> contexts, String permission, Tristate value) {
         contexts = ImmutableSet.copyOf(contexts);
@@ -24,34 +24,64 @@
  */
 package org.spongepowered.api.service.permission;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import org.spongepowered.api.util.Tristate;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 /**
  * An immutable tree structure for determining node data. Any changes will create new copies of the necessary tree objects.
  * Keys are case-insensitive.
  * Segments of nodes are split by the '.' character
+ *
+ * <p>Besides literal segments, a node may contain two kinds of matching segments:
+ * <ul>
+ *     <li>{@code *}, which matches any single segment, so {@code a.*.c} applies to {@code a.b.c} and {@code a.d.c}</li>
+ *     <li>{@code {regex}}, which matches any single segment the regular expression matches in full, case-insensitively,
+ *     so {@code region.{spawn|hub[0-9]+}.build} applies to {@code region.hub2.build}. The expression may not contain
+ *     unbalanced braces, and it is only ever applied to a single segment.</li>
+ * </ul>
+ *
+ * <p>Where several nodes apply to the same segment, nodes more specific in earlier segments take precedence, and for
+ * the same parent a literal segment is preferred over a regex segment, which is preferred over a wildcard. As with
+ * plain nodes, the deepest node with a defined value determines the result.
+ *
+ * <p>Lookups are made against an automaton that is compiled lazily, once per tree instance, so a lookup costs one
+ * transition per segment of the checked permission regardless of how many nodes the tree holds.
  */
 public class NodeTree {
-    private static final Pattern SPLIT_REGEX = Pattern.compile("\\.");
+    /**
+     * The segment that matches any single segment.
+     */
+    public static final String WILDCARD = "*";
     private final Node rootNode;
+    @Nullable private volatile Automaton automaton;
 
 
     private static class Node {
         private Tristate value = Tristate.UNDEFINED;
         private final Map<String, Node> children;
+        @Nullable private final Pattern pattern;
 
-        private Node(Map<String, Node> children) {
+        private Node(Map<String, Node> children, @Nullable Pattern pattern) {
             this.children = children;
+            this.pattern = pattern;
         }
     }
 
     private NodeTree(Tristate value) {
-        this.rootNode = new Node(new HashMap<String, Node>());
+        this.rootNode = new Node(new HashMap<String, Node>(), null);
         this.rootNode.value = value;
     }
 
@@ -66,22 +96,36 @@ public class NodeTree {
      * @return The tristate value for the given node
      */
     public Tristate get(String node) {
-        String[] parts = SPLIT_REGEX.split(node.toLowerCase());
-        Node currentNode = this.rootNode;
+        Automaton automaton = getAutomaton();
+        State state = automaton.initial;
         Tristate lastUndefinedVal = Tristate.UNDEFINED;
-        for (String str : parts) {
-            if (!currentNode.children.containsKey(str)) {
+        for (String str : split(node)) {
+            state = state.next(automaton, str);
+            if (state == automaton.dead) {
                 break;
             }
-            currentNode = currentNode.children.get(str);
-            if (currentNode.value != Tristate.UNDEFINED) {
-                lastUndefinedVal = currentNode.value;
+            if (state.value != Tristate.UNDEFINED) {
+                lastUndefinedVal = state.value;
             }
         }
         return lastUndefinedVal;
 
     }
 
+    private Automaton getAutomaton() {
+        Automaton ret = this.automaton;
+        if (ret == null) {
+            synchronized (this) {
+                ret = this.automaton;
+                if (ret == null) {
+                    ret = new Automaton(this.rootNode);
+                    this.automaton = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
     /**
      * Convert this node tree into a map of the defined nodes in this tree.
      *
@@ -110,17 +154,19 @@ public class NodeTree {
      * @param node The node path to change the value of
      * @param value The value to change, or UNDEFINED to remove
      * @return The new, modified node tree
+     * @throws java.util.regex.PatternSyntaxException If a regex segment of the node is not a valid expression
      */
     public NodeTree withValue(String node, Tristate value) {
-        String[] parts = SPLIT_REGEX.split(node.toLowerCase());
-        Node newRoot = new Node(new HashMap<String, Node>(rootNode.children));
+        String[] parts = split(node);
+        Node newRoot = new Node(new HashMap<String, Node>(rootNode.children), null);
         Node newPtr = newRoot;
         Node currentPtr = rootNode;
 
         newPtr.value = currentPtr == null ? Tristate.UNDEFINED : currentPtr.value;
         for (String part : parts) {
             Node oldChild = currentPtr == null ? null : currentPtr.children.get(part);
-            Node newChild = new Node(oldChild != null ? new HashMap<String, Node>(oldChild.children) : new HashMap<String, Node>());
+            Node newChild = oldChild != null ? new Node(new HashMap<String, Node>(oldChild.children), oldChild.pattern)
+                    : new Node(new HashMap<String, Node>(), compilePattern(part));
             newPtr.children.put(part, newChild);
             currentPtr = oldChild;
             newPtr = newChild;
@@ -159,17 +205,18 @@ public class NodeTree {
      * @param values The values to be contained in this node tree
      * @param defaultValue The fallback value for any completely undefined nodes
      * @return The newly created node tree
+     * @throws java.util.regex.PatternSyntaxException If a regex segment of a node is not a valid expression
      */
     public static NodeTree of(Map<String, Boolean> values, Tristate defaultValue) {
         NodeTree newTree = new NodeTree(defaultValue);
         for (Map.Entry<String, Boolean> value : values.entrySet()) {
-            String[] parts = SPLIT_REGEX.split(value.getKey().toLowerCase());
+            String[] parts = split(value.getKey());
             Node currentNode = newTree.rootNode;
             for (String part : parts) {
                 if (currentNode.children.containsKey(part)) {
                     currentNode = currentNode.children.get(part);
                 } else {
-                    Node newNode = new Node(new HashMap<String, Node>());
+                    Node newNode = new Node(new HashMap<String, Node>(), compilePattern(part));
                     currentNode.children.put(part, newNode);
                     currentNode = newNode;
                 }
@@ -178,4 +225,157 @@ public class NodeTree {
         }
         return newTree;
     }
+
+    /**
+     * Split a node into its segments. Periods within a regex segment do not
+     * separate segments, and regex segments are not lower-cased.
+     *
+     * @param node The node to split
+     * @return The segments of the node
+     */
+    private static String[] split(String node) {
+        List<String> parts = new ArrayList<String>();
+        int braces = 0;
+        int start = 0;
+        for (int i = 0; i < node.length(); i++) {
+            char c = node.charAt(i);
+            if (c == '{') {
+                braces++;
+            } else if (c == '}') {
+                braces--;
+            } else if (c == '.' && braces <= 0) {
+                parts.add(normalize(node.substring(start, i)));
+                start = i + 1;
+            }
+        }
+        parts.add(normalize(node.substring(start)));
+        return parts.toArray(new String[parts.size()]);
+    }
+
+    private static boolean isRegex(String segment) {
+        return segment.length() >= 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    private static String normalize(String segment) {
+        return isRegex(segment) ? segment : segment.toLowerCase();
+    }
+
+    @Nullable
+    private static Pattern compilePattern(String segment) {
+        if (!isRegex(segment)) {
+            return null;
+        }
+        return Pattern.compile(segment.substring(1, segment.length() - 1), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    /**
+     * A lazily built deterministic automaton over the nodes of a tree. Each
+     * state is an ordered set of nodes that apply at the current depth, and
+     * transitions are memoized per literal segment or, for segments that only
+     * match regex or wildcard nodes, per set of matched expressions.
+     */
+    private static final class Automaton {
+        private final ConcurrentMap<List<Node>, State> states = Maps.newConcurrentMap();
+        private final State dead = new State(Collections.<Node>emptyList());
+        private final State initial;
+
+        private Automaton(Node rootNode) {
+            this.initial = new State(Collections.singletonList(rootNode));
+        }
+
+        private State state(List<Node> nodes) {
+            if (nodes.isEmpty()) {
+                return this.dead;
+            }
+            State ret = this.states.get(nodes);
+            if (ret == null) {
+                State newState = new State(ImmutableList.copyOf(nodes));
+                ret = this.states.putIfAbsent(newState.nodes, newState);
+                if (ret == null) {
+                    ret = newState;
+                }
+            }
+            return ret;
+        }
+    }
+
+    private static final class State {
+        private static final Object UNMATCHED = new Object();
+        private final List<Node> nodes;
+        private final Tristate value;
+        private final Pattern[] patterns;
+        private final ConcurrentMap<Object, State> transitions = Maps.newConcurrentMap();
+
+        private State(List<Node> nodes) {
+            this.nodes = nodes;
+            Tristate value = Tristate.UNDEFINED;
+            List<Pattern> patterns = new ArrayList<Pattern>();
+            for (Node node : nodes) {
+                if (value == Tristate.UNDEFINED) {
+                    value = node.value;
+                }
+                for (Node child : node.children.values()) {
+                    if (child.pattern != null) {
+                        patterns.add(child.pattern);
+                    }
+                }
+            }
+            this.value = value;
+            this.patterns = patterns.toArray(new Pattern[patterns.size()]);
+        }
+
+        private State next(Automaton automaton, String segment) {
+            State ret = this.transitions.get(segment);
+            if (ret != null) {
+                return ret;
+            }
+
+            Object key = UNMATCHED;
+            for (Node node : this.nodes) {
+                if (node.children.containsKey(segment)) {
+                    key = segment;
+                    break;
+                }
+            }
+            if (key == UNMATCHED && this.patterns.length > 0) {
+                BitSet matched = new BitSet(this.patterns.length);
+                for (int i = 0; i < this.patterns.length; i++) {
+                    if (this.patterns[i].matcher(segment).matches()) {
+                        matched.set(i);
+                    }
+                }
+                key = matched;
+            }
+            if (key != segment) {
+                ret = this.transitions.get(key);
+                if (ret != null) {
+                    return ret;
+                }
+            }
+
+            ret = automaton.state(match(segment));
+            State existing = this.transitions.putIfAbsent(key, ret);
+            return existing == null ? ret : existing;
+        }
+
+        private List<Node> match(String segment) {
+            List<Node> ret = new ArrayList<Node>();
+            for (Node node : this.nodes) {
+                addMatch(ret, node.children.get(segment));
+                for (Node child : node.children.values()) {
+                    if (child.pattern != null && child.pattern.matcher(segment).matches()) {
+                        addMatch(ret, child);
+                    }
+                }
+                addMatch(ret, node.children.get(WILDCARD));
+            }
+            return ret;
+        }
+
+        private static void addMatch(List<Node> matches, @Nullable Node node) {
+            if (node != null && !matches.contains(node)) {
+                matches.add(node);
+            }
+        }
+    }
 }
@@ -0,0 +1,471 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.persistence;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Booleans;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Chars;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Floats;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.Shorts;
+import org.spongepowered.api.service.persistence.data.DataQuery;
+import org.spongepowered.api.service.persistence.data.DataView;
+import org.spongepowered.api.service.persistence.data.MemoryDataView;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Encodes {@link DataView} trees in a compact, NBT like binary format.
+ *
+ * <p>A view is written as a sequence of entries, each a tag byte, the key
+ * and the value, followed by {@link #END}. Integers and longs are written as
+ * zigzag varints, strings and keys through the string table of the
+ * {@link BinaryWriter}. Lists of a single primitive wrapper type are written
+ * as primitive arrays, other lists as a count followed by tagged values.
+ * Maps and {@link DataSerializable}s are written as views. Views and lists
+ * may be nested at most {@link #MAX_DEPTH} levels deep when read.</p>
+ */
+final class BinaryDataFormat {
+
+    static final int MAGIC = 0x53504442;
+    static final byte VERSION = 1;
+
+    static final byte END = 0;
+    static final byte BYTE = 1;
+    static final byte SHORT = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte FLOAT = 5;
+    static final byte DOUBLE = 6;
+    static final byte BOOLEAN = 7;
+    static final byte CHAR = 8;
+    static final byte STRING = 9;
+    static final byte VIEW = 10;
+    static final byte LIST = 11;
+    static final byte NULL = 12;
+    static final byte BYTE_ARRAY = 13;
+    static final byte SHORT_ARRAY = 14;
+    static final byte INT_ARRAY = 15;
+    static final byte LONG_ARRAY = 16;
+    static final byte FLOAT_ARRAY = 17;
+    static final byte DOUBLE_ARRAY = 18;
+    static final byte CHAR_ARRAY = 19;
+    static final byte BOOLEAN_ARRAY = 20;
+
+    /**
+     * The maximum depth of nested views and lists that is decoded.
+     */
+    static final int MAX_DEPTH = 64;
+
+    private BinaryDataFormat() {
+    }
+
+    /**
+     * Writes the entries of a view.
+     *
+     * @param out The writer
+     * @param view The view
+     * @throws IOException If writing fails
+     * @throws InvalidDataException If a value can not be encoded
+     */
+    static void writeView(BinaryWriter out, DataView view) throws IOException {
+        for (Map.Entry<DataQuery, Object> entry : view.getValues(false).entrySet()) {
+            writeEntry(out, entry.getKey().asString('.'), entry.getValue());
+        }
+        out.writeByte(END);
+    }
+
+    static void writeEntry(BinaryWriter out, String key, Object value) throws IOException {
+        byte tag = tag(value);
+        out.writeByte(tag);
+        out.writeString(key);
+        writePayload(out, tag, value);
+    }
+
+    private static void writeMap(BinaryWriter out, Map<?, ?> map) throws IOException {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeEntry(out, entry.getKey().toString(), entry.getValue());
+        }
+        out.writeByte(END);
+    }
+
+    private static void writeValue(BinaryWriter out, @Nullable Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        byte tag = tag(value);
+        out.writeByte(tag);
+        writePayload(out, tag, value);
+    }
+
+    private static byte tag(Object value) {
+        if (value instanceof Integer) {
+            return INT;
+        } else if (value instanceof String) {
+            return STRING;
+        } else if (value instanceof Long) {
+            return LONG;
+        } else if (value instanceof Double) {
+            return DOUBLE;
+        } else if (value instanceof Boolean) {
+            return BOOLEAN;
+        } else if (value instanceof DataView || value instanceof Map || value instanceof DataSerializable) {
+            return VIEW;
+        } else if (value instanceof List) {
+            return listTag((List<?>) value);
+        } else if (value instanceof Byte) {
+            return BYTE;
+        } else if (value instanceof Short) {
+            return SHORT;
+        } else if (value instanceof Float) {
+            return FLOAT;
+        } else if (value instanceof Character) {
+            return CHAR;
+        } else if (value instanceof byte[]) {
+            return BYTE_ARRAY;
+        } else if (value instanceof short[]) {
+            return SHORT_ARRAY;
+        } else if (value instanceof int[]) {
+            return INT_ARRAY;
+        } else if (value instanceof long[]) {
+            return LONG_ARRAY;
+        } else if (value instanceof float[]) {
+            return FLOAT_ARRAY;
+        } else if (value instanceof double[]) {
+            return DOUBLE_ARRAY;
+        } else if (value instanceof char[]) {
+            return CHAR_ARRAY;
+        } else if (value instanceof boolean[]) {
+            return BOOLEAN_ARRAY;
+        }
+        throw new InvalidDataException("Can not encode " + value.getClass().getName());
+    }
+
+    /**
+     * Gets the array tag for a list of a single primitive wrapper type, or
+     * {@link #LIST} for any other list.
+     */
+    private static byte listTag(List<?> list) {
+        if (list.isEmpty() || list.get(0) == null) {
+            return LIST;
+        }
+        Class<?> type = list.get(0).getClass();
+        for (Object element : list) {
+            if (element == null || element.getClass() != type) {
+                return LIST;
+            }
+        }
+        if (type == Integer.class) {
+            return INT_ARRAY;
+        } else if (type == Byte.class) {
+            return BYTE_ARRAY;
+        } else if (type == Long.class) {
+            return LONG_ARRAY;
+        } else if (type == Double.class) {
+            return DOUBLE_ARRAY;
+        } else if (type == Short.class) {
+            return SHORT_ARRAY;
+        } else if (type == Float.class) {
+            return FLOAT_ARRAY;
+        } else if (type == Character.class) {
+            return CHAR_ARRAY;
+        } else if (type == Boolean.class) {
+            return BOOLEAN_ARRAY;
+        }
+        return LIST;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writePayload(BinaryWriter out, byte tag, Object value) throws IOException {
+        switch (tag) {
+            case INT:
+                out.writeSignedVarInt((Integer) value);
+                break;
+            case STRING:
+                out.writeString((String) value);
+                break;
+            case LONG:
+                out.writeSignedVarLong((Long) value);
+                break;
+            case DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case BOOLEAN:
+                out.writeByte((Boolean) value ? 1 : 0);
+                break;
+            case BYTE:
+                out.writeByte((Byte) value);
+                break;
+            case SHORT:
+                out.writeSignedVarInt((Short) value);
+                break;
+            case FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case CHAR:
+                out.writeVarInt((Character) value);
+                break;
+            case VIEW:
+                if (value instanceof DataView) {
+                    writeView(out, (DataView) value);
+                } else if (value instanceof Map) {
+                    writeMap(out, (Map<?, ?>) value);
+                } else {
+                    writeView(out, ((DataSerializable) value).toContainer());
+                }
+                break;
+            case LIST:
+                List<?> list = (List<?>) value;
+                out.writeVarInt(list.size());
+                for (Object element : list) {
+                    writeValue(out, element);
+                }
+                break;
+            case BYTE_ARRAY:
+                byte[] bytes = value instanceof byte[] ? (byte[]) value : Bytes.toArray((List<Byte>) value);
+                out.writeVarInt(bytes.length);
+                out.writeBytes(bytes);
+                break;
+            case SHORT_ARRAY:
+                short[] shorts = value instanceof short[] ? (short[]) value : Shorts.toArray((List<Short>) value);
+                out.writeVarInt(shorts.length);
+                for (short s : shorts) {
+                    out.writeSignedVarInt(s);
+                }
+                break;
+            case INT_ARRAY:
+                int[] ints = value instanceof int[] ? (int[]) value : Ints.toArray((List<Integer>) value);
+                out.writeVarInt(ints.length);
+                for (int i : ints) {
+                    out.writeSignedVarInt(i);
+                }
+                break;
+            case LONG_ARRAY:
+                long[] longs = value instanceof long[] ? (long[]) value : Longs.toArray((List<Long>) value);
+                out.writeVarInt(longs.length);
+                for (long l : longs) {
+                    out.writeSignedVarLong(l);
+                }
+                break;
+            case FLOAT_ARRAY:
+                float[] floats = value instanceof float[] ? (float[]) value : Floats.toArray((List<Float>) value);
+                out.writeVarInt(floats.length);
+                for (float f : floats) {
+                    out.writeFloat(f);
+                }
+                break;
+            case DOUBLE_ARRAY:
+                double[] doubles = value instanceof double[] ? (double[]) value : Doubles.toArray((List<Double>) value);
+                out.writeVarInt(doubles.length);
+                for (double d : doubles) {
+                    out.writeDouble(d);
+                }
+                break;
+            case CHAR_ARRAY:
+                char[] chars = value instanceof char[] ? (char[]) value : Chars.toArray((List<Character>) value);
+                out.writeVarInt(chars.length);
+                for (char c : chars) {
+                    out.writeVarInt(c);
+                }
+                break;
+            case BOOLEAN_ARRAY:
+                boolean[] booleans = value instanceof boolean[] ? (boolean[]) value : Booleans.toArray((List<Boolean>) value);
+                out.writeVarInt(booleans.length);
+                for (boolean b : booleans) {
+                    out.writeByte(b ? 1 : 0);
+                }
+                break;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    /**
+     * Reads entries into a view until the end of the view.
+     *
+     * @param in The reader
+     * @param view The view to read into
+     * @throws IOException If reading fails or the data is malformed
+     */
+    static void readView(BinaryReader in, MemoryDataView view) throws IOException {
+        readView(in, view, 0);
+    }
+
+    private static void readView(BinaryReader in, MemoryDataView view, int depth) throws IOException {
+        byte tag;
+        while ((tag = in.readByte()) != END) {
+            readEntry(in, tag, view, depth);
+        }
+    }
+
+    /**
+     * Reads the key and value of an entry into a view.
+     *
+     * @param in The reader
+     * @param tag The tag of the entry
+     * @param view The view to read into
+     * @throws IOException If reading fails or the data is malformed
+     */
+    static void readEntry(BinaryReader in, byte tag, MemoryDataView view) throws IOException {
+        readEntry(in, tag, view, 0);
+    }
+
+    private static void readEntry(BinaryReader in, byte tag, MemoryDataView view, int depth) throws IOException {
+        DataQuery key = in.readKey();
+        switch (tag) {
+            case INT:
+                view.setInt(key, in.readSignedVarInt());
+                break;
+            case LONG:
+                view.setLong(key, in.readSignedVarLong());
+                break;
+            case DOUBLE:
+                view.setDouble(key, in.readDouble());
+                break;
+            case BOOLEAN:
+                view.setBoolean(key, in.readByte() != 0);
+                break;
+            case VIEW:
+                readView(in, view.createView(key), nested(depth));
+                break;
+            default:
+                view.set(key, readPayload(in, tag, depth));
+        }
+    }
+
+    private static int nested(int depth) throws IOException {
+        if (depth >= MAX_DEPTH) {
+            throw new IOException("Nesting exceeds the maximum depth of " + MAX_DEPTH);
+        }
+        return depth + 1;
+    }
+
+    private static Map<String, Object> readMap(BinaryReader in, int depth) throws IOException {
+        Map<String, Object> map = Maps.newLinkedHashMap();
+        byte tag;
+        while ((tag = in.readByte()) != END) {
+            String key = in.readString();
+            map.put(key, readPayload(in, tag, depth));
+        }
+        return map;
+    }
+
+    @Nullable
+    private static Object readValue(BinaryReader in, int depth) throws IOException {
+        byte tag = in.readByte();
+        return tag == NULL ? null : readPayload(in, tag, depth);
+    }
+
+    private static Object readPayload(BinaryReader in, byte tag, int depth) throws IOException {
+        switch (tag) {
+            case INT:
+                return in.readSignedVarInt();
+            case STRING:
+                return in.readString();
+            case LONG:
+                return in.readSignedVarLong();
+            case DOUBLE:
+                return in.readDouble();
+            case BOOLEAN:
+                return in.readByte() != 0;
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return (short) in.readSignedVarInt();
+            case FLOAT:
+                return in.readFloat();
+            case CHAR:
+                return (char) in.readVarInt();
+            case VIEW:
+                return readMap(in, nested(depth));
+            case LIST:
+                final int elementDepth = nested(depth);
+                int size = in.readLength(1);
+                List<Object> list = Lists.newArrayListWithCapacity(Math.min(size, 1024));
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in, elementDepth));
+                }
+                return list;
+            case BYTE_ARRAY:
+                byte[] bytes = new byte[in.readLength(1)];
+                in.readBytes(bytes);
+                return bytes;
+            case SHORT_ARRAY:
+                short[] shorts = new short[in.readLength(1)];
+                for (int i = 0; i < shorts.length; i++) {
+                    shorts[i] = (short) in.readSignedVarInt();
+                }
+                return shorts;
+            case INT_ARRAY:
+                int[] ints = new int[in.readLength(1)];
+                for (int i = 0; i < ints.length; i++) {
+                    ints[i] = in.readSignedVarInt();
+                }
+                return ints;
+            case LONG_ARRAY:
+                long[] longs = new long[in.readLength(1)];
+                for (int i = 0; i < longs.length; i++) {
+                    longs[i] = in.readSignedVarLong();
+                }
+                return longs;
+            case FLOAT_ARRAY:
+                float[] floats = new float[in.readLength(4)];
+                for (int i = 0; i < floats.length; i++) {
+                    floats[i] = in.readFloat();
+                }
+                return floats;
+            case DOUBLE_ARRAY:
+                double[] doubles = new double[in.readLength(8)];
+                for (int i = 0; i < doubles.length; i++) {
+                    doubles[i] = in.readDouble();
+                }
+                return doubles;
+            case CHAR_ARRAY:
+                char[] chars = new char[in.readLength(1)];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = (char) in.readVarInt();
+                }
+                return chars;
+            case BOOLEAN_ARRAY:
+                boolean[] booleans = new boolean[in.readLength(1)];
+                for (int i = 0; i < booleans.length; i++) {
+                    booleans[i] = in.readByte() != 0;
+                }
+                return booleans;
+            default:
+                throw new IOException("Unknown tag " + tag);
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.persistence;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import org.spongepowered.api.service.persistence.data.DataContainer;
+import org.spongepowered.api.service.persistence.data.DataView;
+import org.spongepowered.api.service.persistence.data.MemoryDataContainer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link DataSource} storing a single {@link DataContainer} in a file
+ * using a compact binary format.
+ *
+ * <p>The file is read and written in a single streaming pass through a
+ * direct buffer, without an intermediate byte array of the whole file.
+ * Keys and string values are written once and referred to by index after
+ * that, so repeated keys of large lists of views cost a byte or two each.
+ * Writes go to a temporary file which replaces the target once complete.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public class BinaryDataSource implements DataSource {
+
+    /**
+     * The default size of the I/O buffer, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final int bufferSize;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new source for the given file.
+     *
+     * @param file The file
+     */
+    public BinaryDataSource(File file) {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new source for the given file.
+     *
+     * @param file The file
+     * @param bufferSize The size of the I/O buffer, in bytes
+     */
+    public BinaryDataSource(File file, int bufferSize) {
+        checkArgument(bufferSize >= 16, "bufferSize must be at least 16");
+        this.file = checkNotNull(file, "file");
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Gets the file of this source.
+     *
+     * @return The file
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    @Override
+    public <T extends DataSerializable> Optional<DataContainer> deserialize(Class<T> clazz) throws InvalidDataException {
+        checkNotNull(clazz, "clazz");
+        return readFile(clazz.getName());
+    }
+
+    @Override
+    public void serialize(DataSerializable section) throws InvalidDataException {
+        checkNotNull(section, "section");
+        writeFile(section.getClass().getName(), section.toContainer());
+    }
+
+    /**
+     * Reads the data stored in this source regardless of the type it was
+     * serialized from.
+     *
+     * @return The data, if the file exists
+     * @throws InvalidDataException If the file can not be read
+     */
+    public Optional<DataContainer> read() throws InvalidDataException {
+        return readFile(null);
+    }
+
+    /**
+     * Writes the given view to this source, replacing its previous contents.
+     *
+     * @param view The view to write
+     * @throws InvalidDataException If the view can not be encoded or written
+     */
+    public void write(DataView view) throws InvalidDataException {
+        checkNotNull(view, "view");
+        writeFile("", view);
+    }
+
+    private synchronized Optional<DataContainer> readFile(@Nullable String type) {
+        checkState(!this.closed, "Source is closed");
+        if (!this.file.isFile()) {
+            return Optional.absent();
+        }
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(this.file);
+            BinaryReader reader = new BinaryReader(in.getChannel(), this.bufferSize);
+            if (reader.readInt() != BinaryDataFormat.MAGIC) {
+                throw new InvalidDataException(this.file + " is not a binary data file");
+            }
+            byte version = reader.readByte();
+            if (version != BinaryDataFormat.VERSION) {
+                throw new InvalidDataException("Unsupported version " + version + " of " + this.file);
+            }
+            String stored = reader.readString();
+            if (type != null && !stored.isEmpty() && !stored.equals(type)) {
+                throw new InvalidDataException(this.file + " contains " + stored + ", not " + type);
+            }
+            MemoryDataContainer container = new MemoryDataContainer();
+            BinaryDataFormat.readView(reader, container);
+            return Optional.<DataContainer>of(container);
+        } catch (IOException e) {
+            throw new InvalidDataException("Failed to read " + this.file, e);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private synchronized void writeFile(String type, DataView view) {
+        checkState(!this.closed, "Source is closed");
+        File temp = new File(this.file.getPath() + ".tmp");
+        FileOutputStream out = null;
+        try {
+            File parent = this.file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Failed to create " + parent);
+            }
+            out = new FileOutputStream(temp);
+            FileChannel channel = out.getChannel();
+            BinaryWriter writer = new BinaryWriter(channel, this.bufferSize);
+            writer.writeInt(BinaryDataFormat.MAGIC);
+            writer.writeByte(BinaryDataFormat.VERSION);
+            writer.writeString(type);
+            BinaryDataFormat.writeView(writer, view);
+            writer.flush();
+            channel.force(false);
+            out.close();
+            out = null;
+            if (!temp.renameTo(this.file) && !(this.file.delete() && temp.renameTo(this.file))) {
+                throw new IOException("Failed to replace " + this.file);
+            }
+        } catch (IOException e) {
+            throw new InvalidDataException("Failed to write " + this.file, e);
+        } finally {
+            if (out != null) {
+                closeQuietly(out);
+                temp.delete();
+            }
+        }
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // Nothing left to do
+            }
+        }
+    }
+
+    /**
+     * Closes this source. Any further operation on it fails.
+     */
+    public void close() {
+        this.closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("file", this.file)
+                .add("bufferSize", this.bufferSize)
+                .toString();
+    }
+
+}
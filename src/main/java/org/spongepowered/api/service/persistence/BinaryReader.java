@@ -0,0 +1,252 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.persistence;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.spongepowered.api.service.persistence.data.DataQuery;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Reads what a {@link BinaryWriter} wrote, either from a channel through a
+ * fixed size buffer or straight from a buffer holding all data.
+ */
+final class BinaryReader {
+
+    @Nullable private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final List<String> strings = Lists.newArrayList();
+    private final List<DataQuery> keys = Lists.newArrayList();
+
+    BinaryReader(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.buffer.flip();
+    }
+
+    /**
+     * Creates a reader of the remaining bytes of a buffer, such as a mapped
+     * region of a file.
+     *
+     * @param buffer The buffer
+     */
+    BinaryReader(ByteBuffer buffer) {
+        this.channel = null;
+        this.buffer = buffer;
+    }
+
+    byte readByte() throws IOException {
+        require(1);
+        return this.buffer.get();
+    }
+
+    short readShort() throws IOException {
+        require(2);
+        return this.buffer.getShort();
+    }
+
+    int readInt() throws IOException {
+        require(4);
+        return this.buffer.getInt();
+    }
+
+    float readFloat() throws IOException {
+        require(4);
+        return this.buffer.getFloat();
+    }
+
+    double readDouble() throws IOException {
+        require(8);
+        return this.buffer.getDouble();
+    }
+
+    int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varlong");
+    }
+
+    int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    /**
+     * Reads a length prefix.
+     *
+     * @return The length
+     * @throws IOException If the length is negative or reading fails
+     */
+    int readLength() throws IOException {
+        int length = readVarInt();
+        if (length < 0) {
+            throw new IOException("Malformed length " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Reads the length prefix of something about to be allocated, checking
+     * that the remaining data can hold that many elements, so that a corrupt
+     * length fails before allocating anything. The remaining data is only
+     * known when reading from a buffer or a {@link FileChannel}.
+     *
+     * @param minElementSize The number of bytes each element takes at least
+     * @return The length
+     * @throws IOException If the length is negative, exceeds the remaining
+     *     data or reading fails
+     */
+    int readLength(int minElementSize) throws IOException {
+        int length = readLength();
+        long remaining = remaining();
+        if ((long) length * minElementSize > remaining) {
+            throw new IOException("Length " + length + " exceeds the " + remaining + " remaining bytes");
+        }
+        return length;
+    }
+
+    void readBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!this.buffer.hasRemaining()) {
+                require(1);
+            }
+            int length = Math.min(this.buffer.remaining(), bytes.length - offset);
+            this.buffer.get(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Reads a string written through the string table.
+     *
+     * @return The string
+     * @throws IOException If reading fails
+     */
+    String readString() throws IOException {
+        return this.strings.get(readStringIndex());
+    }
+
+    /**
+     * Reads a string written through the string table as a single part
+     * query. Queries are shared for all occurrences of the same string.
+     *
+     * @return The query
+     * @throws IOException If reading fails
+     */
+    DataQuery readKey() throws IOException {
+        int index = readStringIndex();
+        DataQuery key = this.keys.get(index);
+        if (key == null) {
+            key = DataQuery.of(this.strings.get(index));
+            this.keys.set(index, key);
+        }
+        return key;
+    }
+
+    private int readStringIndex() throws IOException {
+        int index = readVarInt();
+        if (index != 0) {
+            if (index < 0 || index > this.strings.size()) {
+                throw new IOException("Unknown string " + index);
+            }
+            return index - 1;
+        }
+        byte[] bytes = new byte[readLength(1)];
+        readBytes(bytes);
+        this.strings.add(new String(bytes, Charsets.UTF_8));
+        this.keys.add(null);
+        return this.strings.size() - 1;
+    }
+
+    /**
+     * Starts a new string table, mirroring {@link BinaryWriter#resetStrings()}.
+     */
+    void resetStrings() {
+        this.strings.clear();
+        this.keys.clear();
+    }
+
+    private long remaining() throws IOException {
+        if (this.channel == null) {
+            return this.buffer.remaining();
+        } else if (this.channel instanceof FileChannel) {
+            FileChannel file = (FileChannel) this.channel;
+            return this.buffer.remaining() + Math.max(0, file.size() - file.position());
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private void require(int length) throws IOException {
+        if (this.buffer.remaining() >= length) {
+            return;
+        }
+        if (this.channel == null) {
+            throw new EOFException();
+        }
+        this.buffer.compact();
+        try {
+            while (this.buffer.position() < length) {
+                if (this.channel.read(this.buffer) < 0) {
+                    throw new EOFException();
+                }
+            }
+        } finally {
+            this.buffer.flip();
+        }
+    }
+
+}
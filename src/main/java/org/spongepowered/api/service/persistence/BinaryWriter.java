@@ -0,0 +1,201 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.persistence;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+
+/**
+ * Writes the primitives of the binary data format to a channel through a
+ * fixed size buffer.
+ *
+ * <p>Strings are written through a string table that is built while
+ * writing: the first occurrence of a string is written in full, later
+ * occurrences only as its index in the table.</p>
+ */
+final class BinaryWriter {
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final Map<String, Integer> strings = Maps.newHashMap();
+    private long flushed;
+
+    BinaryWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Gets the number of bytes written so far, including those still
+     * buffered.
+     *
+     * @return The position in the output
+     */
+    long position() {
+        return this.flushed + this.buffer.position();
+    }
+
+    void writeByte(int value) throws IOException {
+        ensure(1);
+        this.buffer.put((byte) value);
+    }
+
+    void writeShort(short value) throws IOException {
+        ensure(2);
+        this.buffer.putShort(value);
+    }
+
+    void writeInt(int value) throws IOException {
+        ensure(4);
+        this.buffer.putInt(value);
+    }
+
+    void writeFloat(float value) throws IOException {
+        ensure(4);
+        this.buffer.putFloat(value);
+    }
+
+    void writeDouble(double value) throws IOException {
+        ensure(8);
+        this.buffer.putDouble(value);
+    }
+
+    /**
+     * Writes an unsigned integer in groups of seven bits, least significant
+     * first.
+     *
+     * @param value The value
+     * @throws IOException If writing to the channel fails
+     */
+    void writeVarInt(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            this.buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        this.buffer.put((byte) value);
+    }
+
+    void writeVarLong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            this.buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        this.buffer.put((byte) value);
+    }
+
+    /**
+     * Writes a signed integer as a zigzag encoded varint, so that small
+     * negative values stay short.
+     *
+     * @param value The value
+     * @throws IOException If writing to the channel fails
+     */
+    void writeSignedVarInt(int value) throws IOException {
+        writeVarInt(value << 1 ^ value >> 31);
+    }
+
+    void writeSignedVarLong(long value) throws IOException {
+        writeVarLong(value << 1 ^ value >> 63);
+    }
+
+    void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!this.buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(this.buffer.remaining(), bytes.length - offset);
+            this.buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer. Buffers that do not fit in
+     * what is left of the write buffer are handed to the channel directly.
+     *
+     * @param bytes The bytes to write, consumed by this call
+     * @throws IOException If writing to the channel fails
+     */
+    void writeBytes(ByteBuffer bytes) throws IOException {
+        if (bytes.remaining() <= this.buffer.remaining()) {
+            this.buffer.put(bytes);
+            return;
+        }
+        flush();
+        while (bytes.hasRemaining()) {
+            this.flushed += this.channel.write(bytes);
+        }
+    }
+
+    /**
+     * Writes a string through the string table.
+     *
+     * @param value The string
+     * @throws IOException If writing to the channel fails
+     */
+    void writeString(String value) throws IOException {
+        Integer index = this.strings.get(value);
+        if (index != null) {
+            writeVarInt(index + 1);
+            return;
+        }
+        this.strings.put(value, this.strings.size());
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        writeVarInt(0);
+        writeVarInt(bytes.length);
+        writeBytes(bytes);
+    }
+
+    /**
+     * Starts a new string table, so that what follows can be read without
+     * what came before.
+     */
+    void resetStrings() {
+        this.strings.clear();
+    }
+
+    void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.flushed += this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    private void ensure(int length) throws IOException {
+        if (this.buffer.remaining() < length) {
+            flush();
+        }
+    }
+
+}
@@ -28,4 +28,29 @@ public class InvalidDataException extends UnsupportedOperationException {
 
     private static final long serialVersionUID = -754482190837922531L;
 
+    /**
+     * Creates a new exception without a message.
+     */
+    public InvalidDataException() {
+    }
+
+    /**
+     * Creates a new exception with the given message.
+     *
+     * @param message The detail message
+     */
+    public InvalidDataException(String message) {
+        super(message);
+    }
+
+    /**
+     * Creates a new exception with the given message and cause.
+     *
+     * @param message The detail message
+     * @param cause The cause
+     */
+    public InvalidDataException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
 }
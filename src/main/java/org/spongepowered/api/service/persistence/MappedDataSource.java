@@ -0,0 +1,839 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.persistence;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.api.service.persistence.data.DataContainer;
+import org.spongepowered.api.service.persistence.data.DataQuery;
+import org.spongepowered.api.service.persistence.data.DataView;
+import org.spongepowered.api.service.persistence.data.MemoryDataContainer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link DataSource} for large data sets that are accessed by key rather
+ * than as a whole.
+ *
+ * <p>Every top level entry of the stored container is encoded as a separate
+ * record of the binary format of {@link BinaryDataSource}, with its own
+ * string table. The end of the file holds an index of the offset of each
+ * record. The file is memory mapped, so a point lookup through
+ * {@link #get(DataQuery)} or {@link #getView(DataQuery)} only reads the
+ * index entry and decodes the record holding the path.</p>
+ *
+ * <p>Updates through {@link #set(DataQuery, Object)} and
+ * {@link #remove(DataQuery)} are not written to the mapped file. The new
+ * record is appended to a write-ahead log next to it, a file with the
+ * {@code .wal} suffix, and kept in memory to take precedence over the
+ * mapped record. The log is replayed when the source is opened again. Once
+ * it grows beyond its limit, the data file is compacted: records are copied
+ * from the mapping without being decoded, the log is merged in, and the log
+ * is truncated.</p>
+ *
+ * <p>Every rewrite of the data file creates a new generation of it. The
+ * given file only holds the current generation, the data of each
+ * generation is kept in a file of its own named after it, such as
+ * {@code users.dat.3}, so a mapped file is never replaced; some platforms
+ * can neither replace nor delete a file while it is mapped. A previous
+ * generation is deleted once it is no longer mapped, if possible, and
+ * otherwise when the source is opened again. The log starts with the
+ * generation it belongs to. A log left behind by a crash between switching
+ * to a new generation and truncating the log is discarded on open instead
+ * of being replayed onto the new data.</p>
+ *
+ * <p>As a single mapping is used, the data file may not be larger than
+ * 2 GiB. This class is thread-safe, lookups may run concurrently.</p>
+ */
+public class MappedDataSource implements DataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedDataSource.class);
+
+    /**
+     * The default size of the write-ahead log at which the data file is
+     * compacted, in bytes.
+     */
+    public static final long DEFAULT_WAL_LIMIT = 4 * 1024 * 1024;
+
+    private static final int MAGIC = 0x5350444D;
+    private static final int TRAILER_SIZE = 8;
+    private static final int POINTER_SIZE = 12;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte WAL_SET = 1;
+    private static final byte WAL_REMOVE = 2;
+    private static final int WAL_HEADER = 8;
+    private static final int WAL_FRAME_HEADER = 8;
+    private static final ByteBuffer REMOVED = ByteBuffer.allocate(0);
+
+    private final File file;
+    private final File walFile;
+    private final long walLimit;
+    private final boolean syncWrites;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Record> index = Maps.newLinkedHashMap();
+    private final Map<String, ByteBuffer> overlay = Maps.newLinkedHashMap();
+    private String type = "";
+    private long generation;
+    @Nullable private ByteBuffer data;
+    @Nullable private RandomAccessFile wal;
+    private long walSize;
+    private volatile boolean closed;
+
+    /**
+     * Opens a source for the given file, creating it if it does not exist.
+     *
+     * @param file The data file
+     * @throws InvalidDataException If the file can not be opened
+     */
+    public MappedDataSource(File file) throws InvalidDataException {
+        this(file, DEFAULT_WAL_LIMIT, true);
+    }
+
+    /**
+     * Opens a source for the given file, creating it if it does not exist.
+     *
+     * @param file The data file
+     * @param walLimit The size of the write-ahead log at which the data file
+     *     is compacted, in bytes
+     * @param syncWrites Whether every update is forced to the disk before it
+     *     returns
+     * @throws InvalidDataException If the file can not be opened
+     */
+    public MappedDataSource(File file, long walLimit, boolean syncWrites) throws InvalidDataException {
+        checkArgument(walLimit > 0, "walLimit must be positive");
+        this.file = checkNotNull(file, "file");
+        this.walFile = new File(file.getPath() + ".wal");
+        this.walLimit = walLimit;
+        this.syncWrites = syncWrites;
+        try {
+            boolean created = !file.isFile();
+            map(created ? rewrite(this.type, null) : readPointer());
+            this.wal = new RandomAccessFile(this.walFile, "rw");
+            if (created) {
+                truncateWal();
+            } else {
+                replay();
+            }
+            deleteStaleGenerations();
+        } catch (IOException e) {
+            closeQuietly(this.wal);
+            throw new InvalidDataException("Failed to open " + file, e);
+        }
+    }
+
+    /**
+     * Gets the file of this source, which points to the data file of the
+     * current generation.
+     *
+     * @return The file
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Gets the top level keys stored in this source.
+     *
+     * @return The keys
+     */
+    public Set<DataQuery> getKeys() {
+        this.lock.readLock().lock();
+        try {
+            checkState(!this.closed, "Source is closed");
+            ImmutableSet.Builder<DataQuery> keys = ImmutableSet.builder();
+            for (String key : liveKeys()) {
+                keys.add(DataQuery.of(key));
+            }
+            return keys.build();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a value is stored at the given path. A top level path
+     * is answered from the index alone.
+     *
+     * @param path The path
+     * @return Whether a value is present
+     */
+    public boolean contains(DataQuery path) {
+        List<String> parts = checkPath(path);
+        if (parts.size() == 1) {
+            this.lock.readLock().lock();
+            try {
+                checkState(!this.closed, "Source is closed");
+                return findRecord(parts.get(0)) != null;
+            } finally {
+                this.lock.readLock().unlock();
+            }
+        }
+        return get(path).isPresent();
+    }
+
+    /**
+     * Gets the value at the given path, decoding only the record of the top
+     * level entry holding it.
+     *
+     * @param path The path
+     * @return The value, if present
+     * @throws InvalidDataException If the record can not be decoded
+     */
+    public Optional<Object> get(DataQuery path) throws InvalidDataException {
+        List<String> parts = checkPath(path);
+        this.lock.readLock().lock();
+        try {
+            checkState(!this.closed, "Source is closed");
+            MemoryDataContainer record = decode(parts.get(0));
+            return record == null ? Optional.absent() : record.get(path);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the view at the given path, decoding only the record of the top
+     * level entry holding it.
+     *
+     * @param path The path
+     * @return The view, if present
+     * @throws InvalidDataException If the record can not be decoded
+     */
+    public Optional<DataView> getView(DataQuery path) throws InvalidDataException {
+        List<String> parts = checkPath(path);
+        this.lock.readLock().lock();
+        try {
+            checkState(!this.closed, "Source is closed");
+            MemoryDataContainer record = decode(parts.get(0));
+            return record == null ? Optional.<DataView>absent() : record.getView(path);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the value at the given path through the write-ahead log.
+     *
+     * <p>A nested path rewrites the record of its top level entry.</p>
+     *
+     * @param path The path
+     * @param value The value
+     * @throws InvalidDataException If the value can not be encoded or the
+     *     log can not be written
+     */
+    public void set(DataQuery path, Object value) throws InvalidDataException {
+        List<String> parts = checkPath(path);
+        checkNotNull(value, "value");
+        String key = parts.get(0);
+        this.lock.writeLock().lock();
+        try {
+            checkState(!this.closed, "Source is closed");
+            if (parts.size() > 1) {
+                MemoryDataContainer record = decode(key);
+                if (record == null) {
+                    record = new MemoryDataContainer();
+                }
+                record.set(path, value);
+                value = record.get(DataQuery.of(key)).get();
+            }
+            append(WAL_SET, key, value);
+        } catch (IOException e) {
+            throw new InvalidDataException("Failed to update " + this.file, e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the value at the given path through the write-ahead log.
+     *
+     * <p>A nested path rewrites the record of its top level entry.</p>
+     *
+     * @param path The path
+     * @throws InvalidDataException If the log can not be written
+     */
+    public void remove(DataQuery path) throws InvalidDataException {
+        List<String> parts = checkPath(path);
+        String key = parts.get(0);
+        this.lock.writeLock().lock();
+        try {
+            checkState(!this.closed, "Source is closed");
+            if (parts.size() == 1) {
+                if (findRecord(key) != null) {
+                    append(WAL_REMOVE, key, null);
+                }
+                return;
+            }
+            MemoryDataContainer record = decode(key);
+            if (record != null && record.contains(path)) {
+                record.remove(path);
+                append(WAL_SET, key, record.get(DataQuery.of(key)).get());
+            }
+        } catch (IOException e) {
+            throw new InvalidDataException("Failed to update " + this.file, e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merges the write-ahead log into the data file and truncates the log.
+     *
+     * @throws InvalidDataException If the data file can not be written
+     */
+    public void compact() throws InvalidDataException {
+        this.lock.writeLock().lock();
+        try {
+            checkState(!this.closed, "Source is closed");
+            if (!this.overlay.isEmpty()) {
+                nextGeneration(this.type, null);
+            }
+        } catch (IOException e) {
+            throw new InvalidDataException("Failed to compact " + this.file, e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public <T extends DataSerializable> Optional<DataContainer> deserialize(Class<T> clazz) throws InvalidDataException {
+        checkNotNull(clazz, "clazz");
+        this.lock.readLock().lock();
+        try {
+            checkState(!this.closed, "Source is closed");
+            if (!this.type.isEmpty() && !this.type.equals(clazz.getName())) {
+                throw new InvalidDataException(this.file + " contains " + this.type + ", not " + clazz.getName());
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        Optional<DataContainer> container = read();
+        return container.get().getKeys(false).isEmpty() ? Optional.<DataContainer>absent() : container;
+    }
+
+    @Override
+    public void serialize(DataSerializable section) throws InvalidDataException {
+        checkNotNull(section, "section");
+        replace(section.getClass().getName(), section.toContainer());
+    }
+
+    /**
+     * Decodes all data stored in this source.
+     *
+     * @return The data
+     * @throws InvalidDataException If a record can not be decoded
+     */
+    public Optional<DataContainer> read() throws InvalidDataException {
+        this.lock.readLock().lock();
+        try {
+            checkState(!this.closed, "Source is closed");
+            MemoryDataContainer container = new MemoryDataContainer();
+            for (String key : liveKeys()) {
+                decode(findRecord(key), container);
+            }
+            return Optional.<DataContainer>of(container);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces all data stored in this source with the given view.
+     *
+     * @param view The view
+     * @throws InvalidDataException If the view can not be encoded or written
+     */
+    public void write(DataView view) throws InvalidDataException {
+        checkNotNull(view, "view");
+        replace("", view);
+    }
+
+    private void replace(String type, DataView view) {
+        this.lock.writeLock().lock();
+        try {
+            checkState(!this.closed, "Source is closed");
+            nextGeneration(type, view);
+        } catch (IOException e) {
+            throw new InvalidDataException("Failed to write " + this.file, e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private static List<String> checkPath(DataQuery path) {
+        List<String> parts = checkNotNull(path, "path").getParts();
+        checkArgument(!parts.isEmpty(), "path must not be empty");
+        return parts;
+    }
+
+    private List<String> liveKeys() {
+        List<String> keys = Lists.newArrayListWithCapacity(this.index.size() + this.overlay.size());
+        for (String key : this.index.keySet()) {
+            if (this.overlay.get(key) != REMOVED) {
+                keys.add(key);
+            }
+        }
+        for (Map.Entry<String, ByteBuffer> entry : this.overlay.entrySet()) {
+            if (entry.getValue() != REMOVED && !this.index.containsKey(entry.getKey())) {
+                keys.add(entry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Gets the encoded record of a top level entry, preferring the log over
+     * the mapped file.
+     */
+    @Nullable
+    private ByteBuffer findRecord(String key) {
+        ByteBuffer logged = this.overlay.get(key);
+        if (logged != null) {
+            return logged == REMOVED ? null : logged.duplicate();
+        }
+        Record record = this.index.get(key);
+        if (record == null) {
+            return null;
+        }
+        ByteBuffer buffer = this.data.duplicate();
+        buffer.limit(record.offset + record.length).position(record.offset);
+        return buffer.slice();
+    }
+
+    @Nullable
+    private MemoryDataContainer decode(String key) {
+        ByteBuffer record = findRecord(key);
+        if (record == null) {
+            return null;
+        }
+        MemoryDataContainer container = new MemoryDataContainer();
+        decode(record, container);
+        return container;
+    }
+
+    private void decode(ByteBuffer record, MemoryDataContainer container) {
+        try {
+            BinaryReader reader = new BinaryReader(record);
+            BinaryDataFormat.readEntry(reader, reader.readByte(), container);
+        } catch (IOException e) {
+            throw new InvalidDataException("Malformed record in " + this.file, e);
+        }
+    }
+
+    private static byte[] encode(byte op, String key, @Nullable Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryWriter writer = new BinaryWriter(Channels.newChannel(bytes), 4096);
+        writer.writeByte(op);
+        if (value != null) {
+            BinaryDataFormat.writeEntry(writer, key, value);
+        } else {
+            writer.writeString(key);
+        }
+        writer.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Appends an update to the log as a frame of the payload length, its
+     * CRC-32 and the payload, then applies it.
+     */
+    private void append(byte op, String key, @Nullable Object value) throws IOException {
+        byte[] payload = encode(op, key, value);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(WAL_FRAME_HEADER + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        FileChannel channel = this.wal.getChannel();
+        channel.position(this.walSize);
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        if (this.syncWrites) {
+            channel.force(false);
+        }
+        this.walSize += frame.capacity();
+        apply(op, key, payload, 0);
+        if (this.walSize > this.walLimit) {
+            nextGeneration(this.type, null);
+        }
+    }
+
+    private void apply(byte op, String key, byte[] payload, int offset) {
+        if (op == WAL_REMOVE) {
+            this.overlay.put(key, REMOVED);
+        } else {
+            // Drop the op byte, what is left is a record
+            ByteBuffer record = ByteBuffer.wrap(payload).asReadOnlyBuffer();
+            record.position(offset + 1);
+            this.overlay.remove(key);
+            this.overlay.put(key, record.slice());
+        }
+    }
+
+    /**
+     * Replays the log, dropping a torn frame at its end. A log of another
+     * generation than the data file is stale and dropped entirely.
+     */
+    private void replay() throws IOException {
+        long size = this.wal.length();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(this.walFile + " is too large");
+        }
+        byte[] log = new byte[(int) size];
+        this.wal.readFully(log);
+        ByteBuffer frames = ByteBuffer.wrap(log);
+        if (size < WAL_HEADER || frames.getLong() != this.generation) {
+            truncateWal();
+            return;
+        }
+        CRC32 crc = new CRC32();
+        int position = WAL_HEADER;
+        while (frames.remaining() > WAL_FRAME_HEADER) {
+            int length = frames.getInt();
+            final int checksum = frames.getInt();
+            if (length < 1 || length > frames.remaining()) {
+                break;
+            }
+            crc.reset();
+            crc.update(log, frames.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            frames.get(payload);
+            BinaryReader reader = new BinaryReader(ByteBuffer.wrap(payload));
+            byte op = reader.readByte();
+            if (op == WAL_SET) {
+                reader.readByte();
+            } else if (op != WAL_REMOVE) {
+                break;
+            }
+            apply(op, reader.readString(), payload, 0);
+            position = frames.position();
+        }
+        if (position < size) {
+            this.wal.setLength(position);
+        }
+        this.walSize = position;
+    }
+
+    private void truncateWal() throws IOException {
+        this.wal.setLength(0);
+        this.wal.seek(0);
+        this.wal.writeLong(this.generation);
+        if (this.syncWrites) {
+            this.wal.getChannel().force(false);
+        }
+        this.walSize = WAL_HEADER;
+        this.overlay.clear();
+    }
+
+    /**
+     * Switches to the next generation of the data file, merging in and
+     * truncating the log, then deletes the previous generation.
+     */
+    private void nextGeneration(String type, @Nullable DataView view) throws IOException {
+        File previous = dataFile(this.generation);
+        map(rewrite(type, view));
+        truncateWal();
+        if (!previous.delete()) {
+            log.debug("Could not delete " + previous + " yet, it is deleted once the source is opened again");
+        }
+    }
+
+    /**
+     * Writes the data file of the next generation, either from the given
+     * view or from the current records, to a temporary file that is then
+     * renamed to the file of that generation, and points the source file to
+     * it. Neither file is mapped at that point.
+     *
+     * @return The new generation
+     */
+    private long rewrite(String type, @Nullable DataView view) throws IOException {
+        final long generation = this.generation + 1;
+        File temp = new File(this.file.getPath() + ".tmp");
+        File parent = this.file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create " + parent);
+        }
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            FileChannel channel = out.getChannel();
+            BinaryWriter writer = new BinaryWriter(channel, BUFFER_SIZE);
+            writer.writeInt(MAGIC);
+            writer.writeByte(BinaryDataFormat.VERSION);
+            writer.writeVarLong(generation);
+            writer.writeString(type);
+
+            Map<String, Record> records = Maps.newLinkedHashMap();
+            if (view != null) {
+                for (Map.Entry<DataQuery, Object> entry : view.getValues(false).entrySet()) {
+                    String key = entry.getKey().asString('.');
+                    long offset = writer.position();
+                    writer.resetStrings();
+                    BinaryDataFormat.writeEntry(writer, key, entry.getValue());
+                    records.put(key, new Record(checkOffset(offset), (int) (writer.position() - offset)));
+                }
+            } else if (this.data != null) {
+                for (String key : liveKeys()) {
+                    long offset = writer.position();
+                    writer.writeBytes(findRecord(key));
+                    records.put(key, new Record(checkOffset(offset), (int) (writer.position() - offset)));
+                }
+            }
+
+            final long indexOffset = checkOffset(writer.position());
+            writer.resetStrings();
+            writer.writeVarInt(records.size());
+            for (Map.Entry<String, Record> entry : records.entrySet()) {
+                writer.writeString(entry.getKey());
+                writer.writeVarInt(entry.getValue().offset);
+                writer.writeVarInt(entry.getValue().length);
+            }
+            writer.writeInt((int) indexOffset);
+            writer.writeInt(MAGIC);
+            checkOffset(writer.position());
+            writer.flush();
+            channel.force(false);
+        } finally {
+            out.close();
+        }
+        File data = dataFile(generation);
+        if (!temp.renameTo(data) && !(data.delete() && temp.renameTo(data))) {
+            temp.delete();
+            throw new IOException("Failed to create " + data);
+        }
+
+        // The pointer is overwritten in place by a single write smaller than
+        // a disk sector, there is no moment at which it is missing
+        RandomAccessFile pointer = new RandomAccessFile(this.file, "rw");
+        try {
+            pointer.write(ByteBuffer.allocate(POINTER_SIZE).putInt(MAGIC).putLong(generation).array());
+            pointer.setLength(POINTER_SIZE);
+            pointer.getChannel().force(false);
+        } finally {
+            pointer.close();
+        }
+        return generation;
+    }
+
+    private File dataFile(long generation) {
+        return new File(this.file.getPath() + "." + generation);
+    }
+
+    private long readPointer() throws IOException {
+        RandomAccessFile in = new RandomAccessFile(this.file, "r");
+        try {
+            if (in.length() != POINTER_SIZE || in.readInt() != MAGIC) {
+                throw new IOException(this.file + " is not a mapped data file");
+            }
+            return in.readLong();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Deletes the data files of generations other than the current one,
+     * left behind by a crash or by a platform that could not delete them
+     * while they were mapped.
+     */
+    private void deleteStaleGenerations() {
+        File parent = this.file.getAbsoluteFile().getParentFile();
+        String[] names = parent == null ? null : parent.list();
+        if (names == null) {
+            return;
+        }
+        String prefix = this.file.getName() + ".";
+        String current = prefix + this.generation;
+        for (String name : names) {
+            if (name.startsWith(prefix) && !name.equals(current) && isGeneration(name.substring(prefix.length()))) {
+                File stale = new File(parent, name);
+                if (!stale.delete()) {
+                    log.warn("Failed to delete the stale data file " + stale);
+                }
+            }
+        }
+    }
+
+    private static boolean isGeneration(String suffix) {
+        if (suffix.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (!Character.isDigit(suffix.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int checkOffset(long offset) throws IOException {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException(this.file + " would exceed 2 GiB");
+        }
+        return (int) offset;
+    }
+
+    /**
+     * Maps the data file of a generation and reads its header and index.
+     */
+    private void map(long generation) throws IOException {
+        File file = dataFile(generation);
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        ByteBuffer mapped;
+        try {
+            long size = in.length();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is larger than 2 GiB");
+            }
+            mapped = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            in.close();
+        }
+
+        int size = mapped.capacity();
+        if (size < 5 + TRAILER_SIZE || mapped.getInt(0) != MAGIC || mapped.getInt(size - 4) != MAGIC) {
+            throw new IOException(file + " is not a mapped data file");
+        }
+        int indexOffset = mapped.getInt(size - TRAILER_SIZE);
+        if (indexOffset < 5 || indexOffset > size - TRAILER_SIZE) {
+            throw new IOException("Malformed index offset in " + file);
+        }
+        ByteBuffer header = mapped.duplicate();
+        header.limit(indexOffset).position(4);
+        BinaryReader reader = new BinaryReader(header.slice());
+        byte version = reader.readByte();
+        if (version != BinaryDataFormat.VERSION) {
+            throw new IOException("Unsupported version " + version + " of " + file);
+        }
+        if (reader.readVarLong() != generation) {
+            throw new IOException(file + " does not hold generation " + generation);
+        }
+        final String type = reader.readString();
+
+        ByteBuffer indexBuffer = mapped.duplicate();
+        indexBuffer.limit(size - TRAILER_SIZE).position(indexOffset);
+        reader = new BinaryReader(indexBuffer.slice());
+        int count = reader.readLength(3);
+        Map<String, Record> records = Maps.newLinkedHashMap();
+        for (int i = 0; i < count; i++) {
+            String key = reader.readString();
+            int offset = reader.readLength();
+            int length = reader.readLength();
+            if (offset + (long) length > indexOffset) {
+                throw new IOException("Malformed index entry " + key + " in " + file);
+            }
+            records.put(key, new Record(offset, length));
+        }
+
+        this.type = type;
+        this.generation = generation;
+        this.data = mapped;
+        this.index.clear();
+        this.index.putAll(records);
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // Nothing left to do
+            }
+        }
+    }
+
+    /**
+     * Closes this source and its write-ahead log. The log is kept, it is
+     * replayed when the file is opened again.
+     */
+    public void close() {
+        this.lock.writeLock().lock();
+        try {
+            if (!this.closed) {
+                this.closed = true;
+                closeQuietly(this.wal);
+                this.data = null;
+                this.index.clear();
+                this.overlay.clear();
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("file", this.file)
+                .add("walLimit", this.walLimit)
+                .add("syncWrites", this.syncWrites)
+                .toString();
+    }
+
+    private static final class Record {
+
+        final int offset;
+        final int length;
+
+        Record(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.persistence;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Optional;
+import com.typesafe.config.Config;
+
+import java.io.File;
+
+/**
+ * A {@link DataSourceFactory} creating the data sources of this package.
+ *
+ * <p>The {@code type} of the configuration selects the implementation:</p>
+ *
+ * <ul>
+ *     <li>{@code binary} creates a {@link BinaryDataSource} for the
+ *     {@code file}, with an optional {@code buffer-size}.</li>
+ *     <li>{@code mapped} opens a {@link MappedDataSource} for the
+ *     {@code file}, with an optional {@code wal-limit} and
+ *     {@code sync-writes}.</li>
+ * </ul>
+ *
+ * <p>Any other type results in an absent source.</p>
+ */
+public class SimpleDataSourceFactory implements DataSourceFactory {
+
+    @Override
+    public Optional<DataSource> createSource(Config config) {
+        checkNotNull(config, "config");
+        if (!config.hasPath("type")) {
+            return Optional.absent();
+        }
+        String type = config.getString("type");
+        if ("binary".equals(type)) {
+            File file = new File(config.getString("file"));
+            return Optional.<DataSource>of(new BinaryDataSource(file, getBufferSize(config, BinaryDataSource.DEFAULT_BUFFER_SIZE)));
+        } else if ("mapped".equals(type)) {
+            File file = new File(config.getString("file"));
+            long walLimit = config.hasPath("wal-limit") ? config.getBytes("wal-limit") : MappedDataSource.DEFAULT_WAL_LIMIT;
+            boolean syncWrites = !config.hasPath("sync-writes") || config.getBoolean("sync-writes");
+            return Optional.<DataSource>of(new MappedDataSource(file, walLimit, syncWrites));
+        }
+        return Optional.absent();
+    }
+
+    private static int getBufferSize(Config config, int def) {
+        if (!config.hasPath("buffer-size")) {
+            return def;
+        }
+        Long size = config.getBytes("buffer-size");
+        if (size > Integer.MAX_VALUE) {
+            throw new InvalidDataException("buffer-size is too large: " + size);
+        }
+        return size.intValue();
+    }
+
+}
@@ -25,20 +25,33 @@
 package org.spongepowered.api.service.persistence.data;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import java.util.List;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 /**
  * Represents a query that can be done on views. Queries do not depend on
  * their separator, it is just a way to construct them.
+ *
+ * <p>Queries are immutable and may be used as map keys. Queries obtained
+ * through the {@code of} methods or {@link #intern()} are shared, so equal
+ * queries built that way are the same instance.</p>
  */
 public final class DataQuery {
 
+    private static final Interner<DataQuery> interner = Interners.newWeakInterner();
+    private static final DataQuery EMPTY = of();
+
     /**
      * The parts that make up this query.
      */
-    private final String[] parts;
+    private final ImmutableList<String> parts;
+    private final int hash;
+    @Nullable private volatile ImmutableList<DataQuery> queryParts;
 
     /**
      * Constructs a query using the given separator and path.
@@ -51,7 +64,7 @@ public final class DataQuery {
      * @param path The path
      */
     public DataQuery(String separator, String path) {
-        this.parts = path.split(Pattern.quote(separator));
+        this(split(separator, path));
     }
 
     /**
@@ -74,7 +87,7 @@ public final class DataQuery {
      * @param parts The parts
      */
     public DataQuery(String... parts) {
-        this.parts = parts.clone();
+        this(ImmutableList.copyOf(parts));
     }
 
     /**
@@ -83,7 +96,43 @@ public final class DataQuery {
      * @param parts The parts
      */
     public DataQuery(List<String> parts) {
-       this(parts.toArray(new String[0]));
+        this(ImmutableList.copyOf(parts));
+    }
+
+    private DataQuery(ImmutableList<String> parts) {
+        this.parts = parts;
+        this.hash = parts.hashCode();
+    }
+
+    /**
+     * Gets the shared query for the given separator and path.
+     *
+     * @param separator The separator
+     * @param path The path
+     * @return The query
+     * @see #DataQuery(char, String)
+     */
+    public static DataQuery of(char separator, String path) {
+        return new DataQuery(separator, path).intern();
+    }
+
+    /**
+     * Gets the shared query made up of the given parts.
+     *
+     * @param parts The parts
+     * @return The query
+     */
+    public static DataQuery of(String... parts) {
+        return new DataQuery(parts).intern();
+    }
+
+    /**
+     * Gets the shared query equal to this one.
+     *
+     * @return The shared query
+     */
+    public DataQuery intern() {
+        return interner.intern(this);
     }
 
     /**
@@ -92,7 +141,7 @@ public final class DataQuery {
      * @return The parts of this query
      */
     public List<String> getParts() {
-        return new ImmutableList.Builder<String>().add(parts).build();
+        return this.parts;
     }
 
     /**
@@ -103,13 +152,29 @@ public final class DataQuery {
      * @return The constructed query
      */
     public DataQuery then(DataQuery that) {
-        ImmutableList.Builder<String> builder =
-                new ImmutableList.Builder<String>();
-
-        builder.addAll(getParts());
-        builder.addAll(that.getParts());
+        if (that.parts.isEmpty()) {
+            return this;
+        } else if (this.parts.isEmpty()) {
+            return that;
+        }
+        return new DataQuery(ImmutableList.<String>builder()
+                .addAll(this.parts)
+                .addAll(that.parts)
+                .build());
+    }
 
-        return new DataQuery(builder.build());
+    /**
+     * Returns a new query that is made up of this query's parts followed by the
+     * given part.
+     *
+     * @param that The part to follow this query
+     * @return The constructed query
+     */
+    public DataQuery then(String that) {
+        return new DataQuery(ImmutableList.<String>builder()
+                .addAll(this.parts)
+                .add(that)
+                .build());
     }
 
     /**
@@ -118,14 +183,20 @@ public final class DataQuery {
      * @return The constructed queries
      */
     public List<DataQuery> getQueryParts() {
-        ImmutableList.Builder<DataQuery> builder =
-                new ImmutableList.Builder<DataQuery>();
-
-        for (String part: getParts()) {
-            builder.add(new DataQuery(part));
+        ImmutableList<DataQuery> queryParts = this.queryParts;
+        if (queryParts == null) {
+            if (this.parts.size() == 1) {
+                queryParts = ImmutableList.of(this);
+            } else {
+                ImmutableList.Builder<DataQuery> builder = ImmutableList.builder();
+                for (String part : this.parts) {
+                    builder.add(of(part));
+                }
+                queryParts = builder.build();
+            }
+            this.queryParts = queryParts;
         }
-
-        return builder.build();
+        return queryParts;
     }
 
     /**
@@ -137,13 +208,13 @@ public final class DataQuery {
     public String asString(String separator) {
         StringBuilder builder = new StringBuilder();
 
-        if (parts.length > 0) {
-            builder.append(parts[0]);
+        if (!this.parts.isEmpty()) {
+            builder.append(this.parts.get(0));
         }
 
-        for (int i = 1; i < parts.length; i++) {
+        for (int i = 1; i < this.parts.size(); i++) {
             builder.append(separator);
-            builder.append(parts[i]);
+            builder.append(this.parts.get(i));
         }
 
         return builder.toString();
@@ -159,4 +230,72 @@ public final class DataQuery {
         return asString(String.valueOf(separator));
     }
 
+    /**
+     * Gets the query without any parts.
+     *
+     * @return The empty query
+     */
+    public static DataQuery empty() {
+        return EMPTY;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DataQuery)) {
+            return false;
+        }
+        DataQuery that = (DataQuery) obj;
+        return this.hash == that.hash && this.parts.equals(that.parts);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        return asString('.');
+    }
+
+    /**
+     * Splits a path the same way {@code path.split(Pattern.quote(separator))}
+     * does, without compiling a pattern.
+     */
+    private static ImmutableList<String> split(String separator, String path) {
+        if (separator.isEmpty()) {
+            return ImmutableList.copyOf(path.split(Pattern.quote(separator)));
+        }
+        int end = path.indexOf(separator);
+        if (end < 0) {
+            return ImmutableList.of(path);
+        }
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        int start = 0;
+        int empty = 0;
+        do {
+            if (end == start) {
+                // Trailing empty parts are dropped, so hold on to them
+                empty++;
+            } else {
+                for (; empty > 0; empty--) {
+                    builder.add("");
+                }
+                builder.add(path.substring(start, end));
+            }
+            start = end + separator.length();
+            end = path.indexOf(separator, start);
+        } while (end >= 0);
+        if (start < path.length()) {
+            for (; empty > 0; empty--) {
+                builder.add("");
+            }
+            builder.add(path.substring(start));
+        }
+        return builder.build();
+    }
+
 }
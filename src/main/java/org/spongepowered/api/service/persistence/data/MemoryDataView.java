@@ -0,0 +1,723 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.persistence.data;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Booleans;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Chars;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Floats;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.Shorts;
+import org.spongepowered.api.service.persistence.DataSerializable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link DataView} keeping its data in memory.
+ *
+ * <p>Integers, longs, doubles and booleans are stored without boxing them,
+ * and can be read and written without boxing through the primitive
+ * accessors of this class, such as {@link #getInt(DataQuery, int)} and
+ * {@link #setInt(DataQuery, int)}. Lists of primitive wrappers, as well as
+ * primitive arrays, are stored as primitive arrays and read back as
+ * unmodifiable views of those arrays.</p>
+ *
+ * <p>A path is resolved by walking the nodes of its parts directly, no
+ * views are created along the way. A view may be created lazily, see
+ * {@link #createLazyView(DataQuery, Loader)}.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+public class MemoryDataView implements DataView {
+
+    static final byte INT = 1;
+    static final byte LONG = 2;
+    static final byte DOUBLE = 3;
+    static final byte BOOLEAN = 4;
+    static final byte VIEW = 5;
+    static final byte OBJECT = 6;
+    static final byte LIST = 7;
+    static final byte STRING_LIST = 8;
+    static final byte MAP_LIST = 9;
+    static final byte BYTE_ARRAY = 10;
+    static final byte SHORT_ARRAY = 11;
+    static final byte INT_ARRAY = 12;
+    static final byte LONG_ARRAY = 13;
+    static final byte FLOAT_ARRAY = 14;
+    static final byte DOUBLE_ARRAY = 15;
+    static final byte CHAR_ARRAY = 16;
+    static final byte BOOLEAN_ARRAY = 17;
+
+    private final MemoryDataContainer container;
+    @Nullable private final MemoryDataView parent;
+    private final DataQuery path;
+    private final String name;
+    private final Map<String, Slot> slots = Maps.newLinkedHashMap();
+    @Nullable private Loader loader;
+    @Nullable private RuntimeException failure;
+
+    /**
+     * Creates the root view of a container.
+     */
+    MemoryDataView() {
+        this.container = (MemoryDataContainer) this;
+        this.parent = null;
+        this.path = DataQuery.empty();
+        this.name = "";
+    }
+
+    private MemoryDataView(MemoryDataView parent, String name) {
+        this.container = parent.container;
+        this.parent = parent;
+        this.path = parent.path.then(name);
+        this.name = name;
+    }
+
+    @Override
+    public DataContainer getContainer() {
+        return this.container;
+    }
+
+    @Override
+    public DataQuery getCurrentPath() {
+        return this.path;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public Optional<DataView> getParent() {
+        return Optional.<DataView>fromNullable(this.parent);
+    }
+
+    @Override
+    public Set<DataQuery> getKeys(boolean deep) {
+        ImmutableSet.Builder<DataQuery> keys = ImmutableSet.builder();
+        collect(DataQuery.empty(), deep, keys, null);
+        return keys.build();
+    }
+
+    @Override
+    public Map<DataQuery, Object> getValues(boolean deep) {
+        ImmutableMap.Builder<DataQuery, Object> values = ImmutableMap.builder();
+        collect(DataQuery.empty(), deep, null, values);
+        return values.build();
+    }
+
+    private void collect(DataQuery prefix, boolean deep, @Nullable ImmutableSet.Builder<DataQuery> keys,
+            @Nullable ImmutableMap.Builder<DataQuery, Object> values) {
+        for (Map.Entry<String, Slot> entry : slots().entrySet()) {
+            DataQuery key = prefix.then(entry.getKey());
+            Slot slot = entry.getValue();
+            if (keys != null) {
+                keys.add(key);
+            }
+            if (values != null) {
+                values.put(key, slot.get());
+            }
+            if (deep && slot.type == VIEW) {
+                ((MemoryDataView) slot.ref).collect(key, true, keys, values);
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(DataQuery path) {
+        return find(path) != null;
+    }
+
+    @Override
+    public Optional<Object> get(DataQuery path) {
+        Slot slot = find(path);
+        return slot == null ? Optional.absent() : Optional.of(slot.get());
+    }
+
+    @Override
+    public void set(DataQuery path, Object value) {
+        checkNotNull(value, "value");
+        if (value instanceof DataView) {
+            checkArgument(!isWithin((DataView) value, path), "Can not copy a view into itself");
+            copy((DataView) value, createView(path));
+        } else if (value instanceof Map) {
+            createView(path, (Map<?, ?>) value);
+        } else {
+            slot(path).set(value);
+        }
+    }
+
+    private static void copy(DataView from, MemoryDataView to) {
+        for (Map.Entry<DataQuery, Object> entry : from.getValues(false).entrySet()) {
+            to.set(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Checks whether a path of this view lies within the given view, that
+     * is whether the view is this view, one of its parents or one of the
+     * views along the path.
+     */
+    private boolean isWithin(DataView view, DataQuery path) {
+        for (MemoryDataView parent = this; parent != null; parent = parent.parent) {
+            if (parent == view) {
+                return true;
+            }
+        }
+        List<String> parts = path.getParts();
+        MemoryDataView current = this;
+        for (int i = 0; i < parts.size() - 1; i++) {
+            Slot slot = current.slots().get(parts.get(i));
+            if (slot == null || slot.type != VIEW) {
+                return false;
+            }
+            current = (MemoryDataView) slot.ref;
+            if (current == view) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets an integer without boxing it.
+     *
+     * @param path The path of the integer to set
+     * @param value The integer
+     */
+    public void setInt(DataQuery path, int value) {
+        slot(path).set(INT, value);
+    }
+
+    /**
+     * Sets a long without boxing it.
+     *
+     * @param path The path of the long to set
+     * @param value The long
+     */
+    public void setLong(DataQuery path, long value) {
+        slot(path).set(LONG, value);
+    }
+
+    /**
+     * Sets a double without boxing it.
+     *
+     * @param path The path of the double to set
+     * @param value The double
+     */
+    public void setDouble(DataQuery path, double value) {
+        slot(path).set(DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Sets a boolean without boxing it.
+     *
+     * @param path The path of the boolean to set
+     * @param value The boolean
+     */
+    public void setBoolean(DataQuery path, boolean value) {
+        slot(path).set(BOOLEAN, value ? 1 : 0);
+    }
+
+    @Override
+    public void remove(DataQuery path) {
+        List<String> parts = path.getParts();
+        checkArgument(!parts.isEmpty(), "path must not be empty");
+        MemoryDataView view = findView(parts, parts.size() - 1);
+        if (view != null) {
+            view.slots().remove(parts.get(parts.size() - 1));
+        }
+    }
+
+    @Override
+    public MemoryDataView createView(DataQuery path) {
+        List<String> parts = path.getParts();
+        checkArgument(!parts.isEmpty(), "path must not be empty");
+        MemoryDataView parent = createParents(parts);
+        String name = parts.get(parts.size() - 1);
+        MemoryDataView view = new MemoryDataView(parent, name);
+        Slot slot = parent.slots().get(name);
+        if (slot == null) {
+            slot = new Slot();
+            parent.slots().put(name, slot);
+        }
+        slot.set(VIEW, view);
+        return view;
+    }
+
+    @Override
+    public MemoryDataView createView(DataQuery path, Map<?, ?> map) {
+        MemoryDataView view = createView(path);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            view.set(DataQuery.of(entry.getKey().toString()), entry.getValue());
+        }
+        return view;
+    }
+
+    /**
+     * Creates a view at the given path whose contents are only filled in by
+     * the loader once the view is first accessed.
+     *
+     * @param path The path of the view
+     * @param loader The loader filling in the view
+     * @return The view
+     */
+    public MemoryDataView createLazyView(DataQuery path, Loader loader) {
+        MemoryDataView view = createView(path);
+        view.loader = checkNotNull(loader, "loader");
+        return view;
+    }
+
+    /**
+     * Checks whether the contents of this view were filled in. Only a view
+     * created through {@link #createLazyView(DataQuery, Loader)} that was
+     * not accessed yet, or whose loader failed, is not loaded.
+     *
+     * @return Whether this view is loaded
+     */
+    public boolean isLoaded() {
+        return this.loader == null && this.failure == null;
+    }
+
+    @Override
+    public Optional<DataView> getView(DataQuery path) {
+        if (path.getParts().isEmpty()) {
+            return Optional.<DataView>of(this);
+        }
+        Slot slot = find(path);
+        return slot != null && slot.type == VIEW ? Optional.of((DataView) slot.ref) : Optional.<DataView>absent();
+    }
+
+    @Override
+    public Optional<Boolean> getBoolean(DataQuery path) {
+        Slot slot = find(path);
+        return slot != null && slot.type == BOOLEAN ? Optional.of(slot.bits != 0) : Optional.<Boolean>absent();
+    }
+
+    /**
+     * Gets a boolean without boxing it.
+     *
+     * @param path The path of the boolean to get
+     * @param def The value to return if there is no boolean at the path
+     * @return The boolean, or the default
+     */
+    public boolean getBoolean(DataQuery path, boolean def) {
+        Slot slot = find(path);
+        return slot != null && slot.type == BOOLEAN ? slot.bits != 0 : def;
+    }
+
+    @Override
+    public Optional<Integer> getInt(DataQuery path) {
+        Slot slot = find(path);
+        return slot != null && slot.type == INT ? Optional.of((int) slot.bits) : Optional.<Integer>absent();
+    }
+
+    /**
+     * Gets an integer without boxing it.
+     *
+     * @param path The path of the integer to get
+     * @param def The value to return if there is no integer at the path
+     * @return The integer, or the default
+     */
+    public int getInt(DataQuery path, int def) {
+        Slot slot = find(path);
+        return slot != null && slot.type == INT ? (int) slot.bits : def;
+    }
+
+    @Override
+    public Optional<Long> getLong(DataQuery path) {
+        Slot slot = find(path);
+        return slot != null && slot.type == LONG ? Optional.of(slot.bits) : Optional.<Long>absent();
+    }
+
+    /**
+     * Gets a long without boxing it.
+     *
+     * @param path The path of the long to get
+     * @param def The value to return if there is no long at the path
+     * @return The long, or the default
+     */
+    public long getLong(DataQuery path, long def) {
+        Slot slot = find(path);
+        return slot != null && slot.type == LONG ? slot.bits : def;
+    }
+
+    @Override
+    public Optional<Double> getDouble(DataQuery path) {
+        Slot slot = find(path);
+        return slot != null && slot.type == DOUBLE ? Optional.of(Double.longBitsToDouble(slot.bits)) : Optional.<Double>absent();
+    }
+
+    /**
+     * Gets a double without boxing it.
+     *
+     * @param path The path of the double to get
+     * @param def The value to return if there is no double at the path
+     * @return The double, or the default
+     */
+    public double getDouble(DataQuery path, double def) {
+        Slot slot = find(path);
+        return slot != null && slot.type == DOUBLE ? Double.longBitsToDouble(slot.bits) : def;
+    }
+
+    @Override
+    public Optional<String> getString(DataQuery path) {
+        Slot slot = find(path);
+        return slot != null && slot.ref instanceof String ? Optional.of((String) slot.ref) : Optional.<String>absent();
+    }
+
+    @Override
+    public Optional<List<?>> getList(DataQuery path) {
+        Slot slot = find(path);
+        return slot != null && slot.type >= LIST ? Optional.<List<?>>of((List<?>) slot.get()) : Optional.<List<?>>absent();
+    }
+
+    @Override
+    public Optional<List<String>> getStringList(DataQuery path) {
+        return getTypedList(path, STRING_LIST);
+    }
+
+    @Override
+    public Optional<List<Character>> getCharacterList(DataQuery path) {
+        return getTypedList(path, CHAR_ARRAY);
+    }
+
+    @Override
+    public Optional<List<Boolean>> getBooleanList(DataQuery path) {
+        return getTypedList(path, BOOLEAN_ARRAY);
+    }
+
+    @Override
+    public Optional<List<Byte>> getByteList(DataQuery path) {
+        return getTypedList(path, BYTE_ARRAY);
+    }
+
+    @Override
+    public Optional<List<Short>> getShortList(DataQuery path) {
+        return getTypedList(path, SHORT_ARRAY);
+    }
+
+    @Override
+    public Optional<List<Integer>> getIntegerList(DataQuery path) {
+        return getTypedList(path, INT_ARRAY);
+    }
+
+    @Override
+    public Optional<List<Long>> getLongList(DataQuery path) {
+        return getTypedList(path, LONG_ARRAY);
+    }
+
+    @Override
+    public Optional<List<Float>> getFloatList(DataQuery path) {
+        return getTypedList(path, FLOAT_ARRAY);
+    }
+
+    @Override
+    public Optional<List<Double>> getDoubleList(DataQuery path) {
+        return getTypedList(path, DOUBLE_ARRAY);
+    }
+
+    @Override
+    public Optional<List<Map<?, ?>>> getMapList(DataQuery path) {
+        return getTypedList(path, MAP_LIST);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Optional<List<T>> getTypedList(DataQuery path, byte type) {
+        Slot slot = find(path);
+        if (slot == null || slot.type != type && !(slot.type == LIST && ((List<?>) slot.ref).isEmpty())) {
+            return Optional.absent();
+        }
+        return Optional.of((List<T>) slot.get());
+    }
+
+    @Override
+    public <T extends DataSerializable> Optional<T> getSerializable(DataQuery path, Class<T> clazz) {
+        Slot slot = find(path);
+        return slot != null && clazz.isInstance(slot.ref) ? Optional.of(clazz.cast(slot.ref)) : Optional.<T>absent();
+    }
+
+    /**
+     * Gets the slots of this view, loading them first if needed. A view
+     * whose loader failed stays empty and throws the failure on every
+     * access.
+     */
+    private Map<String, Slot> slots() {
+        if (this.failure != null) {
+            throw this.failure;
+        }
+        if (this.loader != null) {
+            Loader loader = this.loader;
+            this.loader = null;
+            try {
+                loader.load(this);
+            } catch (RuntimeException e) {
+                this.slots.clear();
+                this.failure = e;
+                throw e;
+            }
+        }
+        return this.slots;
+    }
+
+    /**
+     * Finds the slot of a path in a single walk over its parts.
+     */
+    @Nullable
+    final Slot find(DataQuery path) {
+        List<String> parts = path.getParts();
+        if (parts.isEmpty()) {
+            return null;
+        }
+        MemoryDataView view = findView(parts, parts.size() - 1);
+        return view == null ? null : view.slots().get(parts.get(parts.size() - 1));
+    }
+
+    /**
+     * Finds the view at the first parts of a path.
+     */
+    @Nullable
+    private MemoryDataView findView(List<String> parts, int length) {
+        MemoryDataView view = this;
+        for (int i = 0; i < length; i++) {
+            Slot slot = view.slots().get(parts.get(i));
+            if (slot == null || slot.type != VIEW) {
+                return null;
+            }
+            view = (MemoryDataView) slot.ref;
+        }
+        return view;
+    }
+
+    /**
+     * Finds the view the last part of a path belongs to, creating any view
+     * missing along the way.
+     */
+    private MemoryDataView createParents(List<String> parts) {
+        MemoryDataView view = this;
+        for (int i = 0; i < parts.size() - 1; i++) {
+            String part = parts.get(i);
+            Slot slot = view.slots().get(part);
+            if (slot == null) {
+                slot = new Slot();
+                view.slots().put(part, slot);
+            }
+            if (slot.type != VIEW) {
+                slot.set(VIEW, new MemoryDataView(view, part));
+            }
+            view = (MemoryDataView) slot.ref;
+        }
+        return view;
+    }
+
+    /**
+     * Gets the slot of a path to write to, creating it if needed.
+     */
+    private Slot slot(DataQuery path) {
+        List<String> parts = path.getParts();
+        checkArgument(!parts.isEmpty(), "path must not be empty");
+        MemoryDataView view = createParents(parts);
+        String name = parts.get(parts.size() - 1);
+        Slot slot = view.slots().get(name);
+        if (slot == null) {
+            slot = new Slot();
+            view.slots().put(name, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Fills in the contents of a view created through
+     * {@link MemoryDataView#createLazyView(DataQuery, Loader)}.
+     */
+    public interface Loader {
+
+        /**
+         * Fills in the contents of a view, called at most once when the view
+         * is first accessed. If loading fails, every access of the view
+         * throws the same exception.
+         *
+         * @param view The view to fill in
+         * @throws RuntimeException If the contents can not be loaded
+         */
+        void load(MemoryDataView view);
+
+    }
+
+    /**
+     * A single value. Primitives are kept in {@link #bits}, everything else
+     * in {@link #ref}.
+     */
+    static final class Slot {
+
+        byte type;
+        long bits;
+        @Nullable Object ref;
+
+        void set(byte type, long bits) {
+            this.type = type;
+            this.bits = bits;
+            this.ref = null;
+        }
+
+        void set(byte type, Object ref) {
+            this.type = type;
+            this.bits = 0;
+            this.ref = ref;
+        }
+
+        void set(Object value) {
+            if (value instanceof Integer) {
+                set(INT, ((Integer) value).longValue());
+            } else if (value instanceof Long) {
+                set(LONG, ((Long) value).longValue());
+            } else if (value instanceof Double) {
+                set(DOUBLE, Double.doubleToRawLongBits((Double) value));
+            } else if (value instanceof Boolean) {
+                set(BOOLEAN, (Boolean) value ? 1 : 0);
+            } else if (value instanceof List) {
+                setList((List<?>) value);
+            } else if (value instanceof byte[]) {
+                set(BYTE_ARRAY, ((byte[]) value).clone());
+            } else if (value instanceof short[]) {
+                set(SHORT_ARRAY, ((short[]) value).clone());
+            } else if (value instanceof int[]) {
+                set(INT_ARRAY, ((int[]) value).clone());
+            } else if (value instanceof long[]) {
+                set(LONG_ARRAY, ((long[]) value).clone());
+            } else if (value instanceof float[]) {
+                set(FLOAT_ARRAY, ((float[]) value).clone());
+            } else if (value instanceof double[]) {
+                set(DOUBLE_ARRAY, ((double[]) value).clone());
+            } else if (value instanceof char[]) {
+                set(CHAR_ARRAY, ((char[]) value).clone());
+            } else if (value instanceof boolean[]) {
+                set(BOOLEAN_ARRAY, ((boolean[]) value).clone());
+            } else {
+                set(OBJECT, value);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void setList(List<?> list) {
+            Class<?> type = elementType(list);
+            if (type == Integer.class) {
+                set(INT_ARRAY, Ints.toArray((List<Integer>) list));
+            } else if (type == Byte.class) {
+                set(BYTE_ARRAY, Bytes.toArray((List<Byte>) list));
+            } else if (type == Long.class) {
+                set(LONG_ARRAY, Longs.toArray((List<Long>) list));
+            } else if (type == Double.class) {
+                set(DOUBLE_ARRAY, Doubles.toArray((List<Double>) list));
+            } else if (type == Short.class) {
+                set(SHORT_ARRAY, Shorts.toArray((List<Short>) list));
+            } else if (type == Float.class) {
+                set(FLOAT_ARRAY, Floats.toArray((List<Float>) list));
+            } else if (type == Character.class) {
+                set(CHAR_ARRAY, Chars.toArray((List<Character>) list));
+            } else if (type == Boolean.class) {
+                set(BOOLEAN_ARRAY, Booleans.toArray((List<Boolean>) list));
+            } else if (type == String.class) {
+                set(STRING_LIST, ImmutableList.copyOf(list));
+            } else if (type != null && Map.class.isAssignableFrom(type)) {
+                set(MAP_LIST, ImmutableList.copyOf(list));
+            } else {
+                // May contain nulls
+                set(LIST, Collections.unmodifiableList(new ArrayList<Object>(list)));
+            }
+        }
+
+        /**
+         * Gets the class all elements of a list share, or the common map
+         * interface if they are all maps.
+         */
+        @Nullable
+        private static Class<?> elementType(List<?> list) {
+            if (list.isEmpty() || list.get(0) == null) {
+                return null;
+            }
+            Class<?> type = list.get(0) instanceof Map ? Map.class : list.get(0).getClass();
+            for (Object element : list) {
+                if (element == null || !type.isInstance(element) || type != Map.class && element.getClass() != type) {
+                    return null;
+                }
+            }
+            return type;
+        }
+
+        /**
+         * Gets the value of this slot as an object, boxing primitives and
+         * wrapping arrays in unmodifiable lists.
+         */
+        Object get() {
+            switch (this.type) {
+                case INT:
+                    return (int) this.bits;
+                case LONG:
+                    return this.bits;
+                case DOUBLE:
+                    return Double.longBitsToDouble(this.bits);
+                case BOOLEAN:
+                    return this.bits != 0;
+                case BYTE_ARRAY:
+                    return Collections.unmodifiableList(Bytes.asList((byte[]) this.ref));
+                case SHORT_ARRAY:
+                    return Collections.unmodifiableList(Shorts.asList((short[]) this.ref));
+                case INT_ARRAY:
+                    return Collections.unmodifiableList(Ints.asList((int[]) this.ref));
+                case LONG_ARRAY:
+                    return Collections.unmodifiableList(Longs.asList((long[]) this.ref));
+                case FLOAT_ARRAY:
+                    return Collections.unmodifiableList(Floats.asList((float[]) this.ref));
+                case DOUBLE_ARRAY:
+                    return Collections.unmodifiableList(Doubles.asList((double[]) this.ref));
+                case CHAR_ARRAY:
+                    return Collections.unmodifiableList(Chars.asList((char[]) this.ref));
+                case BOOLEAN_ARRAY:
+                    return Collections.unmodifiableList(Booleans.asList((boolean[]) this.ref));
+                default:
+                    return this.ref;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.plugin.PluginManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+/**
+ * The task bookkeeping and {@link SchedulerQuery} lookups shared by the
+ * schedulers of this package.
+ */
+abstract class AbstractScheduler implements SchedulerQuery {
+
+    private static final Comparator<PluginTimings> BY_TOTAL_RUN_TIME = new Comparator<PluginTimings>() {
+        @Override
+        public int compare(PluginTimings a, PluginTimings b) {
+            long x = a.getTotalRunTime(TimeUnit.NANOSECONDS);
+            long y = b.getTotalRunTime(TimeUnit.NANOSECONDS);
+            return x < y ? 1 : x > y ? -1 : 0;
+        }
+    };
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    final PluginManager pluginManager;
+    final TaskRegistry registry = new TaskRegistry();
+    private final AtomicLong serial = new AtomicLong();
+    private final String namePrefix;
+    private final ConcurrentMap<PluginContainer, PluginRecorder> recorders = Maps.newConcurrentMap();
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param pluginManager The plugin manager to look up plugins with
+     * @param namePrefix The prefix of the serial in default task names
+     */
+    AbstractScheduler(PluginManager pluginManager, String namePrefix) {
+        this.pluginManager = checkNotNull(pluginManager, "pluginManager");
+        this.namePrefix = namePrefix;
+    }
+
+    /**
+     * Gets the default name for the next task of the given owner.
+     *
+     * @param owner The owner of the task
+     * @return The name of the task
+     */
+    String nextName(PluginContainer owner) {
+        return owner.getId() + this.namePrefix + this.serial.incrementAndGet();
+    }
+
+    /**
+     * Runs a runnable of a task, recording its timings and logging anything
+     * it throws.
+     *
+     * @param task The task the runnable belongs to
+     * @param runnable The runnable
+     * @param queuedAt The {@link System#nanoTime()} at which the run was
+     *     queued behind other tasks
+     * @param scheduledAt The {@link System#nanoTime()} the run was
+     *     scheduled for
+     * @return What the runnable threw, if anything
+     */
+    @Nullable
+    Throwable execute(SimpleTask task, Runnable runnable, long queuedAt, long scheduledAt) {
+        Throwable thrown = null;
+        long start = System.nanoTime();
+        try {
+            runnable.run();
+        } catch (Throwable t) {
+            this.log.error("The task " + task.name() + " of " + task.getOwner().getId() + " threw an exception", t);
+            thrown = t;
+        }
+        long end = System.nanoTime();
+        long lateness = Math.max(0, start - scheduledAt);
+        task.getTimings().record(Math.max(0, start - queuedAt), lateness, end - start);
+        recorder(task.getOwner()).record(end, lateness, end - start);
+        return thrown;
+    }
+
+    private PluginRecorder recorder(PluginContainer owner) {
+        PluginRecorder recorder = this.recorders.get(owner);
+        if (recorder == null) {
+            recorder = new PluginRecorder();
+            PluginRecorder existing = this.recorders.putIfAbsent(owner, recorder);
+            if (existing != null) {
+                recorder = existing;
+            }
+        }
+        return recorder;
+    }
+
+    @Override
+    public List<PluginTimings> getPluginTimings() {
+        long now = System.nanoTime();
+        List<PluginTimings> timings = Lists.newArrayListWithCapacity(this.recorders.size());
+        for (Map.Entry<PluginContainer, PluginRecorder> entry : this.recorders.entrySet()) {
+            timings.add(entry.getValue().snapshot(entry.getKey(), now));
+        }
+        Collections.sort(timings, BY_TOTAL_RUN_TIME);
+        return timings;
+    }
+
+    @Override
+    public Optional<PluginTimings> getPluginTimings(Object plugin) {
+        Optional<PluginContainer> container = this.pluginManager.fromInstance(checkNotNull(plugin, "plugin"));
+        if (!container.isPresent()) {
+            return Optional.absent();
+        }
+        PluginRecorder recorder = this.recorders.get(container.get());
+        if (recorder == null) {
+            return Optional.absent();
+        }
+        return Optional.of(recorder.snapshot(container.get(), System.nanoTime()));
+    }
+
+    @Override
+    public Optional<Task> getTaskById(UUID id) {
+        return this.registry.getById(checkNotNull(id, "id"));
+    }
+
+    @Override
+    public Optional<UUID> getUuidOfTaskByName(String name) {
+        return this.registry.getUuidByName(checkNotNull(name, "name"));
+    }
+
+    @Override
+    public Collection<Task> getTasksByName(String pattern) {
+        return this.registry.getByName(checkNotNull(pattern, "pattern"));
+    }
+
+    @Override
+    public Collection<Task> getScheduledTasks() {
+        return this.registry.getAll();
+    }
+
+    @Override
+    public Collection<Task> getScheduledTasks(Object plugin) {
+        Optional<PluginContainer> container = this.pluginManager.fromInstance(checkNotNull(plugin, "plugin"));
+        if (!container.isPresent()) {
+            return ImmutableList.of();
+        }
+        return this.registry.getByOwner(container.get());
+    }
+
+    /**
+     * Adds up the runs of all tasks of a plugin.
+     */
+    private static final class PluginRecorder {
+
+        private final RollingHistogram histogram = new RollingHistogram();
+        private long runs;
+        private long totalRunTime;
+        private long maxRunTime;
+        private long totalLateness;
+        private long maxLateness;
+
+        synchronized void record(long now, long lateness, long runTime) {
+            this.runs++;
+            this.totalRunTime += runTime;
+            this.totalLateness += lateness;
+            if (runTime > this.maxRunTime) {
+                this.maxRunTime = runTime;
+            }
+            if (lateness > this.maxLateness) {
+                this.maxLateness = lateness;
+            }
+            this.histogram.record(now, runTime);
+        }
+
+        synchronized PluginTimings snapshot(PluginContainer plugin, long now) {
+            return new PluginTimings(plugin, this.runs, this.totalRunTime, this.maxRunTime, this.totalLateness, this.maxLateness,
+                    this.histogram.snapshot(now));
+        }
+    }
+
+}
@@ -94,6 +94,11 @@ public interface AsynchronousScheduler extends SchedulerQuery {
      * be restarted.  It has no delay offset.  This Asynchronous Scheduler will not wait before
      * running the Task.<p>
      *
+     * <p>
+     * If the Plugin already has as many Tasks waiting to be run as this Scheduler allows, the
+     * Task is rejected and Optional.absent() is returned.  Use
+     * {@link #runTaskOrWait(Object, Runnable)} to wait for room instead.</p>
+     *
      * <p>Example code to obtain plugin container argument from User code:</p>
      *
      * <p>
@@ -110,6 +115,82 @@ public interface AsynchronousScheduler extends SchedulerQuery {
      */
     Optional<Task> runTask(Object plugin, Runnable task);
 
+    /**
+     * <p>Runs a Task once immediately, waiting for room if the Plugin has too many Tasks waiting.</p>
+     *
+     * <p>
+     * This behaves like {@link #runTask(Object, Runnable)}, except that instead of rejecting
+     * the Task when the Plugin already has as many Tasks waiting to be run as this Scheduler
+     * allows, the calling thread blocks until one of them has been started.  Never call this
+     * from the main thread of the game.</p>
+     *
+     * @param plugin The plugin container of the Plugin that initiated the Task
+     * @param task  The Runnable object that implements a run() method to execute the Task desired
+     * @return Optional&lt;Task&gt; Either Optional.absent() if invalid or a reference to the new Task
+     * @throws InterruptedException If the thread was interrupted while waiting
+     */
+    Optional<Task> runTaskOrWait(Object plugin, Runnable task) throws InterruptedException;
+
+    /**
+     * <p>Runs a batch of Tasks once immediately.</p>
+     *
+     * <p>
+     * All Runnable targets of the batch are run as if each of them was passed to
+     * {@link #runTask(Object, Runnable)}, possibly in parallel.  The batch is scheduled as a
+     * single {@link TaskBatch}, which is much cheaper than scheduling every Runnable on its
+     * own, and can be waited on and cancelled as a whole.</p>
+     *
+     * <p>
+     * If the Plugin does not have room for the whole batch among its waiting Tasks, the batch
+     * is rejected and Optional.absent() is returned.</p>
+     *
+     * @param plugin The plugin container of the Plugin that initiated the Tasks
+     * @param tasks  The Runnable objects that implement a run() method to execute the Tasks desired
+     * @return Optional&lt;TaskBatch&gt; Either Optional.absent() if invalid or a reference to the new batch
+     */
+    Optional<TaskBatch> runTasks(Object plugin, Collection<? extends Runnable> tasks);
+
+    /**
+     * <p>Runs a blocking Task once after a specific delay offset.</p>
+     *
+     * <p>
+     * A blocking Task is one that spends most of its time waiting, for example on a database
+     * through the {@link org.spongepowered.api.service.sql.SQLService} or on a network call.
+     * Blocking Tasks are kept apart from the other Tasks of this Scheduler, so they cannot hold
+     * up its threads.  Where the JVM supports them, they run on virtual threads.  This
+     * Scheduler may limit the number of blocking Tasks of a Plugin running at the same time,
+     * in which case further ones wait for their turn.</p>
+     *
+     * <p>
+     * With a delay of 0 the Task is submitted immediately, and is rejected like with
+     * {@link #runTask(Object, Runnable)} if the Plugin has too many blocking Tasks waiting.</p>
+     *
+     * @param plugin The plugin container of the Plugin that initiated the Task
+     * @param task  The Runnable object that implements a run() method to execute the Task desired
+     * @param scale The TimeUnit scale of the delay argument
+     * @param delay  The offset in scale units before running the task.
+     * @return Optional&lt;Task&gt; Either Optional.absent() if invalid or a reference to the new Task
+     */
+    Optional<Task> runBlockingTaskAfter(Object plugin, Runnable task, TimeUnit scale, long delay);
+
+    /**
+     * <p>Start a blocking repeating Task with a period (interval).
+     * The first occurrence will start after an initial delay.</p>
+     *
+     * <p>
+     * This behaves like {@link #runRepeatingTaskAfter(Object, Runnable, TimeUnit, long, long)},
+     * except that the Task is run as a blocking Task as described in
+     * {@link #runBlockingTaskAfter(Object, Runnable, TimeUnit, long)}.</p>
+     *
+     * @param plugin The plugin container of the Plugin that initiated the Task
+     * @param task  The Runnable object that implements a run() method to execute the Task desired
+     * @param scale The TimeUnit scale of the interval and delay arguments
+     * @param interval The period in scale units of the repeating Task.
+     * @param delay  The offset in scale units before running the task.
+     * @return Optional&lt;Task&gt; Either Optional.absent() if invalid or a reference to the new Task
+     */
+    Optional<Task> runBlockingRepeatingTaskAfter(Object plugin, Runnable task, TimeUnit scale, long interval, long delay);
+
     /**
      * <p>Runs a Task once after a specific delay offset.</p>
      *
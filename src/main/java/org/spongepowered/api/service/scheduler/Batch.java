@@ -0,0 +1,154 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+/**
+ * The runnables of a {@link TaskBatch} and the state of their runs.
+ *
+ * <p>Runnables are claimed by index, so several threads can work through a
+ * batch at once, and cancelling claims every runnable that has not been
+ * started yet.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+final class Batch {
+
+    private final Runnable[] runnables;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger remaining;
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    private final SettableFuture<Void> future = SettableFuture.create();
+
+    /**
+     * Creates a new batch.
+     *
+     * @param runnables The runnables of the batch
+     */
+    Batch(Collection<? extends Runnable> runnables) {
+        this.runnables = runnables.toArray(new Runnable[runnables.size()]);
+        for (Runnable runnable : this.runnables) {
+            checkNotNull(runnable, "runnable");
+        }
+        this.remaining = new AtomicInteger(this.runnables.length);
+    }
+
+    int size() {
+        return this.runnables.length;
+    }
+
+    ListenableFuture<Void> getFuture() {
+        return this.future;
+    }
+
+    /**
+     * Makes cancelling the future of this batch cancel the given task.
+     *
+     * @param task The task of this batch
+     */
+    void cancelWithFuture(final Task task) {
+        this.future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (Batch.this.future.isCancelled()) {
+                    task.cancel();
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+    }
+
+    Runnable get(int index) {
+        return this.runnables[index];
+    }
+
+    /**
+     * Claims the next runnable to run.
+     *
+     * @return The index of the runnable, or -1 if every runnable has been
+     *     claimed or the batch has been cancelled
+     */
+    int claim() {
+        int index = this.next.getAndIncrement();
+        return index < this.runnables.length ? index : -1;
+    }
+
+    /**
+     * Marks a claimed runnable as finished. The thread finishing the last
+     * runnable has to {@link #complete()} the batch.
+     *
+     * @param thrown What the runnable threw, if anything
+     * @return Whether this was the last runnable of the batch to finish
+     */
+    boolean finish(@Nullable Throwable thrown) {
+        if (thrown != null) {
+            this.failure.compareAndSet(null, thrown);
+        }
+        return this.remaining.decrementAndGet() == 0;
+    }
+
+    /**
+     * Completes the future once every runnable has finished. The task of
+     * the batch should leave its registry first, so that it is gone by the
+     * time anyone waiting on the future wakes up.
+     */
+    void complete() {
+        Throwable first = this.failure.get();
+        if (first != null) {
+            this.future.setException(first);
+        } else {
+            this.future.set(null);
+        }
+    }
+
+    /**
+     * Claims every runnable that has not been started yet and cancels the
+     * future.
+     *
+     * @return Whether any runnable was still waiting to be started
+     */
+    boolean cancel() {
+        int claimed;
+        do {
+            claimed = this.next.get();
+            if (claimed >= this.runnables.length) {
+                return false;
+            }
+        } while (!this.next.compareAndSet(claimed, this.runnables.length));
+        this.future.cancel(false);
+        return true;
+    }
+
+}
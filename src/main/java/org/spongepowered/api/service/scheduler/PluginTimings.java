@@ -0,0 +1,152 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import com.google.common.base.Objects;
+import org.spongepowered.api.plugin.PluginContainer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the {@link TaskTimings} of all tasks a plugin has run on a
+ * scheduler, including the tasks that are no longer scheduled.
+ */
+public final class PluginTimings {
+
+    private final PluginContainer plugin;
+    private final long runs;
+    private final long totalRunTime;
+    private final long maxRunTime;
+    private final long totalLateness;
+    private final long maxLateness;
+    private final TimingsHistogram histogram;
+
+    PluginTimings(PluginContainer plugin, long runs, long totalRunTime, long maxRunTime, long totalLateness, long maxLateness,
+            TimingsHistogram histogram) {
+        this.plugin = plugin;
+        this.runs = runs;
+        this.totalRunTime = totalRunTime;
+        this.maxRunTime = maxRunTime;
+        this.totalLateness = totalLateness;
+        this.maxLateness = maxLateness;
+        this.histogram = histogram;
+    }
+
+    /**
+     * Gets the plugin the tasks belong to.
+     *
+     * @return The plugin
+     */
+    public PluginContainer getPlugin() {
+        return this.plugin;
+    }
+
+    /**
+     * Gets the number of times tasks of the plugin have been run.
+     *
+     * @return The number of runs
+     */
+    public long getRuns() {
+        return this.runs;
+    }
+
+    /**
+     * Gets the time all runs together took.
+     *
+     * @param unit The unit to return the time in
+     * @return The total run time
+     */
+    public long getTotalRunTime(TimeUnit unit) {
+        return unit.convert(this.totalRunTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the time runs took on average.
+     *
+     * @param unit The unit to return the time in
+     * @return The mean run time
+     */
+    public long getMeanRunTime(TimeUnit unit) {
+        return mean(this.totalRunTime, unit);
+    }
+
+    /**
+     * Gets the time the longest run took.
+     *
+     * @param unit The unit to return the time in
+     * @return The largest run time
+     */
+    public long getMaxRunTime(TimeUnit unit) {
+        return unit.convert(this.maxRunTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets how late runs were started on average.
+     *
+     * @param unit The unit to return the time in
+     * @return The mean lateness
+     * @see TaskTimings
+     */
+    public long getMeanLateness(TimeUnit unit) {
+        return mean(this.totalLateness, unit);
+    }
+
+    /**
+     * Gets how late the latest run was started.
+     *
+     * @param unit The unit to return the time in
+     * @return The largest lateness
+     */
+    public long getMaxLateness(TimeUnit unit) {
+        return unit.convert(this.maxLateness, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the distribution of the run times over the last minute.
+     *
+     * @return The histogram of run times
+     */
+    public TimingsHistogram getHistogram() {
+        return this.histogram;
+    }
+
+    private long mean(long total, TimeUnit unit) {
+        return this.runs == 0 ? 0 : unit.convert(total / this.runs, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("plugin", this.plugin.getId())
+                .add("runs", this.runs)
+                .add("totalRunTime", this.totalRunTime)
+                .add("maxRunTime", this.maxRunTime)
+                .add("totalLateness", this.totalLateness)
+                .add("maxLateness", this.maxLateness)
+                .add("histogram", this.histogram)
+                .toString();
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts durations in power of two buckets over a rolling window.
+ *
+ * <p>The window is split in slots of one second, each with its own bucket
+ * counts. A slot is cleared when it is reused for a later second, so only
+ * the durations recorded during the last {@link #SLOTS} seconds are
+ * counted.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+final class RollingHistogram {
+
+    /**
+     * The number of buckets. Bucket {@code i} counts the durations below
+     * {@code 2^i} microseconds that did not fit in an earlier bucket, the
+     * last bucket counts everything else.
+     */
+    static final int BUCKETS = 32;
+
+    /**
+     * The number of one second slots in the window.
+     */
+    static final int SLOTS = 60;
+
+    private static final long SLOT_LENGTH = TimeUnit.SECONDS.toNanos(1);
+
+    private final long[][] counts = new long[SLOTS][BUCKETS];
+    private final long[] epochs = new long[SLOTS];
+
+    RollingHistogram() {
+        for (int i = 0; i < SLOTS; i++) {
+            this.epochs[i] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Gets the bucket that counts the given duration.
+     *
+     * @param nanos The duration in nanoseconds
+     * @return The index of the bucket
+     */
+    static int bucket(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return bucket < BUCKETS ? bucket : BUCKETS - 1;
+    }
+
+    /**
+     * Counts a duration.
+     *
+     * @param now The current {@link System#nanoTime()}
+     * @param nanos The duration in nanoseconds
+     */
+    void record(long now, long nanos) {
+        long[] slot = slot(now / SLOT_LENGTH);
+        slot[bucket(nanos)]++;
+    }
+
+    /**
+     * Takes a snapshot of the counts within the window.
+     *
+     * @param now The current {@link System#nanoTime()}
+     * @return The snapshot
+     */
+    TimingsHistogram snapshot(long now) {
+        long epoch = now / SLOT_LENGTH;
+        long[] total = new long[BUCKETS];
+        for (int i = 0; i < SLOTS; i++) {
+            if (epoch - this.epochs[i] < SLOTS) {
+                long[] slot = this.counts[i];
+                for (int j = 0; j < BUCKETS; j++) {
+                    total[j] += slot[j];
+                }
+            }
+        }
+        return new TimingsHistogram(total, SLOTS, TimeUnit.SECONDS);
+    }
+
+    private long[] slot(long epoch) {
+        int index = (int) ((epoch % SLOTS + SLOTS) % SLOTS);
+        long[] slot = this.counts[index];
+        if (this.epochs[index] != epoch) {
+            this.epochs[index] = epoch;
+            for (int i = 0; i < BUCKETS; i++) {
+                slot[i] = 0;
+            }
+        }
+        return slot;
+    }
+
+}
@@ -26,6 +26,7 @@ package org.spongepowered.api.service.scheduler;
 
 import com.google.common.base.Optional;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 
@@ -90,4 +91,21 @@ public interface SchedulerQuery {
      * @return A collection of scheduled tasks
      */
     public Collection<Task> getScheduledTasks(Object plugin);
+
+    /**
+     * Gets the timings of the tasks of every plugin that has run a task,
+     * the plugin that spent the most time running tasks first.
+     *
+     * @return The timings of each plugin
+     */
+    public List<PluginTimings> getPluginTimings();
+
+    /**
+     * Gets the timings of the tasks a certain plugin has run.
+     *
+     * @param plugin The plugin to return the timings of
+     * @return The timings, or {@link com.google.common.base.Optional#absent()}
+     *     if the plugin has not run any task
+     */
+    public Optional<PluginTimings> getPluginTimings(Object plugin);
 }
\ No newline at end of file
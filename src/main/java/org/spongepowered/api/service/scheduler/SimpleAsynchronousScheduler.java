@@ -0,0 +1,664 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.plugin.PluginManager;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+/**
+ * A simple implementation of {@link AsynchronousScheduler}.
+ *
+ * <p>Every plugin gets its own bounded queue of tasks waiting to be run.
+ * A fixed set of worker threads takes turns between the plugins with waiting
+ * tasks, one task at a time, so a plugin flooding the scheduler only delays
+ * its own tasks. Once the queue of a plugin is full, further tasks submitted
+ * with {@link #runTask(Object, Runnable)} are rejected, while
+ * {@link #runTaskOrWait(Object, Runnable)} waits for room.</p>
+ *
+ * <p>Blocking tasks do not take turns on the worker threads. Each runs on a
+ * virtual thread if the JVM supports them, or on a thread of a cached pool
+ * otherwise. A plugin may only have a limited number of blocking tasks
+ * running at once, further ones wait in a separate bounded queue.</p>
+ *
+ * <p>Delays and intervals are kept by a single timer thread, which hands
+ * tasks over to the queues when they become due. Delayed tasks are always
+ * accepted once due, while a due occurrence of a repeating task is skipped
+ * if the queue of its plugin is full or its previous occurrence has not
+ * finished yet.</p>
+ */
+public class SimpleAsynchronousScheduler extends AbstractScheduler implements AsynchronousScheduler {
+
+    /**
+     * The number of tasks a plugin may have waiting by default.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * The number of blocking tasks a plugin may have running at once by
+     * default.
+     */
+    public static final int DEFAULT_BLOCKING_CONCURRENCY = 16;
+
+    private final int queueCapacity;
+    private final int blockingConcurrency;
+    private final ScheduledExecutorService timer;
+    private final Executor blockingExecutor;
+    private final boolean virtualThreads;
+    private final Map<PluginContainer, PluginQueue> queues = new HashMap<PluginContainer, PluginQueue>();
+    private final Queue<PluginQueue> ready = new ArrayDeque<PluginQueue>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private final Condition notFull = this.lock.newCondition();
+    private volatile boolean shutdown;
+
+    /**
+     * Construct a simple {@link AsynchronousScheduler} with a worker thread
+     * per processor and the default queue capacity.
+     *
+     * @param pluginManager The plugin manager to get the
+     *        {@link PluginContainer} for a given plugin
+     */
+    @Inject
+    public SimpleAsynchronousScheduler(PluginManager pluginManager) {
+        this(pluginManager, Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, DEFAULT_BLOCKING_CONCURRENCY);
+    }
+
+    /**
+     * Construct a simple {@link AsynchronousScheduler}.
+     *
+     * @param pluginManager The plugin manager to get the
+     *        {@link PluginContainer} for a given plugin
+     * @param threads The number of worker threads
+     * @param queueCapacity The number of tasks each plugin may have waiting
+     * @param blockingConcurrency The number of blocking tasks each plugin
+     *        may have running at once
+     */
+    public SimpleAsynchronousScheduler(PluginManager pluginManager, int threads, int queueCapacity, int blockingConcurrency) {
+        super(pluginManager, "-A");
+        checkArgument(threads > 0, "threads must be positive");
+        checkArgument(queueCapacity > 0, "queueCapacity must be positive");
+        checkArgument(blockingConcurrency > 0, "blockingConcurrency must be positive");
+        this.queueCapacity = queueCapacity;
+        this.blockingConcurrency = blockingConcurrency;
+        final ThreadFactory virtual = VirtualThreads.factory("Sponge-Async-Blocking-");
+        this.virtualThreads = virtual != null;
+        if (virtual != null) {
+            this.blockingExecutor = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    virtual.newThread(command).start();
+                }
+            };
+        } else {
+            this.blockingExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                    .setNameFormat("Sponge-Async-Blocking-%d")
+                    .setDaemon(true)
+                    .build());
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("Sponge-Async-Timer")
+                .setDaemon(true)
+                .build());
+        ThreadFactoryBuilder workers = new ThreadFactoryBuilder()
+                .setNameFormat("Sponge-Async-Worker-%d")
+                .setDaemon(true);
+        for (int i = 0; i < threads; i++) {
+            workers.build().newThread(new Worker()).start();
+        }
+    }
+
+    @Override
+    public Optional<Task> runTask(Object plugin, Runnable task) {
+        try {
+            return submit(plugin, task, false, false);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e); // Never waits
+        }
+    }
+
+    @Override
+    public Optional<Task> runTaskOrWait(Object plugin, Runnable task) throws InterruptedException {
+        return submit(plugin, task, true, false);
+    }
+
+    @Override
+    public Optional<TaskBatch> runTasks(Object plugin, Collection<? extends Runnable> tasks) {
+        checkNotNull(plugin, "plugin");
+        checkNotNull(tasks, "tasks");
+        if (tasks.isEmpty()) {
+            return Optional.absent();
+        }
+        Optional<PluginContainer> container = this.pluginManager.fromInstance(plugin);
+        if (!container.isPresent()) {
+            return Optional.absent();
+        }
+
+        AsyncBatch batch = new AsyncBatch(container.get(), new Batch(tasks), nextName(container.get()));
+        this.registry.add(batch);
+        boolean accepted = false;
+        try {
+            accepted = enqueue(batch, Admission.REJECT, batch.size(), System.nanoTime());
+        } catch (InterruptedException e) {
+            throw new AssertionError(e); // Never waits
+        } finally {
+            if (!accepted) {
+                this.registry.remove(batch);
+            }
+        }
+        if (!accepted) {
+            return Optional.absent();
+        }
+        batch.batch.cancelWithFuture(batch);
+        return Optional.<TaskBatch>of(batch);
+    }
+
+    @Override
+    public Optional<Task> runBlockingTaskAfter(Object plugin, Runnable task, TimeUnit scale, long delay) {
+        if (delay == 0) {
+            try {
+                return submit(plugin, task, false, true);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e); // Never waits
+            }
+        }
+        return schedule(plugin, task, scale, delay, 0, true);
+    }
+
+    @Override
+    public Optional<Task> runBlockingRepeatingTaskAfter(Object plugin, Runnable task, TimeUnit scale, long interval, long delay) {
+        if (interval <= 0) {
+            return Optional.absent();
+        }
+        return schedule(plugin, task, scale, delay, interval, true);
+    }
+
+    @Override
+    public Optional<Task> runTaskAfter(Object plugin, Runnable task, TimeUnit scale, long delay) {
+        return schedule(plugin, task, scale, delay, 0, false);
+    }
+
+    @Override
+    public Optional<Task> runRepeatingTask(Object plugin, Runnable task, TimeUnit scale, long interval) {
+        if (interval <= 0) {
+            return Optional.absent();
+        }
+        return schedule(plugin, task, scale, 0, interval, false);
+    }
+
+    @Override
+    public Optional<Task> runRepeatingTaskAfter(Object plugin, Runnable task, TimeUnit scale, long interval, long delay) {
+        if (interval <= 0) {
+            return Optional.absent();
+        }
+        return schedule(plugin, task, scale, delay, interval, false);
+    }
+
+    /**
+     * Gets the number of tasks each plugin may have waiting.
+     *
+     * @return The queue capacity
+     */
+    public int getQueueCapacity() {
+        return this.queueCapacity;
+    }
+
+    /**
+     * Gets the number of blocking tasks each plugin may have running at once.
+     *
+     * @return The blocking concurrency
+     */
+    public int getBlockingConcurrency() {
+        return this.blockingConcurrency;
+    }
+
+    /**
+     * Gets whether blocking tasks are run on virtual threads.
+     *
+     * @return Whether virtual threads are used
+     */
+    public boolean isUsingVirtualThreads() {
+        return this.virtualThreads;
+    }
+
+    /**
+     * Stops this scheduler. Running tasks are allowed to finish, while
+     * waiting and future tasks are dropped.
+     */
+    public void shutdown() {
+        this.lock.lock();
+        try {
+            this.shutdown = true;
+            this.notEmpty.signalAll();
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        this.timer.shutdownNow();
+        if (this.blockingExecutor instanceof ExecutorService) {
+            ((ExecutorService) this.blockingExecutor).shutdown();
+        }
+    }
+
+    @Nullable
+    private AsyncTask create(Object plugin, Runnable runnable, long delay, long interval, boolean blocking) {
+        checkNotNull(plugin, "plugin");
+        checkNotNull(runnable, "task");
+        if (delay < 0) {
+            return null;
+        }
+        Optional<PluginContainer> container = this.pluginManager.fromInstance(plugin);
+        if (!container.isPresent()) {
+            return null;
+        }
+        return new AsyncTask(container.get(), runnable, nextName(container.get()), delay, interval, blocking);
+    }
+
+    private Optional<Task> submit(Object plugin, Runnable runnable, boolean wait, boolean blocking) throws InterruptedException {
+        AsyncTask task = create(plugin, runnable, 0, 0, blocking);
+        if (task == null) {
+            return Optional.absent();
+        }
+        this.registry.add(task);
+        boolean accepted = false;
+        try {
+            accepted = enqueue(task, wait ? Admission.WAIT : Admission.REJECT, 1, System.nanoTime());
+        } finally {
+            if (!accepted) {
+                this.registry.remove(task);
+            }
+        }
+        return accepted ? Optional.<Task>of(task) : Optional.<Task>absent();
+    }
+
+    private Optional<Task> schedule(Object plugin, Runnable runnable, TimeUnit scale, long delay, long interval, boolean blocking) {
+        checkNotNull(scale, "scale");
+        final AsyncTask task = create(plugin, runnable, delay, interval, blocking);
+        if (task == null) {
+            return Optional.absent();
+        }
+        this.registry.add(task);
+        task.nextDue = System.nanoTime() + scale.toNanos(delay);
+        task.period = scale.toNanos(interval);
+        Runnable fire = new Runnable() {
+            @Override
+            public void run() {
+                fire(task);
+            }
+        };
+        try {
+            if (task.isRepeating()) {
+                task.future = this.timer.scheduleAtFixedRate(fire, scale.toNanos(delay), scale.toNanos(interval), TimeUnit.NANOSECONDS);
+            } else {
+                task.future = this.timer.schedule(fire, scale.toNanos(delay), TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            this.registry.remove(task);
+            return Optional.absent();
+        }
+        if (task.state == AsyncTask.CANCELLED) {
+            task.future.cancel(false);
+        }
+        return Optional.<Task>of(task);
+    }
+
+    /**
+     * Queues a delayed or repeating task once it is due. Only ever called
+     * from the timer thread.
+     */
+    private void fire(AsyncTask task) {
+        long scheduledAt = task.nextDue;
+        task.nextDue += task.period;
+        try {
+            enqueue(task, task.isRepeating() ? Admission.REJECT : Admission.FORCE, 1, scheduledAt);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e); // Never waits
+        }
+    }
+
+    private boolean enqueue(AsyncTask task, Admission admission, int count, long scheduledAt) throws InterruptedException {
+        PluginQueue queue;
+        this.lock.lock();
+        try {
+            queue = this.queues.get(task.getOwner());
+            if (queue == null) {
+                queue = new PluginQueue();
+                this.queues.put(task.getOwner(), queue);
+            }
+            Queue<AsyncTask> waiting = task.isBlocking() ? queue.blocking : queue.tasks;
+            while (admission != Admission.FORCE && waiting.size() + count > this.queueCapacity) {
+                if (admission == Admission.REJECT || this.shutdown) {
+                    return false;
+                }
+                this.notFull.await();
+            }
+            if (this.shutdown || task.state == AsyncTask.CANCELLED || task.queued) {
+                return false;
+            }
+            task.scheduledAt = scheduledAt;
+            if (task.isBlocking()) {
+                task.queued = true;
+                task.enqueuedAt = System.nanoTime();
+                if (queue.blockingRunning >= this.blockingConcurrency) {
+                    waiting.add(task);
+                    return true;
+                }
+                queue.blockingRunning++;
+            } else {
+                enqueueTask(queue, task, count);
+                return true;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        runBlocking(queue, task);
+        return true;
+    }
+
+    /**
+     * Adds a task to the queue of its plugin. Must be called while holding
+     * the lock.
+     */
+    private void enqueueTask(PluginQueue queue, AsyncTask task, int count) {
+        // A batch is queued once for each of its runnables
+        for (int i = 0; i < count; i++) {
+            queue.tasks.add(task);
+        }
+        task.queued = true;
+        task.enqueuedAt = System.nanoTime();
+        if (!queue.ready) {
+            queue.ready = true;
+            this.ready.add(queue);
+        }
+        if (count == 1) {
+            this.notEmpty.signal();
+        } else {
+            this.notEmpty.signalAll();
+        }
+    }
+
+    private void runBlocking(final PluginQueue queue, final AsyncTask first) {
+        try {
+            this.blockingExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    AsyncTask task = first;
+                    while (task != null) {
+                        if (startBlocking(task)) {
+                            task.runTaken();
+                            // Clear any interrupt left behind by the task
+                            Thread.interrupted();
+                        }
+                        task = nextBlocking(queue);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.lock.lock();
+            try {
+                queue.blockingRunning--;
+                first.queued = false;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    private boolean startBlocking(AsyncTask task) {
+        this.lock.lock();
+        try {
+            return task.start();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Nullable
+    private AsyncTask nextBlocking(PluginQueue queue) {
+        this.lock.lock();
+        try {
+            AsyncTask next = this.shutdown ? null : queue.blocking.poll();
+            if (next == null) {
+                queue.blockingRunning--;
+            } else if (this.lock.hasWaiters(this.notFull)) {
+                this.notFull.signalAll();
+            }
+            return next;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Nullable
+    private AsyncTask take() {
+        this.lock.lock();
+        try {
+            while (true) {
+                PluginQueue queue;
+                while ((queue = this.ready.poll()) == null) {
+                    if (this.shutdown) {
+                        return null;
+                    }
+                    this.notEmpty.awaitUninterruptibly();
+                }
+                if (this.shutdown) {
+                    return null;
+                }
+                AsyncTask task = queue.tasks.poll();
+                if (queue.tasks.isEmpty()) {
+                    queue.ready = false;
+                } else {
+                    this.ready.add(queue);
+                    this.notEmpty.signal();
+                }
+                if (this.lock.hasWaiters(this.notFull)) {
+                    this.notFull.signalAll();
+                }
+                if (task.start()) {
+                    return task;
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private enum Admission {
+        REJECT,
+        WAIT,
+        FORCE
+    }
+
+    private static final class PluginQueue {
+
+        final Queue<AsyncTask> tasks = new ArrayDeque<AsyncTask>();
+        final Queue<AsyncTask> blocking = new ArrayDeque<AsyncTask>();
+        boolean ready;
+        int blockingRunning;
+    }
+
+    private final class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            AsyncTask task;
+            while ((task = take()) != null) {
+                task.runTaken();
+                // Clear any interrupt left behind by the task
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private class AsyncTask extends SimpleTask {
+
+        static final int SCHEDULED = 0;
+        static final int DONE = 1;
+        static final int CANCELLED = 2;
+
+        private final boolean blocking;
+        volatile int state = SCHEDULED;
+        volatile boolean queued;
+        @Nullable volatile Future<?> future;
+        long enqueuedAt;
+        long scheduledAt;
+        // Only used by the timer thread
+        long nextDue;
+        long period;
+
+        AsyncTask(PluginContainer owner, @Nullable Runnable runnable, String name, long delay, long interval, boolean blocking) {
+            super(SimpleAsynchronousScheduler.this.registry, owner, runnable, name, delay, interval);
+            this.blocking = blocking;
+        }
+
+        @Override
+        public boolean isBlocking() {
+            return this.blocking;
+        }
+
+        @Override
+        public boolean isSynchronous() {
+            return false;
+        }
+
+        /**
+         * Marks this task as started after being taken from its queue. Must
+         * be called while holding the lock.
+         *
+         * @return Whether the task should be run
+         */
+        boolean start() {
+            if (this.state == CANCELLED) {
+                this.queued = false;
+                return false;
+            }
+            if (!isRepeating()) {
+                this.state = DONE;
+            }
+            return true;
+        }
+
+        /**
+         * Runs this task after it has been taken from its queue.
+         */
+        void runTaken() {
+            // A one-shot task is done once started, so it leaves the registry
+            // before anyone can observe its run
+            if (!isRepeating()) {
+                SimpleAsynchronousScheduler.this.registry.remove(this);
+            }
+            execute(this, runnable(), this.enqueuedAt, this.scheduledAt);
+            this.queued = false;
+        }
+
+        @Override
+        public boolean cancel() {
+            SimpleAsynchronousScheduler.this.lock.lock();
+            try {
+                if (this.state != SCHEDULED) {
+                    return false;
+                }
+                this.state = CANCELLED;
+            } finally {
+                SimpleAsynchronousScheduler.this.lock.unlock();
+            }
+            Future<?> future = this.future;
+            if (future != null) {
+                future.cancel(false);
+            }
+            SimpleAsynchronousScheduler.this.registry.remove(this);
+            return true;
+        }
+    }
+
+    private final class AsyncBatch extends AsyncTask implements TaskBatch {
+
+        final Batch batch;
+
+        AsyncBatch(PluginContainer owner, Batch batch, String name) {
+            super(owner, null, name, 0, 0, false);
+            this.batch = batch;
+        }
+
+        @Override
+        public int size() {
+            return this.batch.size();
+        }
+
+        @Override
+        public ListenableFuture<Void> getFuture() {
+            return this.batch.getFuture();
+        }
+
+        @Override
+        boolean start() {
+            return this.state != CANCELLED;
+        }
+
+        @Override
+        void runTaken() {
+            int index = this.batch.claim();
+            if (index >= 0 && this.batch.finish(execute(this, this.batch.get(index), this.enqueuedAt, this.scheduledAt))) {
+                SimpleAsynchronousScheduler.this.registry.remove(this);
+                this.batch.complete();
+            }
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!this.batch.cancel()) {
+                return false;
+            }
+            this.state = CANCELLED;
+            SimpleAsynchronousScheduler.this.registry.remove(this);
+            return true;
+        }
+    }
+
+}
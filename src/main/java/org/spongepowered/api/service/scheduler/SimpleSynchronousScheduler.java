@@ -0,0 +1,411 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.plugin.PluginManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+/**
+ * A simple implementation of {@link SynchronousScheduler}.
+ *
+ * <p>Tasks are kept in a {@link TimingWheel}, so scheduling and cancelling a
+ * task as well as advancing a tick take constant time, and a tick on which
+ * no task is due costs the same no matter how many tasks are waiting.</p>
+ *
+ * <p>A time budget can be set for each tick. Deferrable tasks that are due
+ * once the budget has been used up are carried over to the next tick, taking
+ * turns between their owning plugins so that no plugin can starve the others.
+ * At least one deferred task runs on every tick.</p>
+ *
+ * <p>
+ * Note: The implementation should call {@link #tick()} once per server tick,
+ * from the main thread, for this scheduler to run its tasks.
+ * </p>
+ */
+public class SimpleSynchronousScheduler extends AbstractScheduler implements SynchronousScheduler {
+
+    private final TimingWheel<SyncTask> wheel = new TimingWheel<SyncTask>();
+    private final List<SyncTask> due = new ArrayList<SyncTask>();
+    private final Map<PluginContainer, Queue<SyncTask>> deferred = new HashMap<PluginContainer, Queue<SyncTask>>();
+    private final Queue<PluginContainer> deferredOwners = new ArrayDeque<PluginContainer>();
+    private final Object lock = new Object();
+    private long currentTick;
+    private long tickStart;
+    private volatile long tickBudget;
+
+    private volatile long overrunTicks;
+    private volatile long lastTickTime;
+    private volatile long maxOverrun;
+    private volatile long totalOverrun;
+    private volatile int pendingDeferred;
+
+    /**
+     * Construct a simple {@link SynchronousScheduler}.
+     *
+     * @param pluginManager The plugin manager to get the
+     *        {@link PluginContainer} for a given plugin
+     */
+    @Inject
+    public SimpleSynchronousScheduler(PluginManager pluginManager) {
+        super(pluginManager, "-S");
+    }
+
+    @Override
+    public Optional<Task> runTask(Object plugin, Runnable task) {
+        return schedule(plugin, task, 0, 0, false);
+    }
+
+    @Override
+    public Optional<Task> runTaskAfter(Object plugin, Runnable task, long delay) {
+        return schedule(plugin, task, delay, 0, false);
+    }
+
+    @Override
+    public Optional<Task> runRepeatingTask(Object plugin, Runnable task, long interval) {
+        if (interval <= 0) {
+            return Optional.absent();
+        }
+        return schedule(plugin, task, 0, interval, false);
+    }
+
+    @Override
+    public Optional<Task> runRepeatingTaskAfter(Object plugin, Runnable task, long interval, long delay) {
+        if (interval <= 0) {
+            return Optional.absent();
+        }
+        return schedule(plugin, task, delay, interval, false);
+    }
+
+    @Override
+    public Optional<Task> runDeferrableTaskAfter(Object plugin, Runnable task, long delay) {
+        return schedule(plugin, task, delay, 0, true);
+    }
+
+    @Override
+    public Optional<Task> runDeferrableRepeatingTaskAfter(Object plugin, Runnable task, long interval, long delay) {
+        if (interval <= 0) {
+            return Optional.absent();
+        }
+        return schedule(plugin, task, delay, interval, true);
+    }
+
+    private Optional<Task> schedule(Object plugin, Runnable runnable, long delay, long interval, boolean deferrable) {
+        checkNotNull(plugin, "plugin");
+        checkNotNull(runnable, "task");
+        if (delay < 0) {
+            return Optional.absent();
+        }
+        Optional<PluginContainer> container = this.pluginManager.fromInstance(plugin);
+        if (!container.isPresent()) {
+            return Optional.absent();
+        }
+
+        SyncTask task = new SyncTask(container.get(), runnable, nextName(container.get()), delay, interval, deferrable);
+        add(task, delay);
+        return Optional.<Task>of(task);
+    }
+
+    @Override
+    public Optional<TaskBatch> runTasks(Object plugin, Collection<? extends Runnable> tasks) {
+        checkNotNull(plugin, "plugin");
+        checkNotNull(tasks, "tasks");
+        if (tasks.isEmpty()) {
+            return Optional.absent();
+        }
+        Optional<PluginContainer> container = this.pluginManager.fromInstance(plugin);
+        if (!container.isPresent()) {
+            return Optional.absent();
+        }
+
+        SyncBatch batch = new SyncBatch(container.get(), new Batch(tasks), nextName(container.get()));
+        add(batch, 0);
+        batch.batch.cancelWithFuture(batch);
+        return Optional.<TaskBatch>of(batch);
+    }
+
+    private void add(SyncTask task, long delay) {
+        this.registry.add(task);
+        synchronized (this.lock) {
+            task.entry = this.wheel.add(task, this.wheel.getTick() + delay);
+        }
+    }
+
+    /**
+     * Advances this scheduler by one tick, running every task that is due.
+     *
+     * <p>This must only be called from the main thread.</p>
+     */
+    public void tick() {
+        final long start = System.nanoTime();
+        synchronized (this.lock) {
+            this.currentTick = this.wheel.getTick();
+            this.tickStart = start;
+            this.wheel.advance(this.due);
+        }
+        try {
+            for (SyncTask task : this.due) {
+                task.dueAt = start;
+                if (task.isDeferrable()) {
+                    defer(task);
+                } else {
+                    task.runDue();
+                }
+            }
+        } finally {
+            this.due.clear();
+        }
+        runDeferred(start);
+
+        long time = System.nanoTime() - start;
+        this.lastTickTime = time;
+        long budget = this.tickBudget;
+        if (budget > 0 && time > budget) {
+            long overrun = time - budget;
+            this.overrunTicks++;
+            this.totalOverrun += overrun;
+            if (overrun > this.maxOverrun) {
+                this.maxOverrun = overrun;
+            }
+        }
+    }
+
+    private void defer(SyncTask task) {
+        Queue<SyncTask> queue = this.deferred.get(task.getOwner());
+        if (queue == null) {
+            queue = new ArrayDeque<SyncTask>();
+            this.deferred.put(task.getOwner(), queue);
+            this.deferredOwners.add(task.getOwner());
+        }
+        queue.add(task);
+        this.pendingDeferred++;
+    }
+
+    private void runDeferred(long start) {
+        long budget = this.tickBudget;
+        boolean ranOne = false;
+        PluginContainer owner;
+        while ((owner = this.deferredOwners.peek()) != null) {
+            if (ranOne && budget > 0 && System.nanoTime() - start >= budget) {
+                break;
+            }
+            this.deferredOwners.poll();
+            Queue<SyncTask> queue = this.deferred.get(owner);
+            SyncTask task = queue.poll();
+            if (queue.isEmpty()) {
+                this.deferred.remove(owner);
+            } else {
+                this.deferredOwners.add(owner);
+            }
+            this.pendingDeferred--;
+            ranOne |= task.runDue();
+        }
+    }
+
+    /**
+     * Sets the time budget of each tick.
+     *
+     * <p>Deferrable tasks that are due once a tick has used up its budget
+     * are postponed to the next tick. A budget of zero disables this.</p>
+     *
+     * @param budget The time budget, or zero for none
+     * @param unit The unit of the budget
+     */
+    public void setTickBudget(long budget, TimeUnit unit) {
+        checkArgument(budget >= 0, "budget must not be negative");
+        this.tickBudget = unit.toNanos(budget);
+    }
+
+    /**
+     * Gets the time budget of each tick.
+     *
+     * @param unit The unit to return the budget in
+     * @return The time budget, zero if there is none
+     */
+    public long getTickBudget(TimeUnit unit) {
+        return unit.convert(this.tickBudget, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets a snapshot of the tick statistics of this scheduler.
+     *
+     * @return The tick statistics
+     */
+    public TickStatistics getTickStatistics() {
+        return new TickStatistics(getTicks(), this.overrunTicks, this.lastTickTime, this.maxOverrun, this.totalOverrun,
+                this.pendingDeferred);
+    }
+
+    /**
+     * Gets the number of ticks this scheduler has been advanced by.
+     *
+     * @return The number of ticks
+     */
+    public long getTicks() {
+        synchronized (this.lock) {
+            return this.wheel.getTick();
+        }
+    }
+
+    private class SyncTask extends SimpleTask {
+
+        static final int SCHEDULED = 0;
+        static final int DONE = 1;
+        static final int CANCELLED = 2;
+
+        private final boolean deferrable;
+        @Nullable TimingWheel.Entry<SyncTask> entry;
+        volatile int state = SCHEDULED;
+        long dueAt;
+
+        SyncTask(PluginContainer owner, @Nullable Runnable runnable, String name, long delay, long interval, boolean deferrable) {
+            super(SimpleSynchronousScheduler.this.registry, owner, runnable, name, delay, interval);
+            this.deferrable = deferrable;
+        }
+
+        @Override
+        public boolean isDeferrable() {
+            return this.deferrable;
+        }
+
+        @Override
+        public boolean isSynchronous() {
+            return true;
+        }
+
+        /**
+         * Runs this task now that it is due.
+         *
+         * @return Whether anything was run
+         */
+        boolean runDue() {
+            SimpleSynchronousScheduler scheduler = SimpleSynchronousScheduler.this;
+            if (!isRepeating()) {
+                synchronized (scheduler.lock) {
+                    if (this.state != SCHEDULED) {
+                        return false;
+                    }
+                    this.state = DONE;
+                }
+            } else if (this.state == CANCELLED) {
+                return false;
+            }
+            execute(this, runnable(), scheduler.tickStart, this.dueAt);
+            if (isRepeating()) {
+                synchronized (scheduler.lock) {
+                    if (this.state == SCHEDULED) {
+                        scheduler.wheel.schedule(this.entry, scheduler.currentTick + interval());
+                        return true;
+                    }
+                }
+            }
+            scheduler.registry.remove(this);
+            return true;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (SimpleSynchronousScheduler.this.lock) {
+                if (this.state != SCHEDULED) {
+                    return false;
+                }
+                this.state = CANCELLED;
+                unschedule();
+            }
+            SimpleSynchronousScheduler.this.registry.remove(this);
+            return true;
+        }
+
+        void unschedule() {
+            if (this.entry != null) {
+                SimpleSynchronousScheduler.this.wheel.remove(this.entry);
+            }
+        }
+    }
+
+    private final class SyncBatch extends SyncTask implements TaskBatch {
+
+        final Batch batch;
+
+        SyncBatch(PluginContainer owner, Batch batch, String name) {
+            super(owner, null, name, 0, 0, false);
+            this.batch = batch;
+        }
+
+        @Override
+        public int size() {
+            return this.batch.size();
+        }
+
+        @Override
+        public ListenableFuture<Void> getFuture() {
+            return this.batch.getFuture();
+        }
+
+        @Override
+        boolean runDue() {
+            boolean ran = false;
+            int index;
+            while ((index = this.batch.claim()) >= 0) {
+                ran = true;
+                if (this.batch.finish(execute(this, this.batch.get(index), SimpleSynchronousScheduler.this.tickStart, this.dueAt))) {
+                    SimpleSynchronousScheduler.this.registry.remove(this);
+                    this.batch.complete();
+                }
+            }
+            return ran;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!this.batch.cancel()) {
+                return false;
+            }
+            synchronized (SimpleSynchronousScheduler.this.lock) {
+                this.state = CANCELLED;
+                unschedule();
+            }
+            SimpleSynchronousScheduler.this.registry.remove(this);
+            return true;
+        }
+    }
+
+}
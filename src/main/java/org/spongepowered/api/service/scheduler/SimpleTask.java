@@ -0,0 +1,181 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import org.spongepowered.api.plugin.PluginContainer;
+
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+/**
+ * The base {@link Task} implementation shared by the schedulers of this
+ * package.
+ */
+abstract class SimpleTask implements Task {
+
+    private final UUID uniqueId = UUID.randomUUID();
+    private final TaskRegistry registry;
+    private final PluginContainer owner;
+    @Nullable private final Runnable runnable;
+    private final long delay;
+    private final long interval;
+    private final TaskTimings timings = new TaskTimings();
+    private volatile String name;
+    // Guarded by the name lock of the registry
+    boolean registered;
+
+    /**
+     * Creates a new task.
+     *
+     * @param registry The registry the task will be registered with
+     * @param owner The plugin owning the task
+     * @param runnable The runnable to run, or null for a batch
+     * @param name The initial name of the task
+     * @param delay The delay before the first run, zero for none
+     * @param interval The interval between runs, zero if not repeating
+     */
+    SimpleTask(TaskRegistry registry, PluginContainer owner, @Nullable Runnable runnable, String name, long delay, long interval) {
+        this.registry = checkNotNull(registry, "registry");
+        this.owner = checkNotNull(owner, "owner");
+        this.runnable = runnable;
+        this.name = checkNotNull(name, "name");
+        this.delay = delay;
+        this.interval = interval;
+    }
+
+    @Override
+    public UUID getUniqueId() {
+        return this.uniqueId;
+    }
+
+    @Override
+    public Optional<String> getName() {
+        return Optional.of(this.name);
+    }
+
+    /**
+     * Gets the current name of this task.
+     *
+     * @return The name
+     */
+    String name() {
+        return this.name;
+    }
+
+    /**
+     * Sets the name of this task without updating the registry.
+     *
+     * @param name The name
+     */
+    void name(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public PluginContainer getOwner() {
+        return this.owner;
+    }
+
+    @Override
+    public Optional<Long> getDelay() {
+        return this.delay > 0 ? Optional.of(this.delay) : Optional.<Long>absent();
+    }
+
+    @Override
+    public Optional<Long> getInterval() {
+        return isRepeating() ? Optional.of(this.interval) : Optional.<Long>absent();
+    }
+
+    /**
+     * Gets the raw interval of this task.
+     *
+     * @return The interval, zero if not repeating
+     */
+    long interval() {
+        return this.interval;
+    }
+
+    /**
+     * Gets whether this task repeats.
+     *
+     * @return Whether the task repeats
+     */
+    boolean isRepeating() {
+        return this.interval > 0;
+    }
+
+    @Override
+    public Optional<Runnable> getRunnable() {
+        return Optional.fromNullable(this.runnable);
+    }
+
+    /**
+     * Gets the runnable of a task that is not a batch.
+     *
+     * @return The runnable
+     */
+    Runnable runnable() {
+        return checkNotNull(this.runnable, "runnable");
+    }
+
+    @Override
+    public boolean isDeferrable() {
+        return false;
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return false;
+    }
+
+    @Override
+    public TaskTimings getTimings() {
+        return this.timings;
+    }
+
+    @Override
+    public String setName(@Nullable String name) {
+        if (name != null) {
+            this.registry.rename(this, name);
+        }
+        return this.name;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("name", this.name)
+                .add("owner", this.owner.getId())
+                .add("delay", this.delay)
+                .add("interval", this.interval)
+                .toString();
+    }
+
+}
@@ -227,4 +227,55 @@ public interface SynchronousScheduler extends SchedulerQuery {
      */
     Optional<Task> runRepeatingTaskAfter(Object plugin, Runnable task, long interval, long delay);
 
+    /**
+     * <p>Runs a deferrable Task once after a specific delay offset.</p>
+     *
+     * <p>
+     * A deferrable Task behaves like a Task run with
+     * {@link #runTaskAfter(Object, Runnable, long)}, except that the Scheduler may postpone
+     * it to a later Tick when the time budget of the current Tick has been used up.
+     * Use it for work that does not have to happen on an exact Tick, such as saving or
+     * cleaning up data.</p>
+     *
+     * @param plugin The plugin container of the Plugin that initiated the Task
+     * @param task  The Runnable object that implements a run() method to execute the Task desired
+     * @param delay  The offset in ticks before running the task.
+     * @return Optional&lt;Task&gt;&nbsp; Either Optional.absent() if invalid or a reference to the new Task
+     */
+    Optional<Task> runDeferrableTaskAfter(Object plugin, Runnable task, long delay);
+
+    /**
+     * <p>Start a deferrable repeating Task with a period (interval) in Ticks.
+     * The first occurrence will start after an initial delay in Ticks.</p>
+     *
+     * <p>
+     * A deferrable Task behaves like a Task run with
+     * {@link #runRepeatingTaskAfter(Object, Runnable, long, long)}, except that the Scheduler
+     * may postpone an occurrence to a later Tick when the time budget of the current Tick has
+     * been used up. The period of the next occurrence starts from the Tick the postponed
+     * occurrence actually ran on.</p>
+     *
+     * @param plugin The plugin container of the Plugin that initiated the Task
+     * @param task  The Runnable object that implements a run() method to execute the Task desired
+     * @param interval The period in Ticks of the repeating Task.
+     * @param delay  The offset in Ticks before running the task.
+     * @return Optional&lt;Task&gt;&nbsp; Either Optional.absent() if invalid or a reference to the new Task
+     */
+    Optional<Task> runDeferrableRepeatingTaskAfter(Object plugin, Runnable task, long interval, long delay);
+
+    /**
+     * <p>Runs a batch of Tasks once immediately.</p>
+     *
+     * <p>
+     * All Runnable targets of the batch are run one after another on the next Tick, as if
+     * each of them was passed to {@link #runTask(Object, Runnable)}.  The batch is scheduled
+     * as a single {@link TaskBatch}, which is much cheaper than scheduling every Runnable on
+     * its own, and can be waited on and cancelled as a whole.</p>
+     *
+     * @param plugin The plugin container of the Plugin that initiated the Tasks
+     * @param tasks  The Runnable objects that implement a run() method to execute the Tasks desired
+     * @return Optional&lt;TaskBatch&gt;&nbsp; Either Optional.absent() if invalid or a reference to the new batch
+     */
+    Optional<TaskBatch> runTasks(Object plugin, Collection<? extends Runnable> tasks);
+
 }
\ No newline at end of file
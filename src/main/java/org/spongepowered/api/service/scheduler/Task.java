@@ -92,6 +92,29 @@ public interface Task extends Identifiable {
      */
     public boolean isSynchronous();
 
+    /**
+     * Gets whether this task may be postponed to a later tick when the
+     * time budget of a tick has been used up.
+     *
+     * @return Whether the task is deferrable
+     */
+    boolean isDeferrable();
+
+    /**
+     * Gets whether this task was submitted as one that spends most of its
+     * time blocked, such as on database or network calls.
+     *
+     * @return Whether the task is blocking
+     */
+    boolean isBlocking();
+
+    /**
+     * Gets the queue and run timings of this task.
+     *
+     * @return The timings
+     */
+    TaskTimings getTimings();
+
     /**
      * <p>Set the name of the Task.</p>
      *
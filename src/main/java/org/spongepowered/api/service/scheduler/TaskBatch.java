@@ -0,0 +1,55 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A group of runnables that has been scheduled as a single {@link Task}.
+ *
+ * <p>The runnables of a batch share one name and unique id, and have no
+ * single {@link Runnable} to return from {@link #getRunnable()}. Cancelling a
+ * batch, either with {@link #cancel()} or through its future, keeps all of its
+ * runnables that have not been started yet from running.</p>
+ */
+public interface TaskBatch extends Task {
+
+    /**
+     * Gets the number of runnables in this batch.
+     *
+     * @return The number of runnables
+     */
+    int size();
+
+    /**
+     * Gets a future that completes once every runnable of this batch has
+     * finished. If any of them threw an exception, the future fails with the
+     * first exception thrown.
+     *
+     * @return The future
+     */
+    ListenableFuture<Void> getFuture();
+
+}
@@ -0,0 +1,209 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.spongepowered.api.plugin.PluginContainer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps track of the active tasks of a scheduler and answers the
+ * {@link SchedulerQuery} lookups for it.
+ *
+ * <p>Besides the tasks by id, the registry indexes them by owner and by
+ * name. The name index is ordered, which lets a pattern query only look at
+ * the names starting with the literal prefix of the pattern instead of
+ * matching every task.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+final class TaskRegistry {
+
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+    private static final String QUANTIFIERS = "?*{";
+
+    private final ConcurrentMap<UUID, SimpleTask> tasks = Maps.newConcurrentMap();
+    private final ConcurrentMap<PluginContainer, Set<SimpleTask>> byOwner = Maps.newConcurrentMap();
+    private final ConcurrentNavigableMap<String, Set<SimpleTask>> byName = new ConcurrentSkipListMap<String, Set<SimpleTask>>();
+    private final Object nameLock = new Object();
+
+    /**
+     * Registers a task.
+     *
+     * @param task The task
+     */
+    void add(SimpleTask task) {
+        this.tasks.put(task.getUniqueId(), task);
+        Set<SimpleTask> owned = this.byOwner.get(task.getOwner());
+        if (owned == null) {
+            Set<SimpleTask> created = Sets.newConcurrentHashSet();
+            owned = this.byOwner.putIfAbsent(task.getOwner(), created);
+            if (owned == null) {
+                owned = created;
+            }
+        }
+        owned.add(task);
+        synchronized (this.nameLock) {
+            task.registered = true;
+            index(task.name(), task);
+        }
+    }
+
+    /**
+     * Unregisters a task.
+     *
+     * @param task The task
+     * @return Whether the task was registered
+     */
+    boolean remove(SimpleTask task) {
+        if (!this.tasks.remove(task.getUniqueId(), task)) {
+            return false;
+        }
+        Set<SimpleTask> owned = this.byOwner.get(task.getOwner());
+        if (owned != null) {
+            owned.remove(task);
+        }
+        synchronized (this.nameLock) {
+            task.registered = false;
+            unindex(task.name(), task);
+        }
+        return true;
+    }
+
+    /**
+     * Renames a task, moving it in the name index if it is registered.
+     *
+     * @param task The task
+     * @param name The new name of the task
+     */
+    void rename(SimpleTask task, String name) {
+        synchronized (this.nameLock) {
+            if (task.registered) {
+                unindex(task.name(), task);
+            }
+            task.name(name);
+            if (task.registered) {
+                index(name, task);
+            }
+        }
+    }
+
+    private void index(String name, SimpleTask task) {
+        Set<SimpleTask> named = this.byName.get(name);
+        if (named == null) {
+            named = Sets.newConcurrentHashSet();
+            this.byName.put(name, named);
+        }
+        named.add(task);
+    }
+
+    private void unindex(String name, SimpleTask task) {
+        Set<SimpleTask> named = this.byName.get(name);
+        if (named != null && named.remove(task) && named.isEmpty()) {
+            this.byName.remove(name);
+        }
+    }
+
+    /**
+     * Gets the number of registered tasks.
+     *
+     * @return The number of tasks
+     */
+    int size() {
+        return this.tasks.size();
+    }
+
+    Optional<Task> getById(UUID id) {
+        return Optional.<Task>fromNullable(this.tasks.get(id));
+    }
+
+    Optional<UUID> getUuidByName(String name) {
+        Set<SimpleTask> named = this.byName.get(name);
+        if (named != null) {
+            for (SimpleTask task : named) {
+                return Optional.of(task.getUniqueId());
+            }
+        }
+        return Optional.absent();
+    }
+
+    Collection<Task> getByName(String pattern) {
+        Pattern compiled = Pattern.compile(pattern);
+        String prefix = literalPrefix(pattern);
+        Map<String, Set<SimpleTask>> candidates = prefix.isEmpty() ? this.byName
+                : this.byName.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        ImmutableList.Builder<Task> builder = ImmutableList.builder();
+        for (Map.Entry<String, Set<SimpleTask>> entry : candidates.entrySet()) {
+            if (compiled.matcher(entry.getKey()).matches()) {
+                builder.addAll(entry.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    Collection<Task> getAll() {
+        return ImmutableList.<Task>copyOf(this.tasks.values());
+    }
+
+    Collection<Task> getByOwner(PluginContainer owner) {
+        Set<SimpleTask> owned = this.byOwner.get(owner);
+        return owned == null ? ImmutableList.<Task>of() : ImmutableList.<Task>copyOf(owned);
+    }
+
+    /**
+     * Gets the literal text every string matching the given regular
+     * expression has to start with.
+     *
+     * @param pattern The regular expression
+     * @return The literal prefix, possibly empty
+     */
+    static String literalPrefix(String pattern) {
+        if (pattern.indexOf('|') >= 0) {
+            return "";
+        }
+        int start = pattern.startsWith("^") ? 1 : 0;
+        int end = start;
+        while (end < pattern.length() && METACHARACTERS.indexOf(pattern.charAt(end)) < 0) {
+            end++;
+        }
+        if (end < pattern.length() && end > start && QUANTIFIERS.indexOf(pattern.charAt(end)) >= 0) {
+            // The last literal character is optional
+            end--;
+        }
+        return pattern.substring(start, end);
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import com.google.common.base.Objects;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of how late the runs of a {@link Task} were started and how
+ * long they took.
+ *
+ * <p>The lateness of a run is the time between the moment it was scheduled
+ * for and it actually being started. For a synchronous task, that moment is
+ * the start of the tick it was scheduled for, so a run postponed by the tick
+ * budget is late by the ticks it was carried over.</p>
+ *
+ * <p>The queue time of a run is the part of its lateness spent waiting
+ * behind other tasks, either for a free thread or for earlier tasks of the
+ * same tick.</p>
+ */
+public final class TaskTimings {
+
+    private volatile long runs;
+    private volatile long lastQueueTime;
+    private volatile long lastLateness;
+    private volatile long lastRunTime;
+    private volatile long maxLateness;
+    private volatile long maxRunTime;
+    private volatile long totalQueueTime;
+    private volatile long totalLateness;
+    private volatile long totalRunTime;
+
+    TaskTimings() {
+    }
+
+    /**
+     * Records a run.
+     *
+     * @param queueTime The time in nanoseconds the run waited behind other
+     *     tasks
+     * @param lateness The time in nanoseconds the run started after it was
+     *     scheduled for
+     * @param runTime The time in nanoseconds the run took
+     */
+    synchronized void record(long queueTime, long lateness, long runTime) {
+        this.lastQueueTime = queueTime;
+        this.lastLateness = lateness;
+        this.lastRunTime = runTime;
+        if (lateness > this.maxLateness) {
+            this.maxLateness = lateness;
+        }
+        if (runTime > this.maxRunTime) {
+            this.maxRunTime = runTime;
+        }
+        this.totalQueueTime += queueTime;
+        this.totalLateness += lateness;
+        this.totalRunTime += runTime;
+        this.runs++;
+    }
+
+    /**
+     * Gets the number of times the task has been run.
+     *
+     * @return The number of runs
+     */
+    public long getRuns() {
+        return this.runs;
+    }
+
+    /**
+     * Gets the time the last run waited behind other tasks.
+     *
+     * @param unit The unit to return the time in
+     * @return The queue time of the last run
+     */
+    public long getLastQueueTime(TimeUnit unit) {
+        return unit.convert(this.lastQueueTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the time all runs together waited behind other tasks.
+     *
+     * @param unit The unit to return the time in
+     * @return The total queue time
+     */
+    public long getTotalQueueTime(TimeUnit unit) {
+        return unit.convert(this.totalQueueTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets how late the last run was started.
+     *
+     * @param unit The unit to return the time in
+     * @return The lateness of the last run
+     */
+    public long getLastLateness(TimeUnit unit) {
+        return unit.convert(this.lastLateness, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the largest lateness of any run.
+     *
+     * @param unit The unit to return the time in
+     * @return The largest lateness
+     */
+    public long getMaxLateness(TimeUnit unit) {
+        return unit.convert(this.maxLateness, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets how late runs were started on average.
+     *
+     * @param unit The unit to return the time in
+     * @return The mean lateness, zero if the task has not run yet
+     */
+    public long getMeanLateness(TimeUnit unit) {
+        return mean(this.totalLateness, unit);
+    }
+
+    /**
+     * Gets the time the last run took.
+     *
+     * @param unit The unit to return the time in
+     * @return The run time of the last run
+     */
+    public long getLastRunTime(TimeUnit unit) {
+        return unit.convert(this.lastRunTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the time the longest run took.
+     *
+     * @param unit The unit to return the time in
+     * @return The largest run time
+     */
+    public long getMaxRunTime(TimeUnit unit) {
+        return unit.convert(this.maxRunTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the time runs took on average.
+     *
+     * @param unit The unit to return the time in
+     * @return The mean run time, zero if the task has not run yet
+     */
+    public long getMeanRunTime(TimeUnit unit) {
+        return mean(this.totalRunTime, unit);
+    }
+
+    /**
+     * Gets the time all runs together took.
+     *
+     * @param unit The unit to return the time in
+     * @return The total run time
+     */
+    public long getTotalRunTime(TimeUnit unit) {
+        return unit.convert(this.totalRunTime, TimeUnit.NANOSECONDS);
+    }
+
+    private long mean(long total, TimeUnit unit) {
+        long runs = this.runs;
+        return runs == 0 ? 0 : unit.convert(total / runs, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("runs", this.runs)
+                .add("lastQueueTime", this.lastQueueTime)
+                .add("lastLateness", this.lastLateness)
+                .add("lastRunTime", this.lastRunTime)
+                .add("maxLateness", this.maxLateness)
+                .add("maxRunTime", this.maxRunTime)
+                .add("totalQueueTime", this.totalQueueTime)
+                .add("totalLateness", this.totalLateness)
+                .add("totalRunTime", this.totalRunTime)
+                .toString();
+    }
+
+}
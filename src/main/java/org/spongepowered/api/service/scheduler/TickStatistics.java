@@ -0,0 +1,122 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import com.google.common.base.Objects;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of how the ticks of a {@link SimpleSynchronousScheduler}
+ * compared to its time budget.
+ */
+public final class TickStatistics {
+
+    private final long ticks;
+    private final long overrunTicks;
+    private final long lastTickTime;
+    private final long maxOverrun;
+    private final long totalOverrun;
+    private final int pendingDeferred;
+
+    TickStatistics(long ticks, long overrunTicks, long lastTickTime, long maxOverrun, long totalOverrun, int pendingDeferred) {
+        this.ticks = ticks;
+        this.overrunTicks = overrunTicks;
+        this.lastTickTime = lastTickTime;
+        this.maxOverrun = maxOverrun;
+        this.totalOverrun = totalOverrun;
+        this.pendingDeferred = pendingDeferred;
+    }
+
+    /**
+     * Gets the number of ticks processed.
+     *
+     * @return The number of ticks
+     */
+    public long getTicks() {
+        return this.ticks;
+    }
+
+    /**
+     * Gets the number of ticks that took longer than the time budget.
+     *
+     * @return The number of overrun ticks
+     */
+    public long getOverrunTicks() {
+        return this.overrunTicks;
+    }
+
+    /**
+     * Gets the time the last tick spent running tasks.
+     *
+     * @param unit The unit to return the time in
+     * @return The time of the last tick
+     */
+    public long getLastTickTime(TimeUnit unit) {
+        return unit.convert(this.lastTickTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the largest amount of time a tick went over the time budget by.
+     *
+     * @param unit The unit to return the time in
+     * @return The largest overrun
+     */
+    public long getMaxOverrun(TimeUnit unit) {
+        return unit.convert(this.maxOverrun, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the total amount of time ticks went over the time budget by.
+     *
+     * @param unit The unit to return the time in
+     * @return The total overrun
+     */
+    public long getTotalOverrun(TimeUnit unit) {
+        return unit.convert(this.totalOverrun, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the number of deferred task runs carried over to the next tick.
+     *
+     * @return The number of pending deferred runs
+     */
+    public int getPendingDeferred() {
+        return this.pendingDeferred;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("ticks", this.ticks)
+                .add("overrunTicks", this.overrunTicks)
+                .add("lastTickTime", this.lastTickTime)
+                .add("maxOverrun", this.maxOverrun)
+                .add("totalOverrun", this.totalOverrun)
+                .add("pendingDeferred", this.pendingDeferred)
+                .toString();
+    }
+
+}
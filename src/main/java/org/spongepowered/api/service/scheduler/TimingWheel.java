@@ -0,0 +1,248 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+/**
+ * A hierarchical timing wheel keyed by tick.
+ *
+ * <p>The wheel is made of {@link #LEVELS} levels of {@link #SLOTS} slots.
+ * An entry due within 64 ticks sits in the first level, one due within
+ * 4096 ticks in the second, and so on. Whenever the first level wraps
+ * around, the matching slot of the next level is cascaded down, so adding,
+ * removing and advancing are all constant time operations no matter how
+ * many entries are waiting. Deadlines further away than the wheel can
+ * represent are parked in the last level and re-cascaded until due.</p>
+ *
+ * <p>Entries are intrusive list nodes which the owner keeps hold of, which
+ * lets them be rescheduled and removed without any lookup.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @param <T> The type of value held by the entries
+ */
+final class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+
+    private final Entry<?>[] slots = new Entry<?>[LEVELS * SLOTS];
+    private long tick;
+    private int size;
+
+    /**
+     * Creates a new wheel starting at tick zero.
+     */
+    TimingWheel() {
+        for (int i = 0; i < this.slots.length; i++) {
+            Entry<T> head = new Entry<T>(null);
+            head.prev = head;
+            head.next = head;
+            this.slots[i] = head;
+        }
+    }
+
+    /**
+     * Gets the next tick that will be processed by {@link #advance(Collection)}.
+     *
+     * @return The current tick
+     */
+    long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Gets the number of entries waiting in this wheel.
+     *
+     * @return The number of entries
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Adds a new entry to the wheel.
+     *
+     * @param value The value of the entry
+     * @param deadline The tick at which the entry becomes due
+     * @return The entry, for later rescheduling or removal
+     */
+    Entry<T> add(T value, long deadline) {
+        Entry<T> entry = new Entry<T>(checkNotNull(value, "value"));
+        schedule(entry, deadline);
+        return entry;
+    }
+
+    /**
+     * Schedules an entry, moving it if it is already in the wheel.
+     *
+     * <p>A deadline that has already passed makes the entry due on the
+     * next advance.</p>
+     *
+     * @param entry The entry
+     * @param deadline The tick at which the entry becomes due
+     */
+    void schedule(Entry<T> entry, long deadline) {
+        remove(entry);
+        entry.deadline = deadline;
+        link(entry);
+        this.size++;
+    }
+
+    /**
+     * Removes an entry from the wheel.
+     *
+     * @param entry The entry to remove
+     * @return Whether the entry was in the wheel
+     */
+    boolean remove(Entry<T> entry) {
+        if (entry.next == null) {
+            return false;
+        }
+        entry.unlink();
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Processes the current tick, moving the values of every entry due on it
+     * into the given collection, and moves on to the next tick.
+     *
+     * <p>The entries of the returned values are no longer in the wheel, but
+     * can be scheduled again.</p>
+     *
+     * @param due The collection to add due values to
+     */
+    void advance(Collection<? super T> due) {
+        int index = (int) (this.tick & MASK);
+        for (int level = 1; index == 0 && level < LEVELS; level++) {
+            index = (int) ((this.tick >>> (BITS * level)) & MASK);
+            cascade(level, index);
+        }
+        Entry<T> head = head(0, (int) (this.tick & MASK));
+        for (Entry<T> entry = head.next; entry != head; ) {
+            final Entry<T> next = entry.next;
+            entry.unlink();
+            this.size--;
+            due.add(entry.value);
+            entry = next;
+        }
+        this.tick++;
+    }
+
+    private void cascade(int level, int index) {
+        Entry<T> head = head(level, index);
+        Entry<T> entry = head.next;
+        head.prev = head;
+        head.next = head;
+        while (entry != head) {
+            Entry<T> next = entry.next;
+            link(entry);
+            entry = next;
+        }
+    }
+
+    private void link(Entry<T> entry) {
+        long delta = entry.deadline - this.tick;
+        long deadline = entry.deadline;
+        Entry<T> head;
+        if (delta < 0) {
+            head = head(0, (int) (this.tick & MASK));
+        } else if (delta < 1L << BITS) {
+            head = head(0, (int) (deadline & MASK));
+        } else if (delta < 1L << (BITS * 2)) {
+            head = head(1, (int) ((deadline >>> BITS) & MASK));
+        } else if (delta < 1L << (BITS * 3)) {
+            head = head(2, (int) ((deadline >>> (BITS * 2)) & MASK));
+        } else if (delta < 1L << (BITS * 4)) {
+            head = head(3, (int) ((deadline >>> (BITS * 3)) & MASK));
+        } else {
+            if (delta > MAX_DELTA) {
+                deadline = this.tick + MAX_DELTA;
+            }
+            head = head(4, (int) ((deadline >>> (BITS * 4)) & MASK));
+        }
+        entry.prev = head.prev;
+        entry.next = head;
+        head.prev.next = entry;
+        head.prev = entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry<T> head(int level, int index) {
+        return (Entry<T>) this.slots[level * SLOTS + index];
+    }
+
+    /**
+     * An entry of a {@link TimingWheel}.
+     *
+     * @param <T> The type of value held by the entry
+     */
+    static final class Entry<T> {
+
+        @Nullable final T value;
+        long deadline;
+        @Nullable Entry<T> prev;
+        @Nullable Entry<T> next;
+
+        Entry(@Nullable T value) {
+            this.value = value;
+        }
+
+        /**
+         * Gets the tick at which this entry was last scheduled to be due.
+         *
+         * @return The deadline
+         */
+        long getDeadline() {
+            return this.deadline;
+        }
+
+        /**
+         * Gets whether this entry is waiting in a wheel.
+         *
+         * @return Whether the entry is scheduled
+         */
+        boolean isScheduled() {
+            return this.next != null;
+        }
+
+        void unlink() {
+            this.prev.next = this.next;
+            this.next.prev = this.prev;
+            this.prev = null;
+            this.next = null;
+        }
+    }
+
+}
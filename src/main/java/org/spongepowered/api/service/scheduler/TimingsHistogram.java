@@ -0,0 +1,146 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import com.google.common.base.Objects;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of how the run times of tasks were distributed over a recent
+ * window.
+ *
+ * <p>Run times are counted in buckets of which the upper bounds double,
+ * starting at one microsecond. The last bucket has no upper bound.</p>
+ */
+public final class TimingsHistogram {
+
+    private final long[] counts;
+    private final long total;
+    private final long window;
+    private final TimeUnit windowUnit;
+
+    TimingsHistogram(long[] counts, long window, TimeUnit windowUnit) {
+        this.counts = counts;
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        this.total = total;
+        this.window = window;
+        this.windowUnit = windowUnit;
+    }
+
+    /**
+     * Gets the length of the window the run times were recorded in.
+     *
+     * @param unit The unit to return the length in
+     * @return The length of the window
+     */
+    public long getWindow(TimeUnit unit) {
+        return unit.convert(this.window, this.windowUnit);
+    }
+
+    /**
+     * Gets the number of buckets.
+     *
+     * @return The number of buckets
+     */
+    public int getBucketCount() {
+        return this.counts.length;
+    }
+
+    /**
+     * Gets the exclusive upper bound of the run times counted by a bucket.
+     *
+     * @param bucket The index of the bucket
+     * @param unit The unit to return the bound in
+     * @return The upper bound, or {@link Long#MAX_VALUE} for the last bucket
+     */
+    public long getUpperBound(int bucket, TimeUnit unit) {
+        checkElementIndex(bucket, this.counts.length, "bucket");
+        if (bucket == this.counts.length - 1) {
+            return Long.MAX_VALUE;
+        }
+        return unit.convert(1L << bucket, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Gets the number of runs counted by a bucket.
+     *
+     * @param bucket The index of the bucket
+     * @return The number of runs
+     */
+    public long getCount(int bucket) {
+        checkElementIndex(bucket, this.counts.length, "bucket");
+        return this.counts[bucket];
+    }
+
+    /**
+     * Gets the number of runs counted by all buckets.
+     *
+     * @return The number of runs
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Estimates a percentile of the run times, rounded up to the upper bound
+     * of the bucket it falls in.
+     *
+     * @param percentile The percentile, between 0 (exclusive) and 100
+     * @param unit The unit to return the run time in
+     * @return The estimated run time, zero if nothing was counted
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        checkArgument(percentile > 0 && percentile <= 100, "percentile must be in (0, 100]");
+        if (this.total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(this.total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return getUpperBound(i, unit);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("total", this.total)
+                .add("counts", Arrays.toString(this.counts))
+                .toString();
+    }
+
+}
@@ -0,0 +1,677 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.sql;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.api.plugin.PluginContainer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+/**
+ * A pool of connections to a single JDBC URL.
+ *
+ * <p>Connections are handed out as proxies. Closing a proxy returns its
+ * connection to the pool and closes the statements created through it,
+ * after which the proxy can no longer be used. Statements prepared without
+ * any options are cached per connection and reused by later leases.</p>
+ *
+ * <p>Statements and result sets are handed out as proxies as well, so that
+ * their {@code getConnection()} and {@code getStatement()} never expose the
+ * physical connection.</p>
+ *
+ * <p>The stack trace of the code acquiring a connection is only recorded
+ * for leak reports if debug logging is enabled for this class.</p>
+ */
+final class ConnectionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /**
+     * The time a connection may sit idle before it is validated again.
+     */
+    private static final long VALIDATE_AFTER = TimeUnit.SECONDS.toNanos(5);
+    private static final int VALIDATION_TIMEOUT = 2;
+
+    private final String url;
+    private final Properties info;
+    private final int maxConnections;
+    private final int maxConnectionsPerPlugin;
+    private final int statementCacheSize;
+    private final long leakThreshold;
+    private final long idleTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = this.lock.newCondition();
+    private final Deque<Physical> idle = new ArrayDeque<Physical>();
+    private final Set<Lease> leases = Sets.newHashSet();
+    private final Map<PluginContainer, Integer> activeByPlugin = Maps.newHashMap();
+    private int total;
+    private int waiting;
+    private boolean closed;
+
+    private long acquires;
+    private long timeouts;
+    private long leaks;
+    private long totalWait;
+    private long maxWait;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    /**
+     * Creates a new pool. No connection is opened until one is acquired.
+     *
+     * @param url The JDBC URL, without credentials
+     * @param info The connection properties, including the credentials
+     * @param maxConnections The number of connections that may be open at
+     *     once
+     * @param maxConnectionsPerPlugin The number of connections a single
+     *     plugin may hold at once
+     * @param statementCacheSize The number of statements cached per
+     *     connection, zero to disable the cache
+     * @param leakThreshold The time in nanoseconds after which a connection
+     *     that has not been returned is reported, zero to disable reports
+     * @param idleTimeout The time in nanoseconds after which an idle
+     *     connection is closed
+     */
+    ConnectionPool(String url, Properties info, int maxConnections, int maxConnectionsPerPlugin, int statementCacheSize,
+            long leakThreshold, long idleTimeout) {
+        this.url = url;
+        this.info = info;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerPlugin = maxConnectionsPerPlugin;
+        this.statementCacheSize = statementCacheSize;
+        this.leakThreshold = leakThreshold;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Acquires a connection, waiting for one to be returned if the pool or
+     * the plugin is at its limit.
+     *
+     * @param owner The plugin to acquire the connection for, or null to
+     *     only be bound by the pool limit
+     * @param timeout The time in nanoseconds to wait at most
+     * @return The connection
+     * @throws SQLException If no connection became available in time or
+     *     opening one failed
+     */
+    Connection acquire(@Nullable PluginContainer owner, long timeout) throws SQLException {
+        final long start = System.nanoTime();
+        Physical physical = null;
+        this.lock.lock();
+        try {
+            long remaining = timeout;
+            while (true) {
+                if (this.closed) {
+                    throw new SQLNonTransientConnectionException("The connection pool for " + this.url + " is closed");
+                }
+                if (owner == null || active(owner) < this.maxConnectionsPerPlugin) {
+                    physical = this.idle.pollFirst();
+                    if (physical != null || this.total < this.maxConnections) {
+                        break;
+                    }
+                }
+                if (remaining <= 0) {
+                    this.timeouts++;
+                    throw new SQLTransientConnectionException("Timed out waiting for a connection to " + this.url);
+                }
+                this.waiting++;
+                try {
+                    remaining = this.released.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLTransientConnectionException("Interrupted while waiting for a connection to " + this.url, e);
+                } finally {
+                    this.waiting--;
+                }
+            }
+            if (physical == null) {
+                this.total++;
+            }
+            if (owner != null) {
+                this.activeByPlugin.put(owner, active(owner) + 1);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        boolean acquired = false;
+        try {
+            if (physical != null && start - physical.returnedAt > VALIDATE_AFTER && !physical.isValid()) {
+                physical.close();
+                physical = null;
+            }
+            if (physical == null) {
+                physical = new Physical(DriverManager.getConnection(this.url, this.info));
+            }
+            acquired = true;
+        } finally {
+            if (!acquired) {
+                discard(owner);
+            }
+        }
+
+        Lease lease = new Lease(physical, owner, start);
+        long wait = System.nanoTime() - start;
+        this.lock.lock();
+        try {
+            this.leases.add(lease);
+            this.acquires++;
+            this.totalWait += wait;
+            if (wait > this.maxWait) {
+                this.maxWait = wait;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return lease.proxy;
+    }
+
+    private int active(PluginContainer owner) {
+        Integer active = this.activeByPlugin.get(owner);
+        return active == null ? 0 : active;
+    }
+
+    private void deactivate(@Nullable PluginContainer owner) {
+        if (owner != null) {
+            int active = active(owner) - 1;
+            if (active == 0) {
+                this.activeByPlugin.remove(owner);
+            } else {
+                this.activeByPlugin.put(owner, active);
+            }
+        }
+    }
+
+    /**
+     * Gives up the slot of a connection that could not be opened.
+     */
+    private void discard(@Nullable PluginContainer owner) {
+        this.lock.lock();
+        try {
+            this.total--;
+            deactivate(owner);
+            this.released.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void release(Lease lease) {
+        Physical physical = lease.physical;
+        boolean reusable = physical.reset();
+        this.lock.lock();
+        try {
+            this.leases.remove(lease);
+            deactivate(lease.owner);
+            if (reusable && !this.closed) {
+                physical.returnedAt = System.nanoTime();
+                this.idle.addFirst(physical);
+                physical = null;
+            } else {
+                this.total--;
+            }
+            // Waiters may be blocked on either limit, so wake them all
+            this.released.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        if (physical != null) {
+            physical.close();
+        }
+    }
+
+    /**
+     * Reports connections held longer than the leak threshold and closes
+     * connections idle for longer than the idle timeout.
+     *
+     * @param now The current {@link System#nanoTime()}
+     */
+    void sweep(long now) {
+        List<Lease> leaked = Lists.newArrayList();
+        List<Physical> expired = Lists.newArrayList();
+        this.lock.lock();
+        try {
+            if (this.leakThreshold > 0) {
+                for (Lease lease : this.leases) {
+                    if (!lease.reported && now - lease.acquiredAt > this.leakThreshold) {
+                        lease.reported = true;
+                        this.leaks++;
+                        leaked.add(lease);
+                    }
+                }
+            }
+            // The least recently used connections are at the end
+            Iterator<Physical> it = this.idle.descendingIterator();
+            while (it.hasNext()) {
+                Physical physical = it.next();
+                if (now - physical.returnedAt <= this.idleTimeout) {
+                    break;
+                }
+                it.remove();
+                this.total--;
+                expired.add(physical);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        for (Lease lease : leaked) {
+            String message = "A connection to " + this.url + " acquired by " + (lease.owner == null ? "an unknown plugin" : lease.owner.getId())
+                    + " has not been returned after " + TimeUnit.NANOSECONDS.toMillis(now - lease.acquiredAt) + "ms";
+            if (lease.trace != null) {
+                log.warn(message, lease.trace);
+            } else {
+                log.warn(message + ", enable debug logging for " + ConnectionPool.class.getName() + " to see where it was acquired");
+            }
+        }
+        for (Physical physical : expired) {
+            physical.close();
+        }
+    }
+
+    /**
+     * Closes this pool and all idle connections. Connections still in use
+     * are closed once returned.
+     */
+    void close() {
+        List<Physical> connections;
+        this.lock.lock();
+        try {
+            this.closed = true;
+            connections = Lists.newArrayList(this.idle);
+            this.total -= this.idle.size();
+            this.idle.clear();
+            this.released.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        for (Physical physical : connections) {
+            physical.close();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the state of this pool.
+     *
+     * @return The snapshot
+     */
+    ConnectionPoolStatistics getStatistics() {
+        this.lock.lock();
+        try {
+            ImmutableMap.Builder<String, Integer> byPlugin = ImmutableMap.builder();
+            for (Map.Entry<PluginContainer, Integer> entry : this.activeByPlugin.entrySet()) {
+                byPlugin.put(entry.getKey().getId(), entry.getValue());
+            }
+            return new ConnectionPoolStatistics(this.url, this.maxConnections, this.leases.size(), this.idle.size(), this.waiting,
+                    byPlugin.build(), this.acquires, this.timeouts, this.leaks, this.totalWait, this.maxWait, this.cacheHits.get(),
+                    this.cacheMisses.get());
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private static Object invoke(Object target, Method method, @Nullable Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            log.debug("Failed to close a statement", e);
+        }
+    }
+
+    /**
+     * A physical connection and its statement cache.
+     */
+    private final class Physical {
+
+        final Connection connection;
+        final Map<String, CachedStatement> statements;
+        long returnedAt;
+
+        @SuppressWarnings("serial")
+        Physical(Connection connection) {
+            this.connection = connection;
+            this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() <= ConnectionPool.this.statementCacheSize) {
+                        return false;
+                    }
+                    eldest.getValue().evict();
+                    return true;
+                }
+            };
+        }
+
+        boolean isValid() {
+            try {
+                return this.connection.isValid(VALIDATION_TIMEOUT);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Undoes whatever the last lease left behind.
+         *
+         * @return Whether the connection can be reused
+         */
+        boolean reset() {
+            try {
+                if (this.connection.isClosed()) {
+                    return false;
+                }
+                if (!this.connection.getAutoCommit()) {
+                    this.connection.rollback();
+                    this.connection.setAutoCommit(true);
+                }
+                this.connection.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                log.debug("Failed to reset a connection to " + ConnectionPool.this.url, e);
+                return false;
+            }
+        }
+
+        void close() {
+            try {
+                this.connection.close();
+            } catch (SQLException e) {
+                log.debug("Failed to close a connection to " + ConnectionPool.this.url, e);
+            }
+        }
+    }
+
+    /**
+     * A prepared statement kept open in the cache of a connection.
+     */
+    private static final class CachedStatement {
+
+        final String sql;
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean evicted;
+
+        CachedStatement(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        void evict() {
+            this.evicted = true;
+            if (!this.inUse) {
+                closeQuietly(this.statement);
+            }
+        }
+    }
+
+    /**
+     * A connection handed out by {@link #acquire}.
+     */
+    private final class Lease implements InvocationHandler {
+
+        final Physical physical;
+        @Nullable final PluginContainer owner;
+        final long acquiredAt;
+        @Nullable final Throwable trace;
+        final Connection proxy;
+        private final Set<StatementHandle> handles = Sets.newLinkedHashSet();
+        private volatile boolean closed;
+        boolean reported;
+
+        Lease(Physical physical, @Nullable PluginContainer owner, long acquiredAt) {
+            this.physical = physical;
+            this.owner = owner;
+            this.acquiredAt = acquiredAt;
+            // Capturing a stack trace is too expensive to do on every acquire
+            this.trace = ConnectionPool.this.leakThreshold > 0 && log.isDebugEnabled() ? new Throwable("Connection acquired here") : null;
+            this.proxy = (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] {Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, @Nullable Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                close();
+                return null;
+            } else if (name.equals("isClosed")) {
+                return this.closed;
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (name.equals("toString")) {
+                return "PooledConnection{" + ConnectionPool.this.url + "}";
+            }
+            if (this.closed) {
+                throw new SQLNonTransientConnectionException("The connection has been returned to the pool");
+            }
+            if (name.equals("prepareStatement") && args.length == 1 && ConnectionPool.this.statementCacheSize > 0) {
+                return prepare((String) args[0]);
+            }
+            Object result = ConnectionPool.invoke(this.physical.connection, method, args);
+            if (result instanceof Statement) {
+                return new StatementHandle(this, null, (Statement) result).proxy;
+            }
+            return result;
+        }
+
+        private PreparedStatement prepare(String sql) throws SQLException {
+            CachedStatement cached = this.physical.statements.get(sql);
+            if (cached == null) {
+                ConnectionPool.this.cacheMisses.incrementAndGet();
+                cached = new CachedStatement(sql, this.physical.connection.prepareStatement(sql));
+                this.physical.statements.put(sql, cached);
+            } else if (cached.inUse) {
+                // Already open through this lease, fall back to a statement of its own
+                ConnectionPool.this.cacheMisses.incrementAndGet();
+                return (PreparedStatement) new StatementHandle(this, null, this.physical.connection.prepareStatement(sql)).proxy;
+            } else {
+                ConnectionPool.this.cacheHits.incrementAndGet();
+            }
+            cached.inUse = true;
+            return (PreparedStatement) new StatementHandle(this, cached, cached.statement).proxy;
+        }
+
+        private void close() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            for (StatementHandle handle : Lists.newArrayList(this.handles)) {
+                handle.close();
+            }
+            release(this);
+        }
+    }
+
+    /**
+     * A statement handed out to a lease, either cached or of its own.
+     *
+     * <p>A handle stays tracked by its lease until closed, and tracks the
+     * result sets it returned until they are closed or the statement is
+     * executed again, which closes them.</p>
+     */
+    private static final class StatementHandle implements InvocationHandler {
+
+        private final Lease lease;
+        @Nullable private final CachedStatement cached;
+        private final Statement statement;
+        private final Set<ResultSetHandle> results = Sets.newLinkedHashSet();
+        final Statement proxy;
+        private boolean closed;
+
+        StatementHandle(Lease lease, @Nullable CachedStatement cached, Statement statement) {
+            this.lease = lease;
+            this.cached = cached;
+            this.statement = statement;
+            Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                    : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            this.proxy = (Statement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] {type}, this);
+            lease.handles.add(this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, @Nullable Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                close();
+                return null;
+            } else if (name.equals("isClosed")) {
+                return this.closed;
+            } else if (name.equals("getConnection")) {
+                return this.lease.proxy;
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (name.equals("toString")) {
+                return "PooledStatement{" + this.statement + "}";
+            }
+            if (this.closed) {
+                throw new SQLException("The statement is closed");
+            }
+            if (name.startsWith("execute")) {
+                // Executing closes the current result set
+                this.results.clear();
+            }
+            Object result = ConnectionPool.invoke(this.statement, method, args);
+            if (result instanceof ResultSet) {
+                return new ResultSetHandle(this, (ResultSet) result).proxy;
+            }
+            return result;
+        }
+
+        void close() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.lease.handles.remove(this);
+            if (this.cached == null) {
+                closeQuietly(this.statement);
+                return;
+            }
+            PreparedStatement statement = this.cached.statement;
+            try {
+                for (ResultSetHandle result : Lists.newArrayList(this.results)) {
+                    result.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                // Not safe to hand out again
+                Map<String, CachedStatement> statements = this.lease.physical.statements;
+                if (statements.get(this.cached.sql) == this.cached) {
+                    statements.remove(this.cached.sql);
+                }
+                this.cached.evicted = true;
+            }
+            this.cached.inUse = false;
+            if (this.cached.evicted) {
+                closeQuietly(statement);
+            }
+        }
+    }
+
+    /**
+     * A result set handed out by a {@link StatementHandle}.
+     */
+    private static final class ResultSetHandle implements InvocationHandler {
+
+        private final StatementHandle statement;
+        private final ResultSet result;
+        final ResultSet proxy;
+
+        ResultSetHandle(StatementHandle statement, ResultSet result) {
+            this.statement = statement;
+            this.result = result;
+            this.proxy = (ResultSet) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] {ResultSet.class}, this);
+            statement.results.add(this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, @Nullable Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                close();
+                return null;
+            } else if (name.equals("getStatement")) {
+                return this.statement.proxy;
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (name.equals("toString")) {
+                return "PooledResultSet{" + this.result + "}";
+            }
+            return ConnectionPool.invoke(this.result, method, args);
+        }
+
+        void close() throws SQLException {
+            this.statement.results.remove(this);
+            this.result.close();
+        }
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.sql;
+
+import com.google.common.base.Objects;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the state of a connection pool of a
+ * {@link SimpleSQLService}.
+ */
+public final class ConnectionPoolStatistics {
+
+    private final String url;
+    private final int maxConnections;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int pendingAcquires;
+    private final Map<String, Integer> activeByPlugin;
+    private final long acquires;
+    private final long timeouts;
+    private final long leaks;
+    private final long totalAcquireWait;
+    private final long maxAcquireWait;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    ConnectionPoolStatistics(String url, int maxConnections, int activeConnections, int idleConnections, int pendingAcquires,
+            Map<String, Integer> activeByPlugin, long acquires, long timeouts, long leaks, long totalAcquireWait, long maxAcquireWait,
+            long statementCacheHits, long statementCacheMisses) {
+        this.url = url;
+        this.maxConnections = maxConnections;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.pendingAcquires = pendingAcquires;
+        this.activeByPlugin = activeByPlugin;
+        this.acquires = acquires;
+        this.timeouts = timeouts;
+        this.leaks = leaks;
+        this.totalAcquireWait = totalAcquireWait;
+        this.maxAcquireWait = maxAcquireWait;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    /**
+     * Gets the JDBC URL of the pool, without credentials.
+     *
+     * @return The JDBC URL
+     */
+    public String getUrl() {
+        return this.url;
+    }
+
+    /**
+     * Gets the number of connections the pool may have open at once.
+     *
+     * @return The maximum number of connections
+     */
+    public int getMaxConnections() {
+        return this.maxConnections;
+    }
+
+    /**
+     * Gets the number of connections currently in use.
+     *
+     * @return The number of active connections
+     */
+    public int getActiveConnections() {
+        return this.activeConnections;
+    }
+
+    /**
+     * Gets the number of open connections waiting to be used.
+     *
+     * @return The number of idle connections
+     */
+    public int getIdleConnections() {
+        return this.idleConnections;
+    }
+
+    /**
+     * Gets the number of threads waiting for a connection.
+     *
+     * @return The number of pending acquires
+     */
+    public int getPendingAcquires() {
+        return this.pendingAcquires;
+    }
+
+    /**
+     * Gets the number of connections in use by each plugin, by plugin id.
+     * Connections acquired without a plugin are not included.
+     *
+     * @return The active connections of each plugin
+     */
+    public Map<String, Integer> getActiveConnectionsByPlugin() {
+        return this.activeByPlugin;
+    }
+
+    /**
+     * Gets the number of connections handed out.
+     *
+     * @return The number of acquires
+     */
+    public long getAcquires() {
+        return this.acquires;
+    }
+
+    /**
+     * Gets the number of acquires that gave up waiting for a connection.
+     *
+     * @return The number of timeouts
+     */
+    public long getTimeouts() {
+        return this.timeouts;
+    }
+
+    /**
+     * Gets the number of connections that were held for longer than the
+     * leak threshold.
+     *
+     * @return The number of leaks reported
+     */
+    public long getLeaks() {
+        return this.leaks;
+    }
+
+    /**
+     * Gets the time all acquires together waited for a connection.
+     *
+     * @param unit The unit to return the time in
+     * @return The total acquire wait
+     */
+    public long getTotalAcquireWait(TimeUnit unit) {
+        return unit.convert(this.totalAcquireWait, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the time acquires waited for a connection on average.
+     *
+     * @param unit The unit to return the time in
+     * @return The mean acquire wait, zero if nothing was acquired yet
+     */
+    public long getMeanAcquireWait(TimeUnit unit) {
+        return this.acquires == 0 ? 0 : unit.convert(this.totalAcquireWait / this.acquires, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the longest time an acquire waited for a connection.
+     *
+     * @param unit The unit to return the time in
+     * @return The largest acquire wait
+     */
+    public long getMaxAcquireWait(TimeUnit unit) {
+        return unit.convert(this.maxAcquireWait, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the number of prepared statements that were reused from the
+     * statement cache.
+     *
+     * @return The number of cache hits
+     */
+    public long getStatementCacheHits() {
+        return this.statementCacheHits;
+    }
+
+    /**
+     * Gets the number of prepared statements that had to be prepared by the
+     * database.
+     *
+     * @return The number of cache misses
+     */
+    public long getStatementCacheMisses() {
+        return this.statementCacheMisses;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("url", this.url)
+                .add("maxConnections", this.maxConnections)
+                .add("activeConnections", this.activeConnections)
+                .add("idleConnections", this.idleConnections)
+                .add("pendingAcquires", this.pendingAcquires)
+                .add("activeByPlugin", this.activeByPlugin)
+                .add("acquires", this.acquires)
+                .add("timeouts", this.timeouts)
+                .add("leaks", this.leaks)
+                .add("totalAcquireWait", this.totalAcquireWait)
+                .add("maxAcquireWait", this.maxAcquireWait)
+                .add("statementCacheHits", this.statementCacheHits)
+                .add("statementCacheMisses", this.statementCacheMisses)
+                .toString();
+    }
+
+}
@@ -0,0 +1,432 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.sql;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.api.service.scheduler.SynchronousScheduler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.sql.DataSource;
+
+/**
+ * Runs statements against a {@link DataSource} off the main thread.
+ *
+ * <p>Every method returns immediately with a future of the result. Use
+ * {@link #callback(ListenableFuture, FutureCallback)} to have the result
+ * handed back on the main thread, where it is safe to touch the game.</p>
+ *
+ * <p>To write many rows at once, such as the statistics gathered during a
+ * tick, use {@link #batch(String, Iterable, Binder)} or a
+ * {@link BatchWriter}, which send all rows to the database in a single
+ * batch within one transaction.</p>
+ */
+public class QueryExecutor {
+
+    public static final int DEFAULT_THREADS = 2;
+
+    private final DataSource dataSource;
+    private final ListeningExecutorService executor;
+    private static final Logger log = LoggerFactory.getLogger(QueryExecutor.class);
+    private final Executor mainThread;
+
+    /**
+     * Creates a new executor with {@link #DEFAULT_THREADS} threads.
+     *
+     * @param plugin The plugin to run the callbacks for
+     * @param dataSource The data source to get connections from
+     * @param scheduler The scheduler to run callbacks on the main thread with
+     */
+    public QueryExecutor(Object plugin, DataSource dataSource, SynchronousScheduler scheduler) {
+        this(plugin, dataSource, scheduler, DEFAULT_THREADS);
+    }
+
+    /**
+     * Creates a new executor.
+     *
+     * @param plugin The plugin to run the callbacks for
+     * @param dataSource The data source to get connections from
+     * @param scheduler The scheduler to run callbacks on the main thread with
+     * @param threads The number of statements to run at once
+     */
+    public QueryExecutor(final Object plugin, DataSource dataSource, final SynchronousScheduler scheduler, int threads) {
+        checkNotNull(plugin, "plugin");
+        checkNotNull(scheduler, "scheduler");
+        checkArgument(threads > 0, "threads must be positive");
+        this.dataSource = checkNotNull(dataSource, "dataSource");
+        this.executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("Sponge-SQL-Query-%d")
+                .setDaemon(true)
+                .build()));
+        this.mainThread = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                if (!scheduler.runTask(plugin, command).isPresent()) {
+                    // Futures swallow exceptions thrown by their listener
+                    // executors, so the dropped task would go unnoticed
+                    RejectedExecutionException e = new RejectedExecutionException("Could not schedule a task for " + plugin);
+                    log.error("A main thread task of " + plugin + " was dropped", e);
+                    throw e;
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets an executor running everything passed to it as a task on the
+     * main thread.
+     *
+     * @return The main thread executor
+     */
+    public Executor getMainThreadExecutor() {
+        return this.mainThread;
+    }
+
+    /**
+     * Runs a callback on the main thread once a future completes.
+     *
+     * @param future The future to wait for
+     * @param callback The callback to run
+     * @param <T> The type of the result
+     */
+    public <T> void callback(ListenableFuture<T> future, FutureCallback<? super T> callback) {
+        Futures.addCallback(future, callback, this.mainThread);
+    }
+
+    /**
+     * Runs a query.
+     *
+     * @param sql The query
+     * @param handler The handler to read the results with
+     * @param parameters The parameters of the query
+     * @param <T> The type of the result
+     * @return The future of what the handler returned
+     */
+    public <T> ListenableFuture<T> query(final String sql, final ResultHandler<T> handler, Object... parameters) {
+        checkNotNull(sql, "sql");
+        checkNotNull(handler, "handler");
+        final Object[] params = parameters.clone();
+        return submit(new ConnectionCallback<T>() {
+            @Override
+            public T call(Connection connection) throws SQLException {
+                PreparedStatement statement = prepare(connection, sql, params);
+                try {
+                    ResultSet results = statement.executeQuery();
+                    try {
+                        return handler.handle(results);
+                    } finally {
+                        results.close();
+                    }
+                } finally {
+                    statement.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs an update.
+     *
+     * @param sql The statement
+     * @param parameters The parameters of the statement
+     * @return The future of the number of updated rows
+     */
+    public ListenableFuture<Integer> update(final String sql, Object... parameters) {
+        checkNotNull(sql, "sql");
+        final Object[] params = parameters.clone();
+        return submit(new ConnectionCallback<Integer>() {
+            @Override
+            public Integer call(Connection connection) throws SQLException {
+                PreparedStatement statement = prepare(connection, sql, params);
+                try {
+                    return statement.executeUpdate();
+                } finally {
+                    statement.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a statement once for each row, sending all rows in a single
+     * batch within one transaction.
+     *
+     * @param sql The statement
+     * @param rows The rows, copied before this method returns
+     * @param binder The binder setting the parameters of each row
+     * @param <T> The type of the rows
+     * @return The future of the update counts of the rows
+     */
+    public <T> ListenableFuture<int[]> batch(final String sql, Iterable<? extends T> rows, final Binder<? super T> binder) {
+        checkNotNull(sql, "sql");
+        checkNotNull(binder, "binder");
+        final List<T> copy = ImmutableList.copyOf(rows);
+        return transaction(new ConnectionCallback<int[]>() {
+            @Override
+            public int[] call(Connection connection) throws SQLException {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                try {
+                    for (T row : copy) {
+                        binder.bind(statement, row);
+                        statement.addBatch();
+                    }
+                    return statement.executeBatch();
+                } finally {
+                    statement.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a callback with a connection.
+     *
+     * @param callback The callback
+     * @param <T> The type of the result
+     * @return The future of what the callback returned
+     */
+    public <T> ListenableFuture<T> submit(final ConnectionCallback<T> callback) {
+        checkNotNull(callback, "callback");
+        return this.executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws SQLException {
+                Connection connection = QueryExecutor.this.dataSource.getConnection();
+                try {
+                    return callback.call(connection);
+                } finally {
+                    connection.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a callback with a connection within a transaction, which is
+     * committed if the callback returns normally and rolled back otherwise.
+     *
+     * @param callback The callback
+     * @param <T> The type of the result
+     * @return The future of what the callback returned
+     */
+    public <T> ListenableFuture<T> transaction(final ConnectionCallback<T> callback) {
+        checkNotNull(callback, "callback");
+        return submit(new ConnectionCallback<T>() {
+            @Override
+            public T call(Connection connection) throws SQLException {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                boolean committed = false;
+                try {
+                    final T result = callback.call(connection);
+                    connection.commit();
+                    committed = true;
+                    connection.setAutoCommit(autoCommit);
+                    return result;
+                } finally {
+                    if (!committed) {
+                        rollback(connection, autoCommit);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Rolls back a failed transaction without letting a failure to do so
+     * replace the failure that caused the rollback.
+     */
+    private static void rollback(Connection connection, boolean autoCommit) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            log.warn("Failed to roll back a transaction", e);
+        }
+        try {
+            connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            log.warn("Failed to restore the auto-commit mode after a rollback", e);
+        }
+    }
+
+    /**
+     * Creates a writer collecting rows to be written in a single batch.
+     *
+     * @param sql The statement to run for each row
+     * @param binder The binder setting the parameters of each row
+     * @param <T> The type of the rows
+     * @return The writer
+     */
+    public <T> BatchWriter<T> newBatchWriter(String sql, Binder<? super T> binder) {
+        return new BatchWriter<T>(checkNotNull(sql, "sql"), checkNotNull(binder, "binder"));
+    }
+
+    /**
+     * Stops running statements. Statements already submitted still run.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    private static PreparedStatement prepare(Connection connection, String sql, Object[] parameters) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        try {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
+    /**
+     * Does something with a connection. The connection is closed
+     * afterwards.
+     *
+     * @param <T> The type of the result
+     */
+    public interface ConnectionCallback<T> {
+
+        /**
+         * Does something with a connection.
+         *
+         * @param connection The connection
+         * @return The result
+         * @throws SQLException If a database access error occurs
+         */
+        T call(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Reads the results of a query. The result set is closed afterwards.
+     *
+     * @param <T> The type of the result
+     */
+    public interface ResultHandler<T> {
+
+        /**
+         * Reads the results of a query.
+         *
+         * @param results The results
+         * @return What was read
+         * @throws SQLException If a database access error occurs
+         */
+        T handle(ResultSet results) throws SQLException;
+    }
+
+    /**
+     * Sets the parameters of a statement for a row.
+     *
+     * @param <T> The type of the rows
+     */
+    public interface Binder<T> {
+
+        /**
+         * Sets the parameters of a statement for a row.
+         *
+         * @param statement The statement
+         * @param row The row
+         * @throws SQLException If a database access error occurs
+         */
+        void bind(PreparedStatement statement, T row) throws SQLException;
+    }
+
+    /**
+     * Collects rows to be written in a single batch, for example during a
+     * tick, and writes them when flushed.
+     *
+     * <p>This class is thread-safe.</p>
+     *
+     * @param <T> The type of the rows
+     */
+    public final class BatchWriter<T> {
+
+        private final String sql;
+        private final Binder<? super T> binder;
+        private List<T> pending = Lists.newArrayList();
+
+        BatchWriter(String sql, Binder<? super T> binder) {
+            this.sql = sql;
+            this.binder = binder;
+        }
+
+        /**
+         * Adds a row to be written with the next flush.
+         *
+         * @param row The row
+         */
+        public synchronized void add(T row) {
+            this.pending.add(checkNotNull(row, "row"));
+        }
+
+        /**
+         * Gets the number of rows waiting to be written.
+         *
+         * @return The number of pending rows
+         */
+        public synchronized int getPending() {
+            return this.pending.size();
+        }
+
+        /**
+         * Writes all pending rows in a single batch.
+         *
+         * @return The future of the update counts of the rows
+         */
+        public ListenableFuture<int[]> flush() {
+            List<T> rows;
+            synchronized (this) {
+                if (this.pending.isEmpty()) {
+                    return Futures.immediateFuture(new int[0]);
+                }
+                rows = this.pending;
+                this.pending = Lists.newArrayListWithCapacity(rows.size());
+            }
+            return batch(this.sql, rows, this.binder);
+        }
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ChannelDispatcherTest {
+
+    private final Object plugin = new Object();
+    private final ChannelBufPool pool = new ChannelBufPool();
+    private final PlayerConnection client = mock(PlayerConnection.class);
+    private final List<Runnable> asyncTasks = Lists.newArrayList();
+    private final Executor executor = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            ChannelDispatcherTest.this.asyncTasks.add(command);
+        }
+
+    };
+    private final FakeTicker ticker = new FakeTicker();
+    private final RecordingListener listener = new RecordingListener();
+    private final ChannelDispatcher dispatcher = new ChannelDispatcher(this.executor, new ChannelMetrics(), this.ticker);
+
+    private PooledChannelBuf payload(int b) {
+        PooledChannelBuf buf = this.pool.allocate();
+        buf.writeByte((byte) b);
+        return buf;
+    }
+
+    @Test
+    public void testNetworkThread() {
+        this.dispatcher.register(this.plugin, this.listener, "fx", ChannelThreading.NETWORK);
+        PooledChannelBuf data = payload(1);
+        assertTrue(this.dispatcher.dispatch(this.client, "fx", data));
+        assertEquals("[fx:1]", this.listener.handled.toString());
+        assertEquals(0, data.refCnt());
+        assertFalse(this.dispatcher.dispatch(this.client, "unknown", payload(2)));
+    }
+
+    @Test
+    public void testMainThread() {
+        this.dispatcher.register(this.plugin, this.listener, "hud", ChannelThreading.MAIN);
+        PooledChannelBuf data = payload(1);
+        this.dispatcher.dispatch(this.client, "hud", data);
+        this.dispatcher.dispatch(this.client, "hud", payload(2));
+        assertTrue(this.listener.handled.isEmpty());
+        assertEquals(2, this.dispatcher.getStatistics("hud").get().getPending());
+        assertEquals(1, data.refCnt());
+
+        this.dispatcher.tick();
+        assertEquals("[hud:1, hud:2]", this.listener.handled.toString());
+        assertEquals(0, data.refCnt());
+        assertEquals(0, this.dispatcher.getStatistics("hud").get().getPending());
+        assertTrue(this.asyncTasks.isEmpty());
+    }
+
+    @Test
+    public void testAsync() {
+        this.dispatcher.register(this.plugin, this.listener, "sync", ChannelThreading.ASYNC);
+        this.dispatcher.dispatch(this.client, "sync", payload(1));
+        this.dispatcher.dispatch(this.client, "sync", payload(2));
+        assertEquals(1, this.asyncTasks.size());
+        this.dispatcher.tick();
+        assertTrue(this.listener.handled.isEmpty());
+
+        this.asyncTasks.remove(0).run();
+        assertEquals("[sync:1, sync:2]", this.listener.handled.toString());
+        this.dispatcher.dispatch(this.client, "sync", payload(3));
+        assertEquals(1, this.asyncTasks.size());
+        this.asyncTasks.remove(0).run();
+        assertEquals("[sync:1, sync:2, sync:3]", this.listener.handled.toString());
+    }
+
+    @Test
+    public void testQueueOverflow() {
+        this.dispatcher.register(this.plugin, this.listener, "hud", ChannelThreading.MAIN);
+        this.dispatcher.setLimits("hud", 2, 0);
+        assertTrue(this.dispatcher.dispatch(this.client, "hud", payload(1)));
+        assertTrue(this.dispatcher.dispatch(this.client, "hud", payload(2)));
+        PooledChannelBuf dropped = payload(3);
+        assertFalse(this.dispatcher.dispatch(this.client, "hud", dropped));
+        assertEquals(0, dropped.refCnt());
+
+        this.dispatcher.tick();
+        assertEquals("[hud:1, hud:2]", this.listener.handled.toString());
+        ChannelDispatchStatistics statistics = this.dispatcher.getStatistics("hud").get();
+        assertEquals(3, statistics.getReceived());
+        assertEquals(2, statistics.getHandled());
+        assertEquals(1, statistics.getOverflowed());
+        assertEquals(1, statistics.getDropped());
+    }
+
+    @Test
+    public void testRejectedAsync() {
+        ChannelDispatcher dispatcher = new ChannelDispatcher(new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+
+        }, new ChannelMetrics(), this.ticker);
+        dispatcher.register(this.plugin, this.listener, "sync", ChannelThreading.ASYNC);
+        PooledChannelBuf data = payload(1);
+        assertFalse(dispatcher.dispatch(this.client, "sync", data));
+        assertEquals(0, data.refCnt());
+        assertFalse(dispatcher.dispatch(this.client, "sync", payload(2)));
+
+        ChannelDispatchStatistics statistics = dispatcher.getStatistics("sync").get();
+        assertEquals(0, statistics.getPending());
+        assertEquals(2, statistics.getOverflowed());
+        assertEquals(2, dispatcher.getMetrics().getChannelStatistics("sync").get().getRejected());
+    }
+
+    @Test
+    public void testRateLimit() {
+        final PlayerConnection other = mock(PlayerConnection.class);
+        this.dispatcher.register(this.plugin, this.listener, "fx", ChannelThreading.NETWORK);
+        this.dispatcher.setLimits("fx", 16, 2);
+        assertTrue(this.dispatcher.dispatch(this.client, "fx", payload(1)));
+        assertTrue(this.dispatcher.dispatch(this.client, "fx", payload(2)));
+        assertFalse(this.dispatcher.dispatch(this.client, "fx", payload(3)));
+        assertTrue(this.dispatcher.dispatch(other, "fx", payload(4)));
+
+        this.ticker.advance(TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(this.dispatcher.dispatch(this.client, "fx", payload(5)));
+        assertFalse(this.dispatcher.dispatch(this.client, "fx", payload(6)));
+        this.ticker.advance(TimeUnit.SECONDS.toNanos(10));
+        assertTrue(this.dispatcher.dispatch(this.client, "fx", payload(7)));
+        assertTrue(this.dispatcher.dispatch(this.client, "fx", payload(8)));
+        assertFalse(this.dispatcher.dispatch(this.client, "fx", payload(9)));
+
+        this.dispatcher.remove(this.client);
+        assertTrue(this.dispatcher.dispatch(this.client, "fx", payload(10)));
+        assertEquals("[fx:1, fx:2, fx:4, fx:5, fx:7, fx:8, fx:10]", this.listener.handled.toString());
+        assertEquals(3, this.dispatcher.getStatistics("fx").get().getRateLimited());
+    }
+
+    @Test
+    public void testListenerFailure() {
+        this.dispatcher.register(this.plugin, new ChannelListener() {
+
+            @Override
+            public void handlePayload(PlayerConnection client, String channel, ChannelBuf data) {
+                throw new IllegalStateException();
+            }
+
+        }, "fx", ChannelThreading.NETWORK);
+        PooledChannelBuf data = payload(1);
+        assertTrue(this.dispatcher.dispatch(this.client, "fx", data));
+        assertEquals(0, data.refCnt());
+        assertEquals(1, this.dispatcher.getStatistics("fx").get().getFailed());
+    }
+
+    @Test
+    public void testRegistration() {
+        this.dispatcher.register(this.plugin, this.listener, "fx", ChannelThreading.NETWORK);
+        try {
+            this.dispatcher.register(this.plugin, this.listener, "fx", ChannelThreading.MAIN);
+            fail();
+        } catch (ChannelRegistrationException expected) {
+        }
+        try {
+            this.dispatcher.setLimits("unknown", 1, 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(Lists.newArrayList("fx"), this.dispatcher.getRegisteredChannels());
+        assertEquals(ChannelThreading.NETWORK, this.dispatcher.getStatistics().get("fx").getThreading());
+        assertFalse(this.dispatcher.getStatistics("unknown").isPresent());
+    }
+
+    private static final class RecordingListener implements ChannelListener {
+
+        final List<String> handled = Lists.newArrayList();
+
+        @Override
+        public void handlePayload(PlayerConnection client, String channel, ChannelBuf data) {
+            this.handled.add(channel + ":" + data.readByte());
+        }
+
+    }
+
+    private static final class FakeTicker extends Ticker {
+
+        private long nanos;
+
+        void advance(long nanos) {
+            this.nanos += nanos;
+        }
+
+        @Override
+        public long read() {
+            return this.nanos;
+        }
+
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+public class ChannelMetricsTest {
+
+    private static final double DELTA = 1e-9;
+
+    private final Object pluginA = new Object();
+    private final Object pluginB = new Object();
+    private final FakeTicker ticker = new FakeTicker();
+    private final ChannelMetrics metrics = new ChannelMetrics(this.ticker);
+
+    @Test
+    public void testCounters() {
+        this.metrics.register("hud", this.pluginA);
+        this.metrics.recordInbound("hud", 10);
+        this.metrics.recordInbound("hud", 5);
+        this.metrics.recordRejected("hud");
+        this.metrics.recordHandled("hud", 300);
+        this.metrics.recordHandled("hud", 100);
+        this.metrics.recordOutbound(this.pluginA, "hud", 7);
+
+        TrafficStatistics hud = this.metrics.getChannelStatistics("hud").get();
+        assertEquals(2, hud.getInboundMessages());
+        assertEquals(15, hud.getInboundBytes());
+        assertEquals(1, hud.getOutboundMessages());
+        assertEquals(7, hud.getOutboundBytes());
+        assertEquals(2, hud.getHandled());
+        assertEquals(400, hud.getHandlerNanos());
+        assertEquals(200, hud.getAverageHandlerNanos());
+        assertEquals(1, hud.getRejected());
+        assertFalse(this.metrics.getChannelStatistics("map").isPresent());
+    }
+
+    @Test
+    public void testUnregistered() {
+        this.metrics.recordInbound("spam1", 100);
+        this.metrics.recordRejected("spam1");
+        this.metrics.recordInbound("spam2", 50);
+        assertEquals(0, this.metrics.getChannelStatistics().size());
+        TrafficStatistics unregistered = this.metrics.getUnregisteredStatistics();
+        assertEquals(2, unregistered.getInboundMessages());
+        assertEquals(150, unregistered.getInboundBytes());
+        assertEquals(1, unregistered.getRejected());
+    }
+
+    @Test
+    public void testPlugins() {
+        this.metrics.register("hud", this.pluginA);
+        this.metrics.recordOutbound(this.pluginA, "map", 10);
+        this.metrics.recordOutbound(this.pluginB, "map", 20);
+        this.metrics.recordOutbound(this.pluginB, "fx", 5);
+        this.metrics.recordInbound("hud", 3);
+
+        Map<Object, TrafficStatistics> plugins = this.metrics.getPluginStatistics();
+        assertEquals(2, plugins.size());
+        assertEquals(30, plugins.get(this.pluginA).getOutboundBytes());
+        assertEquals(3, plugins.get(this.pluginA).getInboundBytes());
+        assertEquals(5, plugins.get(this.pluginB).getOutboundBytes());
+    }
+
+    @Test
+    public void testRatesAndTopChannels() {
+        this.metrics.register("hud", this.pluginA);
+        this.metrics.recordOutbound(this.pluginA, "map", 1000);
+        this.metrics.recordOutbound(this.pluginA, "fx", 1000);
+        this.metrics.sample();
+        assertEquals(0, this.metrics.getChannelStatistics("map").get().getBytesPerSecond(), DELTA);
+
+        this.metrics.recordOutbound(this.pluginA, "map", 4000);
+        this.metrics.recordOutbound(this.pluginA, "fx", 100);
+        this.metrics.recordInbound("hud", 1000);
+        this.metrics.recordInbound("hud", 1000);
+        this.ticker.advance(TimeUnit.SECONDS.toNanos(2));
+        this.metrics.sample();
+
+        Map<String, TrafficStatistics> top = this.metrics.getTopChannels(2);
+        assertEquals(Lists.newArrayList("map", "hud"), Lists.newArrayList(top.keySet()));
+        assertEquals(2000, top.get("map").getOutboundBytesPerSecond(), DELTA);
+        assertEquals(1000, top.get("hud").getInboundBytesPerSecond(), DELTA);
+        assertEquals(1000, top.get("hud").getBytesPerSecond(), DELTA);
+        assertEquals(3, this.metrics.getTopChannels(10).size());
+        assertEquals(2050, this.metrics.getPluginStatistics().get(this.pluginA).getOutboundBytesPerSecond(), DELTA);
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        this.metrics.register("hud", this.pluginA);
+        List<Thread> threads = Lists.newArrayList();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread() {
+
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        ChannelMetricsTest.this.metrics.recordInbound("hud", 2);
+                    }
+                }
+
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80000, this.metrics.getChannelStatistics("hud").get().getInboundMessages());
+        assertEquals(160000, this.metrics.getChannelStatistics("hud").get().getInboundBytes());
+    }
+
+    @Test
+    public void testDispatcherRecording() {
+        ChannelDispatcher dispatcher = new ChannelDispatcher(mock(Executor.class), this.metrics, this.ticker);
+        dispatcher.register(this.pluginA, new ChannelListener() {
+
+            @Override
+            public void handlePayload(PlayerConnection client, String channel, ChannelBuf data) {
+                ChannelMetricsTest.this.ticker.advance(500);
+            }
+
+        }, "fx", ChannelThreading.NETWORK);
+        dispatcher.setLimits("fx", 16, 1);
+        PlayerConnection client = mock(PlayerConnection.class);
+        ChannelBufPool pool = new ChannelBufPool();
+        for (int i = 0; i < 2; i++) {
+            PooledChannelBuf data = pool.allocate();
+            data.writeInteger(i);
+            dispatcher.dispatch(client, "fx", data);
+        }
+        dispatcher.dispatch(client, "unknown", pool.allocate().writeByte((byte) 0));
+
+        TrafficStatistics fx = this.metrics.getChannelStatistics("fx").get();
+        assertEquals(2, fx.getInboundMessages());
+        assertEquals(8, fx.getInboundBytes());
+        assertEquals(1, fx.getHandled());
+        assertEquals(500, fx.getHandlerNanos());
+        assertEquals(1, fx.getRejected());
+        assertEquals(1, this.metrics.getUnregisteredStatistics().getRejected());
+        assertEquals(this.pluginA, this.metrics.getPluginStatistics().keySet().iterator().next());
+    }
+
+    private static final class FakeTicker extends Ticker {
+
+        private long nanos;
+
+        void advance(long nanos) {
+            this.nanos += nanos;
+        }
+
+        @Override
+        public long read() {
+            return this.nanos;
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+
+public class PayloadBatcherTest {
+
+    private final Object plugin = new Object();
+    private final ChannelBufPool pool = new ChannelBufPool();
+    private final List<String> sent = Lists.newArrayList();
+    private final PlayerConnection connection = mock(PlayerConnection.class);
+
+    @Before
+    public void setUp() {
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ChannelBuf data = ((ChannelBuf) invocation.getArguments()[2]).slice();
+                StringBuilder payload = new StringBuilder((String) invocation.getArguments()[1]).append(':');
+                while (data.available() > 0) {
+                    payload.append(data.readByte());
+                }
+                PayloadBatcherTest.this.sent.add(payload.toString());
+                ((PooledChannelBuf) data).release();
+                return null;
+            }
+
+        }).when(this.connection).sendCustomPayload(any(), anyString(), any(ChannelBuf.class));
+    }
+
+    private PooledChannelBuf payload(int... bytes) {
+        PooledChannelBuf buf = this.pool.allocate();
+        for (int b : bytes) {
+            buf.writeByte((byte) b);
+        }
+        return buf;
+    }
+
+    @Test
+    public void testCoalescing() {
+        PayloadBatcher batcher = new PayloadBatcher(this.connection, this.pool);
+        batcher.send(this.plugin, "hud", "health", payload(1));
+        batcher.send(this.plugin, "hud", "mana", payload(2));
+        batcher.send(this.plugin, "hud", "health", payload(3));
+        batcher.send(this.plugin, "chat", payload(4));
+        batcher.send(this.plugin, "chat", payload(5));
+        assertEquals(4, batcher.getPending());
+        assertTrue(this.sent.isEmpty());
+
+        batcher.flush();
+        assertEquals(Lists.newArrayList("hud:3", "hud:2", "chat:4", "chat:5"), this.sent);
+        assertEquals(0, batcher.getPending());
+
+        PayloadBatchStatistics hud = batcher.getStatistics("hud").get();
+        assertEquals(3, hud.getQueuedPayloads());
+        assertEquals(2, hud.getSentPackets());
+        assertEquals(1, hud.getSavedPackets());
+        assertEquals(1, hud.getSavedBytes());
+        assertEquals(1, hud.getCoalesced());
+        assertEquals(0, batcher.getStatistics("chat").get().getSavedPackets());
+        assertFalse(batcher.getStatistics("other").isPresent());
+
+        batcher.flush();
+        assertEquals(4, this.sent.size());
+    }
+
+    @Test
+    public void testBundling() {
+        PayloadBatcher batcher = new PayloadBatcher(this.connection, this.pool);
+        batcher.setBundled("map", true);
+        batcher.send(this.plugin, "map", payload(1, 2));
+        batcher.send(this.plugin, "other", payload(9));
+        batcher.send(this.plugin, "map", payload(3));
+        batcher.flush();
+        assertEquals(Lists.newArrayList("other:9", "map:21213"), this.sent);
+
+        PayloadBatchStatistics map = batcher.getStatistics("map").get();
+        assertEquals(1, map.getSentPackets());
+        assertEquals(1, map.getSavedPackets());
+        assertEquals(-2, map.getSavedBytes());
+
+        PooledChannelBuf bundle = payload(2, 1, 2, 1, 3);
+        List<ChannelBuf> payloads = PayloadBatcher.readBundle(bundle);
+        assertEquals(2, payloads.size());
+        assertEquals(2, payloads.get(0).available());
+        assertEquals(3, payloads.get(1).readByte());
+        bundle.release();
+    }
+
+    @Test
+    public void testBuffersAreReleased() {
+        PayloadBatcher batcher = new PayloadBatcher(this.connection, this.pool);
+        PooledChannelBuf replaced = payload(1);
+        PooledChannelBuf sent = payload(2);
+        batcher.send(this.plugin, "hud", "key", replaced);
+        assertEquals(1, replaced.refCnt());
+        batcher.send(this.plugin, "hud", "key", sent);
+        assertEquals(0, replaced.refCnt());
+        batcher.flush();
+        assertEquals(0, sent.refCnt());
+        PooledChannelBuf discarded = payload(3);
+        assertTrue(batcher.send(this.plugin, "hud", discarded));
+        batcher.discard();
+        assertEquals(0, discarded.refCnt());
+
+        // A discarded batcher rejects and releases later payloads
+        PooledChannelBuf rejected = payload(4);
+        assertFalse(batcher.send(this.plugin, "hud", "key", rejected));
+        assertEquals(0, rejected.refCnt());
+        assertEquals(0, batcher.getPending());
+        batcher.flush();
+        assertEquals(Lists.newArrayList("hud:2"), this.sent);
+    }
+
+    @Test
+    public void testFailedBundleReleasesTheRest() {
+        PlayerConnection broken = mock(PlayerConnection.class);
+        IllegalStateException failure = new IllegalStateException();
+        doThrow(failure).when(broken).sendCustomPayload(any(), anyString(), any(ChannelBuf.class));
+        PayloadBatcher batcher = new PayloadBatcher(broken, this.pool);
+        batcher.setBundled("map", true);
+        batcher.setBundled("sound", true);
+        List<PooledChannelBuf> payloads = Lists.newArrayList(payload(1), payload(2), payload(3), payload(4));
+        batcher.send(this.plugin, "chat", payloads.get(0));
+        batcher.send(this.plugin, "map", payloads.get(1));
+        batcher.send(this.plugin, "sound", payloads.get(2));
+        batcher.send(this.plugin, "sound", payloads.get(3));
+        try {
+            batcher.flush();
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        for (PooledChannelBuf payload : payloads) {
+            assertEquals(0, payload.refCnt());
+        }
+        assertEquals(0, batcher.getPending());
+    }
+
+    @Test
+    public void testBatchers() {
+        PayloadBatchers batchers = new PayloadBatchers(this.pool);
+        batchers.setBundled("map", true);
+        PayloadBatcher batcher = batchers.get(this.connection);
+        assertEquals(batcher, batchers.get(this.connection));
+        batcher.send(this.plugin, "map", payload(1));
+        batcher.send(this.plugin, "map", payload(2));
+        PlayerConnection other = mock(PlayerConnection.class);
+        batchers.get(other).send(this.plugin, "map", payload(3));
+        batchers.flush();
+        assertEquals(Lists.newArrayList("map:1112"), this.sent);
+
+        batchers.remove(other);
+        PayloadBatchStatistics map = batchers.getStatistics().get("map");
+        assertEquals(3, map.getQueuedPayloads());
+        assertEquals(2, map.getSentPackets());
+    }
+
+    @Test
+    public void testFailingBatcherDoesNotStopFlush() {
+        PayloadBatchers batchers = new PayloadBatchers(this.pool);
+        PlayerConnection broken = mock(PlayerConnection.class);
+        doThrow(new IllegalStateException()).when(broken).sendCustomPayload(any(), anyString(), any(ChannelBuf.class));
+        PooledChannelBuf unsent = payload(1);
+        batchers.get(broken).send(this.plugin, "hud", unsent);
+        batchers.get(this.connection).send(this.plugin, "hud", payload(2));
+        batchers.flush();
+        assertEquals(Lists.newArrayList("hud:2"), this.sent);
+        assertEquals(0, unsent.refCnt());
+    }
+
+}
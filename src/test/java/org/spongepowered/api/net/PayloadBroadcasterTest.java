@@ -0,0 +1,200 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.spongepowered.api.entity.player.Player;
+import org.spongepowered.api.world.World;
+
+import java.nio.ReadOnlyBufferException;
+import java.util.List;
+
+public class PayloadBroadcasterTest {
+
+    private final Object plugin = new Object();
+    private final ChannelBufPool pool = new ChannelBufPool();
+    private final List<ChannelBuf> received = Lists.newArrayList();
+
+    private Player player(String name, World world) {
+        Player player = mock(Player.class);
+        PlayerConnection connection = mock(PlayerConnection.class);
+        when(player.getName()).thenReturn(name);
+        when(player.getWorld()).thenReturn(world);
+        when(player.getConnection()).thenReturn(connection);
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ChannelBuf data = (ChannelBuf) invocation.getArguments()[2];
+                assertTrue(((PooledChannelBuf) data).refCnt() > 0);
+                PayloadBroadcasterTest.this.received.add(data);
+                return null;
+            }
+
+        }).when(connection).sendCustomPayload(any(), anyString(), any(ChannelBuf.class));
+        return player;
+    }
+
+    @Test
+    public void testSharedEncoding() {
+        final PayloadBroadcaster broadcaster = new PayloadBroadcaster(this.pool);
+        PooledChannelBuf data = this.pool.allocate();
+        data.writeInteger(42);
+        data.readByte();
+        List<Player> players = Lists.newArrayList();
+        for (int i = 0; i < 16; i++) {
+            players.add(player("p" + i, null));
+        }
+        long allocated = this.pool.getAllocated();
+
+        assertEquals(16, broadcaster.broadcast(this.plugin, "map", data, players));
+        assertEquals(allocated, this.pool.getAllocated());
+        assertEquals(16, this.received.size());
+        PooledChannelBuf shared = (PooledChannelBuf) this.received.get(0);
+        for (ChannelBuf buf : this.received) {
+            assertSame(shared, buf);
+        }
+        assertTrue(shared.isReadOnly());
+        assertEquals(3, shared.available());
+        assertEquals(0, shared.refCnt());
+
+        assertEquals(1, data.refCnt());
+        assertEquals(1, data.readerIndex());
+        assertEquals(42, data.getInteger(0));
+        data.release();
+    }
+
+    @Test
+    public void testReadOnly() {
+        PayloadBroadcaster broadcaster = new PayloadBroadcaster(this.pool);
+        PooledChannelBuf data = this.pool.allocate();
+        data.writeByte((byte) 1);
+        broadcaster.broadcast(this.plugin, "map", data, ImmutableList.of(player("a", null)));
+        data.release();
+
+        PooledChannelBuf other = this.pool.allocate();
+        other.writeByte((byte) 2);
+        PooledChannelBuf slice = other.readOnlySlice();
+        try {
+            slice.writeByte((byte) 3);
+            fail();
+        } catch (ReadOnlyBufferException expected) {
+        }
+        try {
+            slice.setByte(0, (byte) 3);
+            fail();
+        } catch (ReadOnlyBufferException expected) {
+        }
+        assertEquals(2, slice.getByte(0));
+        assertTrue(slice.slice().isReadOnly());
+        slice.release();
+        other.release();
+    }
+
+    @Test
+    public void testUnpooledPayload() {
+        final PayloadBroadcaster broadcaster = new PayloadBroadcaster(this.pool);
+        ChannelBuf data = mock(ChannelBuf.class);
+        ChannelBuf view = mock(ChannelBuf.class);
+        when(data.available()).thenReturn(2);
+        when(data.slice()).thenReturn(view);
+        doAnswer(new Answer<ChannelBuf>() {
+
+            @Override
+            public ChannelBuf answer(InvocationOnMock invocation) throws Throwable {
+                byte[] bytes = (byte[]) invocation.getArguments()[0];
+                bytes[0] = 7;
+                bytes[1] = 8;
+                return null;
+            }
+
+        }).when(view).readBytes(any(byte[].class));
+
+        assertEquals(2, broadcaster.broadcast(this.plugin, "map", data, ImmutableList.of(player("a", null), player("b", null))));
+        PooledChannelBuf shared = (PooledChannelBuf) this.received.get(0);
+        assertSame(shared, this.received.get(1));
+        assertEquals(0, shared.refCnt());
+        assertEquals(1, this.pool.getAllocated());
+    }
+
+    @Test
+    public void testFilters() {
+        PayloadBroadcaster broadcaster = new PayloadBroadcaster(this.pool);
+        World overworld = mock(World.class);
+        World nether = mock(World.class);
+        List<Player> players = ImmutableList.of(player("a", overworld), player("b", nether), player("c", overworld));
+        PooledChannelBuf data = this.pool.allocate();
+        data.writeByte((byte) 1);
+
+        assertEquals(2, broadcaster.broadcast(this.plugin, "map", data, players, PayloadBroadcaster.inWorld(overworld)));
+        assertEquals(1, broadcaster.broadcast(this.plugin, "map", data, players, new Predicate<Player>() {
+
+            @Override
+            public boolean apply(Player input) {
+                return input.getName().equals("b");
+            }
+
+        }));
+        assertEquals(3, this.received.size());
+        assertEquals(1, data.refCnt());
+        data.release();
+    }
+
+    @Test
+    public void testFailureContinues() {
+        final PayloadBroadcaster broadcaster = new PayloadBroadcaster(this.pool);
+        Player broken = player("a", null);
+        PlayerConnection connection = broken.getConnection();
+        doThrow(new IllegalStateException()).when(connection).sendCustomPayload(any(), anyString(), any(ChannelBuf.class));
+        PooledChannelBuf data = this.pool.allocate();
+        data.writeByte((byte) 1);
+        try {
+            broadcaster.broadcast(this.plugin, "map", data, ImmutableList.of(broken, player("b", null)));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(1, this.received.size());
+        assertEquals(0, ((PooledChannelBuf) this.received.get(0)).refCnt());
+        assertEquals(1, data.refCnt());
+        data.release();
+    }
+
+}
@@ -0,0 +1,397 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.net;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Bytes;
+import org.junit.Test;
+import org.spongepowered.api.service.persistence.data.DataQuery;
+import org.spongepowered.api.service.persistence.data.DataView;
+import org.spongepowered.api.service.persistence.data.MemoryDataContainer;
+import org.spongepowered.api.service.persistence.data.MemoryDataView;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.UUID;
+
+public class PooledChannelBufTest {
+
+    private final ChannelBufPool pool = new ChannelBufPool(1024, 4);
+
+    @Test
+    public void testPrimitives() {
+        PooledChannelBuf buf = this.pool.allocate();
+        UUID uuid = UUID.randomUUID();
+        buf.writeBoolean(true).writeByte((byte) -3).writeShort((short) 300).writeChar('x').writeInteger(-7).writeLong(1L << 40)
+                .writeFloat(1.5f).writeDouble(-2.25).writeString("héllo").writeUuid(uuid);
+
+        assertTrue(buf.readBoolean());
+        assertEquals(-3, buf.readByte());
+        assertEquals(300, buf.readShort());
+        assertEquals('x', buf.readChar());
+        assertEquals(-7, buf.readInteger());
+        assertEquals(1L << 40, buf.readLong());
+        assertEquals(1.5f, buf.readFloat(), 0);
+        assertEquals(-2.25, buf.readDouble(), 0);
+        assertEquals("héllo", buf.readString());
+        assertEquals(uuid, buf.readUuid());
+        assertEquals(0, buf.available());
+        try {
+            buf.readByte();
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+
+        buf.setInteger(1, 42);
+        assertEquals(42, buf.getInteger(1));
+        buf.setString(0, "ab");
+        assertEquals("ab", buf.getString(0));
+        assertTrue(buf.release());
+    }
+
+    @Test
+    public void testVarInts() {
+        PooledChannelBuf buf = this.pool.allocate();
+        int[] ints = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+        for (int i : ints) {
+            buf.writeVarInt(i).writeSignedVarInt(i);
+        }
+        long[] longs = {0, 1, 127, 128, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+        for (long l : longs) {
+            buf.writeVarLong(l).writeSignedVarLong(l);
+        }
+        for (int i : ints) {
+            assertEquals(i, buf.readVarInt());
+            assertEquals(i, buf.readSignedVarInt());
+        }
+        for (long l : longs) {
+            assertEquals(l, buf.readVarLong());
+            assertEquals(l, buf.readSignedVarLong());
+        }
+        assertEquals(0, buf.available());
+
+        buf.clear().writeVarInt(300);
+        assertEquals(2, buf.writerIndex());
+        buf.clear().writeSignedVarInt(-1);
+        assertEquals(1, buf.writerIndex());
+        buf.clear().writeVarInt(-1);
+        assertEquals(5, buf.writerIndex());
+
+        // A truncated varint does not move the readerIndex
+        buf.clear().writeByte((byte) 0x80);
+        try {
+            buf.readVarInt();
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        assertEquals(0, buf.readerIndex());
+        buf.clear().writeBytes(new byte[] {-1, -1, -1, -1, -1, 1});
+        try {
+            buf.readVarInt();
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        buf.release();
+    }
+
+    @Test
+    public void testStrings() {
+        PooledChannelBuf buf = this.pool.allocate();
+        String emoji = new String(Character.toChars(0x1F600));
+        String[] strings = {"", "ascii", "héllo", "€", emoji, "bad " + emoji.charAt(0) + " surrogate"};
+        for (String string : strings) {
+            buf.writeString(string);
+        }
+        for (String string : strings) {
+            assertEquals(new String(string.getBytes(Charsets.UTF_8), Charsets.UTF_8), buf.readString());
+        }
+
+        buf.clear().writeString("héllo");
+        assertArrayEquals(Bytes.concat(new byte[] {6}, "héllo".getBytes(Charsets.UTF_8)), buf.array());
+        try {
+            buf.readString(5);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        assertEquals(0, buf.readerIndex());
+        assertEquals("héllo", buf.readString(6));
+
+        // A length beyond the readable bytes is rejected before allocating
+        buf.clear().writeVarInt(Integer.MAX_VALUE);
+        try {
+            buf.readString();
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        buf.release();
+    }
+
+    @Test
+    public void testBulk() {
+        PooledChannelBuf buf = this.pool.allocate();
+        buf.writeByteArray(new byte[] {1, 2, 3});
+        buf.writeBytes(new byte[] {9, 4, 5, 9}, 1, 2);
+        buf.writeBytes(ByteBuffer.wrap(new byte[] {6, 7}));
+        assertArrayEquals(new byte[] {1, 2, 3}, buf.readByteArray(3));
+        ByteBuffer target = ByteBuffer.allocate(2);
+        buf.readBytes(target);
+        assertEquals(0, target.remaining());
+        assertEquals(4, target.get(0));
+        byte[] rest = new byte[2];
+        buf.readBytes(rest);
+        assertArrayEquals(new byte[] {6, 7}, rest);
+
+        buf.clear().writeByteArray(new byte[4]);
+        try {
+            buf.readByteArray(3);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        try {
+            buf.readBytes(new byte[10]);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        buf.release();
+    }
+
+    @Test
+    public void testDataView() {
+        MemoryDataContainer container = new MemoryDataContainer();
+        container.setInt(DataQuery.of("int"), -5);
+        container.setLong(DataQuery.of("long"), 1L << 50);
+        container.setDouble(DataQuery.of("double"), 0.5);
+        container.setBoolean(DataQuery.of("boolean"), true);
+        container.set(DataQuery.of("string"), "text");
+        container.set(DataQuery.of('.', "a.b.c"), "deep");
+        container.set(DataQuery.of("floats"), Arrays.asList(1f, 2f));
+        container.set(DataQuery.of("maps"), Arrays.asList(ImmutableMap.of("k", 1)));
+        container.set(DataQuery.of("mixed"), Arrays.asList("x", 1));
+
+        PooledChannelBuf buf = this.pool.allocate();
+        buf.writeByte((byte) 7).writeDataView(container).writeByte((byte) 8);
+        assertEquals(7, buf.readByte());
+        MemoryDataView read = (MemoryDataView) buf.readDataView();
+        assertEquals(8, buf.readByte());
+        assertEquals(0, buf.available());
+
+        MemoryDataView a = (MemoryDataView) read.getView(DataQuery.of("a")).get();
+        assertFalse(a.isLoaded());
+        assertEquals(-5, read.getInt(DataQuery.of("int"), 0));
+        assertEquals(1L << 50, read.getLong(DataQuery.of("long"), 0));
+        assertEquals(0.5, read.getDouble(DataQuery.of("double"), 0), 0);
+        assertTrue(read.getBoolean(DataQuery.of("boolean"), false));
+        assertEquals("text", read.getString(DataQuery.of("string")).get());
+        assertEquals(Arrays.asList(1f, 2f), read.getFloatList(DataQuery.of("floats")).get());
+        assertEquals(ImmutableMap.of("k", 1), read.getMapList(DataQuery.of("maps")).get().get(0));
+        assertEquals(Arrays.asList("x", 1), read.getList(DataQuery.of("mixed")).get());
+        assertFalse(a.isLoaded());
+
+        // Releasing the buffer does not affect views that are not loaded yet
+        buf.release();
+        assertEquals("deep", read.getString(DataQuery.of('.', "a.b.c")).get());
+        assertTrue(a.isLoaded());
+        assertEquals(container.getKeys(true), read.getKeys(true));
+    }
+
+    @Test
+    public void testDataViewAtIndex() {
+        MemoryDataContainer container = new MemoryDataContainer();
+        container.set(DataQuery.of('.', "a.b"), 1);
+        PooledChannelBuf buf = this.pool.allocate();
+        buf.writeInteger(0).writeDataView(container);
+        int end = buf.writerIndex();
+
+        container.set(DataQuery.of('.', "a.b"), 2);
+        buf.setDataView(4, container);
+        assertEquals(end, buf.writerIndex());
+        assertEquals(2, (int) buf.getDataView(4).getInt(DataQuery.of('.', "a.b")).get());
+        assertEquals(0, buf.readerIndex());
+
+        // A truncated view is rejected without moving the readerIndex
+        buf.setWriteIndex(end - 1).setReadIndex(4);
+        try {
+            buf.readDataView();
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        assertEquals(4, buf.readerIndex());
+        buf.release();
+    }
+
+    @Test
+    public void testDataViewDepth() {
+        // A list nested far deeper than the limit
+        PooledChannelBuf buf = this.pool.allocate();
+        buf.writeInteger(0).writeByte(DataViewCodec.LIST).writeString("a");
+        for (int i = 0; i < 10000; i++) {
+            buf.writeVarInt(1).writeByte(DataViewCodec.LIST);
+        }
+        buf.writeVarInt(0).writeByte(DataViewCodec.END);
+        buf.setInteger(0, buf.writerIndex() - 4);
+        try {
+            buf.readDataView();
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        buf.release();
+
+        // Views nested up to the limit are decoded, deeper ones are not
+        StringBuilder path = new StringBuilder("v");
+        for (int i = 0; i < DataViewCodec.MAX_DEPTH; i++) {
+            path.append(".v");
+        }
+        MemoryDataContainer container = new MemoryDataContainer();
+        container.set(DataQuery.of('.', path.toString()), 1);
+        buf = this.pool.allocate();
+        buf.writeDataView(container);
+        assertEquals(1, (int) buf.readDataView().getInt(DataQuery.of('.', path.toString())).get());
+
+        path.append(".v");
+        container.set(DataQuery.of('.', path.toString()), 1);
+        buf.writeDataView(container);
+        DataView view = buf.readDataView();
+        try {
+            view.getInt(DataQuery.of('.', path.toString()));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        buf.release();
+    }
+
+    @Test
+    public void testByteOrder() {
+        PooledChannelBuf buf = this.pool.allocate();
+        assertSame(buf, buf.order(ByteOrder.BIG_ENDIAN));
+        PooledChannelBuf little = buf.order(ByteOrder.LITTLE_ENDIAN);
+        little.writeInteger(1);
+        assertEquals(4, buf.writerIndex());
+        assertEquals(1 << 24, buf.readInteger());
+        assertEquals(4, little.readerIndex());
+        buf.release();
+    }
+
+    @Test
+    public void testGrowth() {
+        PooledChannelBuf buf = this.pool.allocate(16);
+        assertEquals(ChannelBufPool.MIN_CAPACITY, buf.getCapacity());
+        for (int i = 0; i < 1000; i++) {
+            buf.writeInteger(i);
+        }
+        assertTrue(buf.getCapacity() >= 4000);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, buf.readInteger());
+        }
+        buf.release();
+    }
+
+    @Test
+    public void testSliceSharesMemory() {
+        PooledChannelBuf buf = this.pool.allocate();
+        buf.writeInteger(1).writeInteger(2).writeInteger(3);
+        buf.readInteger();
+        PooledChannelBuf slice = buf.slice();
+        assertEquals(8, slice.available());
+        assertEquals(8, slice.getCapacity());
+
+        buf.setInteger(4, 20);
+        assertEquals(20, slice.getInteger(0));
+        slice.setInteger(4, 30);
+        assertEquals(30, buf.getInteger(8));
+        try {
+            slice.writeByte((byte) 0);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+
+        // The memory stays valid for the slice once the parent is released
+        long allocated = this.pool.getAllocated();
+        assertTrue(buf.release());
+        assertEquals(20, slice.readInteger());
+        PooledChannelBuf other = this.pool.allocate();
+        assertEquals(allocated + 1, this.pool.getAllocated());
+        assertTrue(slice.release());
+        other.release();
+    }
+
+    @Test
+    public void testReferenceCounting() {
+        PooledChannelBuf buf = this.pool.allocate();
+        buf.retain();
+        assertEquals(2, buf.refCnt());
+        assertFalse(buf.release());
+        assertTrue(buf.release());
+        assertEquals(0, buf.refCnt());
+        try {
+            buf.writeByte((byte) 1);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            buf.release();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        // The released memory is handed out again
+        long reused = this.pool.getReused();
+        this.pool.allocate().release();
+        assertEquals(reused + 1, this.pool.getReused());
+    }
+
+    @Test
+    public void testNioBuffer() {
+        PooledChannelBuf buf = this.pool.copyOf(new byte[] {1, 2, 3, 4});
+        buf.readByte();
+        ByteBuffer nio = buf.nioBuffer();
+        assertTrue(nio.isDirect());
+        assertEquals(3, nio.remaining());
+        assertEquals(2, nio.get(0));
+        nio.put(0, (byte) 9);
+        assertEquals(9, buf.getByte(1));
+        assertEquals(1, buf.readerIndex());
+        assertArrayEquals(new byte[] {1, 9, 3, 4}, buf.array());
+        buf.release();
+    }
+
+    @Test
+    public void testLargeBuffersAreNotPooled() {
+        PooledChannelBuf buf = this.pool.allocate(4096);
+        buf.release();
+        long reused = this.pool.getReused();
+        this.pool.allocate(4096).release();
+        assertEquals(reused, this.pool.getReused());
+    }
+
+}
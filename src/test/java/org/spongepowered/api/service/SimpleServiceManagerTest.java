@@ -27,15 +27,27 @@ package org.spongepowered.api.service;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.api.plugin.PluginManager;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SimpleServiceManagerTest {
@@ -120,6 +132,183 @@ public class SimpleServiceManagerTest {
 
     }
 
+    @Test
+    public void testHandleReflectsProvider() throws ProviderExistsException {
+        SimpleServiceManager serviceManager = new SimpleServiceManager(manager);
+
+        ServiceHandle<TestInterface> handle = serviceManager.getHandle(TestInterface.class);
+        assertFalse(handle.isPresent());
+        assertNull(handle.get());
+        assertFalse(handle.ref().isPresent());
+
+        serviceManager.setProvider(testPlugin, TestInterface.class, new TestImplCow());
+
+        assertTrue(handle.isPresent());
+        assertEquals("moo", handle.get().bark());
+        assertEquals("moo", handle.getUnchecked().bark());
+        assertSame(handle.ref(), handle.ref());
+        assertSame(handle, serviceManager.getHandle(TestInterface.class));
+    }
+
+    @Test(expected = ProvisioningException.class)
+    public void testHandleUncheckedWithoutProvider() {
+        SimpleServiceManager serviceManager = new SimpleServiceManager(manager);
+        serviceManager.getHandle(TestInterface.class).getUnchecked();
+    }
+
+    @Test
+    public void testReplaceProvider() throws ProviderExistsException {
+        SimpleServiceManager serviceManager = new SimpleServiceManager(manager);
+
+        final ServiceHandle<TestInterface> handle = serviceManager.getHandle(TestInterface.class);
+        ServiceReference<TestInterface> futureRef = serviceManager.potentiallyProvide(TestInterface.class);
+
+        assertFalse(serviceManager.replaceProvider(testPlugin, TestInterface.class, new TestImplCow()).isPresent());
+        assertEquals("moo", futureRef.ref().get().bark());
+
+        Optional<TestInterface> previous = serviceManager.replaceProvider(testPlugin, TestInterface.class, new TestImplDog());
+        assertEquals("moo", previous.get().bark());
+        assertEquals("woof", handle.get().bark());
+        assertEquals("woof", futureRef.ref().get().bark());
+        assertEquals("woof", serviceManager.provideUnchecked(TestInterface.class).bark());
+    }
+
+    @Test
+    public void testFutureCompletesOnRegistration() throws Exception {
+        SimpleServiceManager serviceManager = new SimpleServiceManager(manager);
+
+        ServiceReference<TestInterface> futureRef = serviceManager.potentiallyProvide(TestInterface.class);
+        ListenableFuture<TestInterface> future = futureRef.getFuture();
+        assertFalse(future.isDone());
+
+        serviceManager.setProvider(testPlugin, TestInterface.class, new TestImplCow());
+
+        assertTrue(future.isDone());
+        assertEquals("moo", future.get().bark());
+        assertEquals("moo", futureRef.await(1, TimeUnit.MILLISECONDS).bark());
+        assertTrue(serviceManager.potentiallyProvide(TestInterface.class).getFuture().isDone());
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testAwaitTimeout() throws Exception {
+        SimpleServiceManager serviceManager = new SimpleServiceManager(manager);
+        serviceManager.potentiallyProvide(TestInterface.class).await(1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testCancellingFutureKeepsReference() throws Exception {
+        SimpleServiceManager serviceManager = new SimpleServiceManager(manager);
+
+        ServiceReference<TestInterface> futureRef = serviceManager.potentiallyProvide(TestInterface.class);
+        futureRef.getFuture().cancel(true);
+        serviceManager.setProvider(testPlugin, TestInterface.class, new TestImplCow());
+
+        assertEquals("moo", futureRef.getFuture().get().bark());
+    }
+
+    @Test
+    public void testExecuteWhenPresentOnExecutor() throws ProviderExistsException {
+        SimpleServiceManager serviceManager = new SimpleServiceManager(manager);
+
+        final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        final AtomicBoolean ran = new AtomicBoolean(false);
+        ServiceReference<TestInterface> futureRef = serviceManager.potentiallyProvide(TestInterface.class);
+        futureRef.executeWhenPresent(new Predicate<TestInterface>() {
+            @Override
+            public boolean apply(TestInterface input) {
+                ran.set(true);
+                return true;
+            }
+        }, executor);
+
+        serviceManager.setProvider(testPlugin, TestInterface.class, new TestImplCow());
+        assertFalse(ran.get());
+        assertEquals(1, tasks.size());
+
+        tasks.remove().run();
+        assertTrue(ran.get());
+    }
+
+    @Test
+    public void testPriorityChain() throws ProviderExistsException {
+        SimpleServiceManager serviceManager = new SimpleServiceManager(manager);
+        final ServiceHandle<TestInterface> handle = serviceManager.getHandle(TestInterface.class);
+        TestInterface cow = new TestImplCow();
+        TestInterface dog = new TestImplDog();
+
+        serviceManager.setProvider(testPlugin, TestInterface.class, dog, ServicePriority.HIGH);
+        serviceManager.setProvider(testPlugin, TestInterface.class, cow);
+        assertEquals("woof", handle.get().bark());
+
+        assertTrue(serviceManager.removeProvider(TestInterface.class, dog));
+        assertFalse(serviceManager.removeProvider(TestInterface.class, dog));
+        assertEquals("moo", handle.get().bark());
+        assertEquals("moo", serviceManager.provideUnchecked(TestInterface.class).bark());
+
+        assertTrue(serviceManager.removeProvider(TestInterface.class, cow));
+        assertFalse(handle.isPresent());
+    }
+
+    @Test(expected = ProviderExistsException.class)
+    public void testDuplicatePriorityForbidden() throws ProviderExistsException {
+        SimpleServiceManager serviceManager = new SimpleServiceManager(manager);
+        serviceManager.setProvider(testPlugin, TestInterface.class, new TestImplCow(), ServicePriority.LOW);
+        serviceManager.setProvider(testPlugin, TestInterface.class, new TestImplDog(), ServicePriority.HIGH);
+        serviceManager.setProvider(testPlugin, TestInterface.class, new TestImplDog(), ServicePriority.LOW);
+    }
+
+    @Test
+    public void testSwapDrainsLeases() throws Exception {
+        SimpleServiceManager serviceManager = new SimpleServiceManager(manager);
+        ServiceHandle<TestInterface> handle = serviceManager.getHandle(TestInterface.class);
+        TestInterface cow = new TestImplCow();
+        serviceManager.setProvider(testPlugin, TestInterface.class, cow);
+
+        final ServiceLease<TestInterface> lease = handle.acquire();
+        ListenableFuture<TestInterface> retired = serviceManager.whenRetired(TestInterface.class, cow);
+        serviceManager.replaceProvider(testPlugin, TestInterface.class, new TestImplDog());
+        assertFalse(retired.isDone());
+
+        ServiceLease<TestInterface> newLease = handle.acquire();
+        assertEquals("woof", newLease.get().bark());
+        assertEquals("moo", lease.get().bark());
+        newLease.release();
+        assertFalse(retired.isDone());
+
+        lease.release();
+        assertTrue(retired.isDone());
+        assertSame(cow, retired.get());
+        assertTrue(serviceManager.whenRetired(TestInterface.class, cow).isDone());
+    }
+
+    @Test
+    public void testExecuteOnChange() throws ProviderExistsException {
+        SimpleServiceManager serviceManager = new SimpleServiceManager(manager);
+        TestInterface dog = new TestImplDog();
+
+        final List<String> barks = new ArrayList<String>();
+        serviceManager.potentiallyProvide(TestInterface.class).executeOnChange(new Predicate<TestInterface>() {
+            @Override
+            public boolean apply(TestInterface input) {
+                barks.add(input.bark());
+                return true;
+            }
+        }, MoreExecutors.sameThreadExecutor());
+
+        serviceManager.setProvider(testPlugin, TestInterface.class, new TestImplCow());
+        serviceManager.setProvider(testPlugin, TestInterface.class, dog, ServicePriority.HIGHEST);
+        serviceManager.setProvider(testPlugin, TestInterface.class, new TestImplDog(), ServicePriority.LOWEST);
+        serviceManager.removeProvider(TestInterface.class, dog);
+
+        assertEquals(Arrays.asList("moo", "woof", "moo"), barks);
+    }
+
     public interface TestInterface {
         public String bark();
     }
@@ -27,8 +27,10 @@ package org.spongepowered.api.service.permission;
 import org.junit.Test;
 import org.spongepowered.api.util.Tristate;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.regex.PatternSyntaxException;
 
 import static org.junit.Assert.*;
 
@@ -106,4 +108,82 @@ public class NodeTreeTest {
         assertEquals(Tristate.FALSE, nodes.get("generate.thunderstorm.explosive"));
         assertEquals(Tristate.UNDEFINED, nodes.get("random.perm"));
     }
+
+    @Test
+    public void testWildcard() throws Exception {
+        final Map<String, Boolean> testPermissions = new HashMap<String, Boolean>();
+        testPermissions.put("region.*.build", true);
+        testPermissions.put("region.spawn.build", false);
+        testPermissions.put("region.*.*.manage", true);
+
+        NodeTree nodes = NodeTree.of(testPermissions);
+
+        assertEquals(Tristate.TRUE, nodes.get("region.home.build"));
+        assertEquals(Tristate.TRUE, nodes.get("Region.Home.Build.Stone"));
+        assertEquals(Tristate.FALSE, nodes.get("region.spawn.build"));
+        assertEquals(Tristate.UNDEFINED, nodes.get("region.home"));
+        assertEquals(Tristate.UNDEFINED, nodes.get("region.home.destroy"));
+        assertEquals(Tristate.TRUE, nodes.get("region.spawn.build.manage"));
+        assertEquals(testPermissions, nodes.asMap());
+    }
+
+    @Test
+    public void testWildcardPrecedence() throws Exception {
+        final Map<String, Boolean> testPermissions = new HashMap<String, Boolean>();
+        testPermissions.put("a.*", true);
+        testPermissions.put("a.b", false);
+        testPermissions.put("a.*.c", false);
+        testPermissions.put("a.b.*", true);
+
+        NodeTree nodes = NodeTree.of(testPermissions);
+
+        assertEquals(Tristate.TRUE, nodes.get("a.x"));
+        assertEquals(Tristate.FALSE, nodes.get("a.b"));
+        assertEquals(Tristate.FALSE, nodes.get("a.x.c"));
+        assertEquals(Tristate.TRUE, nodes.get("a.b.c"));
+        assertEquals(Tristate.TRUE, nodes.get("a.x.d"));
+    }
+
+    @Test
+    public void testRegex() throws Exception {
+        final Map<String, Boolean> testPermissions = new HashMap<String, Boolean>();
+        testPermissions.put("region.{spawn|hub[0-9]+}.build", true);
+        testPermissions.put("region.{\\w+\\.nether}", false);
+        testPermissions.put("region.*.build", false);
+
+        NodeTree nodes = NodeTree.of(testPermissions);
+
+        assertEquals(Tristate.TRUE, nodes.get("region.spawn.build"));
+        assertEquals(Tristate.TRUE, nodes.get("region.HUB12.build"));
+        assertEquals(Tristate.FALSE, nodes.get("region.hub.build"));
+        assertEquals(Tristate.UNDEFINED, nodes.get("region.hub12"));
+        assertEquals(testPermissions, nodes.asMap());
+
+        NodeTree newTree = nodes.withValue("region.{spawn|hub[0-9]+}.build", Tristate.UNDEFINED);
+        assertEquals(Tristate.TRUE, nodes.get("region.hub1.build"));
+        assertEquals(Tristate.FALSE, newTree.get("region.hub1.build"));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void testInvalidRegex() throws Exception {
+        NodeTree.of(Collections.singletonMap("region.{[a-}", true));
+    }
+
+    @Test
+    public void testRepeatedLookups() throws Exception {
+        final Map<String, Boolean> testPermissions = new HashMap<String, Boolean>();
+        testPermissions.put("chat.{[a-z]+}.send", true);
+        testPermissions.put("chat.*.receive", true);
+        testPermissions.put("chat.staff.send", false);
+
+        NodeTree nodes = NodeTree.of(testPermissions);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Tristate.TRUE, nodes.get("chat.global.send"));
+            assertEquals(Tristate.UNDEFINED, nodes.get("chat.channel1.send"));
+            assertEquals(Tristate.TRUE, nodes.get("chat.channel1.receive"));
+            assertEquals(Tristate.FALSE, nodes.get("chat.staff.send"));
+            assertEquals(Tristate.TRUE, nodes.get("chat.staff.receive"));
+        }
+    }
 }
@@ -0,0 +1,310 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.persistence;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.spongepowered.api.service.persistence.data.DataContainer;
+import org.spongepowered.api.service.persistence.data.DataQuery;
+import org.spongepowered.api.service.persistence.data.DataView;
+import org.spongepowered.api.service.persistence.data.MemoryDataContainer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class BinaryDataSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        MemoryDataContainer container = new MemoryDataContainer();
+        container.setInt(DataQuery.of("int"), -42);
+        container.setLong(DataQuery.of("long"), Long.MIN_VALUE);
+        container.setDouble(DataQuery.of("double"), 0.25);
+        container.setBoolean(DataQuery.of("boolean"), true);
+        container.set(DataQuery.of("string"), "text");
+        container.set(DataQuery.of('.', "a.b.c"), 7);
+        container.set(DataQuery.of("ints"), Arrays.asList(1, -2, 300));
+        container.set(DataQuery.of("bytes"), new byte[] {1, 2, 3});
+        container.set(DataQuery.of("strings"), Arrays.asList("x", "y", "x"));
+        container.set(DataQuery.of("maps"), Arrays.asList(ImmutableMap.of("k", 1), ImmutableMap.of("k", "v")));
+
+        BinaryDataSource source = new BinaryDataSource(this.folder.newFile("data.bin"), 16);
+        source.write(container);
+        DataContainer read = source.read().get();
+
+        assertEquals(-42, (int) read.getInt(DataQuery.of("int")).get());
+        assertEquals(Long.MIN_VALUE, (long) read.getLong(DataQuery.of("long")).get());
+        assertEquals(0.25, read.getDouble(DataQuery.of("double")).get(), 0);
+        assertTrue(read.getBoolean(DataQuery.of("boolean")).get());
+        assertEquals("text", read.getString(DataQuery.of("string")).get());
+        assertEquals(7, (int) read.getInt(DataQuery.of('.', "a.b.c")).get());
+        assertEquals(Arrays.asList(1, -2, 300), read.getIntegerList(DataQuery.of("ints")).get());
+        assertEquals(Arrays.asList((byte) 1, (byte) 2, (byte) 3), read.getByteList(DataQuery.of("bytes")).get());
+        assertEquals(Arrays.asList("x", "y", "x"), read.getStringList(DataQuery.of("strings")).get());
+        List<Map<?, ?>> maps = read.getMapList(DataQuery.of("maps")).get();
+        assertEquals(2, maps.size());
+        assertEquals(1, maps.get(0).get("k"));
+        assertEquals("v", maps.get(1).get("k"));
+        assertEquals(container.getKeys(true), read.getKeys(true));
+    }
+
+    @Test
+    public void testMissingFile() {
+        BinaryDataSource source = new BinaryDataSource(new File(this.folder.getRoot(), "missing.bin"));
+        assertFalse(source.read().isPresent());
+        assertFalse(source.deserialize(TestSerializable.class).isPresent());
+    }
+
+    @Test
+    public void testSerialize() throws IOException {
+        BinaryDataSource source = new BinaryDataSource(new File(this.folder.getRoot(), "sub/data.bin"));
+        source.serialize(new TestSerializable(5));
+        assertEquals(5, (int) source.deserialize(TestSerializable.class).get().getInt(DataQuery.of("value")).get());
+        assertFalse(new File(this.folder.getRoot(), "sub/data.bin.tmp").exists());
+
+        try {
+            source.deserialize(OtherSerializable.class);
+            fail();
+        } catch (InvalidDataException expected) {
+        }
+
+        source.close();
+        assertTrue(source.isClosed());
+        try {
+            source.read();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testInvalidFile() throws IOException {
+        File file = this.folder.newFile("invalid.bin");
+        try {
+            new BinaryDataSource(file).read();
+            fail();
+        } catch (InvalidDataException expected) {
+        }
+    }
+
+    @Test
+    public void testCorruptLength() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryWriter writer = new BinaryWriter(Channels.newChannel(bytes), 16);
+        writer.writeInt(BinaryDataFormat.MAGIC);
+        writer.writeByte(BinaryDataFormat.VERSION);
+        writer.writeString("");
+        writer.writeByte(BinaryDataFormat.LONG_ARRAY);
+        writer.writeString("huge");
+        writer.writeVarInt(Integer.MAX_VALUE);
+        writer.writeSignedVarLong(1);
+        writer.flush();
+        File file = this.folder.newFile("corrupt.bin");
+        Files.write(bytes.toByteArray(), file);
+        try {
+            new BinaryDataSource(file).read();
+            fail();
+        } catch (InvalidDataException expected) {
+        }
+
+        BinaryReader reader = new BinaryReader(ByteBuffer.wrap(new byte[] {(byte) 0xFF, (byte) 0xFF, 3, 0}));
+        try {
+            reader.readLength(1);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testDeepNesting() throws IOException {
+        // A list nested far deeper than the limit
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryWriter writer = new BinaryWriter(Channels.newChannel(bytes), 16);
+        writer.writeByte(BinaryDataFormat.LIST);
+        writer.writeString("a");
+        for (int i = 0; i < 10000; i++) {
+            writer.writeVarInt(1);
+            writer.writeByte(BinaryDataFormat.LIST);
+        }
+        writer.writeVarInt(0);
+        writer.writeByte(BinaryDataFormat.END);
+        writer.flush();
+        try {
+            BinaryDataFormat.readView(new BinaryReader(ByteBuffer.wrap(bytes.toByteArray())), new MemoryDataContainer());
+            fail();
+        } catch (IOException expected) {
+        }
+
+        // Views nested up to the limit are decoded, deeper ones are not
+        StringBuilder path = new StringBuilder("v");
+        for (int i = 0; i < BinaryDataFormat.MAX_DEPTH; i++) {
+            path.append(".v");
+        }
+        MemoryDataContainer container = new MemoryDataContainer();
+        container.set(DataQuery.of('.', path.toString()), 1);
+        File file = this.folder.newFile("deep.bin");
+        BinaryDataSource source = new BinaryDataSource(file);
+        source.write(container);
+        assertEquals(1, (int) source.read().get().getInt(DataQuery.of('.', path.toString())).get());
+
+        path.append(".v");
+        container.set(DataQuery.of('.', path.toString()), 1);
+        source.write(container);
+        try {
+            source.read();
+            fail();
+        } catch (InvalidDataException expected) {
+        }
+    }
+
+    @Test
+    public void testVarInts() throws IOException {
+        int[] ints = {0, 1, -1, 63, -64, 64, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        long[] longs = {0, 1, -1, Long.MAX_VALUE, Long.MIN_VALUE, 1L << 35};
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryWriter writer = new BinaryWriter(Channels.newChannel(bytes), 16);
+        for (int i : ints) {
+            writer.writeSignedVarInt(i);
+        }
+        for (long l : longs) {
+            writer.writeSignedVarLong(l);
+        }
+        writer.writeVarInt(-1);
+        writer.flush();
+
+        BinaryReader reader = new BinaryReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), 16);
+        for (int i : ints) {
+            assertEquals(i, reader.readSignedVarInt());
+        }
+        for (long l : longs) {
+            assertEquals(l, reader.readSignedVarLong());
+        }
+        assertEquals(-1, reader.readVarInt());
+        try {
+            reader.readByte();
+            fail();
+        } catch (EOFException expected) {
+        }
+
+        bytes.reset();
+        writer = new BinaryWriter(Channels.newChannel(bytes), 16);
+        writer.writeSignedVarInt(-64);
+        writer.writeSignedVarInt(64);
+        writer.flush();
+        assertArrayEquals(new byte[] {127, (byte) 128, 1}, bytes.toByteArray());
+    }
+
+    @Test
+    public void testStringTable() throws IOException {
+        MemoryDataContainer container = new MemoryDataContainer();
+        for (int i = 0; i < 1000; i++) {
+            DataView view = container.createView(DataQuery.of("entry" + i));
+            view.set(DataQuery.of("a-rather-long-key-name"), "a-rather-long-value");
+            view.set(DataQuery.of("another-long-key-name"), i);
+        }
+        File file = this.folder.newFile("strings.bin");
+        new BinaryDataSource(file).write(container);
+        // Per entry: its own key and two tagged values with shared strings
+        assertTrue("file is " + file.length() + " bytes", file.length() < 1000 * 24);
+
+        DataContainer read = new BinaryDataSource(file).read().get();
+        assertEquals("a-rather-long-value", read.getString(DataQuery.of('.', "entry999.a-rather-long-key-name")).get());
+        assertEquals(999, (int) read.getInt(DataQuery.of('.', "entry999.another-long-key-name")).get());
+    }
+
+    @Test
+    public void testFactory() {
+        SimpleDataSourceFactory factory = new SimpleDataSourceFactory();
+        File file = new File(this.folder.getRoot(), "factory.bin");
+        Optional<DataSource> source = factory.createSource(ConfigFactory.parseMap(ImmutableMap.of(
+                "type", "binary",
+                "file", file.getPath(),
+                "buffer-size", "1k")));
+        assertTrue(source.get() instanceof BinaryDataSource);
+        assertEquals(file, ((BinaryDataSource) source.get()).getFile());
+        assertFalse(factory.createSource(ConfigFactory.parseString("type = unknown")).isPresent());
+        assertFalse(factory.createSource(ConfigFactory.empty()).isPresent());
+    }
+
+    private static final class TestSerializable implements DataSerializable {
+
+        private final int value;
+
+        TestSerializable(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public DataContainer toContainer() {
+            MemoryDataContainer container = new MemoryDataContainer();
+            container.setInt(DataQuery.of("value"), this.value);
+            return container;
+        }
+
+        @Override
+        public void serialize(DataSource source) {
+            source.serialize(this);
+        }
+
+    }
+
+    private static final class OtherSerializable implements DataSerializable {
+
+        @Override
+        public DataContainer toContainer() {
+            return new MemoryDataContainer();
+        }
+
+        @Override
+        public void serialize(DataSource source) {
+            source.serialize(this);
+        }
+
+    }
+
+}
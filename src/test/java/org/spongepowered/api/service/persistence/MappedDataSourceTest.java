@@ -0,0 +1,260 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.spongepowered.api.service.persistence.data.DataContainer;
+import org.spongepowered.api.service.persistence.data.DataQuery;
+import org.spongepowered.api.service.persistence.data.DataView;
+import org.spongepowered.api.service.persistence.data.MemoryDataContainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+public class MappedDataSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MemoryDataContainer createUsers(int count) {
+        MemoryDataContainer container = new MemoryDataContainer();
+        for (int i = 0; i < count; i++) {
+            DataView user = container.createView(DataQuery.of("user" + i));
+            user.set(DataQuery.of("name"), "User " + i);
+            user.set(DataQuery.of("balance"), i * 10L);
+            user.set(DataQuery.of("homes"), Arrays.asList(i, i + 1));
+        }
+        return container;
+    }
+
+    @Test
+    public void testPointLookups() {
+        File file = new File(this.folder.getRoot(), "users.dat");
+        MappedDataSource source = new MappedDataSource(file);
+        assertTrue(source.getKeys().isEmpty());
+        source.write(createUsers(1000));
+
+        assertEquals(1000, source.getKeys().size());
+        assertTrue(source.contains(DataQuery.of("user500")));
+        assertFalse(source.contains(DataQuery.of("user1000")));
+        assertEquals("User 500", source.get(DataQuery.of('.', "user500.name")).get());
+        assertTrue(source.contains(DataQuery.of('.', "user500.balance")));
+        assertFalse(source.contains(DataQuery.of('.', "user500.missing")));
+        DataView user = source.getView(DataQuery.of("user999")).get();
+        assertEquals(9990L, (long) user.getLong(DataQuery.of("balance")).get());
+        assertEquals(Arrays.asList(999, 1000), user.getIntegerList(DataQuery.of("homes")).get());
+        assertFalse(source.getView(DataQuery.of("user1000")).isPresent());
+        source.close();
+
+        source = new MappedDataSource(file);
+        assertEquals("User 1", source.get(DataQuery.of('.', "user1.name")).get());
+        source.close();
+    }
+
+    @Test
+    public void testUpdatesAreLogged() {
+        File file = new File(this.folder.getRoot(), "users.dat");
+        MappedDataSource source = new MappedDataSource(file);
+        source.write(createUsers(10));
+        File data = new File(file.getPath() + ".2");
+        final long size = data.length();
+
+        source.set(DataQuery.of('.', "user3.balance"), 5L);
+        source.set(DataQuery.of('.', "user10.name"), "New");
+        source.remove(DataQuery.of("user4"));
+        source.remove(DataQuery.of('.', "user5.homes"));
+
+        assertEquals(size, data.length());
+        assertEquals(5L, source.get(DataQuery.of('.', "user3.balance")).get());
+        assertEquals("User 3", source.get(DataQuery.of('.', "user3.name")).get());
+        assertEquals("New", source.get(DataQuery.of('.', "user10.name")).get());
+        assertFalse(source.contains(DataQuery.of("user4")));
+        assertFalse(source.contains(DataQuery.of('.', "user5.homes")));
+        assertTrue(source.contains(DataQuery.of('.', "user5.name")));
+        assertEquals(10, source.getKeys().size());
+        source.close();
+
+        // The log is replayed on open
+        source = new MappedDataSource(file);
+        assertEquals(5L, source.get(DataQuery.of('.', "user3.balance")).get());
+        assertEquals("New", source.get(DataQuery.of('.', "user10.name")).get());
+        assertFalse(source.contains(DataQuery.of("user4")));
+
+        source.compact();
+        assertEquals(8, new File(file.getPath() + ".wal").length());
+        assertEquals(5L, source.get(DataQuery.of('.', "user3.balance")).get());
+        assertFalse(source.contains(DataQuery.of("user4")));
+        assertFalse(source.contains(DataQuery.of('.', "user5.homes")));
+        DataContainer all = source.read().get();
+        assertEquals("User 9", all.getString(DataQuery.of('.', "user9.name")).get());
+        assertEquals(10, all.getKeys(false).size());
+        source.close();
+    }
+
+    @Test
+    public void testCompactsAtLimit() {
+        File file = new File(this.folder.getRoot(), "limit.dat");
+        MappedDataSource source = new MappedDataSource(file, 256, false);
+        for (int i = 0; i < 100; i++) {
+            source.set(DataQuery.of("key" + (i % 10)), i);
+        }
+        assertTrue(new File(file.getPath() + ".wal").length() <= 256);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(90 + i, source.get(DataQuery.of("key" + i)).get());
+        }
+        source.close();
+    }
+
+    @Test
+    public void testTornLogIsDropped() throws IOException {
+        File file = new File(this.folder.getRoot(), "torn.dat");
+        MappedDataSource source = new MappedDataSource(file);
+        source.set(DataQuery.of("a"), 1);
+        source.set(DataQuery.of("b"), 2);
+        source.close();
+
+        File wal = new File(file.getPath() + ".wal");
+        RandomAccessFile log = new RandomAccessFile(wal, "rw");
+        log.setLength(log.length() - 1);
+        log.close();
+
+        source = new MappedDataSource(file);
+        assertEquals(1, source.get(DataQuery.of("a")).get());
+        assertFalse(source.contains(DataQuery.of("b")));
+        source.set(DataQuery.of("c"), 3);
+        source.close();
+
+        source = new MappedDataSource(file);
+        assertEquals(ImmutableSet.of(DataQuery.of("a"), DataQuery.of("c")), source.getKeys());
+        source.close();
+    }
+
+    @Test
+    public void testStaleLogIsDropped() throws IOException {
+        File file = new File(this.folder.getRoot(), "stale.dat");
+        MappedDataSource source = new MappedDataSource(file);
+        source.set(DataQuery.of("a"), 1);
+        source.set(DataQuery.of("b"), 2);
+        File wal = new File(file.getPath() + ".wal");
+        final byte[] log = Files.toByteArray(wal);
+
+        // A crash after the data file was replaced leaves the old log behind
+        source.write(createUsers(2));
+        source.close();
+        Files.write(log, wal);
+
+        source = new MappedDataSource(file);
+        assertEquals(ImmutableSet.of(DataQuery.of("user0"), DataQuery.of("user1")), source.getKeys());
+        source.set(DataQuery.of("c"), 3);
+        source.close();
+
+        source = new MappedDataSource(file);
+        assertEquals(3, source.get(DataQuery.of("c")).get());
+        assertFalse(source.contains(DataQuery.of("a")));
+        source.close();
+    }
+
+    @Test
+    public void testRewriteWhileOpen() throws IOException {
+        File file = new File(this.folder.getRoot(), "open.dat");
+        MappedDataSource source = new MappedDataSource(file);
+        source.write(createUsers(5));
+        final DataView user = source.getView(DataQuery.of("user4")).get();
+        source.write(createUsers(3));
+        source.set(DataQuery.of('.', "user0.balance"), 7L);
+        source.compact();
+
+        // Only the current generation is left, the mapped ones are never replaced
+        assertEquals(ImmutableSet.of("open.dat", "open.dat.wal", "open.dat.4"), ImmutableSet.copyOf(this.folder.getRoot().list()));
+        assertEquals("User 4", user.getString(DataQuery.of("name")).get());
+        assertEquals(3, source.getKeys().size());
+        source.close();
+
+        // Stale generations are deleted on open
+        Files.write(new byte[] {1}, new File(file.getPath() + ".3"));
+        source = new MappedDataSource(file);
+        assertEquals(7L, source.get(DataQuery.of('.', "user0.balance")).get());
+        assertFalse(new File(file.getPath() + ".3").exists());
+        source.close();
+    }
+
+    @Test
+    public void testSerialize() {
+        MappedDataSource source = new MappedDataSource(new File(this.folder.getRoot(), "typed.dat"));
+        assertFalse(source.deserialize(Serializable.class).isPresent());
+        source.serialize(new Serializable());
+        assertEquals("value", source.deserialize(Serializable.class).get().getString(DataQuery.of("key")).get());
+        source.close();
+        assertTrue(source.isClosed());
+        try {
+            source.get(DataQuery.of("key"));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testFactory() {
+        File file = new File(this.folder.getRoot(), "factory.dat");
+        DataSource source = new SimpleDataSourceFactory().createSource(ConfigFactory.parseMap(ImmutableMap.of(
+                "type", "mapped",
+                "file", file.getPath(),
+                "wal-limit", "1m",
+                "sync-writes", false))).get();
+        assertTrue(source instanceof MappedDataSource);
+        assertTrue(file.isFile());
+        ((MappedDataSource) source).close();
+    }
+
+    private static final class Serializable implements DataSerializable {
+
+        @Override
+        public DataContainer toContainer() {
+            MemoryDataContainer container = new MemoryDataContainer();
+            container.set(DataQuery.of("key"), "value");
+            return container;
+        }
+
+        @Override
+        public void serialize(DataSource source) {
+            source.serialize(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.persistence.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class DataQueryTest {
+
+    @Test
+    public void testSplit() {
+        String[] paths = {"", "a", "a.b.c", ".a", "a.", "a..b", "..", ".", "a..", "..a", ".a.b..c.."};
+        for (String path : paths) {
+            assertEquals(path, Arrays.asList(path.split(Pattern.quote("."))), new DataQuery('.', path).getParts());
+        }
+        assertEquals(Arrays.asList("a", "b"), new DataQuery("::", "a::b").getParts());
+        assertEquals(Arrays.asList("a:b", "c"), new DataQuery("::", "a:b::c").getParts());
+    }
+
+    @Test
+    public void testEquality() {
+        DataQuery query = new DataQuery('/', "a/b/c");
+        assertEquals(query, new DataQuery("a", "b", "c"));
+        assertEquals(query.hashCode(), new DataQuery(Arrays.asList("a", "b", "c")).hashCode());
+        assertFalse(query.equals(new DataQuery(Arrays.asList("a", "b"))));
+        assertEquals("a.b.c", query.toString());
+
+        Map<DataQuery, Integer> map = new HashMap<DataQuery, Integer>();
+        map.put(query, 1);
+        assertEquals(1, (int) map.get(new DataQuery('.', "a.b.c")));
+    }
+
+    @Test
+    public void testInterning() {
+        DataQuery query = DataQuery.of('.', "a.b");
+        assertSame(query, DataQuery.of("a", "b"));
+        assertSame(query, new DataQuery(Arrays.asList("a", "b")).intern());
+        assertNotSame(query, new DataQuery(Arrays.asList("a", "b")));
+        assertSame(DataQuery.empty(), DataQuery.of());
+    }
+
+    @Test
+    public void testThen() {
+        DataQuery a = DataQuery.of("a");
+        DataQuery bc = DataQuery.of("b", "c");
+        assertEquals(DataQuery.of("a", "b", "c"), a.then(bc));
+        assertEquals(DataQuery.of("a", "b", "c", "d"), a.then(bc).then("d"));
+        assertSame(a, a.then(DataQuery.empty()));
+        assertSame(a, DataQuery.empty().then(a));
+    }
+
+    @Test
+    public void testQueryParts() {
+        DataQuery query = DataQuery.of("a", "b");
+        assertEquals(Arrays.asList(DataQuery.of("a"), DataQuery.of("b")), query.getQueryParts());
+        assertSame(query.getQueryParts(), query.getQueryParts());
+        assertSame(DataQuery.of("a").getQueryParts().get(0), DataQuery.of("a").getQueryParts().get(0));
+        assertTrue(DataQuery.empty().getQueryParts().isEmpty());
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.persistence.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class MemoryDataContainerTest {
+
+    private static final DataQuery A_B_C = DataQuery.of('.', "a.b.c");
+
+    @Test
+    public void testPrimitives() {
+        MemoryDataContainer container = new MemoryDataContainer();
+        container.setInt(A_B_C, 3);
+        assertEquals(3, container.getInt(A_B_C, 0));
+        assertEquals(3, (int) container.getInt(A_B_C).get());
+        assertFalse(container.getLong(A_B_C).isPresent());
+        assertEquals(7L, container.getLong(A_B_C, 7L));
+
+        container.set(A_B_C, 4L);
+        assertEquals(4L, container.getLong(A_B_C, 0L));
+        assertFalse(container.getInt(A_B_C).isPresent());
+        container.setDouble(DataQuery.of("d"), 0.5);
+        assertEquals(0.5, container.getDouble(DataQuery.of("d")).get(), 0);
+        container.set(DataQuery.of("e"), true);
+        assertTrue(container.getBoolean(DataQuery.of("e"), false));
+        container.set(DataQuery.of("f"), "text");
+        assertEquals("text", container.getString(DataQuery.of("f")).get());
+        assertEquals("text", container.get(DataQuery.of("f")).get());
+    }
+
+    @Test
+    public void testViews() {
+        MemoryDataContainer container = new MemoryDataContainer();
+        container.set(A_B_C, 1);
+        DataView b = container.getView(DataQuery.of('.', "a.b")).get();
+        assertEquals(DataQuery.of('.', "a.b"), b.getCurrentPath());
+        assertEquals("b", b.getName());
+        assertSame(container, b.getContainer());
+        assertSame(container.getView(DataQuery.of("a")).get(), b.getParent().get());
+        assertEquals(1, (int) b.getInt(DataQuery.of("c")).get());
+        assertFalse(container.getParent().isPresent());
+        assertSame(container, container.getView(DataQuery.empty()).get());
+
+        // A value in the way of a path is replaced by a view
+        container.set(DataQuery.of('.', "a.b.c.d"), 2);
+        assertEquals(2, (int) container.getInt(DataQuery.of('.', "a.b.c.d")).get());
+        assertFalse(container.getInt(A_B_C).isPresent());
+        assertFalse(container.contains(DataQuery.of('.', "x.y")));
+        assertFalse(container.contains(DataQuery.of('.', "a.b.c.d.e")));
+
+        container.remove(DataQuery.of('.', "a.b"));
+        assertFalse(container.contains(DataQuery.of('.', "a.b")));
+        assertTrue(container.contains(DataQuery.of("a")));
+        try {
+            container.remove(DataQuery.empty());
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testKeysAndValues() {
+        MemoryDataContainer container = new MemoryDataContainer();
+        container.set(DataQuery.of("x"), 1);
+        container.set(DataQuery.of("a", "b"), "c");
+        assertEquals(ImmutableSet.of(DataQuery.of("x"), DataQuery.of("a")), container.getKeys(false));
+        assertEquals(ImmutableSet.of(DataQuery.of("x"), DataQuery.of("a"), DataQuery.of("a", "b")), container.getKeys(true));
+        Map<DataQuery, Object> values = container.getValues(true);
+        assertEquals(1, values.get(DataQuery.of("x")));
+        assertEquals("c", values.get(DataQuery.of("a", "b")));
+        assertTrue(values.get(DataQuery.of("a")) instanceof DataView);
+    }
+
+    @Test
+    public void testLists() {
+        MemoryDataContainer container = new MemoryDataContainer();
+        DataQuery ints = DataQuery.of("ints");
+        container.set(ints, Arrays.asList(1, 2, 3));
+        assertEquals(MemoryDataView.INT_ARRAY, container.find(ints).type);
+        assertEquals(Arrays.asList(1, 2, 3), container.getIntegerList(ints).get());
+        assertEquals(Arrays.asList(1, 2, 3), container.getList(ints).get());
+        assertFalse(container.getLongList(ints).isPresent());
+        try {
+            container.getIntegerList(ints).get().set(0, 4);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        DataQuery bytes = DataQuery.of("bytes");
+        byte[] array = {1, 2};
+        container.set(bytes, array);
+        array[0] = 9;
+        assertEquals(Arrays.asList((byte) 1, (byte) 2), container.getByteList(bytes).get());
+
+        DataQuery strings = DataQuery.of("strings");
+        container.set(strings, Arrays.asList("a", "b"));
+        assertEquals(Arrays.asList("a", "b"), container.getStringList(strings).get());
+        assertFalse(container.getIntegerList(strings).isPresent());
+
+        DataQuery mixed = DataQuery.of("mixed");
+        container.set(mixed, Arrays.<Object>asList(1, "a", null));
+        assertEquals(Arrays.<Object>asList(1, "a", null), container.getList(mixed).get());
+        assertFalse(container.getIntegerList(mixed).isPresent());
+
+        DataQuery maps = DataQuery.of("maps");
+        List<Map<String, Integer>> mapList = Arrays.<Map<String, Integer>>asList(ImmutableMap.of("a", 1), Collections.singletonMap("b", 2));
+        container.set(maps, mapList);
+        assertEquals(mapList, container.getMapList(maps).get());
+
+        DataQuery empty = DataQuery.of("empty");
+        container.set(empty, Collections.emptyList());
+        assertTrue(container.getDoubleList(empty).get().isEmpty());
+    }
+
+    @Test
+    public void testMapsAndViewCopies() {
+        MemoryDataContainer container = new MemoryDataContainer();
+        container.set(DataQuery.of("map"), ImmutableMap.of("a", 1, "b", ImmutableMap.of("c", true)));
+        assertEquals(1, container.getInt(DataQuery.of("map", "a"), 0));
+        assertTrue(container.getBoolean(DataQuery.of("map", "b", "c"), false));
+
+        MemoryDataContainer other = new MemoryDataContainer();
+        other.set(DataQuery.of("copy"), container.getView(DataQuery.of("map")).get());
+        assertTrue(other.getBoolean(DataQuery.of("copy", "b", "c"), false));
+        container.setInt(DataQuery.of("map", "a"), 2);
+        assertEquals(1, other.getInt(DataQuery.of("copy", "a"), 0));
+    }
+
+    @Test
+    public void testCopyIntoItself() {
+        MemoryDataContainer container = new MemoryDataContainer();
+        DataView view = container.createView(DataQuery.of('.', "a.b"));
+        view.set(DataQuery.of("value"), 1);
+        try {
+            view.set(DataQuery.of("self"), view);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            view.set(DataQuery.of("root"), container);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            container.set(DataQuery.of('.', "a.b.c"), container.getView(DataQuery.of("a")).get());
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(ImmutableSet.of(DataQuery.of("value")), view.getKeys(false));
+
+        // Copying a view next to itself or over itself is fine
+        container.set(DataQuery.of('.', "a.copy"), view);
+        container.set(DataQuery.of('.', "a.b"), view);
+        assertEquals(1, container.getInt(DataQuery.of('.', "a.copy.value"), 0));
+        assertEquals(1, container.getInt(DataQuery.of('.', "a.b.value"), 0));
+    }
+
+    @Test
+    public void testLazyView() {
+        MemoryDataContainer container = new MemoryDataContainer();
+        final int[] loads = new int[1];
+        MemoryDataView view = container.createLazyView(DataQuery.of("lazy"), new MemoryDataView.Loader() {
+
+            @Override
+            public void load(MemoryDataView view) {
+                loads[0]++;
+                view.setInt(DataQuery.of("value"), 5);
+            }
+
+        });
+        assertFalse(view.isLoaded());
+        assertEquals(ImmutableSet.of(DataQuery.of("lazy")), container.getKeys(false));
+        assertEquals(0, loads[0]);
+
+        assertEquals(5, container.getInt(DataQuery.of('.', "lazy.value"), 0));
+        assertTrue(view.isLoaded());
+        view.setInt(DataQuery.of("other"), 6);
+        assertEquals(2, view.getKeys(false).size());
+        assertEquals(1, loads[0]);
+    }
+
+    @Test
+    public void testFailedLazyView() {
+        MemoryDataContainer container = new MemoryDataContainer();
+        MemoryDataView view = container.createLazyView(DataQuery.of("lazy"), new MemoryDataView.Loader() {
+
+            @Override
+            public void load(MemoryDataView view) {
+                view.setInt(DataQuery.of("value"), 5);
+                throw new IllegalArgumentException("Malformed");
+            }
+
+        });
+        for (int i = 0; i < 2; i++) {
+            try {
+                container.getInt(DataQuery.of('.', "lazy.value"), 0);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        try {
+            view.getKeys(false);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertFalse(view.isLoaded());
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Optional;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.plugin.PluginManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SimpleAsynchronousSchedulerTest {
+    private static final PluginManager manager = Mockito.mock(PluginManager.class);
+    private static final Object testPlugin = new Object();
+    private static final PluginContainer testPluginContainer = Mockito.mock(PluginContainer.class);
+    private static final Object otherPlugin = new Object();
+    private static final PluginContainer otherPluginContainer = Mockito.mock(PluginContainer.class);
+    {
+        Mockito.when(testPluginContainer.getId()).thenReturn("TestPlugin");
+        Mockito.when(otherPluginContainer.getId()).thenReturn("OtherPlugin");
+        Mockito.when(manager.fromInstance(Mockito.any())).thenReturn(Optional.<PluginContainer>absent());
+        Mockito.when(manager.fromInstance(testPlugin)).thenReturn(Optional.of(testPluginContainer));
+        Mockito.when(manager.fromInstance(otherPlugin)).thenReturn(Optional.of(otherPluginContainer));
+    }
+
+    private SimpleAsynchronousScheduler scheduler;
+
+    @After
+    public void tearDown() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testRunTask() throws InterruptedException {
+        this.scheduler = new SimpleAsynchronousScheduler(manager, 2, 16, 4);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<String> thread = new AtomicReference<String>();
+        Runnable recorder = new Runnable() {
+            @Override
+            public void run() {
+                thread.set(Thread.currentThread().getName());
+                latch.countDown();
+            }
+        };
+        Task task = this.scheduler.runTask(testPlugin, recorder).get();
+
+        assertEquals("TestPlugin-A1", task.getName().get());
+        assertFalse(task.isSynchronous());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(thread.get().startsWith("Sponge-Async-Worker-"));
+        awaitRuns(task, 1);
+        assertFalse(task.cancel());
+        assertFalse(this.scheduler.getTaskById(task.getUniqueId()).isPresent());
+        assertFalse(this.scheduler.runTask(new Object(), latchTask(latch)).isPresent());
+    }
+
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        this.scheduler = new SimpleAsynchronousScheduler(manager, 1, 2, 4);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        final Task blocker = this.scheduler.runTask(testPlugin, awaitTask(started, release)).get();
+        awaitStarted(started);
+
+        AtomicInteger counter = new AtomicInteger();
+        assertTrue(this.scheduler.runTask(testPlugin, new Counter(counter)).isPresent());
+        assertTrue(this.scheduler.runTask(testPlugin, new Counter(counter)).isPresent());
+        assertFalse(this.scheduler.runTask(testPlugin, new Counter(counter)).isPresent());
+        assertTrue(this.scheduler.runTask(otherPlugin, new Counter(counter)).isPresent());
+
+        final AtomicReference<Task> waited = new AtomicReference<Task>();
+        final AtomicInteger waitedCounter = new AtomicInteger();
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    waited.set(SimpleAsynchronousSchedulerTest.this.scheduler.runTaskOrWait(testPlugin, new Counter(waitedCounter)).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        waiter.start();
+        Thread.sleep(50);
+        assertEquals(null, waited.get());
+
+        release.countDown();
+        waiter.join(5000);
+        awaitRuns(waited.get(), 1);
+        awaitRuns(blocker, 1);
+        assertEquals(1, waitedCounter.get());
+        assertEquals(3, counter.get());
+    }
+
+    @Test
+    public void testFairness() throws InterruptedException {
+        this.scheduler = new SimpleAsynchronousScheduler(manager, 1, 16, 4);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        this.scheduler.runTask(testPlugin, awaitTask(started, release));
+        awaitStarted(started);
+
+        final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+        Task last = null;
+        for (int i = 0; i < 3; i++) {
+            this.scheduler.runTask(testPlugin, recordTask(ran, "test"));
+        }
+        for (int i = 0; i < 3; i++) {
+            last = this.scheduler.runTask(otherPlugin, recordTask(ran, "other")).get();
+        }
+        release.countDown();
+        awaitRuns(last, 1);
+        assertEquals(Arrays.asList("test", "other", "test", "other", "test", "other"), ran);
+    }
+
+    @Test
+    public void testRepeatingTask() throws InterruptedException {
+        this.scheduler = new SimpleAsynchronousScheduler(manager, 2, 16, 4);
+        AtomicInteger counter = new AtomicInteger();
+        Task task = this.scheduler.runRepeatingTaskAfter(testPlugin, new Counter(counter), TimeUnit.MILLISECONDS, 5, 5).get();
+        assertEquals(5L, (long) task.getInterval().get());
+
+        awaitRuns(task, 3);
+        assertTrue(task.cancel());
+        assertFalse(task.cancel());
+        Thread.sleep(20);
+        int runs = counter.get();
+        Thread.sleep(50);
+        assertEquals(runs, counter.get());
+        assertTrue(task.getTimings().getTotalRunTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void testCancelDelayedTask() throws InterruptedException {
+        this.scheduler = new SimpleAsynchronousScheduler(manager, 1, 16, 4);
+        Task task = this.scheduler.runTaskAfter(testPlugin, new Counter(new AtomicInteger()), TimeUnit.HOURS, 1).get();
+        assertEquals(1, this.scheduler.getScheduledTasks(testPlugin).size());
+        assertTrue(task.cancel());
+        assertTrue(this.scheduler.getScheduledTasks().isEmpty());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        this.scheduler = new SimpleAsynchronousScheduler(manager, 4, 16, 4);
+        AtomicInteger counter = new AtomicInteger();
+        List<Runnable> runnables = new ArrayList<Runnable>();
+        for (int i = 0; i < 16; i++) {
+            runnables.add(new Counter(counter));
+        }
+        TaskBatch batch = this.scheduler.runTasks(testPlugin, runnables).get();
+        batch.getFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(16, counter.get());
+        assertEquals(16, batch.getTimings().getRuns());
+        assertTrue(this.scheduler.getScheduledTasks().isEmpty());
+
+        runnables.add(new Counter(counter));
+        assertFalse(this.scheduler.runTasks(testPlugin, runnables).isPresent());
+    }
+
+    @Test
+    public void testCancelBatch() throws InterruptedException {
+        this.scheduler = new SimpleAsynchronousScheduler(manager, 1, 16, 4);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        this.scheduler.runTask(testPlugin, awaitTask(started, release));
+        awaitStarted(started);
+
+        AtomicInteger counter = new AtomicInteger();
+        TaskBatch batch = this.scheduler.runTasks(testPlugin, Arrays.asList(new Counter(counter), new Counter(counter))).get();
+        assertTrue(batch.getFuture().cancel(false));
+        assertFalse(batch.cancel());
+        Task after = this.scheduler.runTask(testPlugin, new Counter(counter)).get();
+        release.countDown();
+        awaitRuns(after, 1);
+        assertEquals(1, counter.get());
+        assertTrue(this.scheduler.getScheduledTasks().isEmpty());
+    }
+
+    @Test
+    public void testBlockingTasks() throws InterruptedException {
+        this.scheduler = new SimpleAsynchronousScheduler(manager, 1, 16, 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicReference<String> thread = new AtomicReference<String>();
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                thread.set(Thread.currentThread().getName());
+                int now = running.incrementAndGet();
+                while (true) {
+                    int max = maxRunning.get();
+                    if (now <= max || maxRunning.compareAndSet(max, now)) {
+                        break;
+                    }
+                }
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            }
+        };
+        List<Task> tasks = new ArrayList<Task>();
+        for (int i = 0; i < 6; i++) {
+            Task task = this.scheduler.runBlockingTaskAfter(testPlugin, blocking, TimeUnit.MILLISECONDS, 0).get();
+            assertTrue(task.isBlocking());
+            tasks.add(task);
+        }
+
+        Task regular = this.scheduler.runTask(testPlugin, new Counter(new AtomicInteger())).get();
+        awaitRuns(regular, 1);
+        Thread.sleep(50);
+        assertEquals(2, running.get());
+
+        release.countDown();
+        for (Task task : tasks) {
+            awaitRuns(task, 1);
+        }
+        assertEquals(2, maxRunning.get());
+        assertTrue(thread.get().startsWith("Sponge-Async-Blocking-"));
+        assertTrue(this.scheduler.getScheduledTasks().isEmpty());
+    }
+
+    @Test
+    public void testBlockingQueueCapacity() throws InterruptedException {
+        this.scheduler = new SimpleAsynchronousScheduler(manager, 1, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(this.scheduler.runBlockingTaskAfter(testPlugin, awaitTask(release), TimeUnit.MILLISECONDS, 0).isPresent());
+        assertTrue(this.scheduler.runBlockingTaskAfter(testPlugin, awaitTask(release), TimeUnit.MILLISECONDS, 0).isPresent());
+        assertFalse(this.scheduler.runBlockingTaskAfter(testPlugin, awaitTask(release), TimeUnit.MILLISECONDS, 0).isPresent());
+        assertTrue(this.scheduler.runTask(testPlugin, awaitTask(release)).isPresent());
+        release.countDown();
+    }
+
+    @Test
+    public void testPluginTimings() throws InterruptedException {
+        this.scheduler = new SimpleAsynchronousScheduler(manager, 1, 16, 4);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        final Task blocker = this.scheduler.runTask(testPlugin, awaitTask(started, release)).get();
+        awaitStarted(started);
+        final long blockerStarted = System.nanoTime();
+        Task delayed = this.scheduler.runTaskAfter(otherPlugin, new Counter(new AtomicInteger()), TimeUnit.MILLISECONDS, 5).get();
+        final long delayedDue = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(5);
+        Thread.sleep(30);
+        final long released = System.nanoTime();
+        release.countDown();
+        awaitRuns(delayed, 1);
+
+        // The delayed task was held up by the blocker on the only worker,
+        // the bounds only rely on the order of events
+        assertTrue(delayed.getTimings().getLastLateness(TimeUnit.NANOSECONDS) >= released - delayedDue);
+        assertTrue(delayed.getTimings().getLastQueueTime(TimeUnit.NANOSECONDS) > 0);
+        assertTrue(blocker.getTimings().getLastRunTime(TimeUnit.NANOSECONDS) >= released - blockerStarted);
+        List<PluginTimings> timings = this.scheduler.getPluginTimings();
+        assertEquals(2, timings.size());
+        assertSame(testPluginContainer, timings.get(0).getPlugin());
+        assertEquals(1, this.scheduler.getPluginTimings(otherPlugin).get().getHistogram().getTotal());
+    }
+
+    private static void awaitStarted(CountDownLatch started) throws InterruptedException {
+        assertTrue("timed out waiting for the task to start", started.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void awaitRuns(Task task, long runs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (task.getTimings().getRuns() < runs) {
+            assertTrue("timed out waiting for " + task, System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static Runnable awaitTask(CountDownLatch latch) {
+        return awaitTask(new CountDownLatch(1), latch);
+    }
+
+    private static Runnable awaitTask(final CountDownLatch started, final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static Runnable latchTask(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    private static Runnable recordTask(final List<String> ran, final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+
+    private static final class Counter implements Runnable {
+        private final AtomicInteger counter;
+
+        Counter(AtomicInteger counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public void run() {
+            this.counter.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.plugin.PluginManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SimpleSynchronousSchedulerTest {
+    private static final PluginManager manager = Mockito.mock(PluginManager.class);
+    private static final Object testPlugin = new Object();
+    private static final PluginContainer testPluginContainer = Mockito.mock(PluginContainer.class);
+    private static final Object otherPlugin = new Object();
+    private static final PluginContainer otherPluginContainer = Mockito.mock(PluginContainer.class);
+    {
+        Mockito.when(testPluginContainer.getId()).thenReturn("TestPlugin");
+        Mockito.when(otherPluginContainer.getId()).thenReturn("OtherPlugin");
+        Mockito.when(manager.fromInstance(Mockito.any())).thenReturn(Optional.<PluginContainer>absent());
+        Mockito.when(manager.fromInstance(testPlugin)).thenReturn(Optional.of(testPluginContainer));
+        Mockito.when(manager.fromInstance(otherPlugin)).thenReturn(Optional.of(otherPluginContainer));
+    }
+
+    @Test
+    public void testRunTask() {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        AtomicInteger counter = new AtomicInteger();
+        Task task = scheduler.runTask(testPlugin, new Counter(counter)).get();
+
+        assertEquals("TestPlugin-S1", task.getName().get());
+        assertTrue(task.isSynchronous());
+        assertEquals(task, scheduler.getTaskById(task.getUniqueId()).get());
+        assertEquals(0, counter.get());
+
+        scheduler.tick();
+        assertEquals(1, counter.get());
+        assertFalse(scheduler.getTaskById(task.getUniqueId()).isPresent());
+        assertFalse(task.cancel());
+
+        scheduler.tick();
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        Runnable noop = new Counter(new AtomicInteger());
+
+        assertFalse(scheduler.runTask(new Object(), noop).isPresent());
+        assertFalse(scheduler.runTaskAfter(testPlugin, noop, -1).isPresent());
+        assertFalse(scheduler.runRepeatingTask(testPlugin, noop, 0).isPresent());
+        assertTrue(scheduler.getScheduledTasks().isEmpty());
+    }
+
+    @Test
+    public void testDelays() {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        long[] delays = {0, 1, 63, 64, 65, 127, 4095, 4096, 4097, 300000};
+        final List<Long> ranAt = new ArrayList<Long>();
+        final SimpleSynchronousScheduler finalScheduler = scheduler;
+        for (long delay : delays) {
+            scheduler.runTaskAfter(testPlugin, new Runnable() {
+                @Override
+                public void run() {
+                    ranAt.add(finalScheduler.getTicks() - 1);
+                }
+            }, delay);
+        }
+        for (int i = 0; i <= 300000; i++) {
+            scheduler.tick();
+        }
+
+        assertEquals(delays.length, ranAt.size());
+        for (int i = 0; i < delays.length; i++) {
+            assertEquals(delays[i], (long) ranAt.get(i));
+        }
+        assertTrue(scheduler.getScheduledTasks().isEmpty());
+    }
+
+    @Test
+    public void testRepeatingTask() {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        AtomicInteger counter = new AtomicInteger();
+        Task task = scheduler.runRepeatingTaskAfter(testPlugin, new Counter(counter), 10, 5).get();
+        assertEquals(5L, (long) task.getDelay().get());
+        assertEquals(10L, (long) task.getInterval().get());
+
+        for (int i = 0; i < 5; i++) {
+            scheduler.tick();
+        }
+        assertEquals(0, counter.get());
+        scheduler.tick();
+        assertEquals(1, counter.get());
+        for (int i = 0; i < 100; i++) {
+            scheduler.tick();
+        }
+        assertEquals(11, counter.get());
+
+        assertTrue(task.cancel());
+        assertFalse(task.cancel());
+        for (int i = 0; i < 100; i++) {
+            scheduler.tick();
+        }
+        assertEquals(11, counter.get());
+        assertTrue(scheduler.getScheduledTasks(testPlugin).isEmpty());
+    }
+
+    @Test
+    public void testCancelFromTask() {
+        final SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        final AtomicInteger counter = new AtomicInteger();
+        scheduler.runRepeatingTask(testPlugin, new Runnable() {
+            @Override
+            public void run() {
+                if (counter.incrementAndGet() == 3) {
+                    scheduler.getTaskById(scheduler.getUuidOfTaskByName("TestPlugin-S1").get()).get().cancel();
+                }
+            }
+        }, 1);
+        for (int i = 0; i < 10; i++) {
+            scheduler.tick();
+        }
+        assertEquals(3, counter.get());
+    }
+
+    @Test
+    public void testFailingTask() {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        AtomicInteger counter = new AtomicInteger();
+        scheduler.runTask(testPlugin, new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected");
+            }
+        });
+        scheduler.runTask(testPlugin, new Counter(counter));
+        scheduler.tick();
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testQueries() {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        Runnable noop = new Counter(new AtomicInteger());
+        Task first = scheduler.runTaskAfter(testPlugin, noop, 10).get();
+        Task second = scheduler.runTaskAfter(testPlugin, noop, 10).get();
+        second.setName("Cleanup");
+
+        assertEquals(first.getUniqueId(), scheduler.getUuidOfTaskByName("TestPlugin-S1").get());
+        assertEquals(second.getUniqueId(), scheduler.getUuidOfTaskByName("Cleanup").get());
+        assertEquals(1, scheduler.getTasksByName("Test.*").size());
+        assertEquals(2, scheduler.getScheduledTasks(testPlugin).size());
+        assertTrue(scheduler.getScheduledTasks(new Object()).isEmpty());
+
+        first.setName("Cleanup2");
+        assertFalse(scheduler.getUuidOfTaskByName("TestPlugin-S1").isPresent());
+        assertEquals(2, scheduler.getTasksByName("Cleanup.*").size());
+        assertEquals(1, scheduler.getTasksByName("Cleanup").size());
+        assertEquals(2, scheduler.getTasksByName("Clean(up|up2)").size());
+        assertEquals(2, scheduler.getTasksByName("Cleanup2?").size());
+        assertEquals(2, scheduler.getTasksByName("(?i)cleanup.*").size());
+
+        assertTrue(first.cancel());
+        assertEquals(1, scheduler.getTasksByName("Cleanup.*").size());
+        assertEquals(1, scheduler.getScheduledTasks(testPlugin).size());
+        first.setName("Renamed");
+        assertTrue(scheduler.getTasksByName("Renamed").isEmpty());
+    }
+
+    @Test
+    public void testLiteralPrefix() {
+        assertEquals("Foo-S", TaskRegistry.literalPrefix("Foo-S.*"));
+        assertEquals("Foo-S", TaskRegistry.literalPrefix("^Foo-S\\d+"));
+        assertEquals("Fo", TaskRegistry.literalPrefix("Foo?"));
+        assertEquals("Fo", TaskRegistry.literalPrefix("Foo{2}"));
+        assertEquals("Foo", TaskRegistry.literalPrefix("Foo+"));
+        assertEquals("", TaskRegistry.literalPrefix("Foo|Bar"));
+        assertEquals("", TaskRegistry.literalPrefix("(?i)foo"));
+    }
+
+    @Test
+    public void testTickBudget() {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        scheduler.setTickBudget(1, TimeUnit.MILLISECONDS);
+        final List<String> ran = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            scheduler.runDeferrableTaskAfter(testPlugin, new Sleeper(ran, "test"), 0);
+        }
+        for (int i = 0; i < 2; i++) {
+            scheduler.runDeferrableTaskAfter(otherPlugin, new Sleeper(ran, "other"), 0);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        scheduler.runTask(testPlugin, new Counter(counter));
+
+        scheduler.tick();
+        assertEquals(1, counter.get());
+        assertEquals(1, ran.size());
+        TickStatistics statistics = scheduler.getTickStatistics();
+        assertEquals(1, statistics.getTicks());
+        assertEquals(1, statistics.getOverrunTicks());
+        assertEquals(4, statistics.getPendingDeferred());
+        assertTrue(statistics.getMaxOverrun(TimeUnit.NANOSECONDS) > 0);
+
+        for (int i = 0; i < 4; i++) {
+            scheduler.tick();
+        }
+        assertEquals(Arrays.asList("test", "other", "test", "other", "test"), ran);
+        assertEquals(0, scheduler.getTickStatistics().getPendingDeferred());
+        assertTrue(scheduler.getScheduledTasks().isEmpty());
+    }
+
+    @Test
+    public void testCancelDeferred() {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        scheduler.setTickBudget(1, TimeUnit.MILLISECONDS);
+        List<String> ran = new ArrayList<String>();
+        scheduler.runDeferrableTaskAfter(testPlugin, new Sleeper(ran, "first"), 0);
+        Task second = scheduler.runDeferrableTaskAfter(testPlugin, new Sleeper(ran, "second"), 0).get();
+        assertTrue(second.isDeferrable());
+
+        scheduler.tick();
+        assertTrue(second.cancel());
+        scheduler.tick();
+        assertEquals(Arrays.asList("first"), ran);
+    }
+
+    @Test
+    public void testDeferredRepeatingTask() {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        AtomicInteger counter = new AtomicInteger();
+        scheduler.runDeferrableRepeatingTaskAfter(testPlugin, new Counter(counter), 2, 0);
+        for (int i = 0; i < 10; i++) {
+            scheduler.tick();
+        }
+        assertEquals(5, counter.get());
+        assertEquals(0, scheduler.getTickStatistics().getOverrunTicks());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        AtomicInteger counter = new AtomicInteger();
+        final IllegalStateException failure = new IllegalStateException("expected");
+        Runnable failing = new Runnable() {
+            @Override
+            public void run() {
+                throw failure;
+            }
+        };
+        TaskBatch batch = scheduler.runTasks(testPlugin, Arrays.asList(new Counter(counter), failing, new Counter(counter))).get();
+        assertEquals(3, batch.size());
+        assertFalse(batch.getRunnable().isPresent());
+        assertEquals(1, scheduler.getScheduledTasks().size());
+        assertFalse(batch.getFuture().isDone());
+
+        scheduler.tick();
+        assertEquals(2, counter.get());
+        assertEquals(3, batch.getTimings().getRuns());
+        assertTrue(scheduler.getScheduledTasks().isEmpty());
+        assertFalse(batch.cancel());
+        try {
+            batch.getFuture().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertFalse(scheduler.runTasks(testPlugin, Collections.<Runnable>emptyList()).isPresent());
+    }
+
+    @Test
+    public void testCancelBatch() {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        AtomicInteger counter = new AtomicInteger();
+        TaskBatch first = scheduler.runTasks(testPlugin, Arrays.asList(new Counter(counter), new Counter(counter))).get();
+        TaskBatch second = scheduler.runTasks(testPlugin, Arrays.asList(new Counter(counter), new Counter(counter))).get();
+
+        assertTrue(first.cancel());
+        assertTrue(first.getFuture().isCancelled());
+        assertTrue(second.getFuture().cancel(false));
+        assertFalse(second.cancel());
+        assertTrue(scheduler.getScheduledTasks().isEmpty());
+
+        scheduler.tick();
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void testPluginTimings() {
+        SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+        scheduler.setTickBudget(1, TimeUnit.MILLISECONDS);
+        List<String> ran = new ArrayList<String>();
+        Task first = scheduler.runDeferrableTaskAfter(testPlugin, new Sleeper(ran, "first"), 0).get();
+        Task second = scheduler.runDeferrableTaskAfter(testPlugin, new Sleeper(ran, "second"), 0).get();
+        scheduler.runTask(otherPlugin, new Counter(new AtomicInteger()));
+        assertTrue(scheduler.getPluginTimings().isEmpty());
+
+        scheduler.tick();
+        scheduler.tick();
+        assertEquals(1, first.getTimings().getRuns());
+        assertTrue(first.getTimings().getMaxRunTime(TimeUnit.MILLISECONDS) >= 2);
+        assertEquals(first.getTimings().getMaxRunTime(TimeUnit.NANOSECONDS), first.getTimings().getMeanRunTime(TimeUnit.NANOSECONDS));
+        // The second task was carried over to the next tick
+        assertTrue(second.getTimings().getLastLateness(TimeUnit.MILLISECONDS) >= 2);
+
+        List<PluginTimings> timings = scheduler.getPluginTimings();
+        assertEquals(2, timings.size());
+        PluginTimings test = timings.get(0);
+        assertSame(testPluginContainer, test.getPlugin());
+        assertEquals(2, test.getRuns());
+        assertTrue(test.getMaxLateness(TimeUnit.MILLISECONDS) >= 2);
+        assertEquals(2, test.getHistogram().getTotal());
+        assertTrue(test.getHistogram().getPercentile(100, TimeUnit.MILLISECONDS) >= 2);
+        assertSame(otherPluginContainer, timings.get(1).getPlugin());
+        assertEquals(1, scheduler.getPluginTimings(otherPlugin).get().getRuns());
+        assertFalse(scheduler.getPluginTimings(new Object()).isPresent());
+    }
+
+    @Test
+    public void testRollingHistogram() {
+        RollingHistogram histogram = new RollingHistogram();
+        long second = TimeUnit.SECONDS.toNanos(1);
+        histogram.record(0, 500);
+        histogram.record(0, TimeUnit.MICROSECONDS.toNanos(3));
+        histogram.record(30 * second, TimeUnit.DAYS.toNanos(1));
+
+        TimingsHistogram snapshot = histogram.snapshot(30 * second);
+        assertEquals(3, snapshot.getTotal());
+        assertEquals(1, snapshot.getCount(0));
+        assertEquals(1, snapshot.getCount(2));
+        assertEquals(1, snapshot.getCount(RollingHistogram.BUCKETS - 1));
+        assertEquals(4, snapshot.getUpperBound(2, TimeUnit.MICROSECONDS));
+        assertEquals(4, snapshot.getPercentile(50, TimeUnit.MICROSECONDS));
+        assertEquals(Long.MAX_VALUE, snapshot.getPercentile(100, TimeUnit.MICROSECONDS));
+
+        // The first second has left the window
+        assertEquals(1, histogram.snapshot(60 * second).getTotal());
+        histogram.record(60 * second, 0);
+        assertEquals(2, histogram.snapshot(60 * second).getTotal());
+    }
+
+    private static final class Sleeper implements Runnable {
+        private final List<String> ran;
+        private final String name;
+
+        Sleeper(List<String> ran, String name) {
+            this.ran = ran;
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            this.ran.add(this.name);
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Counter implements Runnable {
+        private final AtomicInteger counter;
+
+        Counter(AtomicInteger counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public void run() {
+            this.counter.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.api.service.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.plugin.PluginManager;
+import org.spongepowered.api.service.scheduler.SimpleSynchronousScheduler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+public class QueryExecutorTest {
+    private static final PluginManager manager = Mockito.mock(PluginManager.class);
+    private static final Object testPlugin = new Object();
+    private static final PluginContainer testPluginContainer = Mockito.mock(PluginContainer.class);
+    {
+        Mockito.when(testPluginContainer.getId()).thenReturn("TestPlugin");
+        Mockito.when(manager.fromInstance(Mockito.any())).thenReturn(Optional.<PluginContainer>absent());
+        Mockito.when(manager.fromInstance(testPlugin)).thenReturn(Optional.of(testPluginContainer));
+    }
+
+    private final DataSource dataSource = Mockito.mock(DataSource.class);
+    private final Connection connection = Mockito.mock(Connection.class);
+    private final PreparedStatement statement = Mockito.mock(PreparedStatement.class);
+    private final SimpleSynchronousScheduler scheduler = new SimpleSynchronousScheduler(manager);
+    private QueryExecutor executor;
+
+    private void setUp() throws SQLException {
+        Mockito.when(this.dataSource.getConnection()).thenReturn(this.connection);
+        Mockito.when(this.connection.prepareStatement(Mockito.anyString())).thenReturn(this.statement);
+        Mockito.when(this.connection.getAutoCommit()).thenReturn(true);
+        this.executor = new QueryExecutor(testPlugin, this.dataSource, this.scheduler);
+    }
+
+    @After
+    public void tearDown() {
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryCallback() throws Exception {
+        setUp();
+        ResultSet results = Mockito.mock(ResultSet.class);
+        Mockito.when(this.statement.executeQuery()).thenReturn(results);
+        Mockito.when(results.getString(1)).thenReturn("Notch");
+
+        ListenableFuture<String> future = this.executor.query("SELECT name FROM players WHERE id = ?", new QueryExecutor.ResultHandler<String>() {
+            @Override
+            public String handle(ResultSet results) throws SQLException {
+                return results.getString(1);
+            }
+        }, 42);
+        final AtomicReference<String> delivered = new AtomicReference<String>();
+        final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        this.executor.callback(future, new FutureCallback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                delivered.set(result);
+                thread.set(Thread.currentThread());
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                fail();
+            }
+        });
+
+        assertEquals("Notch", future.get(5, TimeUnit.SECONDS));
+        // The callback only runs when the main thread ticks
+        assertNull(delivered.get());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (delivered.get() == null) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+            this.scheduler.tick();
+        }
+        assertEquals("Notch", delivered.get());
+        assertSame(Thread.currentThread(), thread.get());
+        Mockito.verify(this.statement).setObject(1, 42);
+        Mockito.verify(results).close();
+        Mockito.verify(this.statement).close();
+        Mockito.verify(this.connection).close();
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        setUp();
+        SQLException failure = new SQLException("expected");
+        Mockito.when(this.statement.executeUpdate()).thenThrow(failure);
+        ListenableFuture<Integer> future = this.executor.update("DELETE FROM players");
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        Mockito.verify(this.connection).close();
+    }
+
+    @Test
+    public void testBatchWriter() throws Exception {
+        setUp();
+        Mockito.when(this.statement.executeBatch()).thenReturn(new int[] {1, 1, 1});
+        QueryExecutor.BatchWriter<String> writer = this.executor.newBatchWriter("INSERT INTO stats VALUES (?)",
+                new QueryExecutor.Binder<String>() {
+                    @Override
+                    public void bind(PreparedStatement statement, String row) throws SQLException {
+                        statement.setString(1, row);
+                    }
+                });
+        assertEquals(0, writer.flush().get().length);
+        for (String row : Arrays.asList("a", "b", "c")) {
+            writer.add(row);
+        }
+        assertEquals(3, writer.getPending());
+
+        assertArrayEquals(new int[] {1, 1, 1}, writer.flush().get(5, TimeUnit.SECONDS));
+        assertEquals(0, writer.getPending());
+        InOrder order = Mockito.inOrder(this.connection, this.statement);
+        order.verify(this.connection).setAutoCommit(false);
+        order.verify(this.statement, Mockito.times(3)).addBatch();
+        order.verify(this.statement).executeBatch();
+        order.verify(this.connection).commit();
+        order.verify(this.connection).setAutoCommit(true);
+        Mockito.verify(this.dataSource, Mockito.times(1)).getConnection();
+    }
+
+    @Test
+    public void testRollback() throws Exception {
+        setUp();
+        Mockito.when(this.statement.executeBatch()).thenThrow(new SQLException("expected"));
+        try {
+            this.executor.batch("INSERT INTO stats VALUES (?)", Arrays.asList(1, 2), new QueryExecutor.Binder<Integer>() {
+                @Override
+                public void bind(PreparedStatement statement, Integer row) throws SQLException {
+                    statement.setInt(1, row);
+                }
+            }).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+        }
+        Mockito.verify(this.connection).rollback();
+        Mockito.verify(this.connection, Mockito.never()).commit();
+        Mockito.verify(this.connection).setAutoCommit(true);
+    }
+
+    @Test
+    public void testRollbackFailureKeepsCause() throws Exception {
+        setUp();
+        SQLException failure = new SQLException("expected");
+        Mockito.when(this.statement.executeBatch()).thenThrow(failure);
+        Mockito.doThrow(new SQLException("rollback")).when(this.connection).rollback();
+        try {
+            this.executor.batch("INSERT INTO stats VALUES (?)", Arrays.asList(1), new QueryExecutor.Binder<Integer>() {
+                @Override
+                public void bind(PreparedStatement statement, Integer row) throws SQLException {
+                    statement.setInt(1, row);
+                }
+            }).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        Mockito.verify(this.connection).setAutoCommit(true);
+        Mockito.verify(this.connection).close();
+    }
+}